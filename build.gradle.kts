@@ -67,6 +67,7 @@ dependencies {
 	implementation("org.springframework.grpc:spring-grpc-server-web-spring-boot-starter")
 	implementation("org.springframework.kafka:spring-kafka")
     implementation("org.springframework.boot:spring-boot-starter-actuator")
+    implementation("com.github.ben-manes.caffeine:caffeine")
     // Spring AI dependencies
     implementation("org.springframework.ai:spring-ai-starter-model-ollama")
     implementation("org.springframework.ai:spring-ai-starter-vector-store-pgvector")
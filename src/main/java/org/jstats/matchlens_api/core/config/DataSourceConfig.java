@@ -0,0 +1,218 @@
+package org.jstats.matchlens_api.core.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.autoconfigure.jdbc.JdbcConnectionDetails;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * Connection pools per workload, so batch work cannot take the connections interactive requests need.
+ * <ul>
+ *   <li>The primary pool ({@code spring.datasource.hikari.*}) serves prediction requests. With
+ *       {@code matchlens.datasource.replica.url} set, connections of read-only transactions are taken
+ *       from a replica pool instead ({@code matchlens.datasource.replica.hikari.*}).</li>
+ *   <li>The batch pool ({@code matchlens.datasource.batch.hikari.*}) serves ingest, the change feed,
+ *       projections, rating replays, embedding generation and prediction precomputation through the
+ *       {@code batchJdbcTemplate} and {@code batchTransactionManager} beans. It connects to the same database as the primary pool.</li>
+ *   <li>The streaming pool ({@code matchlens.datasource.streaming.hikari.*}) serves the cursors of the
+ *       NDJSON read endpoints through the {@code streamingDataSource} and {@code streamingTransactionManager}
+ *       beans. A cursor holds its connection while rows are written to the client, so slow clients
+ *       queue on this pool instead of taking interactive connections. It connects to the replica when
+ *       one is configured, otherwise to the same database as the primary pool.</li>
+ * </ul>
+ * Every pool is a Hikari pool with its own name, so its metrics ({@code hikaricp.connections.active},
+ * {@code .pending}, {@code .acquire}, ...) are exported tagged by {@code pool}.
+ */
+@Configuration
+public class DataSourceConfig {
+
+    @Bean
+    @Primary
+    DataSource dataSource(
+            DataSourceProperties properties,
+            ObjectProvider<JdbcConnectionDetails> connectionDetails,
+            @Qualifier("replicaDataSource") ObjectProvider<DataSource> replica,
+            Environment environment) {
+        HikariDataSource interactive = pool(new HikariDataSource(), connectionDetails(properties, connectionDetails),
+                "MatchlensInteractive", "spring.datasource.hikari", environment);
+        DataSource readOnly = replica.getIfAvailable();
+        if (readOnly == null) {
+            return interactive;
+        }
+        return new ReadRoutingDataSource(interactive, readOnly);
+    }
+
+    /**
+     * Hands out connections of the replica pool to read-only transactions. Connections are fetched
+     * when the first statement runs, after the transaction has been marked read-only.
+     */
+    static class ReadRoutingDataSource extends LazyConnectionDataSourceProxy implements AutoCloseable {
+
+        private final HikariDataSource primary;
+
+        ReadRoutingDataSource(HikariDataSource primary, DataSource replica) {
+            super(primary);
+            this.primary = primary;
+            setReadOnlyDataSource(replica);
+        }
+
+        /**
+         * Closes the primary pool; the replica pool is a bean of its own.
+         */
+        @Override
+        public void close() {
+            primary.close();
+        }
+    }
+
+    @Bean
+    @ConditionalOnProperty("matchlens.datasource.replica.url")
+    HikariDataSource replicaDataSource(DataSourceProperties properties, Environment environment) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setReadOnly(true);
+        return pool(pool, replicaConnectionDetails(properties, environment),
+                "MatchlensReplica", "matchlens.datasource.replica.hikari", environment);
+    }
+
+    @Bean
+    HikariDataSource batchDataSource(
+            DataSourceProperties properties,
+            ObjectProvider<JdbcConnectionDetails> connectionDetails,
+            Environment environment) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setMaximumPoolSize(4);
+        pool.setMinimumIdle(0);
+        return pool(pool, connectionDetails(properties, connectionDetails),
+                "MatchlensBatch", "matchlens.datasource.batch.hikari", environment);
+    }
+
+    @Bean
+    HikariDataSource streamingDataSource(
+            DataSourceProperties properties,
+            ObjectProvider<JdbcConnectionDetails> connectionDetails,
+            Environment environment) {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setReadOnly(true);
+        pool.setMaximumPoolSize(4);
+        pool.setMinimumIdle(0);
+        JdbcConnectionDetails database = environment.containsProperty("matchlens.datasource.replica.url")
+                ? replicaConnectionDetails(properties, environment)
+                : connectionDetails(properties, connectionDetails);
+        return pool(pool, database, "MatchlensStreaming", "matchlens.datasource.streaming.hikari", environment);
+    }
+
+    @Bean
+    @Primary
+    NamedParameterJdbcTemplate namedParameterJdbcTemplate(JdbcTemplate jdbcTemplate) {
+        return new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    @Bean
+    @Primary
+    JdbcTransactionManager transactionManager(DataSource dataSource) {
+        return new JdbcTransactionManager(dataSource);
+    }
+
+    @Bean
+    NamedParameterJdbcTemplate batchJdbcTemplate(@Qualifier("batchDataSource") DataSource batchDataSource) {
+        return new NamedParameterJdbcTemplate(batchDataSource);
+    }
+
+    @Bean
+    JdbcTransactionManager batchTransactionManager(@Qualifier("batchDataSource") DataSource batchDataSource) {
+        return new JdbcTransactionManager(batchDataSource);
+    }
+
+    @Bean
+    JdbcTransactionManager streamingTransactionManager(@Qualifier("streamingDataSource") DataSource streamingDataSource) {
+        return new JdbcTransactionManager(streamingDataSource);
+    }
+
+    /**
+     * Connection details from a service connection (Docker Compose, Testcontainers) when there is
+     * one, otherwise from {@code spring.datasource.*}.
+     */
+    private static JdbcConnectionDetails connectionDetails(
+            DataSourceProperties properties,
+            ObjectProvider<JdbcConnectionDetails> connectionDetails) {
+        return connectionDetails.getIfAvailable(() -> new JdbcConnectionDetails() {
+            @Override
+            public String getUsername() {
+                return properties.determineUsername();
+            }
+
+            @Override
+            public String getPassword() {
+                return properties.determinePassword();
+            }
+
+            @Override
+            public String getJdbcUrl() {
+                return properties.determineUrl();
+            }
+
+            @Override
+            public String getDriverClassName() {
+                return properties.determineDriverClassName();
+            }
+        });
+    }
+
+    /**
+     * Connection details of the replica; username and password default to those of
+     * {@code spring.datasource.*}.
+     */
+    private static JdbcConnectionDetails replicaConnectionDetails(
+            DataSourceProperties properties,
+            Environment environment) {
+        return new JdbcConnectionDetails() {
+            @Override
+            public String getUsername() {
+                return environment.getProperty("matchlens.datasource.replica.username", properties.determineUsername());
+            }
+
+            @Override
+            public String getPassword() {
+                return environment.getProperty("matchlens.datasource.replica.password", properties.determinePassword());
+            }
+
+            @Override
+            public String getJdbcUrl() {
+                return environment.getRequiredProperty("matchlens.datasource.replica.url");
+            }
+        };
+    }
+
+    /**
+     * Points a pool at the database and applies the Hikari settings under {@code prefix}, which
+     * override the pool's defaults.
+     */
+    private static HikariDataSource pool(
+            HikariDataSource pool,
+            JdbcConnectionDetails connectionDetails,
+            String poolName,
+            String prefix,
+            Environment environment) {
+        pool.setJdbcUrl(connectionDetails.getJdbcUrl());
+        pool.setUsername(connectionDetails.getUsername());
+        pool.setPassword(connectionDetails.getPassword());
+        pool.setDriverClassName(connectionDetails.getDriverClassName());
+        pool.setPoolName(poolName);
+        Binder.get(environment).bind(prefix, Bindable.ofInstance(pool));
+        return pool;
+    }
+}
@@ -1,5 +1,6 @@
 package org.jstats.matchlens_api.core.config;
 
+import org.jstats.matchlens_api.modules.ai_prediction.service.Bulkhead;
 import org.jstats.matchlens_api.modules.football_data_org_gatherer.ingest.FdOrgClient;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -79,6 +80,21 @@ public class ProblemHandler {
         return pd;
     }
 
+    // Load shed by a bulkhead: 429 when the wait queue is full, 503 when no capacity freed up in time
+    @ExceptionHandler(Bulkhead.RejectedException.class)
+    public ResponseEntity<ProblemDetail> shed(Bulkhead.RejectedException ex) {
+        var status = ex.reason() == Bulkhead.Reason.QUEUE_FULL
+                ? HttpStatus.TOO_MANY_REQUESTS
+                : HttpStatus.SERVICE_UNAVAILABLE;
+        var pd = ProblemDetail.forStatusAndDetail(status,
+                "Prediction capacity exhausted (" + ex.bulkhead() + "). Please retry later.");
+        pd.setType(URI.create("https://api.jstats.org/problems/overloaded"));
+        pd.setTitle("Overloaded");
+        var headers = new HttpHeaders();
+        headers.add(HttpHeaders.RETRY_AFTER, String.valueOf(ex.retryAfter().toSeconds()));
+        return new ResponseEntity<>(pd, headers, status);
+    }
+
     // Catch any other unexpected exception as a 500 Problem (avoid leaking internals)
     @ExceptionHandler(Exception.class)
     public ProblemDetail handleGeneric(Exception ex) {
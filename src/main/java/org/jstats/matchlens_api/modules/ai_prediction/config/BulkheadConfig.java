@@ -0,0 +1,78 @@
+package org.jstats.matchlens_api.modules.ai_prediction.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the bulkheads in front of the Ollama chat and embedding models. Each limits
+ * the calls in flight, and how many more may wait and for how long before being shed.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "matchlens.ai.bulkhead")
+public class BulkheadConfig {
+
+    private Limits chat = new Limits(2, 32, Duration.ofSeconds(5));
+    private Limits embedding = new Limits(4, 64, Duration.ofSeconds(2));
+
+    public Limits getChat() {
+        return chat;
+    }
+
+    public void setChat(Limits chat) {
+        this.chat = chat;
+    }
+
+    public Limits getEmbedding() {
+        return embedding;
+    }
+
+    public void setEmbedding(Limits embedding) {
+        this.embedding = embedding;
+    }
+
+    /**
+     * Limits of a single bulkhead.
+     */
+    public static class Limits {
+
+        private int maxConcurrent;
+        private int maxQueue;
+        private Duration maxWait;
+
+        public Limits() {
+            this(1, 0, Duration.ZERO);
+        }
+
+        public Limits(int maxConcurrent, int maxQueue, Duration maxWait) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueue = maxQueue;
+            this.maxWait = maxWait;
+        }
+
+        public int getMaxConcurrent() {
+            return maxConcurrent;
+        }
+
+        public void setMaxConcurrent(int maxConcurrent) {
+            this.maxConcurrent = maxConcurrent;
+        }
+
+        public int getMaxQueue() {
+            return maxQueue;
+        }
+
+        public void setMaxQueue(int maxQueue) {
+            this.maxQueue = maxQueue;
+        }
+
+        public Duration getMaxWait() {
+            return maxWait;
+        }
+
+        public void setMaxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package org.jstats.matchlens_api.modules.ai_prediction.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Configuration for the Elo team ratings. The update factor (Elo's K) and the home advantage, in
+ * rating points, can be overridden per competition code.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "matchlens.ai.elo")
+public class EloConfig {
+
+    private double initialRating = 1500;
+    private double updateFactor = 20;
+    private double homeAdvantage = 65;
+    private Map<String, Double> updateFactorByCompetition = new HashMap<>();
+    private Map<String, Double> homeAdvantageByCompetition = new HashMap<>();
+
+    public double updateFactor(String competitionCode) {
+        return updateFactorByCompetition.getOrDefault(competitionCode, updateFactor);
+    }
+
+    public double homeAdvantage(String competitionCode) {
+        return homeAdvantageByCompetition.getOrDefault(competitionCode, homeAdvantage);
+    }
+
+    public double getInitialRating() {
+        return initialRating;
+    }
+
+    public void setInitialRating(double initialRating) {
+        this.initialRating = initialRating;
+    }
+
+    public double getUpdateFactor() {
+        return updateFactor;
+    }
+
+    public void setUpdateFactor(double updateFactor) {
+        this.updateFactor = updateFactor;
+    }
+
+    public double getHomeAdvantage() {
+        return homeAdvantage;
+    }
+
+    public void setHomeAdvantage(double homeAdvantage) {
+        this.homeAdvantage = homeAdvantage;
+    }
+
+    public Map<String, Double> getUpdateFactorByCompetition() {
+        return updateFactorByCompetition;
+    }
+
+    public void setUpdateFactorByCompetition(Map<String, Double> updateFactorByCompetition) {
+        this.updateFactorByCompetition = updateFactorByCompetition;
+    }
+
+    public Map<String, Double> getHomeAdvantageByCompetition() {
+        return homeAdvantageByCompetition;
+    }
+
+    public void setHomeAdvantageByCompetition(Map<String, Double> homeAdvantageByCompetition) {
+        this.homeAdvantageByCompetition = homeAdvantageByCompetition;
+    }
+}
@@ -1,18 +1,131 @@
 package org.jstats.matchlens_api.modules.ai_prediction.config;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.jspecify.annotations.Nullable;
+import org.jstats.matchlens_api.modules.ai_prediction.model.LlmPrediction;
+import org.jstats.matchlens_api.modules.ai_prediction.service.BulkheadChatModel;
+import org.jstats.matchlens_api.modules.ai_prediction.service.OllamaBackend;
+import org.jstats.matchlens_api.modules.ai_prediction.service.OllamaBackendPool;
+import org.jstats.matchlens_api.modules.ai_prediction.service.OllamaBulkheads;
+import org.jstats.matchlens_api.modules.ai_prediction.service.RoutingChatModel;
+import org.jstats.matchlens_api.modules.ai_prediction.service.RoutingEmbeddingModel;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.model.ollama.autoconfigure.OllamaChatProperties;
+import org.springframework.ai.model.ollama.autoconfigure.OllamaConnectionProperties;
+import org.springframework.ai.model.ollama.autoconfigure.OllamaEmbeddingProperties;
 import org.springframework.ai.ollama.OllamaChatModel;
+import org.springframework.ai.ollama.OllamaEmbeddingModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
 
 /**
- * Configuration for Ollama ChatClient.
+ * Configuration for Ollama ChatClient and embedding model. Calls go through the chat bulkhead and
+ * carry the static prediction system prompt, so consecutive requests share a prompt prefix.
+ * Keeping the model loaded for {@code keep-alive} lets the server reuse that prefix's KV cache.
+ * <p>
+ * Chat and embedding calls are routed over the servers of the {@link OllamaBackendPool}; each
+ * backend gets models built from the {@code spring.ai.ollama.chat} and
+ * {@code spring.ai.ollama.embedding} options.
  */
 @Configuration
+@ConfigurationProperties(prefix = "matchlens.ai.ollama")
 public class OllamaConfig {
 
+    private Duration keepAlive = Duration.ofMinutes(30);
+    private @Nullable Integer numCtx = 4096;
+    private @Nullable Integer numPredict = 512;
+
+    @Bean
+    public OllamaBackendPool ollamaBackendPool(
+            OllamaPoolConfig poolConfig,
+            OllamaConnectionProperties connectionProperties,
+            OllamaChatProperties chatProperties,
+            OllamaEmbeddingProperties embeddingProperties,
+            ObservationRegistry observationRegistry,
+            MeterRegistry meterRegistry) {
+        List<URI> endpoints = poolConfig.getEndpoints().isEmpty()
+                ? List.of(URI.create(connectionProperties.getBaseUrl()))
+                : poolConfig.getEndpoints();
+
+        List<OllamaBackend> backends = endpoints.stream().map(endpoint -> {
+            var api = OllamaApi.builder().baseUrl(endpoint.toString()).build();
+            var chatModel = OllamaChatModel.builder()
+                    .ollamaApi(api)
+                    .defaultOptions(chatProperties.getOptions())
+                    .observationRegistry(observationRegistry)
+                    .build();
+            var embeddingModel = OllamaEmbeddingModel.builder()
+                    .ollamaApi(api)
+                    .defaultOptions(embeddingProperties.getOptions())
+                    .observationRegistry(observationRegistry)
+                    .build();
+            return new OllamaBackend(endpoint, chatModel, embeddingModel, poolConfig, meterRegistry);
+        }).toList();
+        return new OllamaBackendPool(backends, poolConfig, meterRegistry);
+    }
+
+    /**
+     * The embedding model used by the application, taking precedence over the auto-configured one.
+     */
     @Bean
-    public ChatClient chatClient(OllamaChatModel ollamaChatModel) {
-        return ChatClient.builder(ollamaChatModel).build();
+    @Primary
+    public EmbeddingModel routingEmbeddingModel(OllamaBackendPool pool) {
+        return new RoutingEmbeddingModel(pool);
+    }
+
+    @Bean
+    public ChatClient chatClient(OllamaBackendPool pool, OllamaBulkheads bulkheads) {
+        return ChatClient.builder(new BulkheadChatModel(new RoutingChatModel(pool), bulkheads.chat()))
+                .defaultSystem(PromptConfig.SYSTEM_PROMPT)
+                .defaultOptions(chatOptions())
+                .build();
+    }
+
+    /**
+     * Options added to every chat request; the model and sampling options still come from
+     * {@code spring.ai.ollama.chat.options}. The format constrains generation to the
+     * prediction schema.
+     */
+    public OllamaOptions chatOptions() {
+        return OllamaOptions.builder()
+                .format(LlmPrediction.JSON_SCHEMA)
+                .keepAlive(keepAlive.toSeconds() + "s")
+                .numCtx(numCtx)
+                .numPredict(numPredict)
+                .build();
+    }
+
+    public Duration getKeepAlive() {
+        return keepAlive;
+    }
+
+    public void setKeepAlive(Duration keepAlive) {
+        this.keepAlive = keepAlive;
+    }
+
+    public @Nullable Integer getNumCtx() {
+        return numCtx;
+    }
+
+    public void setNumCtx(@Nullable Integer numCtx) {
+        this.numCtx = numCtx;
+    }
+
+    public @Nullable Integer getNumPredict() {
+        return numPredict;
+    }
+
+    public void setNumPredict(@Nullable Integer numPredict) {
+        this.numPredict = numPredict;
     }
 }
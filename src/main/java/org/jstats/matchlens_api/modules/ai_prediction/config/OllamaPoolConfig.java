@@ -0,0 +1,75 @@
+package org.jstats.matchlens_api.modules.ai_prediction.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Configuration for the pool of Ollama servers that chat and embedding calls are spread over.
+ * Without endpoints the pool holds the single server at {@code spring.ai.ollama.base-url}.
+ * <p>
+ * A backend is taken out of rotation while its health check fails, and ejected for
+ * {@code ejection-time} after {@code failure-threshold} consecutive failed or slow calls.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "matchlens.ai.ollama.pool")
+public class OllamaPoolConfig {
+
+    private List<URI> endpoints = List.of();
+    private Duration healthCheckInterval = Duration.ofSeconds(10);
+    private Duration healthCheckTimeout = Duration.ofSeconds(2);
+    private int failureThreshold = 3;
+    private Duration slowCallThreshold = Duration.ofSeconds(60);
+    private Duration ejectionTime = Duration.ofSeconds(30);
+
+    public List<URI> getEndpoints() {
+        return endpoints;
+    }
+
+    public void setEndpoints(List<URI> endpoints) {
+        this.endpoints = endpoints;
+    }
+
+    public Duration getHealthCheckInterval() {
+        return healthCheckInterval;
+    }
+
+    public void setHealthCheckInterval(Duration healthCheckInterval) {
+        this.healthCheckInterval = healthCheckInterval;
+    }
+
+    public Duration getHealthCheckTimeout() {
+        return healthCheckTimeout;
+    }
+
+    public void setHealthCheckTimeout(Duration healthCheckTimeout) {
+        this.healthCheckTimeout = healthCheckTimeout;
+    }
+
+    public int getFailureThreshold() {
+        return failureThreshold;
+    }
+
+    public void setFailureThreshold(int failureThreshold) {
+        this.failureThreshold = failureThreshold;
+    }
+
+    public Duration getSlowCallThreshold() {
+        return slowCallThreshold;
+    }
+
+    public void setSlowCallThreshold(Duration slowCallThreshold) {
+        this.slowCallThreshold = slowCallThreshold;
+    }
+
+    public Duration getEjectionTime() {
+        return ejectionTime;
+    }
+
+    public void setEjectionTime(Duration ejectionTime) {
+        this.ejectionTime = ejectionTime;
+    }
+}
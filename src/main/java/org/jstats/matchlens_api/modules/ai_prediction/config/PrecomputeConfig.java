@@ -0,0 +1,61 @@
+package org.jstats.matchlens_api.modules.ai_prediction.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the off-peak job that precomputes predictions of upcoming fixtures.
+ * The schedule itself is read from {@code matchlens.ai.precompute.cron}.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "matchlens.ai.precompute")
+public class PrecomputeConfig {
+
+    private boolean enabled = true;
+    private Duration horizon = Duration.ofDays(7);
+    private Duration window = Duration.ofHours(4);
+    private Duration throttle = Duration.ofSeconds(2);
+    private int maxPerRun = 200;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Duration getHorizon() {
+        return horizon;
+    }
+
+    public void setHorizon(Duration horizon) {
+        this.horizon = horizon;
+    }
+
+    public Duration getWindow() {
+        return window;
+    }
+
+    public void setWindow(Duration window) {
+        this.window = window;
+    }
+
+    public Duration getThrottle() {
+        return throttle;
+    }
+
+    public void setThrottle(Duration throttle) {
+        this.throttle = throttle;
+    }
+
+    public int getMaxPerRun() {
+        return maxPerRun;
+    }
+
+    public void setMaxPerRun(int maxPerRun) {
+        this.maxPerRun = maxPerRun;
+    }
+}
@@ -3,6 +3,8 @@ package org.jstats.matchlens_api.modules.ai_prediction.config;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 /**
  * Configuration for prompt templates used in AI predictions.
  */
@@ -11,23 +13,35 @@ import org.springframework.context.annotation.Configuration;
 public class PromptConfig {
 
     private int maxContextMatches = 15;
-    private String cacheTtl = "1h";
+    private Duration cacheTtl = Duration.ofHours(1);
+    private long cacheMaxSize = 10_000;
+    private int batchMaxSize = 50;
+    private int batchConcurrency = 4;
+    private int formLength = 5;
+    private int headToHeadLength = 5;
+    private Duration latencyBudget = Duration.ofSeconds(20);
+    private int contextTokenBudget = 512;
+    private int parseRetries = 1;
+    private boolean semanticCacheEnabled = true;
+    private double semanticCacheThreshold = 0.95;
+    private Duration semanticCacheTtl = Duration.ofMinutes(30);
+    private long semanticCacheMaxSize = 2_000;
 
     /**
-     * Default prompt template for match predictions.
+     * System message for match predictions. It is identical for every request so that it forms a
+     * common prompt prefix whose KV cache the model server can reuse; request data goes into the
+     * user message only.
      */
-    public static final String PREDICTION_PROMPT_TEMPLATE = """
-            You are a football match prediction expert. Analyze the following data and predict the outcome.
+    public static final String SYSTEM_PROMPT = """
+            You are a football match prediction expert. Each request gives you one fixture with its
+            historical context and a statistical baseline.
             
-            Match: %s vs %s
-            Competition: %s
-            Date: %s
+            The historical context lists both teams' records and Elo ratings, then past matches one per
+            line as "<date> <home> <score> <away> <competition>", using the team codes given.
+            The statistical baseline holds outcome probabilities from a Poisson goal model.
             
-            Historical Context:
-            %s
-            
-            Based on the historical data provided, analyze the teams' past performances
-            and provide your prediction.
+            Analyze the teams' past performances and predict the outcome. Use the statistical baseline
+            as a prior and explain any departure from it.
             
             Respond ONLY with a valid JSON object in the following format (no markdown, no explanation outside JSON):
             {
@@ -38,6 +52,21 @@ public class PromptConfig {
             }
             """;
 
+    /**
+     * User message template for match predictions: fixture, historical context and baseline.
+     */
+    public static final String USER_PROMPT_TEMPLATE = """
+            Match: %s vs %s
+            Competition: %s
+            Date: %s
+            
+            Historical Context:
+            %s
+            
+            Statistical Baseline (Poisson goal model):
+            %s
+            """;
+
     public int getMaxContextMatches() {
         return maxContextMatches;
     }
@@ -46,11 +75,107 @@ public class PromptConfig {
         this.maxContextMatches = maxContextMatches;
     }
 
-    public String getCacheTtl() {
+    public Duration getCacheTtl() {
         return cacheTtl;
     }
 
-    public void setCacheTtl(String cacheTtl) {
+    public void setCacheTtl(Duration cacheTtl) {
         this.cacheTtl = cacheTtl;
     }
+
+    public long getCacheMaxSize() {
+        return cacheMaxSize;
+    }
+
+    public void setCacheMaxSize(long cacheMaxSize) {
+        this.cacheMaxSize = cacheMaxSize;
+    }
+
+    public int getBatchMaxSize() {
+        return batchMaxSize;
+    }
+
+    public void setBatchMaxSize(int batchMaxSize) {
+        this.batchMaxSize = batchMaxSize;
+    }
+
+    public int getBatchConcurrency() {
+        return batchConcurrency;
+    }
+
+    public void setBatchConcurrency(int batchConcurrency) {
+        this.batchConcurrency = batchConcurrency;
+    }
+
+    public int getFormLength() {
+        return formLength;
+    }
+
+    public void setFormLength(int formLength) {
+        this.formLength = formLength;
+    }
+
+    public int getHeadToHeadLength() {
+        return headToHeadLength;
+    }
+
+    public void setHeadToHeadLength(int headToHeadLength) {
+        this.headToHeadLength = headToHeadLength;
+    }
+
+    public Duration getLatencyBudget() {
+        return latencyBudget;
+    }
+
+    public void setLatencyBudget(Duration latencyBudget) {
+        this.latencyBudget = latencyBudget;
+    }
+
+    public int getContextTokenBudget() {
+        return contextTokenBudget;
+    }
+
+    public void setContextTokenBudget(int contextTokenBudget) {
+        this.contextTokenBudget = contextTokenBudget;
+    }
+
+    public int getParseRetries() {
+        return parseRetries;
+    }
+
+    public void setParseRetries(int parseRetries) {
+        this.parseRetries = parseRetries;
+    }
+
+    public boolean isSemanticCacheEnabled() {
+        return semanticCacheEnabled;
+    }
+
+    public void setSemanticCacheEnabled(boolean semanticCacheEnabled) {
+        this.semanticCacheEnabled = semanticCacheEnabled;
+    }
+
+    public double getSemanticCacheThreshold() {
+        return semanticCacheThreshold;
+    }
+
+    public void setSemanticCacheThreshold(double semanticCacheThreshold) {
+        this.semanticCacheThreshold = semanticCacheThreshold;
+    }
+
+    public Duration getSemanticCacheTtl() {
+        return semanticCacheTtl;
+    }
+
+    public void setSemanticCacheTtl(Duration semanticCacheTtl) {
+        this.semanticCacheTtl = semanticCacheTtl;
+    }
+
+    public long getSemanticCacheMaxSize() {
+        return semanticCacheMaxSize;
+    }
+
+    public void setSemanticCacheMaxSize(long semanticCacheMaxSize) {
+        this.semanticCacheMaxSize = semanticCacheMaxSize;
+    }
 }
@@ -0,0 +1,139 @@
+package org.jstats.matchlens_api.modules.ai_prediction.config;
+
+import org.jstats.matchlens_api.modules.ai_prediction.repository.MatchEmbeddingRepository;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Period;
+
+/**
+ * Configuration for similarity retrieval over match embeddings.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "matchlens.ai.retrieval")
+public class RetrievalConfig {
+
+    /**
+     * Latency/recall trade-off for HNSW searches. Higher profiles explore more of the graph.
+     */
+    public enum Profile {
+        FAST,
+        BALANCED,
+        HIGH_RECALL
+    }
+
+    private Profile profile = Profile.BALANCED;
+    private int efSearchFast = 40;
+    private int efSearchBalanced = 100;
+    private int efSearchHighRecall = 200;
+    private int maxScanTuples = 20000;
+    private Period lookback = Period.ofYears(5);
+    private int rrfK = 60;
+    private int candidatePool = 40;
+    private double wordSimilarityThreshold = 0.5;
+
+    /**
+     * Resolves the HNSW tuning for the configured profile.
+     *
+     * @return the search tuning to apply to the query
+     */
+    public MatchEmbeddingRepository.SearchTuning tuning() {
+        return tuning(profile);
+    }
+
+    /**
+     * Resolves the HNSW tuning for the given profile.
+     *
+     * @param profile the latency/recall profile
+     * @return the search tuning to apply to the query
+     */
+    public MatchEmbeddingRepository.SearchTuning tuning(Profile profile) {
+        int efSearch = switch (profile) {
+            case FAST -> efSearchFast;
+            case BALANCED -> efSearchBalanced;
+            case HIGH_RECALL -> efSearchHighRecall;
+        };
+        return new MatchEmbeddingRepository.SearchTuning(efSearch, maxScanTuples);
+    }
+
+    /**
+     * Resolves the rank fusion settings for hybrid retrieval.
+     *
+     * @return the fusion tuning to apply to the query
+     */
+    public MatchEmbeddingRepository.FusionTuning fusion() {
+        return new MatchEmbeddingRepository.FusionTuning(rrfK, candidatePool, wordSimilarityThreshold);
+    }
+
+    public Profile getProfile() {
+        return profile;
+    }
+
+    public void setProfile(Profile profile) {
+        this.profile = profile;
+    }
+
+    public int getEfSearchFast() {
+        return efSearchFast;
+    }
+
+    public void setEfSearchFast(int efSearchFast) {
+        this.efSearchFast = efSearchFast;
+    }
+
+    public int getEfSearchBalanced() {
+        return efSearchBalanced;
+    }
+
+    public void setEfSearchBalanced(int efSearchBalanced) {
+        this.efSearchBalanced = efSearchBalanced;
+    }
+
+    public int getEfSearchHighRecall() {
+        return efSearchHighRecall;
+    }
+
+    public void setEfSearchHighRecall(int efSearchHighRecall) {
+        this.efSearchHighRecall = efSearchHighRecall;
+    }
+
+    public int getMaxScanTuples() {
+        return maxScanTuples;
+    }
+
+    public void setMaxScanTuples(int maxScanTuples) {
+        this.maxScanTuples = maxScanTuples;
+    }
+
+    public Period getLookback() {
+        return lookback;
+    }
+
+    public void setLookback(Period lookback) {
+        this.lookback = lookback;
+    }
+
+    public int getRrfK() {
+        return rrfK;
+    }
+
+    public void setRrfK(int rrfK) {
+        this.rrfK = rrfK;
+    }
+
+    public int getCandidatePool() {
+        return candidatePool;
+    }
+
+    public void setCandidatePool(int candidatePool) {
+        this.candidatePool = candidatePool;
+    }
+
+    public double getWordSimilarityThreshold() {
+        return wordSimilarityThreshold;
+    }
+
+    public void setWordSimilarityThreshold(double wordSimilarityThreshold) {
+        this.wordSimilarityThreshold = wordSimilarityThreshold;
+    }
+}
@@ -0,0 +1,156 @@
+package org.jstats.matchlens_api.modules.ai_prediction.config;
+
+import org.jspecify.annotations.Nullable;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionTier;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Configuration for the prediction tiers. Each tier overrides the model, context size and token
+ * limit of {@code spring.ai.ollama.chat.options} and {@code matchlens.ai.ollama}; unset values are
+ * inherited. Interactive requests are downgraded to {@link PredictionTier#FAST} while the chat
+ * bulkhead queue or the average generation latency is at or above its threshold; while latency is
+ * the reason, one request per probe interval keeps its tier to measure it again.
+ */
+@Configuration
+@ConfigurationProperties(prefix = "matchlens.ai.tiers")
+public class TierConfig {
+
+    private PredictionTier defaultTier = PredictionTier.STANDARD;
+    private PredictionTier offlineTier = PredictionTier.DEEP;
+    private Tier fast = new Tier("llama3.2:1b", 2048, 256);
+    private Tier standard = new Tier(null, null, null);
+    private Tier deep = new Tier("llama3.1:8b", 8192, 1024);
+    private int downgradeQueueDepth = 8;
+    private Duration downgradeLatency = Duration.ofSeconds(10);
+    private Duration downgradeProbeInterval = Duration.ofSeconds(30);
+
+    /**
+     * @param tier a prediction tier
+     * @return the model settings of the tier
+     */
+    public Tier tier(PredictionTier tier) {
+        return switch (tier) {
+            case FAST -> fast;
+            case STANDARD -> standard;
+            case DEEP -> deep;
+        };
+    }
+
+    /**
+     * @param requested the tier in a request, if any
+     * @return the tier an interactive request asks for: the requested one, or the default tier
+     */
+    public PredictionTier requestedTier(@Nullable PredictionTier requested) {
+        return requested != null ? requested : defaultTier;
+    }
+
+    public PredictionTier getDefaultTier() {
+        return defaultTier;
+    }
+
+    public void setDefaultTier(PredictionTier defaultTier) {
+        this.defaultTier = defaultTier;
+    }
+
+    public PredictionTier getOfflineTier() {
+        return offlineTier;
+    }
+
+    public void setOfflineTier(PredictionTier offlineTier) {
+        this.offlineTier = offlineTier;
+    }
+
+    public Tier getFast() {
+        return fast;
+    }
+
+    public void setFast(Tier fast) {
+        this.fast = fast;
+    }
+
+    public Tier getStandard() {
+        return standard;
+    }
+
+    public void setStandard(Tier standard) {
+        this.standard = standard;
+    }
+
+    public Tier getDeep() {
+        return deep;
+    }
+
+    public void setDeep(Tier deep) {
+        this.deep = deep;
+    }
+
+    public int getDowngradeQueueDepth() {
+        return downgradeQueueDepth;
+    }
+
+    public void setDowngradeQueueDepth(int downgradeQueueDepth) {
+        this.downgradeQueueDepth = downgradeQueueDepth;
+    }
+
+    public Duration getDowngradeLatency() {
+        return downgradeLatency;
+    }
+
+    public void setDowngradeLatency(Duration downgradeLatency) {
+        this.downgradeLatency = downgradeLatency;
+    }
+
+    public Duration getDowngradeProbeInterval() {
+        return downgradeProbeInterval;
+    }
+
+    public void setDowngradeProbeInterval(Duration downgradeProbeInterval) {
+        this.downgradeProbeInterval = downgradeProbeInterval;
+    }
+
+    /**
+     * Model settings of a single tier.
+     */
+    public static class Tier {
+
+        private @Nullable String model;
+        private @Nullable Integer numCtx;
+        private @Nullable Integer numPredict;
+
+        public Tier() {
+        }
+
+        public Tier(@Nullable String model, @Nullable Integer numCtx, @Nullable Integer numPredict) {
+            this.model = model;
+            this.numCtx = numCtx;
+            this.numPredict = numPredict;
+        }
+
+        public @Nullable String getModel() {
+            return model;
+        }
+
+        public void setModel(@Nullable String model) {
+            this.model = model;
+        }
+
+        public @Nullable Integer getNumCtx() {
+            return numCtx;
+        }
+
+        public void setNumCtx(@Nullable Integer numCtx) {
+            this.numCtx = numCtx;
+        }
+
+        public @Nullable Integer getNumPredict() {
+            return numPredict;
+        }
+
+        public void setNumPredict(@Nullable Integer numPredict) {
+            this.numPredict = numPredict;
+        }
+    }
+}
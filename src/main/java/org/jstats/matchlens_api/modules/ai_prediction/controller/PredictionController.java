@@ -1,24 +1,47 @@
 package org.jstats.matchlens_api.modules.ai_prediction.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.headers.Header;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import org.jstats.matchlens_api.modules.ai_prediction.config.PromptConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.model.BatchPredictionResult;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionMode;
 import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionRequest;
 import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionResponse;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionStreamEvent;
+import org.jstats.matchlens_api.modules.ai_prediction.model.StoredPrediction;
 import org.jstats.matchlens_api.modules.ai_prediction.service.EmbeddingService;
 import org.jstats.matchlens_api.modules.ai_prediction.service.MatchPredictionService;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.matches.MatchListParams;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.matches.MatchQuery;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.matches.MatchReadProperties;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.matches.NdjsonResponses;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -30,19 +53,33 @@ import java.util.Map;
 @RequestMapping("/api/predictions")
 public class PredictionController {
 
+    private static final String RETRY_AFTER_DESCRIPTION = "Seconds to wait before retrying";
+
     private final MatchPredictionService predictionService;
     private final EmbeddingService embeddingService;
+    private final PromptConfig promptConfig;
+    private final MatchReadProperties readProperties;
+    private final ObjectMapper objectMapper;
 
     public PredictionController(
             MatchPredictionService predictionService,
-            EmbeddingService embeddingService) {
+            EmbeddingService embeddingService,
+            PromptConfig promptConfig,
+            MatchReadProperties readProperties,
+            ObjectMapper objectMapper) {
         this.predictionService = predictionService;
         this.embeddingService = embeddingService;
+        this.promptConfig = promptConfig;
+        this.readProperties = readProperties;
+        this.objectMapper = objectMapper;
     }
 
     @Operation(
             summary = "Predict match outcome using AI",
-            description = "Uses RAG-based AI to predict the outcome of a football match based on historical data",
+            description = "Uses RAG-based AI to predict the outcome of a football match based on historical data. "
+                    + "With mode=STATISTICAL the answer comes from an in-process Poisson goal model instead. "
+                    + "The optional tier (FAST, STANDARD, DEEP) picks the model; under load STANDARD and DEEP "
+                    + "requests are answered by the FAST tier",
             responses = {
                     @ApiResponse(
                             responseCode = "200",
@@ -57,6 +94,18 @@ public class PredictionController {
                             description = "Invalid request",
                             content = @Content(mediaType = "application/problem+json")
                     ),
+                    @ApiResponse(
+                            responseCode = "429",
+                            description = "Prediction capacity exhausted and its wait queue full",
+                            headers = @Header(name = HttpHeaders.RETRY_AFTER, description = RETRY_AFTER_DESCRIPTION),
+                            content = @Content(mediaType = "application/problem+json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "503",
+                            description = "No prediction capacity freed up within the wait timeout",
+                            headers = @Header(name = HttpHeaders.RETRY_AFTER, description = RETRY_AFTER_DESCRIPTION),
+                            content = @Content(mediaType = "application/problem+json")
+                    ),
                     @ApiResponse(
                             responseCode = "500",
                             description = "Internal server error",
@@ -65,8 +114,135 @@ public class PredictionController {
             }
     )
     @PostMapping
-    public PredictionResponse predict(@RequestBody @Valid PredictionRequest request) {
-        return predictionService.predict(request);
+    public PredictionResponse predict(
+            @RequestBody @Valid PredictionRequest request,
+            @Parameter(description = "LLM (default) or STATISTICAL for the in-process model without an LLM call")
+            @RequestParam(defaultValue = "LLM") PredictionMode mode) {
+        return predictionService.predict(request, mode);
+    }
+
+    @Operation(
+            summary = "Stream a match prediction",
+            description = "Server-Sent Events variant of the prediction endpoint. Emits a 'context' event with the "
+                    + "retrieved historical matches, 'token' events with model output as it is generated, and a "
+                    + "final 'prediction' event with the parsed result. When prediction capacity is exhausted after the "
+                    + "'context' event the stream ends with an 'overloaded' event carrying the reason and "
+                    + "retryAfterSeconds instead; before it, the request fails with 429 or 503",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Prediction event stream",
+                            content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE)
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid request",
+                            content = @Content(mediaType = "application/problem+json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "429",
+                            description = "Retrieval capacity exhausted and its wait queue full",
+                            headers = @Header(name = HttpHeaders.RETRY_AFTER, description = RETRY_AFTER_DESCRIPTION),
+                            content = @Content(mediaType = "application/problem+json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "503",
+                            description = "No retrieval capacity freed up within the wait timeout",
+                            headers = @Header(name = HttpHeaders.RETRY_AFTER, description = RETRY_AFTER_DESCRIPTION),
+                            content = @Content(mediaType = "application/problem+json")
+                    )
+            }
+    )
+    @PostMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<PredictionStreamEvent>> predictStream(@RequestBody @Valid PredictionRequest request) {
+        return predictionService.predictStream(request)
+                .map(event -> ServerSentEvent.builder(event)
+                        .event(event.eventName())
+                        .build());
+    }
+
+    @Operation(
+            summary = "Get the prediction for a scheduled match",
+            description = "Returns the stored prediction for an fd_match fixture. Upcoming fixtures are precomputed "
+                    + "off-peak; a fixture without a stored prediction is predicted on demand and stored",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Prediction found or generated",
+                            content = @Content(
+                                    mediaType = "application/json",
+                                    schema = @Schema(implementation = PredictionResponse.class)
+                            )
+                    ),
+                    @ApiResponse(
+                            responseCode = "404",
+                            description = "Match not found",
+                            content = @Content(mediaType = "application/problem+json")
+                    ),
+                    @ApiResponse(
+                            responseCode = "409",
+                            description = "Match has no stored prediction and is no longer upcoming",
+                            content = @Content(mediaType = "application/problem+json")
+                    )
+            }
+    )
+    @GetMapping("/matches/{matchId}")
+    public PredictionResponse predictMatch(@PathVariable long matchId) {
+        return predictionService.predictMatch(matchId)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "Match " + matchId + " not found"));
+    }
+
+    @Operation(
+            summary = "List stored predictions",
+            description = "Streams stored predictions as newline-delimited JSON in kick-off order of their fixtures, "
+                    + "optionally filtered by competition, team and kick-off days. To read the next page pass the "
+                    + "utcDate and matchId of the last line as afterDate and afterId; a page with fewer lines than "
+                    + "the limit is the last one",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Stored predictions stream",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE)
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid filter or page",
+                            content = @Content(mediaType = "application/problem+json")
+                    )
+            }
+    )
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> storedPredictions(@ParameterObject MatchListParams params) {
+        MatchQuery query = params.toQuery(readProperties);
+        return NdjsonResponses.of(objectMapper.writerFor(StoredPrediction.class),
+                action -> predictionService.forEachStored(query, action));
+    }
+
+    @Operation(
+            summary = "Predict a batch of matches",
+            description = "Predicts several fixtures, e.g. a whole matchday, in one request. Retrieval is shared "
+                    + "across the batch and model calls run concurrently; results are streamed as newline-delimited "
+                    + "JSON in completion order, each tagged with the index of its fixture in the request",
+            responses = {
+                    @ApiResponse(
+                            responseCode = "200",
+                            description = "Prediction results stream",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE)
+                    ),
+                    @ApiResponse(
+                            responseCode = "400",
+                            description = "Invalid request or batch too large",
+                            content = @Content(mediaType = "application/problem+json")
+                    )
+            }
+    )
+    @PostMapping(path = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<BatchPredictionResult> predictBatch(@RequestBody @NotEmpty List<@Valid PredictionRequest> requests) {
+        if (requests.size() > promptConfig.getBatchMaxSize()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Batch size " + requests.size() + " exceeds the maximum of " + promptConfig.getBatchMaxSize());
+        }
+        return predictionService.predictBatch(requests);
     }
 
     @Operation(
@@ -0,0 +1,14 @@
+package org.jstats.matchlens_api.modules.ai_prediction.model;
+
+/**
+ * One line of a batch prediction response.
+ *
+ * @param index      position of the fixture in the submitted batch
+ * @param request    the fixture that was predicted
+ * @param prediction the prediction for the fixture
+ */
+public record BatchPredictionResult(
+        int index,
+        PredictionRequest request,
+        PredictionResponse prediction
+) {}
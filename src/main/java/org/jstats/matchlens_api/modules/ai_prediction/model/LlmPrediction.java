@@ -0,0 +1,60 @@
+package org.jstats.matchlens_api.modules.ai_prediction.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import org.jspecify.annotations.Nullable;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The JSON object the language model answers with. {@link #JSON_SCHEMA} is passed to Ollama as
+ * the structured-output format, so the model can only generate text matching it.
+ *
+ * @param predictedWinner "HOME", "AWAY" or "DRAW"
+ * @param confidence      confidence between 0.0 and 1.0
+ * @param reasoning       the model's analysis
+ * @param keyFactors      factors the prediction rests on
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+public record LlmPrediction(
+        @Nullable String predictedWinner,
+        @Nullable Double confidence,
+        @Nullable String reasoning,
+        @Nullable List<String> keyFactors
+) {
+    private static final Set<String> OUTCOMES = Set.of("HOME", "AWAY", "DRAW");
+
+    /**
+     * JSON schema of the model's answer.
+     */
+    public static final Map<String, Object> JSON_SCHEMA = Map.of(
+            "type", "object",
+            "properties", Map.of(
+                    "predictedWinner", Map.of("type", "string", "enum", List.of("HOME", "AWAY", "DRAW")),
+                    "confidence", Map.of("type", "number", "minimum", 0, "maximum", 1),
+                    "reasoning", Map.of("type", "string"),
+                    "keyFactors", Map.of("type", "array", "items", Map.of("type", "string"))),
+            "required", List.of("predictedWinner", "confidence", "reasoning", "keyFactors"));
+
+    /**
+     * Checks the constraints the schema expresses but JSON binding does not enforce.
+     *
+     * @return true if the winner is a known outcome and the confidence is within [0, 1]
+     */
+    public boolean isValid() {
+        return predictedWinner != null && OUTCOMES.contains(predictedWinner)
+                && confidence != null && confidence >= 0 && confidence <= 1;
+    }
+
+    /**
+     * Converts the answer into a prediction response.
+     *
+     * @param relevantMatches the historical matches the prompt was built from
+     * @return the prediction, sourced from the language model
+     */
+    public PredictionResponse toResponse(List<PredictionResponse.HistoricalMatch> relevantMatches) {
+        return new PredictionResponse(predictedWinner, confidence, reasoning == null ? "" : reasoning,
+                keyFactors == null ? List.of() : keyFactors, relevantMatches);
+    }
+}
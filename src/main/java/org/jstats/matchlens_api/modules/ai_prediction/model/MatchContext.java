@@ -18,6 +18,10 @@ public record MatchContext(
 ) {
     /**
      * Represents aggregated statistics for a team.
+     *
+     * @param home       record in home matches
+     * @param away       record in away matches
+     * @param recentForm results of the latest matches, most recent first (e.g. "WWDLW")
      */
     public record TeamStats(
             int totalMatches,
@@ -25,10 +29,71 @@ public record MatchContext(
             int draws,
             int losses,
             int goalsScored,
-            int goalsConceded
+            int goalsConceded,
+            VenueRecord home,
+            VenueRecord away,
+            String recentForm
     ) {
+        public TeamStats(int totalMatches, int wins, int draws, int losses, int goalsScored, int goalsConceded) {
+            this(totalMatches, wins, draws, losses, goalsScored, goalsConceded,
+                    VenueRecord.empty(), VenueRecord.empty(), "");
+        }
+
+        /**
+         * Combines the home and away records into overall statistics.
+         */
+        public static TeamStats of(VenueRecord home, VenueRecord away, String recentForm) {
+            return new TeamStats(
+                    home.matches() + away.matches(),
+                    home.wins() + away.wins(),
+                    home.draws() + away.draws(),
+                    home.losses() + away.losses(),
+                    home.goalsScored() + away.goalsScored(),
+                    home.goalsConceded() + away.goalsConceded(),
+                    home, away, recentForm);
+        }
+
         public static TeamStats empty() {
             return new TeamStats(0, 0, 0, 0, 0, 0);
         }
     }
+
+    /**
+     * Results of a team at one venue.
+     */
+    public record VenueRecord(
+            int matches,
+            int wins,
+            int draws,
+            int losses,
+            int goalsScored,
+            int goalsConceded
+    ) {
+        public static VenueRecord empty() {
+            return new VenueRecord(0, 0, 0, 0, 0, 0);
+        }
+    }
+
+    /**
+     * Results of a team against one opponent, at either venue.
+     */
+    public record HeadToHead(
+            int meetings,
+            int wins,
+            int draws,
+            int losses,
+            int goalsScored,
+            int goalsConceded
+    ) {
+        /**
+         * The same record seen from the opponent's side.
+         */
+        public HeadToHead reversed() {
+            return new HeadToHead(meetings, losses, draws, wins, goalsConceded, goalsScored);
+        }
+
+        public static HeadToHead empty() {
+            return new HeadToHead(0, 0, 0, 0, 0, 0);
+        }
+    }
 }
@@ -0,0 +1,11 @@
+package org.jstats.matchlens_api.modules.ai_prediction.model;
+
+/**
+ * How a prediction is produced.
+ */
+public enum PredictionMode {
+    /** Retrieval-augmented LLM prediction, the default */
+    LLM,
+    /** In-process statistical model only; no retrieval and no LLM call */
+    STATISTICAL
+}
@@ -2,6 +2,7 @@ package org.jstats.matchlens_api.modules.ai_prediction.model;
 
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import org.jspecify.annotations.Nullable;
 
 import java.time.LocalDate;
 
@@ -12,10 +13,24 @@ import java.time.LocalDate;
  * @param awayTeam     name of the away team
  * @param competition  competition code (e.g., PL, CL)
  * @param matchDate    date of the match
+ * @param tier         requested latency/quality tier; the configured default if absent
  */
 public record PredictionRequest(
         @NotBlank String homeTeam,
         @NotBlank String awayTeam,
         @NotBlank String competition,
-        @NotNull LocalDate matchDate
-) {}
+        @NotNull LocalDate matchDate,
+        @Nullable PredictionTier tier
+) {
+    public PredictionRequest(String homeTeam, String awayTeam, String competition, LocalDate matchDate) {
+        this(homeTeam, awayTeam, competition, matchDate, null);
+    }
+
+    /**
+     * @param tier the tier to request
+     * @return the same fixture with the given tier
+     */
+    public PredictionRequest withTier(@Nullable PredictionTier tier) {
+        return new PredictionRequest(homeTeam, awayTeam, competition, matchDate, tier);
+    }
+}
@@ -10,14 +10,39 @@ import java.util.List;
  * @param reasoning        explanation based on historical data
  * @param keyFactors       list of key factors influencing the prediction
  * @param relevantMatches  list of historical matches used for context
+ * @param source           what produced the prediction
  */
 public record PredictionResponse(
         String predictedWinner,
         Double confidence,
         String reasoning,
         List<String> keyFactors,
-        List<HistoricalMatch> relevantMatches
+        List<HistoricalMatch> relevantMatches,
+        Source source
 ) {
+    public PredictionResponse(
+            String predictedWinner,
+            Double confidence,
+            String reasoning,
+            List<String> keyFactors,
+            List<HistoricalMatch> relevantMatches) {
+        this(predictedWinner, confidence, reasoning, keyFactors, relevantMatches, Source.LLM);
+    }
+
+    /**
+     * Origin of a prediction.
+     */
+    public enum Source {
+        /** Generated by the language model */
+        LLM,
+        /** Computed by the in-process statistical model */
+        STATISTICAL,
+        /** Majority outcome of the retrieved historical matches */
+        RETRIEVAL,
+        /** Constant answer used when no model could produce a prediction */
+        FALLBACK
+    }
+
     /**
      * Represents a historical match used for prediction context.
      */
@@ -0,0 +1,67 @@
+package org.jstats.matchlens_api.modules.ai_prediction.model;
+
+import java.util.List;
+
+/**
+ * Events emitted by a streamed prediction, in order: one {@link Context}, zero or more
+ * {@link Token}s, then exactly one {@link Result}. A stream shed for lack of capacity ends with
+ * {@link Overloaded} instead of a result.
+ */
+public sealed interface PredictionStreamEvent {
+
+    /**
+     * @return the server-sent event name for this event
+     */
+    String eventName();
+
+    /**
+     * Historical matches retrieved for the fixture, sent before generation starts.
+     *
+     * @param relevantMatches matches used as context for the prediction
+     */
+    record Context(List<PredictionResponse.HistoricalMatch> relevantMatches) implements PredictionStreamEvent {
+        @Override
+        public String eventName() {
+            return "context";
+        }
+    }
+
+    /**
+     * A chunk of the model output as it is generated.
+     *
+     * @param text the generated text chunk
+     */
+    record Token(String text) implements PredictionStreamEvent {
+        @Override
+        public String eventName() {
+            return "token";
+        }
+    }
+
+    /**
+     * The final structured prediction parsed from the complete output.
+     *
+     * @param prediction the parsed prediction
+     */
+    record Result(PredictionResponse prediction) implements PredictionStreamEvent {
+        @Override
+        public String eventName() {
+            return "prediction";
+        }
+    }
+
+    /**
+     * The prediction was shed because the model or embedding service is saturated. Sent instead
+     * of a result; the stream's response has already been committed, so this replaces the 429/503
+     * the non-streaming endpoints return.
+     *
+     * @param reason            QUEUE_FULL or WAIT_TIMEOUT
+     * @param retryAfterSeconds seconds to wait before retrying
+     */
+    record Overloaded(String reason, long retryAfterSeconds) implements PredictionStreamEvent {
+        @Override
+        public String eventName() {
+            return "overloaded";
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package org.jstats.matchlens_api.modules.ai_prediction.model;
+
+/**
+ * Latency/quality tier of an LLM prediction. Each tier maps to its own model, context size and
+ * token limit, configured under {@code matchlens.ai.tiers}.
+ */
+public enum PredictionTier {
+    /** Small model and short answers, for latency-sensitive callers */
+    FAST,
+    /** The default model */
+    STANDARD,
+    /** Larger model and context, for batch and offline work */
+    DEEP
+}
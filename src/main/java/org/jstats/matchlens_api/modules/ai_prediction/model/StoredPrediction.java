@@ -0,0 +1,27 @@
+package org.jstats.matchlens_api.modules.ai_prediction.model;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import org.jspecify.annotations.Nullable;
+
+import java.time.OffsetDateTime;
+
+/**
+ * A stored prediction as listed by the prediction read API.
+ *
+ * @param matchId     the predicted fd_match fixture
+ * @param competition competition code, or its name if it has no code
+ * @param utcDate     kick-off time
+ * @param homeTeam    home team name
+ * @param awayTeam    away team name
+ * @param createdAt   when the prediction was stored
+ * @param prediction  the stored {@link PredictionResponse} JSON, written through unchanged
+ */
+public record StoredPrediction(
+        long matchId,
+        String competition,
+        OffsetDateTime utcDate,
+        @Nullable String homeTeam,
+        @Nullable String awayTeam,
+        OffsetDateTime createdAt,
+        @JsonRawValue String prediction
+) {}
@@ -0,0 +1,305 @@
+package org.jstats.matchlens_api.modules.ai_prediction.repository;
+
+import org.jspecify.annotations.Nullable;
+import org.jstats.matchlens_api.modules.ai_prediction.model.MatchContext;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for the head_to_head read model.
+ * <p>
+ * Like {@link TeamStatsRepository}, finished matches are folded in incrementally and claimed in
+ * projection_applied with their score by the same statement, so replays never count a meeting twice
+ * and a corrected score replaces the one counted before. The IDs of the latest meetings are
+ * recomputed for every pair a match touches. Results as they stood before an earlier date are
+ * computed from fd_match, see {@link #findAsOf}.
+ */
+@Repository
+public class HeadToHeadRepository {
+
+    static final String PROJECTION = "head_to_head";
+
+    private static final String LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtext('" + PROJECTION + "'))";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public HeadToHeadRepository(
+            @Qualifier("batchJdbcTemplate") NamedParameterJdbcTemplate jdbcTemplate,
+            @Qualifier("batchTransactionManager") PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * An unordered pair of teams, normalized so the lower ID is team A.
+     */
+    public record TeamPair(long teamAId, long teamBId) {
+        public static TeamPair of(long teamId, long otherTeamId) {
+            return teamId < otherTeamId ? new TeamPair(teamId, otherTeamId) : new TeamPair(otherTeamId, teamId);
+        }
+    }
+
+    /**
+     * Results between two teams.
+     *
+     * @param pair           the two teams
+     * @param results        results seen from team A's side
+     * @param recentMatchIds IDs of the latest meetings, most recent first
+     * @param lastMatchDate  kick-off of the latest counted meeting
+     */
+    public record HeadToHeadRow(
+            TeamPair pair,
+            MatchContext.HeadToHead results,
+            List<Long> recentMatchIds,
+            @Nullable OffsetDateTime lastMatchDate) {}
+
+    /**
+     * Adds finished matches that have not been applied yet, or whose score changed since, to the
+     * pairs' results and refreshes the latest meetings of those pairs.
+     *
+     * @param matchId      the match to apply, or null to apply every pending finished match
+     * @param recentLength number of latest meetings kept per pair
+     * @return the pairs whose results changed
+     */
+    public List<TeamPair> applyFinishedMatches(@Nullable Long matchId, int recentLength) {
+        String sql = """
+                WITH candidates AS (
+                    SELECT m.id, m.ft_home_goals, m.ft_away_goals
+                    FROM fd_match m
+                    WHERE m.status = 'FINISHED'
+                      AND m.home_team_id IS NOT NULL
+                      AND m.away_team_id IS NOT NULL
+                      AND m.home_team_id <> m.away_team_id
+                      AND m.utc_date IS NOT NULL
+                      AND m.ft_home_goals IS NOT NULL
+                      AND m.ft_away_goals IS NOT NULL
+                      %s
+                ),
+                previous AS (
+                    SELECT p.match_id, p.home_goals, p.away_goals
+                    FROM projection_applied p
+                    WHERE p.projection = :projection
+                      AND p.match_id IN (SELECT id FROM candidates)
+                ),
+                claimed AS (
+                    INSERT INTO projection_applied (projection, match_id, home_goals, away_goals)
+                    SELECT :projection, c.id, c.ft_home_goals, c.ft_away_goals
+                    FROM candidates c
+                    ON CONFLICT (projection, match_id) DO UPDATE SET
+                        home_goals = EXCLUDED.home_goals,
+                        away_goals = EXCLUDED.away_goals,
+                        applied_at = now()
+                    WHERE (projection_applied.home_goals, projection_applied.away_goals)
+                          IS DISTINCT FROM (EXCLUDED.home_goals, EXCLUDED.away_goals)
+                    RETURNING match_id, home_goals, away_goals
+                ),
+                scores AS (
+                    -- The claimed score is added; the score it replaces, if any, is taken back out
+                    SELECT c.match_id, c.home_goals, c.away_goals, 1 AS weight
+                    FROM claimed c
+                    UNION ALL
+                    SELECT p.match_id, p.home_goals, p.away_goals, -1
+                    FROM claimed c JOIN previous p ON p.match_id = c.match_id
+                ),
+                results AS (
+                    SELECT least(m.home_team_id, m.away_team_id) AS team_a_id,
+                           greatest(m.home_team_id, m.away_team_id) AS team_b_id,
+                           CASE WHEN m.home_team_id < m.away_team_id
+                                THEN s.home_goals
+                                ELSE s.away_goals
+                           END AS team_a_goals,
+                           CASE WHEN m.home_team_id < m.away_team_id
+                                THEN s.away_goals
+                                ELSE s.home_goals
+                           END AS team_b_goals,
+                           s.weight
+                    FROM scores s JOIN fd_match m ON m.id = s.match_id
+                )
+                INSERT INTO head_to_head (
+                    team_a_id, team_b_id, meetings, team_a_wins, draws, team_b_wins, team_a_goals, team_b_goals)
+                SELECT team_a_id, team_b_id,
+                       sum(weight),
+                       coalesce(sum(weight) FILTER (WHERE team_a_goals > team_b_goals), 0),
+                       coalesce(sum(weight) FILTER (WHERE team_a_goals = team_b_goals), 0),
+                       coalesce(sum(weight) FILTER (WHERE team_a_goals < team_b_goals), 0),
+                       sum(weight * team_a_goals),
+                       sum(weight * team_b_goals)
+                FROM results
+                GROUP BY team_a_id, team_b_id
+                ON CONFLICT (team_a_id, team_b_id) DO UPDATE SET
+                    meetings     = head_to_head.meetings + EXCLUDED.meetings,
+                    team_a_wins  = head_to_head.team_a_wins + EXCLUDED.team_a_wins,
+                    draws        = head_to_head.draws + EXCLUDED.draws,
+                    team_b_wins  = head_to_head.team_b_wins + EXCLUDED.team_b_wins,
+                    team_a_goals = head_to_head.team_a_goals + EXCLUDED.team_a_goals,
+                    team_b_goals = head_to_head.team_b_goals + EXCLUDED.team_b_goals,
+                    updated_at   = now()
+                RETURNING team_a_id, team_b_id
+                """.formatted(matchId == null ? "" : "AND m.id = :matchId");
+
+        // Both orientations are read from the per-side partial results indexes, newest first
+        String recentSql = """
+                UPDATE head_to_head h
+                SET recent_match_ids = r.ids, last_match_date = r.last_match_date
+                FROM (
+                    SELECT p.team_a_id, p.team_b_id,
+                           array_agg(x.id ORDER BY x.utc_date DESC, x.id DESC) AS ids,
+                           max(x.utc_date) AS last_match_date
+                    FROM head_to_head p
+                    CROSS JOIN LATERAL (
+                        SELECT id, utc_date FROM (
+                            (SELECT m.id, m.utc_date FROM fd_match m
+                             WHERE m.home_team_id = p.team_a_id AND m.away_team_id = p.team_b_id
+                               AND m.status = 'FINISHED' AND m.utc_date IS NOT NULL
+                               AND m.ft_home_goals IS NOT NULL
+                               AND m.ft_away_goals IS NOT NULL
+                             ORDER BY m.utc_date DESC
+                             LIMIT :recentLength)
+                            UNION ALL
+                            (SELECT m.id, m.utc_date FROM fd_match m
+                             WHERE m.home_team_id = p.team_b_id AND m.away_team_id = p.team_a_id
+                               AND m.status = 'FINISHED' AND m.utc_date IS NOT NULL
+                               AND m.ft_home_goals IS NOT NULL
+                               AND m.ft_away_goals IS NOT NULL
+                             ORDER BY m.utc_date DESC
+                             LIMIT :recentLength)
+                        ) meetings
+                        ORDER BY utc_date DESC, id DESC
+                        LIMIT :recentLength
+                    ) x
+                    WHERE (p.team_a_id, p.team_b_id) IN (:pairs)
+                    GROUP BY p.team_a_id, p.team_b_id
+                ) r
+                WHERE h.team_a_id = r.team_a_id AND h.team_b_id = r.team_b_id
+                """;
+
+        var params = new MapSqlParameterSource()
+                .addValue("projection", PROJECTION)
+                .addValue("matchId", matchId)
+                .addValue("recentLength", recentLength);
+
+        List<TeamPair> pairs = transactionTemplate.execute(status -> {
+            // The previous score is read before it is replaced, so concurrent applications must not interleave
+            jdbcTemplate.getJdbcTemplate().execute(LOCK_SQL);
+            List<TeamPair> changed = jdbcTemplate.query(sql, params,
+                    (rs, rowNum) -> new TeamPair(rs.getLong("team_a_id"), rs.getLong("team_b_id")));
+            if (!changed.isEmpty()) {
+                jdbcTemplate.update(recentSql, params.addValue("pairs", toTuples(changed)));
+            }
+            return changed;
+        });
+        return pairs == null ? List.of() : pairs;
+    }
+
+    /**
+     * Loads the results of every pair that has met.
+     *
+     * @return all rows of the read model
+     */
+    public List<HeadToHeadRow> findAll() {
+        return jdbcTemplate.query(selectSql(""), new MapSqlParameterSource(), this::mapRow);
+    }
+
+    /**
+     * Loads the results of the given pairs.
+     *
+     * @param pairs the team pairs
+     * @return rows of the pairs that have met
+     */
+    public List<HeadToHeadRow> findByPairs(Collection<TeamPair> pairs) {
+        if (pairs.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(selectSql("WHERE (h.team_a_id, h.team_b_id) IN (:pairs)"),
+                new MapSqlParameterSource("pairs", toTuples(pairs)), this::mapRow);
+    }
+
+    /**
+     * Computes the results between two teams from their meetings before a point in time, for
+     * fixtures the read model has already moved past. Both orientations are read from the per-side
+     * partial results indexes.
+     *
+     * @param pair         the two teams
+     * @param before       exclusive upper bound on the kick-off of counted meetings
+     * @param recentLength number of latest meetings kept
+     * @return the results, with no meetings if the teams had not met by then
+     */
+    public HeadToHeadRow findAsOf(TeamPair pair, OffsetDateTime before, int recentLength) {
+        String sql = """
+                WITH meetings AS (
+                    SELECT m.id, m.utc_date,
+                           m.ft_home_goals AS a_goals,
+                           m.ft_away_goals AS b_goals
+                    FROM fd_match m
+                    WHERE m.home_team_id = :teamAId AND m.away_team_id = :teamBId AND m.utc_date < :before
+                      AND m.status = 'FINISHED' AND m.ft_home_goals IS NOT NULL AND m.ft_away_goals IS NOT NULL
+                    UNION ALL
+                    SELECT m.id, m.utc_date,
+                           m.ft_away_goals,
+                           m.ft_home_goals
+                    FROM fd_match m
+                    WHERE m.home_team_id = :teamBId AND m.away_team_id = :teamAId AND m.utc_date < :before
+                      AND m.status = 'FINISHED' AND m.ft_home_goals IS NOT NULL AND m.ft_away_goals IS NOT NULL
+                )
+                SELECT count(*) AS meetings,
+                       count(*) FILTER (WHERE a_goals > b_goals) AS team_a_wins,
+                       count(*) FILTER (WHERE a_goals = b_goals) AS draws,
+                       count(*) FILTER (WHERE a_goals < b_goals) AS team_b_wins,
+                       coalesce(sum(a_goals), 0) AS team_a_goals,
+                       coalesce(sum(b_goals), 0) AS team_b_goals,
+                       coalesce((
+                           SELECT array_agg(id ORDER BY utc_date DESC, id DESC)
+                           FROM (SELECT id, utc_date FROM meetings ORDER BY utc_date DESC, id DESC LIMIT :recentLength) latest
+                       ), '{}') AS recent_match_ids,
+                       max(utc_date) AS last_match_date
+                FROM meetings
+                """;
+
+        var params = new MapSqlParameterSource()
+                .addValue("teamAId", pair.teamAId())
+                .addValue("teamBId", pair.teamBId())
+                .addValue("before", before)
+                .addValue("recentLength", recentLength);
+        HeadToHeadRow row = jdbcTemplate.queryForObject(sql, params, (rs, rowNum) -> toRow(pair, rs));
+        return row == null ? new HeadToHeadRow(pair, MatchContext.HeadToHead.empty(), List.of(), null) : row;
+    }
+
+    private static String selectSql(String where) {
+        return """
+                SELECT h.*
+                FROM head_to_head h
+                %s
+                """.formatted(where);
+    }
+
+    private static List<Object[]> toTuples(Collection<TeamPair> pairs) {
+        return pairs.stream().map(pair -> new Object[]{pair.teamAId(), pair.teamBId()}).toList();
+    }
+
+    private HeadToHeadRow mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return toRow(new TeamPair(rs.getLong("team_a_id"), rs.getLong("team_b_id")), rs);
+    }
+
+    private static HeadToHeadRow toRow(TeamPair pair, ResultSet rs) throws SQLException {
+        var results = new MatchContext.HeadToHead(
+                rs.getInt("meetings"),
+                rs.getInt("team_a_wins"),
+                rs.getInt("draws"),
+                rs.getInt("team_b_wins"),
+                rs.getInt("team_a_goals"),
+                rs.getInt("team_b_goals"));
+        Long[] recent = (Long[]) rs.getArray("recent_match_ids").getArray();
+        return new HeadToHeadRow(pair, results, List.of(recent), rs.getObject("last_match_date", OffsetDateTime.class));
+    }
+}
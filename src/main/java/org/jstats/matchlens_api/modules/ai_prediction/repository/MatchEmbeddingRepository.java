@@ -1,16 +1,33 @@
 package org.jstats.matchlens_api.modules.ai_prediction.repository;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jspecify.annotations.Nullable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.StringJoiner;
 
 /**
  * Repository for vector operations on match embeddings.
+ * <p>
+ * Searches run on the interactive pool; embedding writes, which only embedding generation makes,
+ * run on the batch pool. {@link #batch()} gives a view that runs searches on the batch pool too,
+ * for offline work such as precomputation.
  */
 @Repository
 public class MatchEmbeddingRepository {
@@ -18,11 +35,84 @@ public class MatchEmbeddingRepository {
     private static final Logger log = LoggerFactory.getLogger(MatchEmbeddingRepository.class);
 
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final NamedParameterJdbcTemplate batchJdbcTemplate;
+    private final PlatformTransactionManager batchTransactionManager;
+    private final ObjectMapper objectMapper;
 
-    public MatchEmbeddingRepository(NamedParameterJdbcTemplate jdbcTemplate) {
+    public MatchEmbeddingRepository(
+            NamedParameterJdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("batchJdbcTemplate") NamedParameterJdbcTemplate batchJdbcTemplate,
+            @Qualifier("batchTransactionManager") PlatformTransactionManager batchTransactionManager,
+            ObjectMapper objectMapper) {
         this.jdbcTemplate = jdbcTemplate;
+        this.batchJdbcTemplate = batchJdbcTemplate;
+        this.batchTransactionManager = batchTransactionManager;
+        this.objectMapper = objectMapper;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
     }
 
+    /**
+     * @return this repository with searches on the batch pool as well
+     */
+    public MatchEmbeddingRepository batch() {
+        return new MatchEmbeddingRepository(batchJdbcTemplate, batchTransactionManager,
+                batchJdbcTemplate, batchTransactionManager, objectMapper);
+    }
+
+    /**
+     * Filters pushed into the similarity query. Null or empty components are not applied.
+     *
+     * @param competitionCode competition code (e.g., PL) the match must belong to
+     * @param teamIds         the match must involve at least one of these teams, home or away
+     * @param from            inclusive lower bound on the kick-off time
+     * @param to              exclusive upper bound on the kick-off time
+     */
+    public record SimilarityFilter(
+            @Nullable String competitionCode,
+            Set<Long> teamIds,
+            @Nullable OffsetDateTime from,
+            @Nullable OffsetDateTime to
+    ) {
+        public static SimilarityFilter none() {
+            return new SimilarityFilter(null, Set.of(), null, null);
+        }
+    }
+
+    /**
+     * Per-query HNSW settings.
+     *
+     * @param efSearch      size of the dynamic candidate list ({@code hnsw.ef_search})
+     * @param maxScanTuples upper bound on tuples visited by an iterative scan ({@code hnsw.max_scan_tuples})
+     */
+    public record SearchTuning(int efSearch, int maxScanTuples) {}
+
+    /**
+     * Settings for reciprocal rank fusion of the lexical and vector result lists.
+     *
+     * @param rrfK                    RRF damping constant; each list contributes {@code 1 / (k + rank)}
+     * @param candidatePool           number of candidates taken from each list before fusion
+     * @param wordSimilarityThreshold minimum trigram word similarity for a team name to match
+     */
+    public record FusionTuning(int rrfK, int candidatePool, double wordSimilarityThreshold) {}
+
+    /**
+     * One fixture of a batched hybrid search.
+     *
+     * @param queryEmbedding the query embedding vector
+     * @param homeTeam       home team name as requested
+     * @param awayTeam       away team name as requested
+     * @param filter         filters applied to both lists
+     */
+    public record HybridQuery(
+            List<Double> queryEmbedding,
+            String homeTeam,
+            String awayTeam,
+            SimilarityFilter filter
+    ) {}
+
     /**
      * Converts a List of Doubles to PostgreSQL vector format string.
      *
@@ -47,9 +137,12 @@ public class MatchEmbeddingRepository {
     public Optional<Long> save(Long matchId, List<Double> embedding) {
         String vectorString = toVectorString(embedding);
 
+        // Filter columns are copied from fd_match so filtered searches never join back per candidate
         String sql = """
-                INSERT INTO match_embedding (match_id, embedding)
-                VALUES (:matchId, :embedding::vector)
+                INSERT INTO match_embedding (match_id, embedding, competition_id, home_team_id, away_team_id, utc_date)
+                SELECT m.id, :embedding::vector, m.competition_id, m.home_team_id, m.away_team_id, m.utc_date
+                FROM fd_match m
+                WHERE m.id = :matchId
                 ON CONFLICT (match_id) DO NOTHING
                 RETURNING id
                 """;
@@ -59,7 +152,7 @@ public class MatchEmbeddingRepository {
                 .addValue("embedding", vectorString);
 
         try {
-            List<Long> ids = jdbcTemplate.queryForList(sql, params, Long.class);
+            List<Long> ids = batchJdbcTemplate.queryForList(sql, params, Long.class);
             return ids.isEmpty() ? Optional.empty() : Optional.of(ids.getFirst());
         } catch (Exception e) {
             log.error("Failed to save embedding for match {}: {}", matchId, e.getMessage());
@@ -91,6 +184,310 @@ public class MatchEmbeddingRepository {
         return jdbcTemplate.queryForList(sql, params, Long.class);
     }
 
+    /**
+     * Finds similar matches restricted by competition, teams and kick-off range.
+     * <p>
+     * The filters are evaluated inside the HNSW scan using pgvector iterative index scans, so the
+     * index keeps producing candidates until {@code limit} rows pass the filter instead of returning
+     * fewer rows than requested. Iterative scans in {@code relaxed_order} mode may emit rows slightly
+     * out of order, hence the materialized candidate set is re-sorted by distance.
+     *
+     * @param queryEmbedding the query embedding vector
+     * @param filter         filters to push into SQL
+     * @param tuning         per-query HNSW settings
+     * @param limit          maximum number of results
+     * @return list of match IDs ordered by similarity
+     */
+    public List<Long> findSimilarMatches(
+            List<Double> queryEmbedding,
+            SimilarityFilter filter,
+            SearchTuning tuning,
+            int limit) {
+        var params = new MapSqlParameterSource()
+                .addValue("queryEmbedding", toVectorString(queryEmbedding))
+                .addValue("limit", limit);
+        String where = filterClause(filter, "e", params);
+
+        String sql = """
+                WITH candidates AS MATERIALIZED (
+                    SELECT e.match_id, e.embedding <=> :queryEmbedding::vector AS distance
+                    FROM match_embedding e
+                    %s
+                    ORDER BY distance
+                    LIMIT :limit
+                )
+                SELECT match_id
+                FROM candidates
+                ORDER BY distance
+                """.formatted(where);
+
+        List<Long> ids = transactionTemplate.execute(status -> {
+            applySearchTuning(tuning);
+            return jdbcTemplate.queryForList(sql, params, Long.class);
+        });
+        return ids == null ? List.of() : ids;
+    }
+
+    /**
+     * Finds matches for a fixture by fusing a lexical and a vector ranking in one query.
+     * <p>
+     * The lexical list contains finished matches of teams whose name, short name or TLA matches the
+     * requested team names by trigram word similarity, head-to-head meetings first and then most
+     * recent. The vector list is the filtered HNSW search of {@link #findSimilarMatches(List,
+     * SimilarityFilter, SearchTuning, int)}. Both lists are combined with reciprocal rank fusion, so a
+     * match ranked well by both retrievers outranks one that only looks similar in embedding space.
+     *
+     * @param queryEmbedding the query embedding vector
+     * @param homeTeam       home team name as requested
+     * @param awayTeam       away team name as requested
+     * @param filter         filters applied to both lists
+     * @param tuning         per-query HNSW settings
+     * @param fusion         rank fusion settings
+     * @param limit          maximum number of results
+     * @return list of match IDs ordered by fused score
+     */
+    public List<Long> findHybridMatches(
+            List<Double> queryEmbedding,
+            String homeTeam,
+            String awayTeam,
+            SimilarityFilter filter,
+            SearchTuning tuning,
+            FusionTuning fusion,
+            int limit) {
+        var params = new MapSqlParameterSource()
+                .addValue("queryEmbedding", toVectorString(queryEmbedding))
+                .addValue("homeTeam", homeTeam)
+                .addValue("awayTeam", awayTeam)
+                .addValue("rrfK", fusion.rrfK())
+                .addValue("pool", fusion.candidatePool())
+                .addValue("limit", limit);
+        String vectorWhere = filterClause(filter, "e", params);
+        String lexicalWhere = filterClause(filter, "m", params);
+
+        // '<%%' is the escaped pg_trgm word-similarity operator '<%' (formatted() consumes one '%')
+        String sql = """
+                WITH home_teams AS (
+                    SELECT t.id FROM fd_team t
+                    WHERE :homeTeam <%% t.name OR :homeTeam <%% t.short_name OR t.tla = upper(:homeTeam)
+                ),
+                away_teams AS (
+                    SELECT t.id FROM fd_team t
+                    WHERE :awayTeam <%% t.name OR :awayTeam <%% t.short_name OR t.tla = upper(:awayTeam)
+                ),
+                vector_candidates AS MATERIALIZED (
+                    SELECT e.match_id, e.embedding <=> :queryEmbedding::vector AS distance
+                    FROM match_embedding e
+                    %s
+                    ORDER BY distance
+                    LIMIT :pool
+                ),
+                vector_ranked AS (
+                    SELECT match_id, row_number() OVER (ORDER BY distance) AS rank
+                    FROM vector_candidates
+                ),
+                lexical_ranked AS (
+                    SELECT m.id AS match_id,
+                           row_number() OVER (ORDER BY
+                               ((m.home_team_id IN (SELECT id FROM home_teams) OR m.away_team_id IN (SELECT id FROM home_teams))
+                                AND (m.home_team_id IN (SELECT id FROM away_teams) OR m.away_team_id IN (SELECT id FROM away_teams))) DESC,
+                               m.utc_date DESC) AS rank
+                    FROM fd_match m
+                    %s
+                    ORDER BY rank
+                    LIMIT :pool
+                )
+                SELECT match_id
+                FROM (
+                    SELECT match_id, rank FROM vector_ranked
+                    UNION ALL
+                    SELECT match_id, rank FROM lexical_ranked
+                ) ranked
+                GROUP BY match_id
+                ORDER BY sum(1.0 / (:rrfK + rank)) DESC, match_id
+                LIMIT :limit
+                """.formatted(
+                vectorWhere,
+                and(lexicalWhere, """
+                        m.status = 'FINISHED'
+                          AND (m.home_team_id IN (SELECT id FROM home_teams) OR m.away_team_id IN (SELECT id FROM home_teams)
+                            OR m.home_team_id IN (SELECT id FROM away_teams) OR m.away_team_id IN (SELECT id FROM away_teams))"""));
+
+        List<Long> ids = transactionTemplate.execute(status -> {
+            applySearchTuning(tuning);
+            jdbcTemplate.queryForList("SELECT set_config('pg_trgm.word_similarity_threshold', :threshold, true)",
+                    new MapSqlParameterSource("threshold", Double.toString(fusion.wordSimilarityThreshold())));
+            return jdbcTemplate.queryForList(sql, params, Long.class);
+        });
+        return ids == null ? List.of() : ids;
+    }
+
+    /**
+     * Runs {@link #findHybridMatches} for several fixtures in a single round trip.
+     * <p>
+     * The queries are shipped as one JSONB array and expanded server-side; every fixture gets its own
+     * lateral hybrid search. Because the filters differ per row they are written as
+     * {@code (value IS NULL OR predicate)} instead of being omitted as in the single-query variant.
+     *
+     * @param queries fixtures to search for
+     * @param tuning  per-query HNSW settings
+     * @param fusion  rank fusion settings
+     * @param limit   maximum number of results per fixture
+     * @return match IDs ordered by fused score, one list per query in input order
+     */
+    public List<List<Long>> findHybridMatchesBatch(
+            List<HybridQuery> queries,
+            SearchTuning tuning,
+            FusionTuning fusion,
+            int limit) {
+        if (queries.isEmpty()) {
+            return List.of();
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            HybridQuery query = queries.get(i);
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("ord", i);
+            row.put("embedding", toVectorString(query.queryEmbedding()));
+            row.put("home_team", query.homeTeam());
+            row.put("away_team", query.awayTeam());
+            row.put("competition_code", query.filter().competitionCode());
+            row.put("team_ids", query.filter().teamIds());
+            row.put("from_ts", query.filter().from() == null ? null : query.filter().from().toString());
+            row.put("to_ts", query.filter().to() == null ? null : query.filter().to().toString());
+            rows.add(row);
+        }
+
+        String queriesJson;
+        try {
+            queriesJson = objectMapper.writeValueAsString(rows);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Failed to serialize batch queries", e);
+        }
+
+        String sql = """
+                SELECT q.ord, r.match_id
+                FROM jsonb_to_recordset(:queries::jsonb) AS q(
+                    ord INT, embedding TEXT, home_team TEXT, away_team TEXT,
+                    competition_code TEXT, team_ids BIGINT[], from_ts TIMESTAMPTZ, to_ts TIMESTAMPTZ)
+                CROSS JOIN LATERAL (
+                    SELECT f.match_id, sum(1.0 / (:rrfK + f.rank)) AS score
+                    FROM (
+                        SELECT v.match_id, row_number() OVER (ORDER BY v.distance) AS rank
+                        FROM (
+                            SELECT e.match_id, e.embedding <=> q.embedding::vector AS distance
+                            FROM match_embedding e
+                            WHERE (q.competition_code IS NULL
+                                    OR e.competition_id = (SELECT c.id FROM fd_competition c WHERE c.code = q.competition_code))
+                              AND (coalesce(cardinality(q.team_ids), 0) = 0
+                                    OR e.home_team_id = ANY (q.team_ids) OR e.away_team_id = ANY (q.team_ids))
+                              AND (q.from_ts IS NULL OR e.utc_date >= q.from_ts)
+                              AND (q.to_ts IS NULL OR e.utc_date < q.to_ts)
+                            ORDER BY distance
+                            LIMIT :pool
+                        ) v
+                        UNION ALL
+                        SELECT l.match_id, l.rank
+                        FROM (
+                            SELECT m.id AS match_id,
+                                   row_number() OVER (ORDER BY
+                                       ((m.home_team_id = ANY (home_ids.ids) OR m.away_team_id = ANY (home_ids.ids))
+                                        AND (m.home_team_id = ANY (away_ids.ids) OR m.away_team_id = ANY (away_ids.ids))) DESC,
+                                       m.utc_date DESC) AS rank
+                            FROM fd_match m,
+                                 (SELECT coalesce(array_agg(t.id), '{}') AS ids FROM fd_team t
+                                  WHERE q.home_team <% t.name OR q.home_team <% t.short_name
+                                     OR t.tla = upper(q.home_team)) home_ids,
+                                 (SELECT coalesce(array_agg(t.id), '{}') AS ids FROM fd_team t
+                                  WHERE q.away_team <% t.name OR q.away_team <% t.short_name
+                                     OR t.tla = upper(q.away_team)) away_ids
+                            WHERE m.status = 'FINISHED'
+                              AND (m.home_team_id = ANY (home_ids.ids) OR m.away_team_id = ANY (home_ids.ids)
+                                OR m.home_team_id = ANY (away_ids.ids) OR m.away_team_id = ANY (away_ids.ids))
+                              AND (q.competition_code IS NULL
+                                    OR m.competition_id = (SELECT c.id FROM fd_competition c WHERE c.code = q.competition_code))
+                              AND (coalesce(cardinality(q.team_ids), 0) = 0
+                                    OR m.home_team_id = ANY (q.team_ids) OR m.away_team_id = ANY (q.team_ids))
+                              AND (q.from_ts IS NULL OR m.utc_date >= q.from_ts)
+                              AND (q.to_ts IS NULL OR m.utc_date < q.to_ts)
+                            ORDER BY rank
+                            LIMIT :pool
+                        ) l
+                    ) f
+                    GROUP BY f.match_id
+                    ORDER BY score DESC, f.match_id
+                    LIMIT :limit
+                ) r
+                ORDER BY q.ord, r.score DESC, r.match_id
+                """;
+
+        var params = new MapSqlParameterSource()
+                .addValue("queries", queriesJson)
+                .addValue("rrfK", fusion.rrfK())
+                .addValue("pool", fusion.candidatePool())
+                .addValue("limit", limit);
+
+        Map<Integer, List<Long>> byQuery = new HashMap<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            applySearchTuning(tuning);
+            jdbcTemplate.queryForList("SELECT set_config('pg_trgm.word_similarity_threshold', :threshold, true)",
+                    new MapSqlParameterSource("threshold", Double.toString(fusion.wordSimilarityThreshold())));
+            jdbcTemplate.query(sql, params, rs -> {
+                byQuery.computeIfAbsent(rs.getInt("ord"), k -> new ArrayList<>()).add(rs.getLong("match_id"));
+            });
+        });
+
+        List<List<Long>> results = new ArrayList<>(queries.size());
+        for (int i = 0; i < queries.size(); i++) {
+            results.add(byQuery.getOrDefault(i, List.of()));
+        }
+        return results;
+    }
+
+    /**
+     * Builds the WHERE clause for a similarity filter, registering the parameters it uses.
+     * Only the predicates that are present are emitted so the planner sees a minimal query.
+     * Both match_embedding and fd_match expose the filtered columns under the same names.
+     */
+    private String filterClause(SimilarityFilter filter, String alias, MapSqlParameterSource params) {
+        var where = new StringJoiner(" AND ", "WHERE ", "").setEmptyValue("");
+        if (filter.competitionCode() != null) {
+            where.add(alias + ".competition_id = (SELECT c.id FROM fd_competition c WHERE c.code = :competitionCode)");
+            params.addValue("competitionCode", filter.competitionCode());
+        }
+        if (!filter.teamIds().isEmpty()) {
+            where.add("(" + alias + ".home_team_id IN (:teamIds) OR " + alias + ".away_team_id IN (:teamIds))");
+            params.addValue("teamIds", filter.teamIds());
+        }
+        if (filter.from() != null) {
+            where.add(alias + ".utc_date >= :from");
+            params.addValue("from", filter.from());
+        }
+        if (filter.to() != null) {
+            where.add(alias + ".utc_date < :to");
+            params.addValue("to", filter.to());
+        }
+        return where.toString();
+    }
+
+    private static String and(String whereClause, String predicate) {
+        return whereClause.isEmpty() ? "WHERE " + predicate : whereClause + " AND " + predicate;
+    }
+
+    /**
+     * Applies transaction-scoped HNSW settings. Must run inside the transaction of the search query.
+     */
+    private void applySearchTuning(SearchTuning tuning) {
+        var params = new MapSqlParameterSource()
+                .addValue("efSearch", Integer.toString(tuning.efSearch()))
+                .addValue("maxScanTuples", Integer.toString(tuning.maxScanTuples()));
+        jdbcTemplate.queryForList("""
+                SELECT set_config('hnsw.ef_search', :efSearch, true),
+                       set_config('hnsw.iterative_scan', 'relaxed_order', true),
+                       set_config('hnsw.max_scan_tuples', :maxScanTuples, true)
+                """, params);
+    }
+
     /**
      * Checks if an embedding exists for a match.
      *
@@ -100,7 +497,7 @@ public class MatchEmbeddingRepository {
     public boolean existsByMatchId(Long matchId) {
         String sql = "SELECT EXISTS(SELECT 1 FROM match_embedding WHERE match_id = :matchId)";
         var params = new MapSqlParameterSource().addValue("matchId", matchId);
-        Boolean exists = jdbcTemplate.queryForObject(sql, params, Boolean.class);
+        Boolean exists = batchJdbcTemplate.queryForObject(sql, params, Boolean.class);
         return Boolean.TRUE.equals(exists);
     }
 
@@ -113,6 +510,6 @@ public class MatchEmbeddingRepository {
     public int deleteByMatchId(Long matchId) {
         String sql = "DELETE FROM match_embedding WHERE match_id = :matchId";
         var params = new MapSqlParameterSource().addValue("matchId", matchId);
-        return jdbcTemplate.update(sql, params);
+        return batchJdbcTemplate.update(sql, params);
     }
 }
@@ -0,0 +1,309 @@
+package org.jstats.matchlens_api.modules.ai_prediction.repository;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionRequest;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionResponse;
+import org.jstats.matchlens_api.modules.ai_prediction.model.StoredPrediction;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.matches.CursorReader;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.matches.MatchQuery;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Repository for stored predictions of fd_match fixtures.
+ */
+@Repository
+public class MatchPredictionRepository {
+
+    private static final Logger log = LoggerFactory.getLogger(MatchPredictionRepository.class);
+
+    private static final String FIXTURE_COLUMNS = """
+            m.id,
+            ht.name AS home_team,
+            at.name AS away_team,
+            coalesce(c.code, c.name) AS competition,
+            (m.utc_date AT TIME ZONE 'UTC')::date AS match_date,
+            coalesce(m.status IN ('SCHEDULED', 'TIMED'), false) AS upcoming
+            """;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate batchJdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final CursorReader cursorReader;
+
+    public MatchPredictionRepository(
+            NamedParameterJdbcTemplate jdbcTemplate,
+            @Qualifier("batchJdbcTemplate") NamedParameterJdbcTemplate batchJdbcTemplate,
+            ObjectMapper objectMapper,
+            CursorReader cursorReader) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchJdbcTemplate = batchJdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.cursorReader = cursorReader;
+    }
+
+    /**
+     * @return this repository with all statements on the batch pool, for offline work such as
+     *         precomputation
+     */
+    public MatchPredictionRepository batch() {
+        return new MatchPredictionRepository(batchJdbcTemplate, batchJdbcTemplate, objectMapper, cursorReader);
+    }
+
+    /**
+     * A fixture from fd_match expressed as a prediction request.
+     *
+     * @param matchId the match ID
+     * @param request  the request predicting this fixture
+     * @param upcoming whether the match is still SCHEDULED or TIMED
+     */
+    public record Fixture(long matchId, PredictionRequest request, boolean upcoming) {}
+
+    /**
+     * Stores the prediction for a match, replacing any previous one.
+     *
+     * @param matchId    the match ID
+     * @param prediction the prediction to store
+     */
+    public void save(long matchId, PredictionResponse prediction) {
+        String sql = """
+                INSERT INTO match_prediction (match_id, prediction)
+                VALUES (:matchId, :prediction::jsonb)
+                ON CONFLICT (match_id) DO UPDATE
+                SET prediction = EXCLUDED.prediction, created_at = now()
+                """;
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(prediction);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Failed to serialize prediction for match " + matchId, e);
+        }
+
+        jdbcTemplate.update(sql, new MapSqlParameterSource()
+                .addValue("matchId", matchId)
+                .addValue("prediction", json));
+    }
+
+    /**
+     * Finds the stored prediction for a match.
+     *
+     * @param matchId the match ID
+     * @return the stored prediction, if any
+     */
+    public Optional<PredictionResponse> findByMatchId(long matchId) {
+        String sql = "SELECT prediction::text FROM match_prediction WHERE match_id = :matchId";
+
+        List<String> rows = jdbcTemplate.queryForList(sql, new MapSqlParameterSource("matchId", matchId), String.class);
+        return rows.stream().findFirst().flatMap(this::readPrediction);
+    }
+
+    /**
+     * Finds the stored prediction for the fixture described by a request. Teams match by name,
+     * short name or TLA, case-insensitively; the competition by code.
+     *
+     * @param request the prediction request
+     * @return the stored prediction, if any
+     */
+    public Optional<PredictionResponse> findByFixture(PredictionRequest request) {
+        String sql = """
+                SELECT p.prediction::text
+                FROM match_prediction p
+                JOIN fd_match m ON m.id = p.match_id
+                JOIN fd_competition c ON c.id = m.competition_id
+                JOIN fd_team ht ON ht.id = m.home_team_id
+                JOIN fd_team at ON at.id = m.away_team_id
+                WHERE upper(c.code) = :competition
+                  AND m.utc_date >= :dayStart AND m.utc_date < :dayEnd
+                  AND :homeTeam IN (lower(ht.name), lower(ht.short_name), lower(ht.tla))
+                  AND :awayTeam IN (lower(at.name), lower(at.short_name), lower(at.tla))
+                LIMIT 1
+                """;
+
+        var dayStart = request.matchDate().atStartOfDay().atOffset(ZoneOffset.UTC);
+        var params = new MapSqlParameterSource()
+                .addValue("competition", request.competition().trim().toUpperCase(Locale.ROOT))
+                .addValue("dayStart", dayStart)
+                .addValue("dayEnd", dayStart.plusDays(1))
+                .addValue("homeTeam", request.homeTeam().trim().toLowerCase(Locale.ROOT))
+                .addValue("awayTeam", request.awayTeam().trim().toLowerCase(Locale.ROOT));
+
+        return jdbcTemplate.queryForList(sql, params, String.class).stream()
+                .findFirst()
+                .flatMap(this::readPrediction);
+    }
+
+    /**
+     * Streams one page of stored predictions in kick-off order of their fixtures, keyed by
+     * {@code (utc_date, id)} of fd_match like the match read API. The page is picked by ID first; a
+     * team filter reads the home and away sides through their (team, date) indexes and merges them.
+     * The prediction JSON is passed on as text without being parsed.
+     *
+     * @param query  the page to read
+     * @param action receives each prediction as it is read
+     */
+    public void forEachStored(MatchQuery query, Consumer<? super StoredPrediction> action) {
+        var params = new MapSqlParameterSource().addValue("limit", query.limit());
+        String conditions = query.conditions(params);
+
+        String page;
+        if (query.teamId() == null) {
+            page = """
+                    SELECT m.id FROM match_prediction p
+                    JOIN fd_match m ON m.id = p.match_id
+                    WHERE %s
+                    ORDER BY m.utc_date, m.id
+                    LIMIT :limit
+                    """.formatted(conditions);
+        } else {
+            params.addValue("teamId", query.teamId());
+            page = """
+                    SELECT id FROM (
+                        (SELECT m.id, m.utc_date FROM match_prediction p
+                         JOIN fd_match m ON m.id = p.match_id
+                         WHERE m.home_team_id = :teamId AND %1$s
+                         ORDER BY m.utc_date, m.id
+                         LIMIT :limit)
+                        UNION ALL
+                        (SELECT m.id, m.utc_date FROM match_prediction p
+                         JOIN fd_match m ON m.id = p.match_id
+                         WHERE m.away_team_id = :teamId AND %1$s
+                         ORDER BY m.utc_date, m.id
+                         LIMIT :limit)
+                    ) sides
+                    ORDER BY utc_date, id
+                    LIMIT :limit
+                    """.formatted(conditions);
+        }
+
+        String sql = """
+                WITH page AS (
+                %s)
+                SELECT m.id,
+                       coalesce(c.code, c.name) AS competition,
+                       m.utc_date,
+                       ht.name AS home_team,
+                       at.name AS away_team,
+                       p.created_at,
+                       p.prediction::text AS prediction
+                FROM page
+                JOIN fd_match m ON m.id = page.id
+                JOIN match_prediction p ON p.match_id = m.id
+                JOIN fd_competition c ON c.id = m.competition_id
+                LEFT JOIN fd_team ht ON ht.id = m.home_team_id
+                LEFT JOIN fd_team at ON at.id = m.away_team_id
+                ORDER BY m.utc_date, m.id
+                """.formatted(page);
+
+        cursorReader.forEach(sql, params, (rs, rowNum) -> new StoredPrediction(
+                rs.getLong("id"),
+                rs.getString("competition"),
+                rs.getObject("utc_date", OffsetDateTime.class),
+                rs.getString("home_team"),
+                rs.getString("away_team"),
+                rs.getObject("created_at", OffsetDateTime.class),
+                rs.getString("prediction")), action);
+    }
+
+    /**
+     * Loads a match as a prediction request.
+     *
+     * @param matchId the match ID
+     * @return the fixture, in any status, or empty if the match does not exist or has no teams yet
+     */
+    public Optional<Fixture> findFixture(long matchId) {
+        String sql = """
+                SELECT %s
+                FROM fd_match m
+                JOIN fd_team ht ON m.home_team_id = ht.id
+                JOIN fd_team at ON m.away_team_id = at.id
+                JOIN fd_competition c ON m.competition_id = c.id
+                WHERE m.id = :matchId AND m.utc_date IS NOT NULL
+                """.formatted(FIXTURE_COLUMNS);
+
+        return jdbcTemplate.query(sql, new MapSqlParameterSource("matchId", matchId), this::mapFixture)
+                .stream()
+                .findFirst();
+    }
+
+    /**
+     * Finds scheduled fixtures kicking off before {@code until} that have no stored prediction yet,
+     * earliest first. Runs on the batch pool.
+     *
+     * @param until exclusive upper bound on the kick-off time
+     * @param limit maximum number of fixtures
+     * @return the fixtures to precompute
+     */
+    public List<Fixture> findUpcomingWithoutPrediction(OffsetDateTime until, int limit) {
+        String sql = """
+                SELECT %s
+                FROM fd_match m
+                JOIN fd_team ht ON m.home_team_id = ht.id
+                JOIN fd_team at ON m.away_team_id = at.id
+                JOIN fd_competition c ON m.competition_id = c.id
+                WHERE m.status IN ('SCHEDULED', 'TIMED')
+                  AND m.utc_date >= now() AND m.utc_date < :until
+                  AND NOT EXISTS (SELECT 1 FROM match_prediction p WHERE p.match_id = m.id)
+                ORDER BY m.utc_date, m.id
+                LIMIT :limit
+                """.formatted(FIXTURE_COLUMNS);
+
+        var params = new MapSqlParameterSource()
+                .addValue("until", until)
+                .addValue("limit", limit);
+        return batchJdbcTemplate.query(sql, params, this::mapFixture);
+    }
+
+    /**
+     * Deletes stored predictions of not yet played fixtures involving any of the teams. Runs on the
+     * batch pool.
+     *
+     * @param teamIds the team IDs
+     * @return number of predictions deleted
+     */
+    public int deleteUpcomingForTeams(Collection<Long> teamIds) {
+        String sql = """
+                DELETE FROM match_prediction p
+                USING fd_match m
+                WHERE p.match_id = m.id
+                  AND m.status IN ('SCHEDULED', 'TIMED')
+                  AND (m.home_team_id IN (:teamIds) OR m.away_team_id IN (:teamIds))
+                """;
+
+        return batchJdbcTemplate.update(sql, new MapSqlParameterSource("teamIds", teamIds));
+    }
+
+    private Fixture mapFixture(ResultSet rs, int rowNum) throws SQLException {
+        return new Fixture(rs.getLong("id"), new PredictionRequest(
+                rs.getString("home_team"),
+                rs.getString("away_team"),
+                rs.getString("competition"),
+                rs.getObject("match_date", LocalDate.class)),
+                rs.getBoolean("upcoming"));
+    }
+
+    private Optional<PredictionResponse> readPrediction(String json) {
+        try {
+            return Optional.of(objectMapper.readValue(json, PredictionResponse.class));
+        } catch (JsonProcessingException e) {
+            log.warn("Ignoring unreadable stored prediction: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+}
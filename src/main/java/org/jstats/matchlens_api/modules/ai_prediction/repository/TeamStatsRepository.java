@@ -0,0 +1,348 @@
+package org.jstats.matchlens_api.modules.ai_prediction.repository;
+
+import org.jspecify.annotations.Nullable;
+import org.jstats.matchlens_api.modules.ai_prediction.model.MatchContext;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Repository for the team_stats read model.
+ * <p>
+ * Finished matches are folded into the aggregates incrementally. Each match is claimed in
+ * projection_applied, together with the score applied, within the same statement that adds it, so
+ * a match is counted once no matter how often it is replayed, and a corrected score replaces the
+ * one counted before.
+ * <p>
+ * The aggregates cover every result so far. Statistics as they stood before an earlier date are
+ * computed from fd_match instead, see {@link #findAsOf} and {@link #leagueTotalsBefore}.
+ */
+@Repository
+public class TeamStatsRepository {
+
+    static final String PROJECTION = "team_stats";
+
+    private static final String LOCK_SQL = "SELECT pg_advisory_xact_lock(hashtext('" + PROJECTION + "'))";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public TeamStatsRepository(
+            @Qualifier("batchJdbcTemplate") NamedParameterJdbcTemplate jdbcTemplate,
+            @Qualifier("batchTransactionManager") PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Statistics of a team.
+     *
+     * @param teamId        the team ID
+     * @param stats         the aggregated statistics
+     * @param lastMatchDate kick-off of the team's latest counted match
+     */
+    public record TeamStatsRow(long teamId, MatchContext.TeamStats stats, @Nullable OffsetDateTime lastMatchDate) {}
+
+    /**
+     * Totals over all teams.
+     *
+     * @param matches   number of matches
+     * @param homeGoals goals scored by home sides
+     * @param awayGoals goals scored by away sides
+     */
+    public record LeagueTotals(int matches, int homeGoals, int awayGoals) {}
+
+    /**
+     * Adds finished matches that have not been applied yet, or whose score changed since, to the
+     * aggregates and refreshes the recent form of the teams involved.
+     *
+     * @param matchId    the match to apply, or null to apply every pending finished match
+     * @param formLength number of latest results kept in the recent form
+     * @return IDs of the teams whose statistics changed
+     */
+    public List<Long> applyFinishedMatches(@Nullable Long matchId, int formLength) {
+        String sql = """
+                WITH candidates AS (
+                    SELECT m.id, m.ft_home_goals, m.ft_away_goals
+                    FROM fd_match m
+                    WHERE m.status = 'FINISHED'
+                      AND m.home_team_id IS NOT NULL
+                      AND m.away_team_id IS NOT NULL
+                      AND m.utc_date IS NOT NULL
+                      AND m.ft_home_goals IS NOT NULL
+                      AND m.ft_away_goals IS NOT NULL
+                      %s
+                ),
+                previous AS (
+                    SELECT p.match_id, p.home_goals, p.away_goals
+                    FROM projection_applied p
+                    WHERE p.projection = :projection
+                      AND p.match_id IN (SELECT id FROM candidates)
+                ),
+                claimed AS (
+                    INSERT INTO projection_applied (projection, match_id, home_goals, away_goals)
+                    SELECT :projection, c.id, c.ft_home_goals, c.ft_away_goals
+                    FROM candidates c
+                    ON CONFLICT (projection, match_id) DO UPDATE SET
+                        home_goals = EXCLUDED.home_goals,
+                        away_goals = EXCLUDED.away_goals,
+                        applied_at = now()
+                    WHERE (projection_applied.home_goals, projection_applied.away_goals)
+                          IS DISTINCT FROM (EXCLUDED.home_goals, EXCLUDED.away_goals)
+                    RETURNING match_id, home_goals, away_goals
+                ),
+                scores AS (
+                    -- The claimed score is added; the score it replaces, if any, is taken back out
+                    SELECT c.match_id, c.home_goals, c.away_goals, 1 AS weight
+                    FROM claimed c
+                    UNION ALL
+                    SELECT p.match_id, p.home_goals, p.away_goals, -1
+                    FROM claimed c JOIN previous p ON p.match_id = c.match_id
+                ),
+                results AS (
+                    SELECT m.home_team_id AS team_id, true AS is_home,
+                           s.home_goals AS goals_for,
+                           s.away_goals AS goals_against,
+                           s.weight
+                    FROM scores s JOIN fd_match m ON m.id = s.match_id
+                    UNION ALL
+                    SELECT m.away_team_id, false,
+                           s.away_goals,
+                           s.home_goals,
+                           s.weight
+                    FROM scores s JOIN fd_match m ON m.id = s.match_id
+                )
+                INSERT INTO team_stats (
+                    team_id,
+                    home_matches, home_wins, home_draws, home_losses, home_goals_for, home_goals_against,
+                    away_matches, away_wins, away_draws, away_losses, away_goals_for, away_goals_against)
+                SELECT team_id,
+                       coalesce(sum(weight) FILTER (WHERE is_home), 0),
+                       coalesce(sum(weight) FILTER (WHERE is_home AND goals_for > goals_against), 0),
+                       coalesce(sum(weight) FILTER (WHERE is_home AND goals_for = goals_against), 0),
+                       coalesce(sum(weight) FILTER (WHERE is_home AND goals_for < goals_against), 0),
+                       coalesce(sum(weight * goals_for) FILTER (WHERE is_home), 0),
+                       coalesce(sum(weight * goals_against) FILTER (WHERE is_home), 0),
+                       coalesce(sum(weight) FILTER (WHERE NOT is_home), 0),
+                       coalesce(sum(weight) FILTER (WHERE NOT is_home AND goals_for > goals_against), 0),
+                       coalesce(sum(weight) FILTER (WHERE NOT is_home AND goals_for = goals_against), 0),
+                       coalesce(sum(weight) FILTER (WHERE NOT is_home AND goals_for < goals_against), 0),
+                       coalesce(sum(weight * goals_for) FILTER (WHERE NOT is_home), 0),
+                       coalesce(sum(weight * goals_against) FILTER (WHERE NOT is_home), 0)
+                FROM results
+                GROUP BY team_id
+                ON CONFLICT (team_id) DO UPDATE SET
+                    home_matches       = team_stats.home_matches + EXCLUDED.home_matches,
+                    home_wins          = team_stats.home_wins + EXCLUDED.home_wins,
+                    home_draws         = team_stats.home_draws + EXCLUDED.home_draws,
+                    home_losses        = team_stats.home_losses + EXCLUDED.home_losses,
+                    home_goals_for     = team_stats.home_goals_for + EXCLUDED.home_goals_for,
+                    home_goals_against = team_stats.home_goals_against + EXCLUDED.home_goals_against,
+                    away_matches       = team_stats.away_matches + EXCLUDED.away_matches,
+                    away_wins          = team_stats.away_wins + EXCLUDED.away_wins,
+                    away_draws         = team_stats.away_draws + EXCLUDED.away_draws,
+                    away_losses        = team_stats.away_losses + EXCLUDED.away_losses,
+                    away_goals_for     = team_stats.away_goals_for + EXCLUDED.away_goals_for,
+                    away_goals_against = team_stats.away_goals_against + EXCLUDED.away_goals_against,
+                    updated_at         = now()
+                RETURNING team_id
+                """.formatted(matchId == null ? "" : "AND m.id = :matchId");
+
+        // Recomputed rather than shifted so a result that arrives out of order lands in the right place.
+        // Each side is read from its partial results index, newest first.
+        String formSql = """
+                UPDATE team_stats s
+                SET recent_form = f.form, last_match_date = f.last_match_date
+                FROM (
+                    SELECT t.team_id,
+                           string_agg(r.result, '' ORDER BY r.utc_date DESC) AS form,
+                           max(r.utc_date) AS last_match_date
+                    FROM team_stats t
+                    CROSS JOIN LATERAL (
+                        SELECT utc_date,
+                               CASE sign(goal_difference) WHEN 1 THEN 'W' WHEN 0 THEN 'D' ELSE 'L' END AS result
+                        FROM (
+                            (SELECT m.utc_date, m.ft_home_goals - m.ft_away_goals AS goal_difference
+                             FROM fd_match m
+                             WHERE m.home_team_id = t.team_id
+                               AND m.status = 'FINISHED' AND m.utc_date IS NOT NULL
+                               AND m.ft_home_goals IS NOT NULL AND m.ft_away_goals IS NOT NULL
+                             ORDER BY m.utc_date DESC
+                             LIMIT :formLength)
+                            UNION ALL
+                            (SELECT m.utc_date, m.ft_away_goals - m.ft_home_goals
+                             FROM fd_match m
+                             WHERE m.away_team_id = t.team_id
+                               AND m.status = 'FINISHED' AND m.utc_date IS NOT NULL
+                               AND m.ft_home_goals IS NOT NULL AND m.ft_away_goals IS NOT NULL
+                             ORDER BY m.utc_date DESC
+                             LIMIT :formLength)
+                        ) results
+                        ORDER BY utc_date DESC
+                        LIMIT :formLength
+                    ) r
+                    WHERE t.team_id IN (:teamIds)
+                    GROUP BY t.team_id
+                ) f
+                WHERE s.team_id = f.team_id
+                """;
+
+        var params = new MapSqlParameterSource()
+                .addValue("projection", PROJECTION)
+                .addValue("matchId", matchId)
+                .addValue("formLength", formLength);
+
+        List<Long> teamIds = transactionTemplate.execute(status -> {
+            // The previous score is read before it is replaced, so concurrent applications must not interleave
+            jdbcTemplate.getJdbcTemplate().execute(LOCK_SQL);
+            List<Long> changed = jdbcTemplate.queryForList(sql, params, Long.class);
+            if (!changed.isEmpty()) {
+                jdbcTemplate.update(formSql, params.addValue("teamIds", changed));
+            }
+            return changed;
+        });
+        return teamIds == null ? List.of() : teamIds;
+    }
+
+    /**
+     * Loads the statistics of every team.
+     *
+     * @return all rows of the read model
+     */
+    public List<TeamStatsRow> findAll() {
+        return jdbcTemplate.query(selectSql(""), new MapSqlParameterSource(), this::mapRow);
+    }
+
+    /**
+     * Loads the statistics of the given teams.
+     *
+     * @param teamIds the team IDs
+     * @return rows of the teams that have statistics
+     */
+    public List<TeamStatsRow> findByTeamIds(Collection<Long> teamIds) {
+        if (teamIds.isEmpty()) {
+            return List.of();
+        }
+        return jdbcTemplate.query(selectSql("WHERE s.team_id IN (:teamIds)"),
+                new MapSqlParameterSource("teamIds", teamIds), this::mapRow);
+    }
+
+    /**
+     * Computes a team's statistics from its results before a point in time, for fixtures the
+     * aggregates have already moved past. Each side is read from its partial results index.
+     *
+     * @param teamId     the team ID
+     * @param before     exclusive upper bound on the kick-off of counted matches
+     * @param formLength number of latest results kept in the recent form
+     * @return the statistics, empty if the team had no results yet
+     */
+    public MatchContext.TeamStats findAsOf(long teamId, OffsetDateTime before, int formLength) {
+        String sql = """
+                WITH results AS (
+                    SELECT true AS is_home, m.utc_date,
+                           m.ft_home_goals AS goals_for,
+                           m.ft_away_goals AS goals_against
+                    FROM fd_match m
+                    WHERE m.home_team_id = :teamId AND m.utc_date < :before
+                      AND m.status = 'FINISHED' AND m.ft_home_goals IS NOT NULL AND m.ft_away_goals IS NOT NULL
+                    UNION ALL
+                    SELECT false, m.utc_date,
+                           m.ft_away_goals,
+                           m.ft_home_goals
+                    FROM fd_match m
+                    WHERE m.away_team_id = :teamId AND m.utc_date < :before
+                      AND m.status = 'FINISHED' AND m.ft_home_goals IS NOT NULL AND m.ft_away_goals IS NOT NULL
+                )
+                SELECT count(*) FILTER (WHERE is_home) AS home_matches,
+                       count(*) FILTER (WHERE is_home AND goals_for > goals_against) AS home_wins,
+                       count(*) FILTER (WHERE is_home AND goals_for = goals_against) AS home_draws,
+                       count(*) FILTER (WHERE is_home AND goals_for < goals_against) AS home_losses,
+                       coalesce(sum(goals_for) FILTER (WHERE is_home), 0) AS home_goals_for,
+                       coalesce(sum(goals_against) FILTER (WHERE is_home), 0) AS home_goals_against,
+                       count(*) FILTER (WHERE NOT is_home) AS away_matches,
+                       count(*) FILTER (WHERE NOT is_home AND goals_for > goals_against) AS away_wins,
+                       count(*) FILTER (WHERE NOT is_home AND goals_for = goals_against) AS away_draws,
+                       count(*) FILTER (WHERE NOT is_home AND goals_for < goals_against) AS away_losses,
+                       coalesce(sum(goals_for) FILTER (WHERE NOT is_home), 0) AS away_goals_for,
+                       coalesce(sum(goals_against) FILTER (WHERE NOT is_home), 0) AS away_goals_against,
+                       coalesce((
+                           SELECT string_agg(CASE sign(goals_for - goals_against)
+                                                 WHEN 1 THEN 'W' WHEN 0 THEN 'D' ELSE 'L' END,
+                                             '' ORDER BY utc_date DESC)
+                           FROM (SELECT * FROM results ORDER BY utc_date DESC LIMIT :formLength) latest
+                       ), '') AS recent_form
+                FROM results
+                """;
+
+        var params = new MapSqlParameterSource()
+                .addValue("teamId", teamId)
+                .addValue("before", before)
+                .addValue("formLength", formLength);
+        MatchContext.TeamStats stats = jdbcTemplate.queryForObject(sql, params, (rs, rowNum) -> mapStats(rs));
+        return stats == null ? MatchContext.TeamStats.empty() : stats;
+    }
+
+    /**
+     * Sums the results of all teams before a point in time.
+     *
+     * @param before exclusive upper bound on the kick-off of counted matches
+     * @return the totals
+     */
+    public LeagueTotals leagueTotalsBefore(OffsetDateTime before) {
+        String sql = """
+                SELECT count(*) AS matches,
+                       coalesce(sum(m.ft_home_goals), 0) AS home_goals,
+                       coalesce(sum(m.ft_away_goals), 0) AS away_goals
+                FROM fd_match m
+                WHERE m.utc_date < :before
+                  AND m.status = 'FINISHED' AND m.ft_home_goals IS NOT NULL AND m.ft_away_goals IS NOT NULL
+                  AND m.home_team_id IS NOT NULL AND m.away_team_id IS NOT NULL
+                """;
+
+        LeagueTotals totals = jdbcTemplate.queryForObject(sql, new MapSqlParameterSource("before", before), (rs, rowNum) ->
+                new LeagueTotals(rs.getInt("matches"), rs.getInt("home_goals"), rs.getInt("away_goals")));
+        return totals == null ? new LeagueTotals(0, 0, 0) : totals;
+    }
+
+    private static String selectSql(String where) {
+        return """
+                SELECT s.*
+                FROM team_stats s
+                %s
+                """.formatted(where);
+    }
+
+    private TeamStatsRow mapRow(ResultSet rs, int rowNum) throws SQLException {
+        return new TeamStatsRow(
+                rs.getLong("team_id"),
+                mapStats(rs),
+                rs.getObject("last_match_date", OffsetDateTime.class));
+    }
+
+    private static MatchContext.TeamStats mapStats(ResultSet rs) throws SQLException {
+        var home = new MatchContext.VenueRecord(
+                rs.getInt("home_matches"),
+                rs.getInt("home_wins"),
+                rs.getInt("home_draws"),
+                rs.getInt("home_losses"),
+                rs.getInt("home_goals_for"),
+                rs.getInt("home_goals_against"));
+        var away = new MatchContext.VenueRecord(
+                rs.getInt("away_matches"),
+                rs.getInt("away_wins"),
+                rs.getInt("away_draws"),
+                rs.getInt("away_losses"),
+                rs.getInt("away_goals_for"),
+                rs.getInt("away_goals_against"));
+        return MatchContext.TeamStats.of(home, away, rs.getString("recent_form"));
+    }
+}
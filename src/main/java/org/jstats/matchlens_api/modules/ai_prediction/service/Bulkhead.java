@@ -0,0 +1,194 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jstats.matchlens_api.modules.ai_prediction.config.BulkheadConfig;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Limits concurrent calls to a downstream resource. Callers beyond the limit wait in FIFO order,
+ * up to a bounded number of waiters and a maximum wait; anything beyond is rejected immediately
+ * rather than queued behind work the resource cannot absorb.
+ * <p>
+ * Exported metrics, tagged with the bulkhead name: {@code matchlens.bulkhead.active} and
+ * {@code matchlens.bulkhead.queue.depth} gauges, the {@code matchlens.bulkhead.wait} timer and the
+ * {@code matchlens.bulkhead.rejected} counter tagged by reason.
+ */
+public class Bulkhead {
+
+    /**
+     * Why a call was not admitted.
+     */
+    public enum Reason {
+        /** The wait queue was full */
+        QUEUE_FULL,
+        /** No permit became free within the maximum wait */
+        WAIT_TIMEOUT
+    }
+
+    /**
+     * Thrown when a call is shed by the bulkhead.
+     */
+    public static class RejectedException extends RuntimeException {
+
+        private final String bulkhead;
+        private final Reason reason;
+        private final Duration retryAfter;
+
+        public RejectedException(String bulkhead, Reason reason, Duration retryAfter) {
+            super("Bulkhead " + bulkhead + " rejected the call: " + reason);
+            this.bulkhead = bulkhead;
+            this.reason = reason;
+            this.retryAfter = retryAfter;
+        }
+
+        public String bulkhead() {
+            return bulkhead;
+        }
+
+        public Reason reason() {
+            return reason;
+        }
+
+        public Duration retryAfter() {
+            return retryAfter;
+        }
+    }
+
+    /**
+     * A held permit; closing it more than once has no effect.
+     */
+    public final class Permit implements AutoCloseable {
+
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        @Override
+        public void close() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
+
+    private final String name;
+    private final int maxConcurrent;
+    private final int maxQueue;
+    private final Duration maxWait;
+    private final Semaphore permits;
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final Timer waitTimer;
+    private final Counter queueFull;
+    private final Counter waitTimeout;
+
+    public Bulkhead(String name, BulkheadConfig.Limits limits, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.maxConcurrent = limits.getMaxConcurrent();
+        this.maxQueue = limits.getMaxQueue();
+        this.maxWait = limits.getMaxWait();
+        this.permits = new Semaphore(maxConcurrent, true);
+
+        Gauge.builder("matchlens.bulkhead.active", this, Bulkhead::active)
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        Gauge.builder("matchlens.bulkhead.queue.depth", waiting, AtomicInteger::get)
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        this.waitTimer = Timer.builder("matchlens.bulkhead.wait")
+                .tag("bulkhead", name)
+                .register(meterRegistry);
+        this.queueFull = rejectedCounter(meterRegistry, Reason.QUEUE_FULL);
+        this.waitTimeout = rejectedCounter(meterRegistry, Reason.WAIT_TIMEOUT);
+    }
+
+    private Counter rejectedCounter(MeterRegistry meterRegistry, Reason reason) {
+        return Counter.builder("matchlens.bulkhead.rejected")
+                .tag("bulkhead", name)
+                .tag("reason", reason.name())
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the action while holding a permit.
+     *
+     * @param action the call to protect
+     * @return the action's result
+     * @throws RejectedException if no permit could be obtained
+     */
+    public <T> T execute(Supplier<T> action) {
+        try (Permit ignored = acquire()) {
+            return action.get();
+        }
+    }
+
+    /**
+     * Obtains a permit, waiting up to the maximum wait if the bulkhead is saturated. The permit
+     * must be closed when the call completes; streaming calls close it when the stream terminates.
+     *
+     * @return the permit
+     * @throws RejectedException     if the wait queue is full or the wait times out
+     * @throws CancellationException if the caller is interrupted while waiting
+     */
+    public Permit acquire() {
+        try {
+            // The timed form honours the fair ordering; plain tryAcquire() would barge past waiters
+            if (permits.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                waitTimer.record(Duration.ZERO);
+                return new Permit();
+            }
+        } catch (InterruptedException e) {
+            throw interrupted();
+        }
+        if (waiting.incrementAndGet() > maxQueue) {
+            waiting.decrementAndGet();
+            queueFull.increment();
+            throw new RejectedException(name, Reason.QUEUE_FULL, retryAfter());
+        }
+
+        long started = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(maxWait.toNanos(), TimeUnit.NANOSECONDS)) {
+                waitTimeout.increment();
+                throw new RejectedException(name, Reason.WAIT_TIMEOUT, retryAfter());
+            }
+            return new Permit();
+        } catch (InterruptedException e) {
+            throw interrupted();
+        } finally {
+            waiting.decrementAndGet();
+            waitTimer.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    int active() {
+        return maxConcurrent - permits.availablePermits();
+    }
+
+    int queueDepth() {
+        return waiting.get();
+    }
+
+    private CancellationException interrupted() {
+        Thread.currentThread().interrupt();
+        return new CancellationException("Interrupted while waiting for bulkhead " + name);
+    }
+
+    private Duration retryAfter() {
+        return Duration.ofSeconds(Math.max(1, maxWait.toSeconds()));
+    }
+}
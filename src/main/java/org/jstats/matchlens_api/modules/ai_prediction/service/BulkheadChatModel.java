@@ -0,0 +1,45 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+/**
+ * Chat model that admits calls to the underlying model through a {@link Bulkhead}. A streamed
+ * call takes its permit when the stream is requested, so a rejection is thrown to the caller
+ * rather than signalled to the subscriber, and holds it until the stream completes, fails or is
+ * cancelled. The returned stream must therefore be subscribed.
+ */
+public class BulkheadChatModel implements ChatModel {
+
+    private final ChatModel delegate;
+    private final Bulkhead bulkhead;
+
+    public BulkheadChatModel(ChatModel delegate, Bulkhead bulkhead) {
+        this.delegate = delegate;
+        this.bulkhead = bulkhead;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return bulkhead.execute(() -> delegate.call(prompt));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        Bulkhead.Permit permit = bulkhead.acquire();
+        try {
+            return delegate.stream(prompt).doFinally(signal -> permit.close());
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return delegate.getDefaultOptions();
+    }
+}
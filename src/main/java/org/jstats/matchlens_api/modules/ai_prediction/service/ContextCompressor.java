@@ -0,0 +1,160 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import org.jspecify.annotations.Nullable;
+import org.jstats.matchlens_api.modules.ai_prediction.config.PromptConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Fits the historical matches of a prediction context into a token budget.
+ * <p>
+ * Each match is rendered on one compact line ({@code 2024-01-15 LIV 2-1 MCI PL}) instead of a
+ * sentence with the raw score JSON. Matches that appear more than once are kept once, head-to-head
+ * meetings first. The remaining matches are ranked by how many of the fixture's teams they involve,
+ * then by retrieval order, and added until the budget is used up.
+ * <p>
+ * Tokens are estimated at four characters each, the usual ratio for Llama-family tokenizers on
+ * English text. The estimate only has to be consistent, not exact, to bound the prompt.
+ */
+@Component
+public class ContextCompressor {
+
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final String HEAD_TO_HEAD_TITLE = "Head-to-head:" + System.lineSeparator();
+    private static final String MATCHES_TITLE = "Related matches:" + System.lineSeparator();
+
+    private final PromptConfig promptConfig;
+
+    public ContextCompressor(PromptConfig promptConfig) {
+        this.promptConfig = promptConfig;
+    }
+
+    /**
+     * A historical match as loaded for the context.
+     *
+     * @param homeTla         three-letter code of the home team, if known
+     * @param competitionCode competition code, e.g. "PL", if known
+     * @param homeGoals       full-time home goals, if the score is recorded
+     */
+    public record MatchRow(
+            long matchId,
+            String date,
+            long homeTeamId,
+            String homeTeam,
+            @Nullable String homeTla,
+            long awayTeamId,
+            String awayTeam,
+            @Nullable String awayTla,
+            @Nullable Integer homeGoals,
+            @Nullable Integer awayGoals,
+            String competition,
+            @Nullable String competitionCode
+    ) {
+        public String score() {
+            return homeGoals == null || awayGoals == null ? "N/A" : homeGoals + "-" + awayGoals;
+        }
+
+        /**
+         * Renders the match as {@code <date> <home> <score> <away> <competition>}, using codes
+         * where available.
+         */
+        public String compact() {
+            return date + " " + label(homeTla, homeTeam) + " " + score() + " " + label(awayTla, awayTeam)
+                    + " " + label(competitionCode, competition);
+        }
+
+        public PredictionResponse.HistoricalMatch toHistoricalMatch() {
+            return new PredictionResponse.HistoricalMatch(homeTeam, awayTeam, score(), competition, date);
+        }
+
+        private static String label(@Nullable String code, String name) {
+            return code == null || code.isBlank() ? name : code;
+        }
+    }
+
+    /**
+     * The compressed context.
+     *
+     * @param summary the context text for the prompt
+     * @param kept    the matches included in the summary, head-to-head meetings first
+     */
+    public record Compressed(String summary, List<MatchRow> kept) {}
+
+    /**
+     * Builds the context text within the configured token budget.
+     *
+     * @param header        lines that are always included (team statistics, ratings)
+     * @param headToHead    latest meetings of the two teams, most recent first
+     * @param matches       similar or recent matches in retrieval order
+     * @param fixtureTeams  IDs the fixture's team names resolve to
+     * @return the summary and the matches it contains
+     */
+    public Compressed compress(String header, List<MatchRow> headToHead, List<MatchRow> matches, Set<Long> fixtureTeams) {
+        int budget = promptConfig.getContextTokenBudget() - estimateTokens(header);
+        if (!headToHead.isEmpty()) {
+            budget -= estimateTokens(HEAD_TO_HEAD_TITLE);
+        }
+        if (!matches.isEmpty()) {
+            budget -= estimateTokens(MATCHES_TITLE);
+        }
+        Set<Long> seen = new HashSet<>();
+        List<MatchRow> kept = new ArrayList<>();
+
+        StringBuilder meetingLines = new StringBuilder();
+        for (MatchRow row : headToHead) {
+            budget = append(row, meetingLines, seen, kept, budget);
+        }
+
+        List<MatchRow> ranked = new ArrayList<>(matches);
+        // Stable sort: retrieval order decides among matches involving as many fixture teams
+        ranked.sort(Comparator.comparingInt((MatchRow row) -> involvement(row, fixtureTeams)).reversed());
+        StringBuilder matchLines = new StringBuilder();
+        for (MatchRow row : ranked) {
+            budget = append(row, matchLines, seen, kept, budget);
+        }
+
+        StringBuilder summary = new StringBuilder(header);
+        if (!meetingLines.isEmpty()) {
+            summary.append(HEAD_TO_HEAD_TITLE).append(meetingLines);
+        }
+        if (!matchLines.isEmpty()) {
+            summary.append(MATCHES_TITLE).append(matchLines);
+        }
+        if (kept.isEmpty()) {
+            summary.append("No historical data available");
+        }
+        return new Compressed(summary.toString(), List.copyOf(kept));
+    }
+
+    /**
+     * Estimates the number of tokens the text takes in the prompt.
+     */
+    public static int estimateTokens(CharSequence text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    private static int append(MatchRow row, StringBuilder lines, Set<Long> seen, List<MatchRow> kept, int budget) {
+        if (seen.contains(row.matchId())) {
+            return budget;
+        }
+        String line = row.compact() + System.lineSeparator();
+        int cost = estimateTokens(line);
+        if (cost > budget) {
+            return budget;
+        }
+        seen.add(row.matchId());
+        kept.add(row);
+        lines.append(line);
+        return budget - cost;
+    }
+
+    private static int involvement(MatchRow row, Set<Long> fixtureTeams) {
+        return (fixtureTeams.contains(row.homeTeamId()) ? 1 : 0) + (fixtureTeams.contains(row.awayTeamId()) ? 1 : 0);
+    }
+}
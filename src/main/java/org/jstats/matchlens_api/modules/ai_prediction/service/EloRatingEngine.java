@@ -0,0 +1,608 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import org.jstats.matchlens_api.modules.ai_prediction.config.EloConfig;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.feed.MatchResultEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory Elo ratings of every team, readable without database access.
+ * <p>
+ * Ratings live in primitive arrays addressed by a dense team index; the team IDs are kept sorted
+ * so an ID maps to its index by binary search. On startup all finished results are replayed in
+ * kick-off order in one streaming pass into a fresh set of arrays, which then replaces the current
+ * one. Afterwards every {@link MatchResultEvent} is applied as it arrives; events received during
+ * the replay are applied once it completes. Each team keeps its rating after every match, so
+ * ratings can be read as of any point in time for backtests.
+ * <p>
+ * Ratings depend on the order results are applied in, so the applied results are kept in kick-off
+ * order too, in parallel primitive arrays. A result that kicked off no earlier than every applied one
+ * is added incrementally, so simultaneous kick-offs are applied in the order they arrive. A result
+ * that arrives late, or a corrected score, is put in its place; the ratings are then rewound to the
+ * first kick-off it affects and only the results from there on are replayed. Competitions first seen
+ * after startup have their code looked up when their first result arrives.
+ * <p>
+ * A result changes the home rating by {@code K * G * (S - E)} and the away rating by the opposite
+ * amount, where E is the home expectancy including the home advantage and G grows with the goal
+ * difference. K and the home advantage come from {@link EloConfig}, per competition.
+ */
+@Component
+public class EloRatingEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(EloRatingEngine.class);
+
+    private static final int REPLAY_FETCH_SIZE = 1000;
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TeamDirectory teamDirectory;
+    private final EloConfig config;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    /** Competition codes by ID, "" for competitions without a code */
+    private final Map<Long, String> competitionCodes = new ConcurrentHashMap<>();
+    private Ratings ratings;
+    private Results results = new Results();
+    private boolean replaying;
+    private final List<Result> pendingDuringReplay = new ArrayList<>();
+
+    /**
+     * A result received while the startup replay runs.
+     */
+    private record Result(long matchId, long competitionId, long homeTeamId, long awayTeamId,
+                          long kickOff, int homeGoals, int awayGoals) {
+    }
+
+    public EloRatingEngine(
+            @Qualifier("batchJdbcTemplate") NamedParameterJdbcTemplate jdbcTemplate,
+            @Qualifier("batchTransactionManager") PlatformTransactionManager transactionManager,
+            TeamDirectory teamDirectory,
+            EloConfig config) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+        this.teamDirectory = teamDirectory;
+        this.config = config;
+        this.ratings = new Ratings(new long[0], config.getInitialRating());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void replay() {
+        lock.writeLock().lock();
+        try {
+            replaying = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        long started = System.nanoTime();
+        var empty = new MapSqlParameterSource();
+        long[] teamIds = jdbcTemplate.queryForList("SELECT id FROM fd_team ORDER BY id", empty, Long.class)
+                .stream().mapToLong(Long::longValue).toArray();
+        Map<Long, String> codes = new HashMap<>();
+        jdbcTemplate.query("SELECT id, coalesce(code, '') AS code FROM fd_competition", empty,
+                rs -> { codes.put(rs.getLong("id"), rs.getString("code")); });
+        competitionCodes.putAll(codes);
+
+        Ratings replayed = new Ratings(teamIds, config.getInitialRating());
+        Results replayedResults = new Results();
+        // Cursor-based fetching needs a transaction on PostgreSQL; without one the whole result is buffered
+        var streaming = new JdbcTemplate(jdbcTemplate.getJdbcTemplate().getDataSource());
+        streaming.setFetchSize(REPLAY_FETCH_SIZE);
+        transactionTemplate.executeWithoutResult(status -> streaming.query("""
+                SELECT m.id, m.competition_id, m.home_team_id, m.away_team_id,
+                       extract(epoch FROM m.utc_date)::bigint AS kick_off,
+                       m.ft_home_goals AS home_goals,
+                       m.ft_away_goals AS away_goals
+                FROM fd_match m
+                WHERE m.status = 'FINISHED'
+                  AND m.home_team_id IS NOT NULL
+                  AND m.away_team_id IS NOT NULL
+                  AND m.utc_date IS NOT NULL
+                  AND m.ft_home_goals IS NOT NULL
+                  AND m.ft_away_goals IS NOT NULL
+                ORDER BY m.utc_date, m.id
+                """, rs -> {
+            int at = replayedResults.insert(
+                    replayedResults.size,
+                    rs.getLong("id"),
+                    rs.getLong("competition_id"),
+                    rs.getLong("home_team_id"),
+                    rs.getLong("away_team_id"),
+                    rs.getLong("kick_off"),
+                    rs.getInt("home_goals"),
+                    rs.getInt("away_goals"));
+            apply(replayed, replayedResults, at);
+        }));
+
+        lock.writeLock().lock();
+        try {
+            ratings = replayed;
+            results = replayedResults;
+            replaying = false;
+            pendingDuringReplay.forEach(this::applyLocked);
+            pendingDuringReplay.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Replayed {} results into Elo ratings of {} teams in {} ms",
+                replayedResults.size, replayed.size, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @EventListener
+    public void onMatchResult(MatchResultEvent event) {
+        if (event.homeGoals() == null || event.awayGoals() == null) {
+            return;
+        }
+        competitionCodes.computeIfAbsent(event.competitionId(), this::loadCompetitionCode);
+        var result = new Result(
+                event.matchId(),
+                event.competitionId(),
+                event.homeTeamId(),
+                event.awayTeamId(),
+                event.utcDate().toEpochSecond(),
+                event.homeGoals(),
+                event.awayGoals());
+        lock.writeLock().lock();
+        try {
+            if (replaying) {
+                pendingDuringReplay.add(result);
+            } else {
+                applyLocked(result);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the current rating of a team.
+     *
+     * @param teamId the team ID
+     * @return the rating, or empty if the team is unknown
+     */
+    public OptionalDouble rating(long teamId) {
+        lock.readLock().lock();
+        try {
+            int index = ratings.indexOf(teamId);
+            return index < 0 ? OptionalDouble.empty() : OptionalDouble.of(ratings.ratings[index]);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the current rating of a team.
+     *
+     * @param teamName the team's name, short name, TLA or alias
+     * @return the rating, or empty if the name is unknown or ambiguous
+     */
+    public OptionalDouble rating(String teamName) {
+        Set<Long> teamIds = teamDirectory.resolve(teamName);
+        return teamIds.size() == 1 ? rating(teamIds.iterator().next()) : OptionalDouble.empty();
+    }
+
+    /**
+     * Returns the rating a team had before kick-off at the given time, i.e. after all of its
+     * matches that started earlier.
+     *
+     * @param teamId the team ID
+     * @param at     the point in time
+     * @return the rating at that time, or empty if the team is unknown
+     */
+    public OptionalDouble ratingAt(long teamId, Instant at) {
+        lock.readLock().lock();
+        try {
+            int index = ratings.indexOf(teamId);
+            return index < 0 ? OptionalDouble.empty() : OptionalDouble.of(ratings.ratingAt(index, at.getEpochSecond()));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Expected score of the home side (win = 1, draw = 0.5) for the given ratings.
+     *
+     * @param homeRating      rating of the home team
+     * @param awayRating      rating of the away team
+     * @param competitionCode competition code, selecting the home advantage
+     * @return the home expectancy between 0 and 1
+     */
+    public double homeExpectancy(double homeRating, double awayRating, String competitionCode) {
+        return expectancy(homeRating + config.homeAdvantage(competitionCode), awayRating);
+    }
+
+    /**
+     * Applies a result: in place if it is new and kicked off no earlier than every applied one,
+     * otherwise by putting it in kick-off order, replacing an earlier score of the same match, and
+     * replaying from the first kick-off it affects.
+     */
+    private void applyLocked(Result result) {
+        long replayFrom = result.kickOff();
+        int previous = results.indexOf(result.matchId());
+        if (previous >= 0) {
+            if (results.sameAs(previous, result)) {
+                return;
+            }
+            replayFrom = Math.min(replayFrom, results.kickOffs[previous]);
+            results.remove(previous);
+        } else if (results.size == 0 || result.kickOff() >= results.kickOffs[results.size - 1]) {
+            apply(ratings, results, insert(results.size, result));
+            return;
+        }
+
+        // After the results of the same kick-off, which keep the order they arrived in
+        insert(results.upperBound(result.kickOff()), result);
+        int from = results.lowerBound(replayFrom);
+        ratings.rewind(replayFrom);
+        for (int at = from; at < results.size; at++) {
+            apply(ratings, results, at);
+        }
+        log.debug("Replayed {} results after {} result of match {}",
+                results.size - from, previous >= 0 ? "corrected" : "late", result.matchId());
+    }
+
+    private int insert(int at, Result result) {
+        return results.insert(at, result.matchId(), result.competitionId(), result.homeTeamId(),
+                result.awayTeamId(), result.kickOff(), result.homeGoals(), result.awayGoals());
+    }
+
+    private void apply(Ratings target, Results source, int at) {
+        String competitionCode = competitionCodes.getOrDefault(source.competitionIds[at], "");
+        target.apply(
+                source.homeTeamIds[at],
+                source.awayTeamIds[at],
+                source.kickOffs[at],
+                source.homeGoals[at],
+                source.awayGoals[at],
+                config.updateFactor(competitionCode),
+                config.homeAdvantage(competitionCode));
+    }
+
+    private String loadCompetitionCode(long competitionId) {
+        return jdbcTemplate.queryForList("SELECT coalesce(code, '') FROM fd_competition WHERE id = :id",
+                        new MapSqlParameterSource("id", competitionId), String.class)
+                .stream()
+                .findFirst()
+                .orElse("");
+    }
+
+    static double expectancy(double rating, double opponentRating) {
+        return 1.0 / (1.0 + Math.pow(10.0, (opponentRating - rating) / 400.0));
+    }
+
+    /**
+     * Weight of a result by goal difference: 1 for one goal, 1.5 for two, (11 + d) / 8 beyond.
+     */
+    static double marginMultiplier(int goalDifference) {
+        int d = Math.abs(goalDifference);
+        if (d <= 1) {
+            return 1.0;
+        }
+        return d == 2 ? 1.5 : (11.0 + d) / 8.0;
+    }
+
+    /**
+     * Rating state in parallel primitive arrays indexed by dense team index.
+     */
+    private static final class Ratings {
+
+        private static final int INITIAL_HISTORY = 16;
+
+        private final double initialRating;
+        private long[] teamIds;
+        private double[] ratings;
+        private long[][] historyTimes;
+        private double[][] historyRatings;
+        private int[] historySize;
+        private int size;
+
+        Ratings(long[] sortedTeamIds, double initialRating) {
+            this.initialRating = initialRating;
+            int capacity = Math.max(sortedTeamIds.length, 16);
+            this.teamIds = Arrays.copyOf(sortedTeamIds, capacity);
+            this.ratings = new double[capacity];
+            this.historyTimes = new long[capacity][];
+            this.historyRatings = new double[capacity][];
+            this.historySize = new int[capacity];
+            this.size = sortedTeamIds.length;
+            Arrays.fill(ratings, 0, size, initialRating);
+        }
+
+        int indexOf(long teamId) {
+            return Arrays.binarySearch(teamIds, 0, size, teamId);
+        }
+
+        /**
+         * Applies a result; results must be applied in kick-off order.
+         */
+        void apply(long homeTeamId, long awayTeamId, long kickOff,
+                   int homeGoals, int awayGoals, double updateFactor, double homeAdvantage) {
+            int home = ensure(homeTeamId);
+            int away = ensure(awayTeamId);
+            double expected = expectancy(ratings[home] + homeAdvantage, ratings[away]);
+            double actual = homeGoals > awayGoals ? 1.0 : homeGoals == awayGoals ? 0.5 : 0.0;
+            double delta = updateFactor * marginMultiplier(homeGoals - awayGoals) * (actual - expected);
+
+            ratings[home] += delta;
+            ratings[away] -= delta;
+            record(home, kickOff);
+            record(away, kickOff);
+        }
+
+        /**
+         * Sets every team back to its rating before the given kick-off and drops the history from
+         * then on, so the results from that kick-off can be applied again.
+         */
+        void rewind(long kickOff) {
+            for (int index = 0; index < size; index++) {
+                int count = historySize[index];
+                while (count > 0 && historyTimes[index][count - 1] >= kickOff) {
+                    count--;
+                }
+                historySize[index] = count;
+                ratings[index] = count == 0 ? initialRating : historyRatings[index][count - 1];
+            }
+        }
+
+        double ratingAt(int index, long epochSecond) {
+            long[] times = historyTimes[index];
+            int count = historySize[index];
+            if (count == 0 || times[0] >= epochSecond) {
+                return initialRating;
+            }
+            // Last change strictly before the requested time
+            int low = 0;
+            int high = count - 1;
+            while (low < high) {
+                int mid = (low + high + 1) >>> 1;
+                if (times[mid] < epochSecond) {
+                    low = mid;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return historyRatings[index][low];
+        }
+
+        private void record(int index, long kickOff) {
+            int count = historySize[index];
+            if (historyTimes[index] == null) {
+                historyTimes[index] = new long[INITIAL_HISTORY];
+                historyRatings[index] = new double[INITIAL_HISTORY];
+            } else if (count == historyTimes[index].length) {
+                historyTimes[index] = Arrays.copyOf(historyTimes[index], count * 2);
+                historyRatings[index] = Arrays.copyOf(historyRatings[index], count * 2);
+            }
+            historyTimes[index][count] = kickOff;
+            historyRatings[index][count] = ratings[index];
+            historySize[index] = count + 1;
+        }
+
+        /**
+         * Returns the index of a team, inserting it at its sorted position if it is new.
+         */
+        private int ensure(long teamId) {
+            int index = indexOf(teamId);
+            if (index >= 0) {
+                return index;
+            }
+            if (size == teamIds.length) {
+                int capacity = teamIds.length * 2;
+                teamIds = Arrays.copyOf(teamIds, capacity);
+                ratings = Arrays.copyOf(ratings, capacity);
+                historyTimes = Arrays.copyOf(historyTimes, capacity);
+                historyRatings = Arrays.copyOf(historyRatings, capacity);
+                historySize = Arrays.copyOf(historySize, capacity);
+            }
+            int insertAt = -index - 1;
+            int tail = size - insertAt;
+            System.arraycopy(teamIds, insertAt, teamIds, insertAt + 1, tail);
+            System.arraycopy(ratings, insertAt, ratings, insertAt + 1, tail);
+            System.arraycopy(historyTimes, insertAt, historyTimes, insertAt + 1, tail);
+            System.arraycopy(historyRatings, insertAt, historyRatings, insertAt + 1, tail);
+            System.arraycopy(historySize, insertAt, historySize, insertAt + 1, tail);
+            teamIds[insertAt] = teamId;
+            ratings[insertAt] = initialRating;
+            historyTimes[insertAt] = null;
+            historyRatings[insertAt] = null;
+            historySize[insertAt] = 0;
+            size++;
+            return insertAt;
+        }
+    }
+
+    /**
+     * Applied results in kick-off order, in parallel primitive arrays. Each match ID maps to its
+     * kick-off in an open-addressing table; its position is then found among the results of that
+     * kick-off.
+     */
+    private static final class Results {
+
+        private static final int INITIAL_CAPACITY = 1024;
+        private static final long NO_MATCH = Long.MIN_VALUE;
+
+        private long[] matchIds = new long[INITIAL_CAPACITY];
+        private long[] competitionIds = new long[INITIAL_CAPACITY];
+        private long[] homeTeamIds = new long[INITIAL_CAPACITY];
+        private long[] awayTeamIds = new long[INITIAL_CAPACITY];
+        private long[] kickOffs = new long[INITIAL_CAPACITY];
+        private int[] homeGoals = new int[INITIAL_CAPACITY];
+        private int[] awayGoals = new int[INITIAL_CAPACITY];
+        private int size;
+
+        /** Match IDs and their kick-offs, NO_MATCH marking a free slot; at most half full */
+        private long[] indexKeys = newIndex(INITIAL_CAPACITY * 2);
+        private long[] indexKickOffs = new long[INITIAL_CAPACITY * 2];
+        private int indexSize;
+
+        /**
+         * Inserts a result at the given position, which must keep the kick-off order.
+         *
+         * @return the position
+         */
+        int insert(int at, long matchId, long competitionId, long homeTeamId, long awayTeamId,
+                   long kickOff, int homeGoals, int awayGoals) {
+            if (size == kickOffs.length) {
+                int capacity = size * 2;
+                matchIds = Arrays.copyOf(matchIds, capacity);
+                competitionIds = Arrays.copyOf(competitionIds, capacity);
+                homeTeamIds = Arrays.copyOf(homeTeamIds, capacity);
+                awayTeamIds = Arrays.copyOf(awayTeamIds, capacity);
+                kickOffs = Arrays.copyOf(kickOffs, capacity);
+                this.homeGoals = Arrays.copyOf(this.homeGoals, capacity);
+                this.awayGoals = Arrays.copyOf(this.awayGoals, capacity);
+            }
+            shift(at, at + 1, size - at);
+            matchIds[at] = matchId;
+            competitionIds[at] = competitionId;
+            homeTeamIds[at] = homeTeamId;
+            awayTeamIds[at] = awayTeamId;
+            kickOffs[at] = kickOff;
+            this.homeGoals[at] = homeGoals;
+            this.awayGoals[at] = awayGoals;
+            size++;
+            index(matchId, kickOff);
+            return at;
+        }
+
+        /**
+         * Removes the result at the given position. Its match stays indexed with the old kick-off,
+         * so the corrected result has to be inserted right after.
+         */
+        void remove(int at) {
+            shift(at + 1, at, size - at - 1);
+            size--;
+        }
+
+        /**
+         * Returns the position of a match's result, or -1 if it has none.
+         */
+        int indexOf(long matchId) {
+            int slot = slot(indexKeys, matchId);
+            if (indexKeys[slot] == NO_MATCH) {
+                return -1;
+            }
+            long kickOff = indexKickOffs[slot];
+            for (int at = lowerBound(kickOff); at < size && kickOffs[at] == kickOff; at++) {
+                if (matchIds[at] == matchId) {
+                    return at;
+                }
+            }
+            return -1;
+        }
+
+        boolean sameAs(int at, Result result) {
+            return competitionIds[at] == result.competitionId()
+                    && homeTeamIds[at] == result.homeTeamId()
+                    && awayTeamIds[at] == result.awayTeamId()
+                    && kickOffs[at] == result.kickOff()
+                    && homeGoals[at] == result.homeGoals()
+                    && awayGoals[at] == result.awayGoals();
+        }
+
+        /**
+         * Returns the first position whose kick-off is not before the given one.
+         */
+        int lowerBound(long kickOff) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (kickOffs[mid] < kickOff) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        /**
+         * Returns the first position whose kick-off is after the given one.
+         */
+        int upperBound(long kickOff) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (kickOffs[mid] <= kickOff) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+
+        private void shift(int from, int to, int length) {
+            System.arraycopy(matchIds, from, matchIds, to, length);
+            System.arraycopy(competitionIds, from, competitionIds, to, length);
+            System.arraycopy(homeTeamIds, from, homeTeamIds, to, length);
+            System.arraycopy(awayTeamIds, from, awayTeamIds, to, length);
+            System.arraycopy(kickOffs, from, kickOffs, to, length);
+            System.arraycopy(homeGoals, from, homeGoals, to, length);
+            System.arraycopy(awayGoals, from, awayGoals, to, length);
+        }
+
+        private void index(long matchId, long kickOff) {
+            if ((indexSize + 1) * 2 > indexKeys.length) {
+                long[] keys = indexKeys;
+                long[] values = indexKickOffs;
+                indexKeys = newIndex(keys.length * 2);
+                indexKickOffs = new long[keys.length * 2];
+                for (int slot = 0; slot < keys.length; slot++) {
+                    if (keys[slot] != NO_MATCH) {
+                        int moved = slot(indexKeys, keys[slot]);
+                        indexKeys[moved] = keys[slot];
+                        indexKickOffs[moved] = values[slot];
+                    }
+                }
+            }
+            int slot = slot(indexKeys, matchId);
+            if (indexKeys[slot] == NO_MATCH) {
+                indexKeys[slot] = matchId;
+                indexSize++;
+            }
+            indexKickOffs[slot] = kickOff;
+        }
+
+        /**
+         * Returns the slot holding the match ID, or the free slot it would go in.
+         */
+        private static int slot(long[] keys, long matchId) {
+            int mask = keys.length - 1;
+            int slot = Long.hashCode(matchId * 0x9E3779B97F4A7C15L) & mask;
+            while (keys[slot] != NO_MATCH && keys[slot] != matchId) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private static long[] newIndex(int capacity) {
+            long[] keys = new long[capacity];
+            Arrays.fill(keys, NO_MATCH);
+            return keys;
+        }
+    }
+}
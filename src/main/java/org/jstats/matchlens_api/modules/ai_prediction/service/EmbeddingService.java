@@ -1,9 +1,11 @@
 package org.jstats.matchlens_api.modules.ai_prediction.service;
 
+import org.jspecify.annotations.Nullable;
 import org.jstats.matchlens_api.modules.ai_prediction.repository.MatchEmbeddingRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
@@ -12,7 +14,8 @@ import java.util.List;
 import java.util.Map;
 
 /**
- * Service for generating and storing embeddings for matches.
+ * Service for generating and storing embeddings for matches. Model calls go through the embedding
+ * bulkhead.
  */
 @Service
 public class EmbeddingService {
@@ -22,14 +25,17 @@ public class EmbeddingService {
     private final EmbeddingModel embeddingModel;
     private final MatchEmbeddingRepository repository;
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final Bulkhead bulkhead;
 
     public EmbeddingService(
             EmbeddingModel embeddingModel,
             MatchEmbeddingRepository repository,
-            NamedParameterJdbcTemplate jdbcTemplate) {
+            @Qualifier("batchJdbcTemplate") NamedParameterJdbcTemplate jdbcTemplate,
+            OllamaBulkheads bulkheads) {
         this.embeddingModel = embeddingModel;
         this.repository = repository;
         this.jdbcTemplate = jdbcTemplate;
+        this.bulkhead = bulkheads.embedding();
     }
 
     /**
@@ -68,7 +74,7 @@ public class EmbeddingService {
 
         try {
             // Generate embedding and convert to List<Double>
-            float[] embedding = embeddingModel.embed(matchText);
+            float[] embedding = bulkhead.execute(() -> embeddingModel.embed(matchText));
             List<Double> embeddingList = toDoubleList(embedding);
 
             // Store in database
@@ -119,10 +125,22 @@ public class EmbeddingService {
      * @return the embedding as a list of doubles
      */
     public List<Double> generateQueryEmbedding(String query) {
-        float[] embedding = embeddingModel.embed(query);
+        float[] embedding = bulkhead.execute(() -> embeddingModel.embed(query));
         return toDoubleList(embedding);
     }
 
+    /**
+     * Generates embeddings for several search queries in a single model call.
+     *
+     * @param queries the search query texts
+     * @return the embeddings, in query order
+     */
+    public List<List<Double>> generateQueryEmbeddings(List<String> queries) {
+        return bulkhead.execute(() -> embeddingModel.embed(queries)).stream()
+                .map(this::toDoubleList)
+                .toList();
+    }
+
     /**
      * Builds a text representation of a match for embedding.
      *
@@ -135,7 +153,10 @@ public class EmbeddingService {
                     ht.name AS home_team,
                     at.name AS away_team,
                     m.status,
-                    m.score_json::text AS score,
+                    m.ft_home_goals,
+                    m.ft_away_goals,
+                    m.ht_home_goals,
+                    m.ht_away_goals,
                     c.name AS competition,
                     m.utc_date::date::text AS match_date
                 FROM fd_match m
@@ -153,7 +174,11 @@ public class EmbeddingService {
             String homeTeam = (String) row.get("home_team");
             String awayTeam = (String) row.get("away_team");
             String status = (String) row.get("status");
-            String score = row.get("score") != null ? row.get("score").toString() : "";
+            String score = score(row.get("ft_home_goals"), row.get("ft_away_goals"));
+            String halfTime = score(row.get("ht_home_goals"), row.get("ht_away_goals"));
+            if (!score.isEmpty() && !halfTime.isEmpty()) {
+                score += " (half-time " + halfTime + ")";
+            }
             String competition = (String) row.get("competition");
             String date = row.get("match_date") != null ? row.get("match_date").toString() : "";
 
@@ -166,4 +191,8 @@ public class EmbeddingService {
             return null;
         }
     }
+
+    private static String score(@Nullable Object homeGoals, @Nullable Object awayGoals) {
+        return homeGoals == null || awayGoals == null ? "" : homeGoals + "-" + awayGoals;
+    }
 }
@@ -0,0 +1,115 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import org.jspecify.annotations.Nullable;
+import org.jstats.matchlens_api.modules.ai_prediction.config.PromptConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.model.MatchContext;
+import org.jstats.matchlens_api.modules.ai_prediction.repository.HeadToHeadRepository;
+import org.jstats.matchlens_api.modules.ai_prediction.repository.HeadToHeadRepository.TeamPair;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.feed.MatchResultEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of the head_to_head read model, so context building finds the meetings of a
+ * fixture's teams with one map lookup instead of searching fd_match.
+ * <p>
+ * On startup every finished match not yet applied is folded into head_to_head and the table is
+ * loaded; afterwards each {@link MatchResultEvent} applies its match, or its corrected score, and
+ * reloads that pair.
+ * <p>
+ * Like {@link TeamStatsProjection}, meetings are asked for as they stood before a fixture's day:
+ * from memory when the pair's latest meeting is earlier, otherwise computed from fd_match.
+ */
+@Component
+public class HeadToHeadProjection {
+
+    private static final Logger log = LoggerFactory.getLogger(HeadToHeadProjection.class);
+
+    private final HeadToHeadRepository repository;
+    private final PromptConfig promptConfig;
+
+    private final Map<TeamPair, HeadToHeadRepository.HeadToHeadRow> rowsByPair = new ConcurrentHashMap<>();
+
+    public HeadToHeadProjection(HeadToHeadRepository repository, PromptConfig promptConfig) {
+        this.repository = repository;
+        this.promptConfig = promptConfig;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        List<TeamPair> backfilled = repository.applyFinishedMatches(null, promptConfig.getHeadToHeadLength());
+        List<HeadToHeadRepository.HeadToHeadRow> rows = repository.findAll();
+        rows.forEach(this::index);
+        log.info("Loaded head-to-head records for {} team pairs ({} updated by backfill)", rows.size(), backfilled.size());
+    }
+
+    @EventListener
+    public void onMatchResult(MatchResultEvent event) {
+        List<TeamPair> changed = repository.applyFinishedMatches(event.matchId(), promptConfig.getHeadToHeadLength());
+        if (!changed.isEmpty()) {
+            repository.findByPairs(changed).forEach(this::index);
+        }
+    }
+
+    /**
+     * Returns the IDs of the latest meetings of two teams before a fixture's day, at either venue.
+     *
+     * @param teamId      one team's ID
+     * @param otherTeamId the other team's ID
+     * @param matchDate   the fixture's day; meetings from that day on are not counted
+     * @return up to {@code head-to-head-length} match IDs, most recent first
+     */
+    public List<Long> recentMeetings(long teamId, long otherTeamId, LocalDate matchDate) {
+        var row = rowAsOf(TeamPair.of(teamId, otherTeamId), matchDate);
+        return row == null ? List.of() : row.recentMatchIds();
+    }
+
+    /**
+     * Returns a team's results against an opponent before a fixture's day.
+     *
+     * @param teamId      the team whose side the record is seen from
+     * @param otherTeamId the opponent's ID
+     * @param matchDate   the fixture's day; meetings from that day on are not counted
+     * @return the record, or an empty record if the teams had not met by then
+     */
+    public MatchContext.HeadToHead results(long teamId, long otherTeamId, LocalDate matchDate) {
+        var row = rowAsOf(TeamPair.of(teamId, otherTeamId), matchDate);
+        if (row == null) {
+            return MatchContext.HeadToHead.empty();
+        }
+        return row.pair().teamAId() == teamId ? row.results() : row.results().reversed();
+    }
+
+    /**
+     * @return the number of latest meetings kept per pair
+     */
+    public int recentLength() {
+        return promptConfig.getHeadToHeadLength();
+    }
+
+    private HeadToHeadRepository.@Nullable HeadToHeadRow rowAsOf(TeamPair pair, LocalDate matchDate) {
+        var row = rowsByPair.get(pair);
+        if (row == null) {
+            return null;
+        }
+        OffsetDateTime before = matchDate.atStartOfDay().atOffset(ZoneOffset.UTC);
+        if (row.lastMatchDate() == null || row.lastMatchDate().isBefore(before)) {
+            return row;
+        }
+        return repository.findAsOf(pair, before, promptConfig.getHeadToHeadLength());
+    }
+
+    private void index(HeadToHeadRepository.HeadToHeadRow row) {
+        rowsByPair.put(row.pair(), row);
+    }
+}
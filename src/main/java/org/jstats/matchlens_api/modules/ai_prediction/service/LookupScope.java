@@ -0,0 +1,114 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Runs independent lookups concurrently with structured lifetimes: lookups forked in the scope
+ * are joined before their results are used, the first failure cancels the others, and closing
+ * the scope cancels whatever is still running. If the joining thread is interrupted (e.g. by the
+ * prediction deadline), the forks are interrupted with it.
+ * <p>
+ * This is the shape of {@code StructuredTaskScope} with the "all successful or throw" policy,
+ * built on an executor so it does not depend on a preview API.
+ */
+final class LookupScope implements AutoCloseable {
+
+    private final ExecutorService executor;
+    private final List<Future<?>> forks = new ArrayList<>();
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+
+    LookupScope(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Starts a lookup. Its result is available through {@link Future#resultNow()} after {@link #join()}.
+     */
+    <T> Future<T> fork(Callable<T> lookup) {
+        Future<T> future = executor.submit(() -> {
+            try {
+                return lookup.call();
+            } catch (Throwable e) {
+                if (failure.compareAndSet(null, e)) {
+                    cancelAll();
+                }
+                throw e;
+            }
+        });
+        synchronized (forks) {
+            forks.add(future);
+        }
+        if (failure.get() != null) {
+            future.cancel(true);
+        }
+        return future;
+    }
+
+    /**
+     * Waits for all lookups to complete.
+     *
+     * @throws InterruptedException if interrupted while waiting; the lookups are cancelled
+     * @throws RuntimeException     the first failure of a lookup, unchecked failures as is
+     */
+    void join() throws InterruptedException {
+        List<Future<?>> started;
+        synchronized (forks) {
+            started = List.copyOf(forks);
+        }
+        await(started);
+    }
+
+    /**
+     * Waits for one lookup to complete, leaving the others running. Lookups may still be forked
+     * afterwards, e.g. depending on its result.
+     *
+     * @throws InterruptedException if interrupted while waiting; the lookups are cancelled
+     * @throws RuntimeException     the first failure of a lookup so far, unchecked failures as is
+     */
+    void join(Future<?> fork) throws InterruptedException {
+        await(List.of(fork));
+    }
+
+    private void await(List<Future<?>> started) throws InterruptedException {
+        for (Future<?> fork : started) {
+            try {
+                fork.get();
+            } catch (ExecutionException | CancellationException e) {
+                // The first failure is rethrown below; cancelled siblings only follow from it
+            } catch (InterruptedException e) {
+                cancelAll();
+                throw e;
+            }
+        }
+
+        Throwable first = failure.get();
+        if (first instanceof RuntimeException runtime) {
+            throw runtime;
+        }
+        if (first instanceof Error error) {
+            throw error;
+        }
+        if (first != null) {
+            throw new CompletionException(first);
+        }
+    }
+
+    @Override
+    public void close() {
+        cancelAll();
+    }
+
+    private void cancelAll() {
+        synchronized (forks) {
+            forks.forEach(fork -> fork.cancel(true));
+        }
+    }
+}
@@ -1,17 +1,27 @@
 package org.jstats.matchlens_api.modules.ai_prediction.service;
 
+import org.jspecify.annotations.Nullable;
 import org.jstats.matchlens_api.modules.ai_prediction.model.MatchContext;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionRequest;
 import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.ai.document.Document;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.Set;
 
 /**
  * Service for building context from similar historical matches.
@@ -21,112 +31,401 @@ public class MatchContextBuilder {
 
     private static final Logger log = LoggerFactory.getLogger(MatchContextBuilder.class);
 
+    /** Number of recent matches used when the vector search returns nothing */
+    private static final int FALLBACK_MATCHES = 15;
+
+    /** Columns read for every historical match, see {@link #toMatchRow} */
+    private static final String MATCH_COLUMNS = """
+            m.id,
+            m.home_team_id,
+            m.away_team_id,
+            ht.name AS home_team,
+            ht.tla AS home_tla,
+            at.name AS away_team,
+            at.tla AS away_tla,
+            m.ft_home_goals AS home_goals,
+            m.ft_away_goals AS away_goals,
+            c.name AS competition,
+            c.code AS competition_code,
+            m.utc_date::date::text AS match_date""";
+
     private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate batchJdbcTemplate;
+    private final TeamStatsProjection teamStats;
+    private final HeadToHeadProjection headToHead;
+    private final TeamDirectory teamDirectory;
+    private final EloRatingEngine eloRatings;
+    private final ContextCompressor compressor;
 
-    public MatchContextBuilder(NamedParameterJdbcTemplate jdbcTemplate) {
+    public MatchContextBuilder(
+            NamedParameterJdbcTemplate jdbcTemplate,
+            @Qualifier("batchJdbcTemplate") NamedParameterJdbcTemplate batchJdbcTemplate,
+            TeamStatsProjection teamStats,
+            HeadToHeadProjection headToHead,
+            TeamDirectory teamDirectory,
+            EloRatingEngine eloRatings,
+            ContextCompressor compressor) {
         this.jdbcTemplate = jdbcTemplate;
+        this.batchJdbcTemplate = batchJdbcTemplate;
+        this.teamStats = teamStats;
+        this.headToHead = headToHead;
+        this.teamDirectory = teamDirectory;
+        this.eloRatings = eloRatings;
+        this.compressor = compressor;
+    }
+
+    /**
+     * @return this builder with its queries on the batch pool, for offline work such as precomputation
+     */
+    public MatchContextBuilder batch() {
+        return new MatchContextBuilder(batchJdbcTemplate, batchJdbcTemplate, teamStats, headToHead, teamDirectory,
+                eloRatings, compressor);
     }
 
     /**
-     * Builds a MatchContext from a list of similar match documents.
+     * Builds the contexts of several fixtures, hydrating the similar matches and head-to-head
+     * meetings of all of them in one query.
      *
-     * @param similarMatches documents retrieved from vector store
-     * @param homeTeam       name of the home team
-     * @param awayTeam       name of the away team
-     * @return the match context with summary and statistics
+     * @param similarMatchIds match IDs ordered by similarity, one list per request
+     * @param requests        the fixtures, aligned with {@code similarMatchIds}
+     * @return one match context per request, in request order
      */
-    public MatchContext build(List<Document> similarMatches, String homeTeam, String awayTeam) {
-        List<PredictionResponse.HistoricalMatch> historicalMatches = new ArrayList<>();
-        MatchContext.TeamStats homeStats = MatchContext.TeamStats.empty();
-        MatchContext.TeamStats awayStats = MatchContext.TeamStats.empty();
+    public List<MatchContext> buildAll(List<List<Long>> similarMatchIds, List<PredictionRequest> requests) {
+        Set<Long> allIds = new LinkedHashSet<>();
+        similarMatchIds.forEach(allIds::addAll);
+        List<@Nullable List<Long>> meetingIds = new ArrayList<>(requests.size());
+        for (PredictionRequest request : requests) {
+            List<Long> meetings = projectedMeetings(request.homeTeam(), request.awayTeam(), request.matchDate());
+            meetingIds.add(meetings);
+            if (meetings != null) {
+                allIds.addAll(meetings);
+            }
+        }
+        Map<Long, ContextCompressor.MatchRow> rowsById = allIds.isEmpty() ? Map.of() : loadMatches(allIds);
+
+        List<MatchContext> contexts = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            PredictionRequest request = requests.get(i);
+            List<Long> ids = similarMatchIds.get(i);
+            List<ContextCompressor.MatchRow> matches = ids.isEmpty()
+                    ? recentMatches(request.homeTeam(), request.awayTeam(), request.matchDate())
+                    : inOrder(ids, rowsById);
+            List<Long> meetings = meetingIds.get(i);
+            List<ContextCompressor.MatchRow> headToHead = meetings != null
+                    ? inOrder(meetings, rowsById)
+                    : headToHead(request.homeTeam(), request.awayTeam(), request.matchDate());
+            contexts.add(assemble(matches, headToHead, request.homeTeam(), request.awayTeam(), request.matchDate()));
+        }
+        return contexts;
+    }
 
-        StringBuilder summaryBuilder = new StringBuilder();
+    /**
+     * Loads the matches found by the vector search.
+     *
+     * @param similarMatchIds match IDs ordered by similarity
+     * @return the matches, in similarity order
+     */
+    public List<ContextCompressor.MatchRow> similarMatches(List<Long> similarMatchIds) {
+        if (similarMatchIds.isEmpty()) {
+            return List.of();
+        }
+        return inOrder(similarMatchIds, loadMatches(similarMatchIds));
+    }
 
-        for (Document doc : similarMatches) {
-            Map<String, Object> metadata = doc.getMetadata();
+    /**
+     * Loads the latest finished matches of either team, read through the per-side (team, date)
+     * indexes. Used as context when the vector search finds nothing.
+     *
+     * @param homeTeam  name of the home team
+     * @param awayTeam  name of the away team
+     * @param matchDate the fixture's day; only earlier matches are loaded
+     * @return the matches, most recent first
+     */
+    public List<ContextCompressor.MatchRow> recentMatches(String homeTeam, String awayTeam, LocalDate matchDate) {
+        Set<Long> teamIds = new LinkedHashSet<>(teamDirectory.resolve(homeTeam));
+        teamIds.addAll(teamDirectory.resolve(awayTeam));
+        if (teamIds.isEmpty()) {
+            log.info("Unknown teams {} and {}, no historical matches to add", homeTeam, awayTeam);
+            return List.of();
+        }
 
-            String docHomeTeam = getStringValue(metadata, "home_team");
-            String docAwayTeam = getStringValue(metadata, "away_team");
-            String result = getStringValue(metadata, "result");
-            String competition = getStringValue(metadata, "competition");
-            String date = getStringValue(metadata, "date");
+        String sql = """
+                WITH recent AS (
+                    (SELECT m.id, m.utc_date FROM fd_match m
+                     WHERE m.home_team_id IN (:teamIds) AND m.status = 'FINISHED' AND m.utc_date < :before
+                     ORDER BY m.utc_date DESC
+                     LIMIT :limit)
+                    UNION
+                    (SELECT m.id, m.utc_date FROM fd_match m
+                     WHERE m.away_team_id IN (:teamIds) AND m.status = 'FINISHED' AND m.utc_date < :before
+                     ORDER BY m.utc_date DESC
+                     LIMIT :limit)
+                )
+                SELECT %s
+                FROM recent r
+                JOIN fd_match m ON m.id = r.id
+                JOIN fd_team ht ON m.home_team_id = ht.id
+                JOIN fd_team at ON m.away_team_id = at.id
+                JOIN fd_competition c ON m.competition_id = c.id
+                ORDER BY r.utc_date DESC, r.id DESC
+                LIMIT :limit
+                """.formatted(MATCH_COLUMNS);
 
-            historicalMatches.add(new PredictionResponse.HistoricalMatch(
-                    docHomeTeam, docAwayTeam, result, competition, date
-            ));
+        var params = new MapSqlParameterSource()
+                .addValue("teamIds", teamIds)
+                .addValue("before", matchDate.atStartOfDay().atOffset(ZoneOffset.UTC))
+                .addValue("limit", FALLBACK_MATCHES);
 
-            summaryBuilder.append(String.format("- %s vs %s: %s (%s, %s)%n",
-                    docHomeTeam, docAwayTeam, result, competition, date));
+        try {
+            return jdbcTemplate.queryForList(sql, params).stream().map(this::toMatchRow).toList();
+        } catch (Exception e) {
+            log.warn("Failed to fetch historical matches from database: {}", e.getMessage());
+            return List.of();
         }
+    }
 
-        // If no documents found, try to get stats from database
-        if (similarMatches.isEmpty()) {
-            log.info("No similar matches found from vector store, fetching from database");
-            return buildFromDatabase(homeTeam, awayTeam);
+    /**
+     * Loads the latest finished meetings of the two teams, at either venue. When both names resolve
+     * to one team the meetings come from the head-to-head read model and are loaded by ID;
+     * ambiguous names fall back to searching every combination of candidate teams.
+     *
+     * @param homeTeam  name of the home team
+     * @param awayTeam  name of the away team
+     * @param matchDate the fixture's day; only earlier meetings are loaded
+     * @return the meetings, most recent first
+     */
+    public List<ContextCompressor.MatchRow> headToHead(String homeTeam, String awayTeam, LocalDate matchDate) {
+        List<Long> meetings = projectedMeetings(homeTeam, awayTeam, matchDate);
+        if (meetings != null) {
+            return meetings.isEmpty() ? List.of() : inOrder(meetings, loadMatches(meetings));
         }
+        Set<Long> homeIds = teamDirectory.resolve(homeTeam);
+        Set<Long> awayIds = teamDirectory.resolve(awayTeam);
+
+        String sql = """
+                WITH meetings AS (
+                    (SELECT m.id, m.utc_date FROM fd_match m
+                     WHERE m.home_team_id IN (:homeIds) AND m.away_team_id IN (:awayIds)
+                       AND m.status = 'FINISHED' AND m.utc_date < :before
+                     ORDER BY m.utc_date DESC
+                     LIMIT :limit)
+                    UNION
+                    (SELECT m.id, m.utc_date FROM fd_match m
+                     WHERE m.home_team_id IN (:awayIds) AND m.away_team_id IN (:homeIds)
+                       AND m.status = 'FINISHED' AND m.utc_date < :before
+                     ORDER BY m.utc_date DESC
+                     LIMIT :limit)
+                )
+                SELECT %s
+                FROM meetings h
+                JOIN fd_match m ON m.id = h.id
+                JOIN fd_team ht ON m.home_team_id = ht.id
+                JOIN fd_team at ON m.away_team_id = at.id
+                JOIN fd_competition c ON m.competition_id = c.id
+                ORDER BY h.utc_date DESC, h.id DESC
+                LIMIT :limit
+                """.formatted(MATCH_COLUMNS);
 
-        String summary = summaryBuilder.isEmpty() ? "No historical data available" : summaryBuilder.toString();
+        var params = new MapSqlParameterSource()
+                .addValue("homeIds", homeIds)
+                .addValue("awayIds", awayIds)
+                .addValue("before", matchDate.atStartOfDay().atOffset(ZoneOffset.UTC))
+                .addValue("limit", headToHead.recentLength());
 
-        return new MatchContext(summary, historicalMatches, homeStats, awayStats);
+        try {
+            return jdbcTemplate.queryForList(sql, params).stream().map(this::toMatchRow).toList();
+        } catch (Exception e) {
+            log.warn("Failed to fetch head-to-head matches from database: {}", e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * Assembles the context from looked-up matches and the in-memory statistics, Elo ratings and
+     * head-to-head record of both teams. The summary lists these aggregates first, then as many
+     * head-to-head meetings and historical matches as fit the context token budget, in compact form.
+     *
+     * @param historicalMatches similar or recent matches, in retrieval order
+     * @param headToHead        latest meetings of the two teams
+     * @param homeTeam          name of the home team
+     * @param awayTeam          name of the away team
+     * @param matchDate         the fixture's day; statistics only count results before it
+     * @return the match context; its relevant matches are those included in the summary
+     */
+    public MatchContext assemble(
+            List<ContextCompressor.MatchRow> historicalMatches,
+            List<ContextCompressor.MatchRow> headToHead,
+            String homeTeam,
+            String awayTeam,
+            LocalDate matchDate) {
+        MatchContext.TeamStats homeStats = teamStats.forTeam(homeTeam, matchDate);
+        MatchContext.TeamStats awayStats = teamStats.forTeam(awayTeam, matchDate);
+        Set<Long> homeIds = teamDirectory.resolve(homeTeam);
+        Set<Long> awayIds = teamDirectory.resolve(awayTeam);
+
+        StringBuilder header = new StringBuilder();
+        appendStats(homeTeam, homeStats, header);
+        appendStats(awayTeam, awayStats, header);
+        appendRatings(homeTeam, awayTeam, header);
+        appendHeadToHead(homeTeam, homeIds, awayTeam, awayIds, matchDate, header);
+        appendLegend(homeTeam, homeIds, awayTeam, awayIds, historicalMatches, headToHead, header);
+        if (!header.isEmpty()) {
+            header.append(System.lineSeparator());
+        }
+
+        Set<Long> fixtureTeams = new HashSet<>(homeIds);
+        fixtureTeams.addAll(awayIds);
+        var compressed = compressor.compress(header.toString(), headToHead, historicalMatches, fixtureTeams);
+
+        List<PredictionResponse.HistoricalMatch> relevantMatches = compressed.kept().stream()
+                .map(ContextCompressor.MatchRow::toHistoricalMatch)
+                .toList();
+        return new MatchContext(compressed.summary(), relevantMatches, homeStats, awayStats);
     }
 
     /**
-     * Builds context directly from the database when no vector matches are found.
+     * Returns the IDs of the latest meetings from the head-to-head read model, none if either name
+     * is unknown, or null if a name is ambiguous and the meetings have to be searched.
      */
-    private MatchContext buildFromDatabase(String homeTeam, String awayTeam) {
-        List<PredictionResponse.HistoricalMatch> historicalMatches = new ArrayList<>();
-        StringBuilder summaryBuilder = new StringBuilder();
+    private @Nullable List<Long> projectedMeetings(String homeTeam, String awayTeam, LocalDate matchDate) {
+        Set<Long> homeIds = teamDirectory.resolve(homeTeam);
+        Set<Long> awayIds = teamDirectory.resolve(awayTeam);
+        if (homeIds.isEmpty() || awayIds.isEmpty()) {
+            return List.of();
+        }
+        if (homeIds.size() != 1 || awayIds.size() != 1) {
+            return null;
+        }
+        return headToHead.recentMeetings(homeIds.iterator().next(), awayIds.iterator().next(), matchDate);
+    }
 
+    private Map<Long, ContextCompressor.MatchRow> loadMatches(Collection<Long> matchIds) {
         String sql = """
-                SELECT
-                    ht.name AS home_team,
-                    at.name AS away_team,
-                    m.score_json::text AS score,
-                    c.name AS competition,
-                    m.utc_date::date::text AS match_date
+                SELECT %s
                 FROM fd_match m
                 JOIN fd_team ht ON m.home_team_id = ht.id
                 JOIN fd_team at ON m.away_team_id = at.id
                 JOIN fd_competition c ON m.competition_id = c.id
-                WHERE (ht.name ILIKE :homeTeam OR at.name ILIKE :homeTeam
-                    OR ht.name ILIKE :awayTeam OR at.name ILIKE :awayTeam)
-                    AND m.status = 'FINISHED'
-                ORDER BY m.utc_date DESC
-                LIMIT 15
-                """;
+                WHERE m.id IN (:ids)
+                """.formatted(MATCH_COLUMNS);
 
-        var params = new MapSqlParameterSource()
-                .addValue("homeTeam", "%" + homeTeam + "%")
-                .addValue("awayTeam", "%" + awayTeam + "%");
+        var params = new MapSqlParameterSource().addValue("ids", matchIds);
 
+        Map<Long, ContextCompressor.MatchRow> rowsById = new HashMap<>();
         try {
-            List<Map<String, Object>> rows = jdbcTemplate.queryForList(sql, params);
+            for (Map<String, Object> row : jdbcTemplate.queryForList(sql, params)) {
+                var match = toMatchRow(row);
+                rowsById.put(match.matchId(), match);
+            }
+        } catch (Exception e) {
+            log.warn("Failed to load similar matches from database: {}", e.getMessage());
+        }
+        return rowsById;
+    }
 
-            for (Map<String, Object> row : rows) {
-                String docHomeTeam = (String) row.get("home_team");
-                String docAwayTeam = (String) row.get("away_team");
-                String score = row.get("score") != null ? row.get("score").toString() : "N/A";
-                String competition = (String) row.get("competition");
-                String date = row.get("match_date") != null ? row.get("match_date").toString() : "N/A";
+    /**
+     * Keeps the similarity order of the vector search, skipping matches that could not be loaded.
+     */
+    private List<ContextCompressor.MatchRow> inOrder(
+            List<Long> similarMatchIds,
+            Map<Long, ContextCompressor.MatchRow> rowsById) {
+        List<ContextCompressor.MatchRow> historicalMatches = new ArrayList<>();
+        for (Long matchId : similarMatchIds) {
+            var row = rowsById.get(matchId);
+            if (row != null) {
+                historicalMatches.add(row);
+            }
+        }
+        return historicalMatches;
+    }
+
+    private void appendStats(String team, MatchContext.TeamStats stats, StringBuilder summaryBuilder) {
+        if (stats.totalMatches() == 0) {
+            return;
+        }
+        summaryBuilder.append(String.format(
+                "- %s: %d played, %dW %dD %dL, goals %d-%d (home %dW %dD %dL, away %dW %dD %dL), recent form %s%n",
+                team, stats.totalMatches(), stats.wins(), stats.draws(), stats.losses(),
+                stats.goalsScored(), stats.goalsConceded(),
+                stats.home().wins(), stats.home().draws(), stats.home().losses(),
+                stats.away().wins(), stats.away().draws(), stats.away().losses(),
+                stats.recentForm().isEmpty() ? "n/a" : stats.recentForm()));
+    }
 
-                historicalMatches.add(new PredictionResponse.HistoricalMatch(
-                        docHomeTeam, docAwayTeam, score, competition, date
-                ));
+    private void appendRatings(String homeTeam, String awayTeam, StringBuilder summaryBuilder) {
+        OptionalDouble home = eloRatings.rating(homeTeam);
+        OptionalDouble away = eloRatings.rating(awayTeam);
+        if (home.isEmpty() || away.isEmpty()) {
+            return;
+        }
+        summaryBuilder.append(String.format("- Elo ratings: %s %.0f, %s %.0f%n",
+                homeTeam, home.getAsDouble(), awayTeam, away.getAsDouble()));
+    }
 
-                summaryBuilder.append(String.format("- %s vs %s: %s (%s, %s)%n",
-                        docHomeTeam, docAwayTeam, score, competition, date));
+    private void appendHeadToHead(
+            String homeTeam,
+            Set<Long> homeIds,
+            String awayTeam,
+            Set<Long> awayIds,
+            LocalDate matchDate,
+            StringBuilder summaryBuilder) {
+        if (homeIds.size() != 1 || awayIds.size() != 1) {
+            return;
+        }
+        MatchContext.HeadToHead results =
+                headToHead.results(homeIds.iterator().next(), awayIds.iterator().next(), matchDate);
+        if (results.meetings() == 0) {
+            return;
+        }
+        summaryBuilder.append(String.format("- Head-to-head: %d meetings, %s %dW %dD %dL against %s, goals %d-%d%n",
+                results.meetings(), homeTeam, results.wins(), results.draws(), results.losses(), awayTeam,
+                results.goalsScored(), results.goalsConceded()));
+    }
+
+    /**
+     * Names the codes the fixture's teams appear under in the compact match lines.
+     */
+    private void appendLegend(
+            String homeTeam,
+            Set<Long> homeIds,
+            String awayTeam,
+            Set<Long> awayIds,
+            List<ContextCompressor.MatchRow> historicalMatches,
+            List<ContextCompressor.MatchRow> headToHead,
+            StringBuilder summaryBuilder) {
+        String homeCode = null;
+        String awayCode = null;
+        for (var rows : List.of(headToHead, historicalMatches)) {
+            for (var row : rows) {
+                homeCode = homeCode != null ? homeCode : codeOf(row, homeIds);
+                awayCode = awayCode != null ? awayCode : codeOf(row, awayIds);
             }
-        } catch (Exception e) {
-            log.warn("Failed to fetch historical matches from database: {}", e.getMessage());
         }
+        if (homeCode != null && awayCode != null) {
+            summaryBuilder.append(String.format("- Codes: %s = %s, %s = %s%n", homeCode, homeTeam, awayCode, awayTeam));
+        }
+    }
 
-        String summary = summaryBuilder.isEmpty() ? "No historical data available" : summaryBuilder.toString();
-        return new MatchContext(summary, historicalMatches,
-                MatchContext.TeamStats.empty(), MatchContext.TeamStats.empty());
+    private static @Nullable String codeOf(ContextCompressor.MatchRow row, Set<Long> teamIds) {
+        if (teamIds.contains(row.homeTeamId())) {
+            return row.homeTla();
+        }
+        return teamIds.contains(row.awayTeamId()) ? row.awayTla() : null;
     }
 
-    private String getStringValue(Map<String, Object> metadata, String key) {
-        Object value = metadata.get(key);
-        return value != null ? value.toString() : "";
+    private ContextCompressor.MatchRow toMatchRow(Map<String, Object> row) {
+        return new ContextCompressor.MatchRow(
+                ((Number) row.get("id")).longValue(),
+                row.get("match_date") != null ? row.get("match_date").toString() : "N/A",
+                ((Number) row.get("home_team_id")).longValue(),
+                (String) row.get("home_team"),
+                (String) row.get("home_tla"),
+                ((Number) row.get("away_team_id")).longValue(),
+                (String) row.get("away_team"),
+                (String) row.get("away_tla"),
+                (Integer) row.get("home_goals"),
+                (Integer) row.get("away_goals"),
+                (String) row.get("competition"),
+                (String) row.get("competition_code"));
     }
 }
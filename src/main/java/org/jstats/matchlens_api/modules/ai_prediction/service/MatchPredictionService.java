@@ -2,60 +2,116 @@ package org.jstats.matchlens_api.modules.ai_prediction.service;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.jspecify.annotations.Nullable;
 import org.jstats.matchlens_api.modules.ai_prediction.config.PromptConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.config.RetrievalConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.model.BatchPredictionResult;
+import org.jstats.matchlens_api.modules.ai_prediction.model.LlmPrediction;
 import org.jstats.matchlens_api.modules.ai_prediction.model.MatchContext;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionMode;
 import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionRequest;
 import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionResponse;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionStreamEvent;
+import org.jstats.matchlens_api.modules.ai_prediction.model.StoredPrediction;
 import org.jstats.matchlens_api.modules.ai_prediction.repository.MatchEmbeddingRepository;
+import org.jstats.matchlens_api.modules.ai_prediction.repository.MatchPredictionRepository;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.matches.MatchQuery;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
-import org.springframework.ai.document.Document;
-import org.springframework.ai.vectorstore.SearchRequest;
-import org.springframework.ai.vectorstore.VectorStore;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.time.Duration;
+import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * Main service for AI-powered match predictions using RAG.
+ * <p>
+ * Interactive predictions run under a latency budget: retrieval and the LLM call share one
+ * deadline, and a phase that is still running when it passes is cancelled. The answer then
+ * degrades to the statistical model or the retrieved matches, which is visible in its source.
+ * Calls shed by the Ollama bulkheads are not degraded but propagate as
+ * {@link Bulkhead.RejectedException}, so overload is answered quickly with 429/503.
  */
 @Service
 public class MatchPredictionService {
 
     private static final Logger log = LoggerFactory.getLogger(MatchPredictionService.class);
 
-    /** Default confidence score when parsing fails or confidence is not provided */
-    private static final double DEFAULT_CONFIDENCE = 0.5;
-
     /** Fallback confidence score when LLM prediction fails entirely */
     private static final double FALLBACK_CONFIDENCE = 0.33;
 
     private final ChatClient chatClient;
-    private final VectorStore vectorStore;
     private final MatchContextBuilder contextBuilder;
     private final EmbeddingService embeddingService;
     private final MatchEmbeddingRepository embeddingRepository;
+    private final MatchPredictionRepository predictionRepository;
+    private final PredictionCache predictionCache;
+    private final SemanticPredictionCache semanticCache;
+    private final StatisticalPredictor statisticalPredictor;
+    private final TierSelector tierSelector;
     private final PromptConfig promptConfig;
+    private final RetrievalConfig retrievalConfig;
     private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService budgetExecutor = Executors.newVirtualThreadPerTaskExecutor();
+    private final SingleFlight<PredictionCache.Key, PredictionResponse> predictions;
 
     public MatchPredictionService(
             ChatClient chatClient,
-            VectorStore vectorStore,
             MatchContextBuilder contextBuilder,
             EmbeddingService embeddingService,
             MatchEmbeddingRepository embeddingRepository,
+            MatchPredictionRepository predictionRepository,
+            PredictionCache predictionCache,
+            SemanticPredictionCache semanticCache,
+            StatisticalPredictor statisticalPredictor,
+            TierSelector tierSelector,
             PromptConfig promptConfig,
-            ObjectMapper objectMapper) {
+            RetrievalConfig retrievalConfig,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry) {
         this.chatClient = chatClient;
-        this.vectorStore = vectorStore;
         this.contextBuilder = contextBuilder;
         this.embeddingService = embeddingService;
         this.embeddingRepository = embeddingRepository;
+        this.predictionRepository = predictionRepository;
+        this.predictionCache = predictionCache;
+        this.semanticCache = semanticCache;
+        this.statisticalPredictor = statisticalPredictor;
+        this.tierSelector = tierSelector;
         this.promptConfig = promptConfig;
+        this.retrievalConfig = retrievalConfig;
         this.objectMapper = objectMapper;
+        this.meterRegistry = meterRegistry;
+        this.predictions = new SingleFlight<>("predictions", meterRegistry);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        budgetExecutor.shutdownNow();
     }
 
     /**
@@ -65,133 +121,697 @@ public class MatchPredictionService {
      * @return the prediction response with winner, confidence, and reasoning
      */
     public PredictionResponse predict(PredictionRequest request) {
+        return predict(request, PredictionMode.LLM);
+    }
+
+    /**
+     * Predicts the outcome of a match with the given mode. {@link PredictionMode#STATISTICAL}
+     * answers from the in-process model without retrieval or an LLM call.
+     * <p>
+     * Concurrent LLM predictions of the same fixture and tier (by {@link PredictionCache.Key}) share one
+     * computation, so a burst of identical requests costs one embedding, retrieval and LLM call.
+     * The request's tier picks the model; under load the prediction is generated by the fast tier
+     * (see {@link TierSelector}).
+     *
+     * @param request the prediction request containing match details
+     * @param mode    how to produce the prediction
+     * @return the prediction response with winner, confidence, and reasoning
+     */
+    public PredictionResponse predict(PredictionRequest request, PredictionMode mode) {
+        if (mode == PredictionMode.STATISTICAL) {
+            return statisticalResponse(request, List.of());
+        }
+        return predictions.execute(predictionCache.key(request), () -> predictWithLlm(request));
+    }
+
+    private PredictionResponse predictWithLlm(PredictionRequest request) {
+        var cached = lookup(request);
+        if (cached.isPresent()) {
+            log.debug("Serving cached prediction for {} vs {} on {}",
+                    request.homeTeam(), request.awayTeam(), request.matchDate());
+            return cached.get();
+        }
+
         log.info("Predicting match: {} vs {} in {} on {}",
                 request.homeTeam(), request.awayTeam(),
                 request.competition(), request.matchDate());
 
-        // 1. Build search query
-        String query = buildQuery(request);
+        long deadline = deadline();
+
+        // 1-3. Retrieve similar historical matches (RAG) and build context, unless the same
+        // fixture phrased differently has been predicted already
+        var retrieval = withinDeadline(() -> retrieve(request), deadline, "retrieval");
+        if (retrieval.isEmpty()) {
+            return statisticalResponse(request, List.of());
+        }
+
+        return switch (retrieval.get()) {
+            case Retrieval.Reused reused -> {
+                predictionCache.put(request, reused.prediction());
+                yield reused.prediction();
+            }
+            case Retrieval.Retrieved retrieved -> {
+                // 4-5. Create prompt with context and get LLM prediction
+                var selection = tierSelector.select(request.tier());
+                PredictionResponse prediction = generate(request, retrieved.context(), selection, deadline);
+                if (prediction.source() == PredictionResponse.Source.LLM && !selection.downgraded()) {
+                    semanticCache.put(request, retrieved.queryEmbedding(), prediction);
+                }
+                yield prediction;
+            }
+        };
+    }
+
+    /**
+     * Predicts a batch of fixtures, e.g. a whole matchday. Cached predictions are emitted first;
+     * the remaining fixtures share one embedding call and one retrieval round trip, and their LLM
+     * calls run concurrently up to the configured limit, each result being emitted as it completes.
+     * Every LLM call gets the full latency budget from the moment it starts.
+     *
+     * @param requests the fixtures to predict
+     * @return the predictions, tagged with the position of their fixture in the batch
+     */
+    public Flux<BatchPredictionResult> predictBatch(List<PredictionRequest> requests) {
+        List<BatchPredictionResult> cachedResults = new ArrayList<>();
+        List<Integer> pendingIndexes = new ArrayList<>();
+        for (int i = 0; i < requests.size(); i++) {
+            var cached = lookup(requests.get(i));
+            if (cached.isPresent()) {
+                cachedResults.add(new BatchPredictionResult(i, requests.get(i), cached.get()));
+            } else {
+                pendingIndexes.add(i);
+            }
+        }
+
+        if (pendingIndexes.isEmpty()) {
+            return Flux.fromIterable(cachedResults);
+        }
+
+        List<PredictionRequest> pending = pendingIndexes.stream().map(requests::get).toList();
+        log.info("Predicting batch of {} fixtures ({} cached)", requests.size(), cachedResults.size());
+
+        Flux<BatchPredictionResult> generated = Mono.fromCallable(() -> retrieveContexts(pending))
+                // Without the embedding model, contexts fall back to the teams' latest matches
+                .onErrorResume(Bulkhead.RejectedException.class, e -> Mono.fromCallable(() ->
+                        contextBuilder.buildAll(Collections.nCopies(pending.size(), List.of()), pending)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMapMany(contexts -> Flux.range(0, pending.size())
+                        .flatMap(i -> Mono.fromCallable(() -> {
+                                    var selection = tierSelector.select(pending.get(i).tier());
+                                    PredictionResponse prediction = generate(pending.get(i), contexts.get(i), selection, deadline());
+                                    return new BatchPredictionResult(pendingIndexes.get(i), pending.get(i), prediction);
+                                })
+                                // The response is already streaming; a shed fixture degrades instead of failing the batch
+                                .onErrorResume(Bulkhead.RejectedException.class, e -> Mono.fromCallable(() ->
+                                        new BatchPredictionResult(pendingIndexes.get(i), pending.get(i),
+                                                createFallbackResponse(pending.get(i), contexts.get(i)))))
+                                .subscribeOn(Schedulers.boundedElastic()),
+                                promptConfig.getBatchConcurrency()));
+
+        return Flux.concat(Flux.fromIterable(cachedResults), generated);
+    }
+
+    /**
+     * Streams a prediction: the retrieved historical matches are emitted as soon as retrieval
+     * completes, followed by the model output as it is generated and finally the parsed prediction.
+     * If the latency budget runs out first, the model stream is cancelled and the result is the
+     * degraded answer. A stream shed by a bulkhead once the context was sent ends with an overloaded
+     * event instead; shed during retrieval, before any event, it fails with the
+     * {@link Bulkhead.RejectedException} so that the request is answered with 429 or 503.
+     *
+     * @param request the prediction request containing match details
+     * @return the stream of prediction events
+     */
+    public Flux<PredictionStreamEvent> predictStream(PredictionRequest request) {
+        var cached = lookup(request);
+        if (cached.isPresent()) {
+            return Flux.<PredictionStreamEvent>just(
+                    new PredictionStreamEvent.Context(cached.get().relevantMatches()),
+                    new PredictionStreamEvent.Result(cached.get()));
+        }
+
+        log.info("Streaming prediction for match: {} vs {} in {} on {}",
+                request.homeTeam(), request.awayTeam(),
+                request.competition(), request.matchDate());
+
+        long deadline = deadline();
+
+        // Retrieval is blocking JDBC and embedding I/O; keep it off the subscriber's thread
+        return Mono.fromCallable(() -> Optional.of(retrieve(request)))
+                .subscribeOn(Schedulers.boundedElastic())
+                .timeout(remaining(deadline), Mono.fromSupplier(() -> {
+                    degraded("retrieval");
+                    return Optional.<Retrieval>empty();
+                }))
+                .flatMapMany(retrieval -> {
+                    if (retrieval.isEmpty()) {
+                        PredictionResponse degraded = statisticalResponse(request, List.of());
+                        return Flux.<PredictionStreamEvent>just(
+                                new PredictionStreamEvent.Context(List.of()),
+                                new PredictionStreamEvent.Result(degraded));
+                    }
+                    if (retrieval.get() instanceof Retrieval.Reused(PredictionResponse reused)) {
+                        predictionCache.put(request, reused);
+                        return Flux.<PredictionStreamEvent>just(
+                                new PredictionStreamEvent.Context(reused.relevantMatches()),
+                                new PredictionStreamEvent.Result(reused));
+                    }
+                    var retrieved = (Retrieval.Retrieved) retrieval.get();
+                    MatchContext context = retrieved.context();
+                    StringBuilder completion = new StringBuilder();
+                    AtomicBoolean expired = new AtomicBoolean();
+
+                    var selection = tierSelector.select(request.tier());
+                    long started = System.nanoTime();
+                    Flux<PredictionStreamEvent> tokens = chatClient.prompt()
+                            .user(createPrompt(request, context))
+                            .options(tierSelector.options(selection.tier()))
+                            .stream()
+                            .content()
+                            .takeUntilOther(Mono.delay(remaining(deadline)).doOnNext(tick -> {
+                                expired.set(true);
+                                degraded("generation");
+                                tierSelector.recordLatency(selection, promptConfig.getLatencyBudget().toNanos());
+                            }))
+                            .doOnNext(completion::append)
+                            // A stream cut off by the deadline completes too; it was recorded above
+                            .doOnComplete(() -> {
+                                if (!expired.get()) {
+                                    tierSelector.recordLatency(selection, System.nanoTime() - started);
+                                }
+                            })
+                            .map(PredictionStreamEvent.Token::new);
+
+                    Mono<PredictionStreamEvent> result = Mono.fromSupplier(() -> {
+                        if (expired.get()) {
+                            return new PredictionStreamEvent.Result(createFallbackResponse(request, context));
+                        }
+                        var parsed = parseResponse(completion.toString(), context.relevantMatches());
+                        if (parsed.isEmpty()) {
+                            return new PredictionStreamEvent.Result(createFallbackResponse(request, context));
+                        }
+                        PredictionResponse prediction = parsed.get();
+                        if (!selection.downgraded()) {
+                            predictionCache.put(request, prediction);
+                            semanticCache.put(request, retrieved.queryEmbedding(), prediction);
+                        }
+                        return new PredictionStreamEvent.Result(prediction);
+                    });
+
+                    Mono<PredictionStreamEvent> retrieved =
+                            Mono.just(new PredictionStreamEvent.Context(context.relevantMatches()));
+
+                    return Flux.concat(retrieved, tokens, result)
+                            .onErrorResume(e -> !(e instanceof Bulkhead.RejectedException), e -> {
+                                log.error("Failed to stream prediction from LLM: {}", e.getMessage());
+                                return Mono.just(new PredictionStreamEvent.Result(createFallbackResponse(request, context)));
+                            })
+                            .onErrorResume(Bulkhead.RejectedException.class, e -> Mono.just(
+                                    new PredictionStreamEvent.Overloaded(e.reason().name(), e.retryAfter().toSeconds())));
+                });
+    }
+
+    /**
+     * Returns the prediction for an fd_match fixture. Stored predictions are served as is; otherwise
+     * the fixture is predicted now and the result stored. Matches that are under way, played,
+     * postponed or cancelled are not predicted anymore.
+     *
+     * @param matchId the match ID
+     * @return the prediction, or empty if the match does not exist
+     * @throws ResponseStatusException with status 409 if the match has no stored prediction and is
+     *                                 no longer upcoming
+     */
+    public Optional<PredictionResponse> predictMatch(long matchId) {
+        var stored = predictionRepository.findByMatchId(matchId);
+        if (stored.isPresent()) {
+            return stored;
+        }
+
+        return predictionRepository.findFixture(matchId).map(fixture -> {
+            if (!fixture.upcoming()) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT, "Match " + matchId + " is no longer upcoming");
+            }
+            PredictionRequest request = fixture.request();
+            var cached = predictionCache.get(request);
+            if (cached.isPresent()) {
+                predictionRepository.save(matchId, cached.get());
+                return cached.get();
+            }
+
+            long deadline = deadline();
+            var retrieved = withinDeadline(() -> retrieveContext(request), deadline, "retrieval");
+            if (retrieved.isEmpty()) {
+                return statisticalResponse(request, List.of());
+            }
+            MatchContext context = retrieved.get();
+            var selection = tierSelector.select(request.tier());
+            return generateWithinDeadline(request, context, selection, deadline)
+                    .map(prediction -> {
+                        // A downgraded answer is served but not stored for later requests
+                        if (!selection.downgraded()) {
+                            predictionRepository.save(matchId, prediction);
+                        }
+                        return prediction;
+                    })
+                    .orElseGet(() -> createFallbackResponse(request, context));
+        });
+    }
+
+    /**
+     * Streams one page of stored predictions in kick-off order of their fixtures.
+     *
+     * @param query  the page to read
+     * @param action receives each prediction as it is read
+     */
+    public void forEachStored(MatchQuery query, Consumer<? super StoredPrediction> action) {
+        predictionRepository.forEachStored(query, action);
+    }
+
+    /**
+     * Predicts a fixture ahead of time and stores the result. Fallback answers are not stored.
+     * Precomputation runs off-peak and is not bound by the latency budget; its lookups and the
+     * write run on the batch pool so that they never hold interactive connections.
+     *
+     * @param matchId the match ID
+     * @param request the fixture as a prediction request
+     * @return true if a prediction was stored
+     */
+    public boolean precompute(long matchId, PredictionRequest request) {
+        try {
+            MatchContext context = retrieveContext(
+                    request, queryEmbedding(request), contextBuilder.batch(), embeddingRepository.batch());
+            var prediction = tryGenerate(request, context, tierSelector.selectOffline(request.tier()));
+            prediction.ifPresent(p -> predictionRepository.batch().save(matchId, p));
+            return prediction.isPresent();
+        } catch (Bulkhead.RejectedException e) {
+            log.warn("Precompute of match {} shed by {}", matchId, e.bulkhead());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * Looks the fixture up in the cache, then among stored predictions, warming the cache on a store hit.
+     * Stored predictions do not record their tier; they are made at the default tier or, when
+     * precomputed, at the offline tier, so they only answer requests up to the default tier.
+     */
+    private Optional<PredictionResponse> lookup(PredictionRequest request) {
+        var cached = predictionCache.get(request);
+        if (cached.isPresent()) {
+            return cached;
+        }
+        if (tierSelector.requestedTier(request.tier()).compareTo(tierSelector.requestedTier(null)) > 0) {
+            return Optional.empty();
+        }
+        try {
+            var stored = predictionRepository.findByFixture(request);
+            stored.ifPresent(prediction -> predictionCache.put(request, prediction));
+            return stored;
+        } catch (Exception e) {
+            log.warn("Stored prediction lookup failed: {}", e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Calls the LLM for a fixture whose context has been retrieved, falling back to a low-confidence
+     * answer when the call fails or does not complete before the deadline.
+     */
+    private PredictionResponse generate(
+            PredictionRequest request, MatchContext context, TierSelector.Selection selection, long deadline) {
+        return generateWithinDeadline(request, context, selection, deadline)
+                .orElseGet(() -> createFallbackResponse(request, context));
+    }
+
+    /**
+     * Calls the LLM until the deadline; empty if the call fails or the deadline passes. A call cut
+     * off by the deadline is recorded at the full latency budget.
+     */
+    private Optional<PredictionResponse> generateWithinDeadline(
+            PredictionRequest request, MatchContext context, TierSelector.Selection selection, long deadline) {
+        return withinDeadline(() -> tryGenerate(request, context, selection), deadline, "generation",
+                () -> tierSelector.recordLatency(selection, promptConfig.getLatencyBudget().toNanos()))
+                .flatMap(Function.identity());
+    }
+
+    private long deadline() {
+        return System.nanoTime() + promptConfig.getLatencyBudget().toNanos();
+    }
 
-        // 2. Retrieve similar historical matches (RAG)
-        List<Document> similarMatches = retrieveSimilarMatches(query);
+    private static Duration remaining(long deadline) {
+        return Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
+    }
 
-        // 3. Build context from retrieved matches
-        MatchContext context = contextBuilder.build(similarMatches, request.homeTeam(), request.awayTeam());
+    /**
+     * Runs a phase of the prediction on a virtual thread and waits for it until the deadline. A
+     * phase that is still running then is interrupted, which aborts blocking JDBC and HTTP calls.
+     *
+     * @return the phase's result, or empty if the deadline passed
+     * @throws RuntimeException the phase's own failure, e.g. a database error
+     */
+    private <T> Optional<T> withinDeadline(Callable<T> phase, long deadline, String name) {
+        return withinDeadline(phase, deadline, name, () -> {
+        });
+    }
 
-        // 4. Create prompt with context
+    private <T> Optional<T> withinDeadline(Callable<T> phase, long deadline, String name, Runnable onTimeout) {
+        Future<T> future = budgetExecutor.submit(phase);
+        try {
+            return Optional.of(future.get(remaining(deadline).toNanos(), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            degraded(name);
+            onTimeout.run();
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            // Only the deadline degrades the answer; a failing phase, e.g. the database being
+            // down, fails the request
+            if (e.getCause() instanceof RuntimeException failure) {
+                throw failure;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw new IllegalStateException("Prediction " + name + " failed", e.getCause());
+        }
+    }
+
+    private void degraded(String phase) {
+        log.warn("Latency budget of {} exhausted during {}", promptConfig.getLatencyBudget(), phase);
+        meterRegistry.counter("matchlens.prediction.budget.exceeded", "phase", phase).increment();
+    }
+
+    /**
+     * Calls the LLM for a fixture whose context has been retrieved, caching successful predictions
+     * unless the tier was downgraded. An answer that does not match the prediction schema is
+     * requested again, up to the configured number of retries.
+     */
+    private Optional<PredictionResponse> tryGenerate(
+            PredictionRequest request, MatchContext context, TierSelector.Selection selection) {
         String prompt = createPrompt(request, context);
+        int attempts = 1 + promptConfig.getParseRetries();
 
-        // 5. Get LLM prediction
         try {
-            String response = chatClient.prompt()
-                    .user(prompt)
-                    .call()
-                    .content();
+            for (int attempt = 1; attempt <= attempts; attempt++) {
+                if (attempt > 1) {
+                    meterRegistry.counter("matchlens.prediction.llm.retries").increment();
+                }
+                long started = System.nanoTime();
+                String response = chatClient.prompt()
+                        .user(prompt)
+                        .options(tierSelector.options(selection.tier()))
+                        .call()
+                        .content();
+                tierSelector.recordLatency(selection, System.nanoTime() - started);
 
-            log.debug("LLM response: {}", response);
+                log.debug("LLM response: {}", response);
 
-            // Parse the JSON response
-            return parseResponse(response, context.relevantMatches());
+                // Fallbacks and downgraded answers are not cached so the next request retries the LLM
+                var prediction = parseResponse(response, context.relevantMatches());
+                if (prediction.isPresent()) {
+                    if (!selection.downgraded()) {
+                        predictionCache.put(request, prediction.get());
+                    }
+                    return prediction;
+                }
+            }
+            log.error("No usable LLM response after {} attempts", attempts);
+            return Optional.empty();
+        } catch (Bulkhead.RejectedException e) {
+            throw e;
         } catch (Exception e) {
             log.error("Failed to get prediction from LLM: {}", e.getMessage());
-            return createFallbackResponse(request, context);
+            return Optional.empty();
         }
     }
 
+    /**
+     * Outcome of the retrieval phase of an interactive prediction.
+     */
+    private sealed interface Retrieval {
+        /** A prediction cached for a semantically equivalent query. */
+        record Reused(PredictionResponse prediction) implements Retrieval {
+        }
+
+        /** The context to generate a prediction from, with the query embedding it was searched by. */
+        record Retrieved(List<Double> queryEmbedding, MatchContext context) implements Retrieval {
+        }
+    }
+
+    /**
+     * Embeds the prediction query and serves the prediction of an equivalent query for the same
+     * date if one is cached; otherwise retrieves the context with the embedding.
+     */
+    private Retrieval retrieve(PredictionRequest request) throws InterruptedException {
+        List<Double> queryEmbedding = queryEmbedding(request);
+        var similar = semanticCache.get(request, queryEmbedding);
+        if (similar.isPresent()) {
+            log.debug("Serving semantically cached prediction for {} vs {} on {}",
+                    request.homeTeam(), request.awayTeam(), request.matchDate());
+            return new Retrieval.Reused(similar.get());
+        }
+        return new Retrieval.Retrieved(queryEmbedding, retrieveContext(request, queryEmbedding));
+    }
+
+    private MatchContext retrieveContext(PredictionRequest request) throws InterruptedException {
+        return retrieveContext(request, queryEmbedding(request));
+    }
+
+    private MatchContext retrieveContext(PredictionRequest request, List<Double> queryEmbedding)
+            throws InterruptedException {
+        return retrieveContext(request, queryEmbedding, contextBuilder, embeddingRepository);
+    }
+
+    /**
+     * Runs the retrieval phase: the hybrid search and the teams' head-to-head record are looked up
+     * concurrently, and if the search finds nothing the teams' latest matches are looked up in its
+     * place while the head-to-head lookup is still running. The results are assembled with the
+     * in-memory statistics and ratings into the context used in the prompt. Interrupting the phase,
+     * as the latency budget does, cancels all lookups. The lookups run on the pool of the given
+     * builder and repository.
+     */
+    private MatchContext retrieveContext(
+            PredictionRequest request,
+            List<Double> queryEmbedding,
+            MatchContextBuilder contextBuilder,
+            MatchEmbeddingRepository embeddingRepository) throws InterruptedException {
+        String homeTeam = request.homeTeam();
+        String awayTeam = request.awayTeam();
+        try (var scope = new LookupScope(budgetExecutor)) {
+            var similar = scope.fork(() ->
+                    contextBuilder.similarMatches(retrieveSimilarMatches(request, queryEmbedding, embeddingRepository)));
+            var headToHead = scope.fork(() -> contextBuilder.headToHead(homeTeam, awayTeam, request.matchDate()));
+            scope.join(similar);
+
+            var matches = similar;
+            if (similar.resultNow().isEmpty()) {
+                log.info("No similar matches found from vector search, using the teams' latest matches");
+                matches = scope.fork(() -> contextBuilder.recentMatches(homeTeam, awayTeam, request.matchDate()));
+            }
+            scope.join();
+            return contextBuilder.assemble(
+                    matches.resultNow(), headToHead.resultNow(), homeTeam, awayTeam, request.matchDate());
+        }
+    }
+
+    /**
+     * Runs the retrieval phase for several fixtures with a single embedding call and a single
+     * search round trip.
+     */
+    private List<MatchContext> retrieveContexts(List<PredictionRequest> requests) {
+        List<String> queries = requests.stream().map(this::buildQuery).toList();
+        List<List<Long>> similarMatches = retrieveSimilarMatches(requests, queries);
+        return contextBuilder.buildAll(similarMatches, requests);
+    }
+
     private String buildQuery(PredictionRequest request) {
         return String.format("%s vs %s %s football match",
                 request.homeTeam(), request.awayTeam(), request.competition());
     }
 
-    private List<Document> retrieveSimilarMatches(String query) {
+    /**
+     * Embeds the prediction query; empty if the embedding model fails, in which case retrieval
+     * falls back to the teams' latest matches.
+     */
+    private List<Double> queryEmbedding(PredictionRequest request) {
         try {
-            SearchRequest searchRequest = SearchRequest.builder()
-                    .query(query)
-                    .topK(promptConfig.getMaxContextMatches())
-                    .build();
+            return embeddingService.generateQueryEmbedding(buildQuery(request));
+        } catch (Bulkhead.RejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Query embedding failed: {}", e.getMessage());
+            return List.of();
+        }
+    }
 
-            final var result = vectorStore.similaritySearch(searchRequest);
+    /**
+     * Retrieves historical matches for the fixture by fusing a lexical team-name ranking with the
+     * vector search, restricted to the requested competition and to matches played before the
+     * fixture within the configured lookback.
+     */
+    private List<Long> retrieveSimilarMatches(
+            PredictionRequest request,
+            List<Double> queryEmbedding,
+            MatchEmbeddingRepository embeddingRepository) {
+        if (queryEmbedding.isEmpty()) {
+            return List.of();
+        }
+        try {
+            return embeddingRepository.findHybridMatches(
+                    queryEmbedding, request.homeTeam(), request.awayTeam(), filterFor(request),
+                    retrievalConfig.tuning(), retrievalConfig.fusion(), promptConfig.getMaxContextMatches());
+        } catch (Bulkhead.RejectedException e) {
+            throw e;
+        } catch (Exception e) {
+            log.warn("Hybrid search failed: {}", e.getMessage());
+            return List.of();
+        }
+    }
 
-            if (result == null)
-                return List.of();
+    private List<List<Long>> retrieveSimilarMatches(List<PredictionRequest> requests, List<String> queries) {
+        try {
+            List<List<Double>> queryEmbeddings = embeddingService.generateQueryEmbeddings(queries);
 
-            return result;
+            List<MatchEmbeddingRepository.HybridQuery> hybridQueries = new ArrayList<>(requests.size());
+            for (int i = 0; i < requests.size(); i++) {
+                PredictionRequest request = requests.get(i);
+                hybridQueries.add(new MatchEmbeddingRepository.HybridQuery(
+                        queryEmbeddings.get(i), request.homeTeam(), request.awayTeam(), filterFor(request)));
+            }
 
+            return embeddingRepository.findHybridMatchesBatch(hybridQueries,
+                    retrievalConfig.tuning(), retrievalConfig.fusion(), promptConfig.getMaxContextMatches());
+        } catch (Bulkhead.RejectedException e) {
+            throw e;
         } catch (Exception e) {
-            log.warn("Vector store search failed: {}", e.getMessage());
-            return List.of();
+            log.warn("Batch hybrid search failed: {}", e.getMessage());
+            return Collections.nCopies(requests.size(), List.of());
         }
     }
 
+    /**
+     * Restricts retrieval to the fixture's competition and to matches played before it within the
+     * configured lookback.
+     */
+    private MatchEmbeddingRepository.SimilarityFilter filterFor(PredictionRequest request) {
+        var kickOff = request.matchDate().atStartOfDay().atOffset(ZoneOffset.UTC);
+        return new MatchEmbeddingRepository.SimilarityFilter(
+                request.competition(),
+                Set.of(),
+                kickOff.minus(retrievalConfig.getLookback()),
+                kickOff);
+    }
+
     private String createPrompt(PredictionRequest request, MatchContext context) {
+        String baseline = statisticalPredictor.predict(request.homeTeam(), request.awayTeam(), request.matchDate())
+                .map(StatisticalPredictor.Outcome::describe)
+                .orElse("Not available");
+
         return String.format(
-                PromptConfig.PREDICTION_PROMPT_TEMPLATE,
+                PromptConfig.USER_PROMPT_TEMPLATE,
                 request.homeTeam(),
                 request.awayTeam(),
                 request.competition(),
                 request.matchDate(),
-                context.summary()
+                context.summary(),
+                baseline
         );
     }
 
-    private PredictionResponse parseResponse(String response, List<PredictionResponse.HistoricalMatch> relevantMatches) {
+    /**
+     * Binds the model's answer to {@link LlmPrediction}. Ollama constrains generation to its
+     * schema, so a failure here means the answer was cut off or the schema was not honoured.
+     */
+    private Optional<PredictionResponse> parseResponse(
+            @Nullable String response,
+            List<PredictionResponse.HistoricalMatch> relevantMatches) {
         try {
-            // Clean up the response - remove any markdown formatting
-            String cleanedResponse = response.trim();
-            if (cleanedResponse.startsWith("```json")) {
-                cleanedResponse = cleanedResponse.substring(7);
-            }
-            if (cleanedResponse.startsWith("```")) {
-                cleanedResponse = cleanedResponse.substring(3);
+            if (response != null) {
+                LlmPrediction parsed = objectMapper.readValue(response, LlmPrediction.class);
+                if (parsed.isValid()) {
+                    meterRegistry.counter("matchlens.prediction.llm.responses", "result", "parsed").increment();
+                    return Optional.of(parsed.toResponse(relevantMatches));
+                }
+                log.warn("LLM response violates the prediction schema: {}", response);
             }
-            if (cleanedResponse.endsWith("```")) {
-                cleanedResponse = cleanedResponse.substring(0, cleanedResponse.length() - 3);
-            }
-            cleanedResponse = cleanedResponse.trim();
-
-            // Parse the JSON response
-            Map<String, Object> parsed = objectMapper.readValue(cleanedResponse, Map.class);
-
-            String predictedWinner = (String) parsed.get("predictedWinner");
-            Double confidence = parsed.get("confidence") instanceof Number n ? n.doubleValue() : DEFAULT_CONFIDENCE;
-            String reasoning = (String) parsed.get("reasoning");
-            @SuppressWarnings("unchecked")
-            List<String> keyFactors = parsed.get("keyFactors") instanceof List<?> list
-                    ? list.stream().map(Object::toString).toList()
-                    : List.of();
-
-            return new PredictionResponse(predictedWinner, confidence, reasoning, keyFactors, relevantMatches);
         } catch (JsonProcessingException e) {
             log.warn("Failed to parse LLM response as JSON: {}", e.getMessage());
-            // Try to extract key information from the response text
-            return extractFromText(response, relevantMatches);
         }
+        meterRegistry.counter("matchlens.prediction.llm.responses", "result", "invalid").increment();
+        return Optional.empty();
+    }
+
+    /**
+     * Answers with the statistical model when the LLM fails or runs out of time. Without results
+     * to base it on, the majority outcome of the retrieved matches is used, and a constant draw
+     * if nothing was retrieved either.
+     */
+    private PredictionResponse createFallbackResponse(PredictionRequest request, MatchContext context) {
+        return statisticalResponse(request, context.relevantMatches());
+    }
+
+    private PredictionResponse statisticalResponse(
+            PredictionRequest request,
+            List<PredictionResponse.HistoricalMatch> relevantMatches) {
+        return statisticalPredictor.predict(request.homeTeam(), request.awayTeam(), request.matchDate())
+                .map(outcome -> new PredictionResponse(
+                        outcome.predictedWinner(),
+                        outcome.confidence(),
+                        "Poisson goal model from home and away records: " + outcome.describe(),
+                        List.of(
+                                String.format("Home win probability %.0f%%", outcome.homeWin() * 100),
+                                String.format("Draw probability %.0f%%", outcome.draw() * 100),
+                                String.format("Away win probability %.0f%%", outcome.awayWin() * 100)),
+                        relevantMatches,
+                        PredictionResponse.Source.STATISTICAL))
+                .or(() -> retrievalResponse(relevantMatches))
+                .orElseGet(() -> new PredictionResponse(
+                        "DRAW",
+                        FALLBACK_CONFIDENCE,
+                        "Unable to generate prediction due to LLM error. Based on limited historical data.",
+                        List.of("Fallback prediction", "Insufficient data"),
+                        relevantMatches,
+                        PredictionResponse.Source.FALLBACK));
     }
 
-    private PredictionResponse extractFromText(String response, List<PredictionResponse.HistoricalMatch> relevantMatches) {
-        String predictedWinner = "DRAW"; // Default
-        if (response.toUpperCase().contains("HOME")) {
-            predictedWinner = "HOME";
-        } else if (response.toUpperCase().contains("AWAY")) {
-            predictedWinner = "AWAY";
+    private Optional<PredictionResponse> retrievalResponse(List<PredictionResponse.HistoricalMatch> relevantMatches) {
+        int[] outcomes = new int[3];
+        for (PredictionResponse.HistoricalMatch match : relevantMatches) {
+            // Results read "2-1"; matches without a recorded score do not count
+            String[] goals = match.result().split("-");
+            if (goals.length == 2 && isNumber(goals[0]) && isNumber(goals[1])) {
+                outcomes[Integer.compare(Integer.parseInt(goals[1]), Integer.parseInt(goals[0])) + 1]++;
+            }
+        }
+        int total = outcomes[0] + outcomes[1] + outcomes[2];
+        if (total == 0) {
+            return Optional.empty();
         }
 
-        return new PredictionResponse(
-                predictedWinner,
-                DEFAULT_CONFIDENCE,
-                response,
-                List.of("Unable to parse structured response"),
-                relevantMatches
-        );
+        // Ties resolve towards HOME, then DRAW
+        int best = outcomes[0] >= outcomes[1] && outcomes[0] >= outcomes[2] ? 0 : outcomes[1] >= outcomes[2] ? 1 : 2;
+        String winner = switch (best) {
+            case 0 -> "HOME";
+            case 1 -> "DRAW";
+            default -> "AWAY";
+        };
+        return Optional.of(new PredictionResponse(
+                winner,
+                (outcomes[best] + 1.0) / (total + 3.0),
+                String.format("Majority outcome of %d retrieved matches: %d home wins, %d draws, %d away wins.",
+                        total, outcomes[0], outcomes[1], outcomes[2]),
+                List.of("Retrieved historical matches only"),
+                relevantMatches,
+                PredictionResponse.Source.RETRIEVAL));
     }
 
-    private PredictionResponse createFallbackResponse(PredictionRequest request, MatchContext context) {
-        return new PredictionResponse(
-                "DRAW",
-                FALLBACK_CONFIDENCE,
-                "Unable to generate prediction due to LLM error. Based on limited historical data.",
-                List.of("Fallback prediction", "Insufficient data"),
-                context.relevantMatches()
-        );
+    private static boolean isNumber(String text) {
+        return !text.isEmpty() && text.length() < 4 && text.chars().allMatch(Character::isDigit);
     }
 }
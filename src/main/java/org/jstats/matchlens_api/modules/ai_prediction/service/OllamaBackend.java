@@ -0,0 +1,155 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jstats.matchlens_api.modules.ai_prediction.config.OllamaPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.embedding.EmbeddingModel;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One Ollama server of an {@link OllamaBackendPool}, with its chat and embedding models and the
+ * state routing decisions are based on: requests outstanding, health check result and ejection.
+ * <p>
+ * Exported metrics, tagged with {@code backend=host:port}: {@code matchlens.ollama.backend.outstanding}
+ * and {@code matchlens.ollama.backend.available} gauges, the {@code matchlens.ollama.backend.calls}
+ * timer tagged by outcome and the {@code matchlens.ollama.backend.ejections} counter.
+ */
+public class OllamaBackend {
+
+    private static final Logger log = LoggerFactory.getLogger(OllamaBackend.class);
+
+    private final String name;
+    private final URI baseUrl;
+    private final ChatModel chatModel;
+    private final EmbeddingModel embeddingModel;
+    private final int failureThreshold;
+    private final long slowCallNanos;
+    private final long ejectionNanos;
+
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile boolean healthy = true;
+    private volatile long ejectedUntil = System.nanoTime();
+
+    private final Timer successes;
+    private final Timer failures;
+    private final Counter ejections;
+
+    public OllamaBackend(
+            URI baseUrl,
+            ChatModel chatModel,
+            EmbeddingModel embeddingModel,
+            OllamaPoolConfig config,
+            MeterRegistry meterRegistry) {
+        this.name = baseUrl.getHost() + ":" + port(baseUrl);
+        this.baseUrl = baseUrl;
+        this.chatModel = chatModel;
+        this.embeddingModel = embeddingModel;
+        this.failureThreshold = config.getFailureThreshold();
+        this.slowCallNanos = config.getSlowCallThreshold().toNanos();
+        this.ejectionNanos = config.getEjectionTime().toNanos();
+
+        Gauge.builder("matchlens.ollama.backend.outstanding", outstanding, AtomicInteger::get)
+                .tag("backend", name).register(meterRegistry);
+        Gauge.builder("matchlens.ollama.backend.available", this, backend -> backend.available() ? 1 : 0)
+                .tag("backend", name).register(meterRegistry);
+        this.successes = Timer.builder("matchlens.ollama.backend.calls")
+                .tag("backend", name).tag("outcome", "success").register(meterRegistry);
+        this.failures = Timer.builder("matchlens.ollama.backend.calls")
+                .tag("backend", name).tag("outcome", "failure").register(meterRegistry);
+        this.ejections = Counter.builder("matchlens.ollama.backend.ejections")
+                .tag("backend", name).register(meterRegistry);
+    }
+
+    /**
+     * @return the URL's port, or the default port of its scheme if it has none
+     */
+    static int port(URI baseUrl) {
+        if (baseUrl.getPort() != -1) {
+            return baseUrl.getPort();
+        }
+        return "https".equalsIgnoreCase(baseUrl.getScheme()) ? 443 : 80;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public URI baseUrl() {
+        return baseUrl;
+    }
+
+    public ChatModel chatModel() {
+        return chatModel;
+    }
+
+    public EmbeddingModel embeddingModel() {
+        return embeddingModel;
+    }
+
+    /**
+     * @return true if the last health check passed and the backend is not ejected
+     */
+    public boolean available() {
+        return healthy && ejectedUntil - System.nanoTime() <= 0;
+    }
+
+    public int outstanding() {
+        return outstanding.get();
+    }
+
+    /**
+     * Counts a call routed to this backend as outstanding.
+     *
+     * @return the start time to pass to {@link #complete} or {@link #cancelled}
+     */
+    long begin() {
+        outstanding.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the outcome of a call. Failed calls and calls slower than the slow-call threshold
+     * count towards ejection; a fast successful call resets the count.
+     */
+    void complete(long started, boolean succeeded) {
+        outstanding.decrementAndGet();
+        long elapsed = System.nanoTime() - started;
+        (succeeded ? successes : failures).record(elapsed, TimeUnit.NANOSECONDS);
+
+        if (succeeded && elapsed <= slowCallNanos) {
+            consecutiveFailures.set(0);
+        } else if (consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            eject();
+        }
+    }
+
+    /**
+     * Releases a call abandoned by its caller; it says nothing about the backend.
+     */
+    void cancelled() {
+        outstanding.decrementAndGet();
+    }
+
+    void healthChecked(boolean up) {
+        if (healthy != up) {
+            log.info("Ollama backend {} is {}", name, up ? "healthy again" : "failing its health check");
+        }
+        healthy = up;
+    }
+
+    private void eject() {
+        consecutiveFailures.set(0);
+        ejectedUntil = System.nanoTime() + ejectionNanos;
+        ejections.increment();
+        log.warn("Ejected Ollama backend {} after {} failed or slow calls", name, failureThreshold);
+    }
+}
@@ -0,0 +1,159 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jstats.matchlens_api.modules.ai_prediction.config.OllamaPoolConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Routes model calls over several Ollama servers. Each call goes to the available backend with
+ * the fewest requests outstanding; ties rotate so idle backends share the load. Backends are
+ * health-checked periodically ({@code GET /api/version}) and ejected after repeated failed or
+ * slow calls. If no backend is available, calls go to the least loaded one anyway rather than
+ * failing outright, counted by {@code matchlens.ollama.pool.exhausted}.
+ */
+public class OllamaBackendPool {
+
+    private static final Logger log = LoggerFactory.getLogger(OllamaBackendPool.class);
+
+    private final List<OllamaBackend> backends;
+    private final HttpClient httpClient;
+    private final Duration healthCheckTimeout;
+    private final AtomicInteger rotation = new AtomicInteger();
+    private final Counter exhausted;
+
+    public OllamaBackendPool(List<OllamaBackend> backends, OllamaPoolConfig config, MeterRegistry meterRegistry) {
+        if (backends.isEmpty()) {
+            throw new IllegalArgumentException("An Ollama backend pool needs at least one backend");
+        }
+        this.backends = List.copyOf(backends);
+        this.healthCheckTimeout = config.getHealthCheckTimeout();
+        this.httpClient = HttpClient.newBuilder().connectTimeout(healthCheckTimeout).build();
+        this.exhausted = meterRegistry.counter("matchlens.ollama.pool.exhausted");
+    }
+
+    public List<OllamaBackend> backends() {
+        return backends;
+    }
+
+    /**
+     * Runs a blocking call on the chosen backend, recording its outcome. A call abandoned by its
+     * caller, e.g. interrupted by the latency budget, is released without counting as a failure.
+     */
+    public <T> T execute(Function<OllamaBackend, T> call) {
+        OllamaBackend backend = choose();
+        long started = backend.begin();
+        T result;
+        try {
+            result = call.apply(backend);
+        } catch (RuntimeException | Error e) {
+            if (Thread.currentThread().isInterrupted() || isCancellation(e)) {
+                backend.cancelled();
+            } else {
+                backend.complete(started, false);
+            }
+            throw e;
+        }
+        backend.complete(started, true);
+        return result;
+    }
+
+    /**
+     * Runs a streamed call on the backend chosen at subscription. The call is outstanding until
+     * the stream completes, fails or is cancelled.
+     */
+    public <T> Flux<T> stream(Function<OllamaBackend, Flux<T>> call) {
+        return Flux.defer(() -> {
+            OllamaBackend backend = choose();
+            long started = backend.begin();
+            Flux<T> response;
+            try {
+                response = call.apply(backend);
+            } catch (RuntimeException e) {
+                backend.complete(started, false);
+                throw e;
+            }
+            return response
+                    .doOnComplete(() -> backend.complete(started, true))
+                    .doOnError(e -> backend.complete(started, false))
+                    .doOnCancel(backend::cancelled);
+        });
+    }
+
+    private static boolean isCancellation(Throwable failure) {
+        for (Throwable e = failure; e != null; e = e.getCause()) {
+            if (e instanceof InterruptedException || e instanceof CancellationException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Picks the available backend with the fewest outstanding calls.
+     */
+    OllamaBackend choose() {
+        int size = backends.size();
+        int start = Math.floorMod(rotation.getAndIncrement(), size);
+        OllamaBackend best = null;
+        OllamaBackend leastLoaded = null;
+        for (int i = 0; i < size; i++) {
+            OllamaBackend backend = backends.get((start + i) % size);
+            if (leastLoaded == null || backend.outstanding() < leastLoaded.outstanding()) {
+                leastLoaded = backend;
+            }
+            if (backend.available() && (best == null || backend.outstanding() < best.outstanding())) {
+                best = backend;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+        exhausted.increment();
+        return leastLoaded;
+    }
+
+    /**
+     * Checks every backend's liveness; a backend whose check fails gets no traffic until a check passes.
+     */
+    @Scheduled(fixedDelayString = "${matchlens.ai.ollama.pool.health-check-interval:PT10S}")
+    public void checkHealth() {
+        for (OllamaBackend backend : backends) {
+            boolean up = isUp(backend);
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            backend.healthChecked(up);
+        }
+    }
+
+    private boolean isUp(OllamaBackend backend) {
+        var request = HttpRequest.newBuilder(URI.create(backend.baseUrl().toString().replaceAll("/+$", "") + "/api/version"))
+                .timeout(healthCheckTimeout)
+                .GET()
+                .build();
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            log.debug("Health check of Ollama backend {} failed: {}", backend.name(), e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
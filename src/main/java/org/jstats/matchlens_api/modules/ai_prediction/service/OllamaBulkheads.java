@@ -0,0 +1,29 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.jstats.matchlens_api.modules.ai_prediction.config.BulkheadConfig;
+import org.springframework.stereotype.Component;
+
+/**
+ * The bulkheads guarding the Ollama server: chat and embedding calls are limited separately so a
+ * burst of one cannot starve the other.
+ */
+@Component
+public class OllamaBulkheads {
+
+    private final Bulkhead chat;
+    private final Bulkhead embedding;
+
+    public OllamaBulkheads(BulkheadConfig config, MeterRegistry meterRegistry) {
+        this.chat = new Bulkhead("ollama-chat", config.getChat(), meterRegistry);
+        this.embedding = new Bulkhead("ollama-embedding", config.getEmbedding(), meterRegistry);
+    }
+
+    public Bulkhead chat() {
+        return chat;
+    }
+
+    public Bulkhead embedding() {
+        return embedding;
+    }
+}
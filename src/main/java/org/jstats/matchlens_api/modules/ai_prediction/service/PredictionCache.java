@@ -0,0 +1,155 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.jstats.matchlens_api.modules.ai_prediction.config.PromptConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.config.TierConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionRequest;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionResponse;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionTier;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.feed.MatchResultEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Bounded, TTL-based cache of LLM predictions keyed by fixture and requested tier, so that a
+ * prediction made with a smaller model is never served to a request for a larger one.
+ * <p>
+ * Entries expire after {@code matchlens.ai.prediction.cache-ttl} and are evicted by size beyond
+ * {@code matchlens.ai.prediction.cache-max-size}. A newly finished match of either team drops the
+ * team's entries, since the prediction was made without that result; the team is matched under every
+ * name {@link TeamDirectory} knows it by, aliases included. Entries requested under a name that the
+ * directory no longer maps to the same team are dropped as well. Hit/miss/eviction statistics
+ * are published as {@code cache.*} metrics tagged {@code cache=predictions}.
+ */
+@Component
+public class PredictionCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PredictionCache.class);
+
+    static final String CACHE_NAME = "predictions";
+
+    /**
+     * Normalized fixture key: team and competition names are trimmed, lower-cased and have inner
+     * whitespace collapsed so trivially different spellings share an entry. The tier is the
+     * requested one, the default tier if the request names none.
+     */
+    public record Key(String homeTeam, String awayTeam, String competition, LocalDate matchDate, PredictionTier tier) {
+    }
+
+    private final Cache<Key, PredictionResponse> cache;
+    private final TeamDirectory teamDirectory;
+    private final TierConfig tierConfig;
+
+    public PredictionCache(
+            PromptConfig promptConfig,
+            TierConfig tierConfig,
+            MeterRegistry meterRegistry,
+            TeamDirectory teamDirectory) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(promptConfig.getCacheMaxSize())
+                .expireAfterWrite(promptConfig.getCacheTtl())
+                .recordStats()
+                .build();
+        this.teamDirectory = teamDirectory;
+        this.tierConfig = tierConfig;
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * @param request the prediction request
+     * @return the key the request's prediction is cached under
+     */
+    public Key key(PredictionRequest request) {
+        return new Key(
+                normalize(request.homeTeam()),
+                normalize(request.awayTeam()),
+                normalize(request.competition()),
+                request.matchDate(),
+                tierConfig.requestedTier(request.tier()));
+    }
+
+    /**
+     * Looks up a cached prediction for the fixture at the requested tier.
+     *
+     * @param request the prediction request
+     * @return the cached prediction, if present and not expired
+     */
+    public Optional<PredictionResponse> get(PredictionRequest request) {
+        return Optional.ofNullable(cache.getIfPresent(key(request)));
+    }
+
+    /**
+     * Stores a prediction for the fixture at the requested tier.
+     *
+     * @param request  the prediction request
+     * @param response the prediction to cache
+     */
+    public void put(PredictionRequest request, PredictionResponse response) {
+        cache.put(key(request), response);
+    }
+
+    /**
+     * Drops all entries where either side matches one of the given team names.
+     *
+     * @param teamNames team names, short names or TLAs (normalized internally)
+     * @return number of entries removed
+     */
+    public int invalidateTeams(Set<String> teamNames) {
+        Set<String> normalized = new HashSet<>();
+        for (String name : teamNames) {
+            normalized.add(normalize(name));
+        }
+        int removed = 0;
+        for (Iterator<Key> it = cache.asMap().keySet().iterator(); it.hasNext(); ) {
+            Key key = it.next();
+            if (normalized.contains(key.homeTeam()) || normalized.contains(key.awayTeam())) {
+                it.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Invalidates the predictions of both teams when a result lands in fd_match.
+     */
+    @EventListener
+    public void onMatchResult(MatchResultEvent event) {
+        if (cache.estimatedSize() == 0) {
+            return;
+        }
+        Set<String> names = teamDirectory.namesOf(List.of(event.homeTeamId(), event.awayTeamId()));
+        int removed = invalidateTeams(names);
+        if (removed > 0) {
+            log.debug("Invalidated {} cached predictions after result of match {}", removed, event.matchId());
+        }
+    }
+
+    /**
+     * Drops the entries requested under names the team directory has remapped or removed.
+     */
+    @EventListener
+    public void onTeamNamesChanged(TeamDirectory.NamesChanged event) {
+        int removed = invalidateTeams(event.names());
+        if (removed > 0) {
+            log.debug("Invalidated {} cached predictions after team names changed", removed);
+        }
+    }
+
+    static String normalize(String value) {
+        return value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,111 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import org.jstats.matchlens_api.modules.ai_prediction.config.PrecomputeConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.repository.MatchPredictionRepository;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.feed.MatchResultEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Precomputes predictions for scheduled fixtures so user-facing requests are served from the
+ * match_prediction table instead of waiting on the LLM.
+ * <p>
+ * Runs on {@code matchlens.ai.precompute.cron}, which should point at off-peak hours. Fixtures
+ * within {@code horizon} are predicted one at a time with {@code throttle} between model calls,
+ * and the run stops once {@code window} has elapsed; whatever is left is picked up next run.
+ */
+@Component
+public class PredictionPrecomputeJob {
+
+    private static final Logger log = LoggerFactory.getLogger(PredictionPrecomputeJob.class);
+
+    private final MatchPredictionService predictionService;
+    private final MatchPredictionRepository predictionRepository;
+    private final PrecomputeConfig config;
+    private final Clock clock;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public PredictionPrecomputeJob(
+            MatchPredictionService predictionService,
+            MatchPredictionRepository predictionRepository,
+            PrecomputeConfig config,
+            Clock clock) {
+        this.predictionService = predictionService;
+        this.predictionRepository = predictionRepository;
+        this.config = config;
+        this.clock = clock;
+    }
+
+    @Scheduled(cron = "${matchlens.ai.precompute.cron:0 0 3 * * *}")
+    public void run() {
+        if (!config.isEnabled() || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            precomputeUpcoming();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Drops stored predictions of upcoming fixtures of both teams, since they were made without
+     * this result. The next run predicts them again.
+     */
+    @EventListener
+    public void onMatchResult(MatchResultEvent event) {
+        int deleted = predictionRepository.deleteUpcomingForTeams(List.of(event.homeTeamId(), event.awayTeamId()));
+        if (deleted > 0) {
+            log.debug("Dropped {} stored predictions after result of match {}", deleted, event.matchId());
+        }
+    }
+
+    private void precomputeUpcoming() {
+        Instant deadline = clock.instant().plus(config.getWindow());
+        var until = OffsetDateTime.now(clock).plus(config.getHorizon());
+        List<MatchPredictionRepository.Fixture> fixtures =
+                predictionRepository.findUpcomingWithoutPrediction(until, config.getMaxPerRun());
+        if (fixtures.isEmpty()) {
+            return;
+        }
+
+        log.info("Precomputing predictions for {} upcoming fixtures", fixtures.size());
+        int stored = 0;
+        int failed = 0;
+        for (var fixture : fixtures) {
+            if (clock.instant().isAfter(deadline)) {
+                log.info("Precompute window closed, {} fixtures left for the next run",
+                        fixtures.size() - stored - failed);
+                break;
+            }
+            if (predictionService.precompute(fixture.matchId(), fixture.request())) {
+                stored++;
+            } else {
+                failed++;
+            }
+            if (!pause()) {
+                break;
+            }
+        }
+        log.info("Precomputed {} predictions ({} failed)", stored, failed);
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(config.getThrottle());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import reactor.core.publisher.Flux;
+
+/**
+ * Chat model that sends each call to a backend of an {@link OllamaBackendPool}.
+ */
+public class RoutingChatModel implements ChatModel {
+
+    private final OllamaBackendPool pool;
+
+    public RoutingChatModel(OllamaBackendPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        return pool.execute(backend -> backend.chatModel().call(prompt));
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return pool.stream(backend -> backend.chatModel().stream(prompt));
+    }
+
+    @Override
+    public ChatOptions getDefaultOptions() {
+        // All backends are built with the same options
+        return pool.backends().getFirst().chatModel().getDefaultOptions();
+    }
+}
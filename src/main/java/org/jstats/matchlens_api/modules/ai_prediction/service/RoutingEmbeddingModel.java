@@ -0,0 +1,28 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import org.springframework.ai.document.Document;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.ai.embedding.EmbeddingRequest;
+import org.springframework.ai.embedding.EmbeddingResponse;
+
+/**
+ * Embedding model that sends each call to a backend of an {@link OllamaBackendPool}.
+ */
+public class RoutingEmbeddingModel implements EmbeddingModel {
+
+    private final OllamaBackendPool pool;
+
+    public RoutingEmbeddingModel(OllamaBackendPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public EmbeddingResponse call(EmbeddingRequest request) {
+        return pool.execute(backend -> backend.embeddingModel().call(request));
+    }
+
+    @Override
+    public float[] embed(Document document) {
+        return pool.execute(backend -> backend.embeddingModel().embed(document));
+    }
+}
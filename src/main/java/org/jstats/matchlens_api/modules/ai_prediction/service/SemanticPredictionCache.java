@@ -0,0 +1,262 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.jspecify.annotations.Nullable;
+import org.jstats.matchlens_api.modules.ai_prediction.config.PromptConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.config.TierConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionRequest;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionResponse;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionTier;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.feed.MatchResultEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache of LLM predictions keyed by the embedding of the prediction query, so that requests
+ * naming the same fixture differently ("Man City" and "Manchester City", another competition
+ * code) share one prediction.
+ * <p>
+ * A lookup compares the query embedding with those of the predictions cached for the same match
+ * date and returns the closest one if its cosine similarity reaches
+ * {@code matchlens.ai.prediction.semantic-cache-threshold}. Embeddings of two fixtures on the same
+ * day can be that close, so an entry is only served if its home and away teams are the requested
+ * ones wherever both names resolve to a single team, and only to requests for the tier it was
+ * cached under, as in {@link PredictionCache}. Entries expire after
+ * {@code semantic-cache-ttl} and are evicted by size beyond {@code semantic-cache-max-size}. A
+ * finished match of either team drops the entry, as in {@link PredictionCache}; teams are matched
+ * through {@link TeamDirectory}, so an entry whose names did not resolve is left to expire. Entries
+ * requested under names the directory remaps or removes are dropped as well.
+ * Statistics are published as {@code cache.*} metrics tagged {@code cache=semantic-predictions}.
+ */
+@Component
+public class SemanticPredictionCache {
+
+    private static final Logger log = LoggerFactory.getLogger(SemanticPredictionCache.class);
+
+    static final String CACHE_NAME = "semantic-predictions";
+
+    /**
+     * A cached prediction with its unit-length query embedding, requested tier and normalized team
+     * names. The home and away team IDs are null where the name did not resolve to a single team;
+     * {@code teamIds} holds every team either name resolved to.
+     */
+    private record Entry(LocalDate matchDate, float[] embedding, PredictionTier tier, String homeTeam,
+                         String awayTeam, @Nullable Long homeTeamId, @Nullable Long awayTeamId, Set<Long> teamIds,
+                         PredictionResponse prediction) {
+    }
+
+    /**
+     * The fixture and tier a query is for, as far as its team names resolve.
+     */
+    private record Fixture(PredictionTier tier, @Nullable Long homeTeamId, @Nullable Long awayTeamId) {
+
+        /**
+         * Whether the entry may be served for this fixture: it was cached for the same tier and
+         * neither side resolved to a different team.
+         */
+        boolean admits(Entry entry) {
+            return tier == entry.tier()
+                    && sameOrUnknown(homeTeamId, entry.homeTeamId()) && sameOrUnknown(awayTeamId, entry.awayTeamId());
+        }
+
+        private static boolean sameOrUnknown(@Nullable Long a, @Nullable Long b) {
+            return a == null || b == null || a.equals(b);
+        }
+    }
+
+    private final boolean enabled;
+    private final double threshold;
+    private final TeamDirectory teamDirectory;
+    private final TierConfig tierConfig;
+    private final ConcurrentStatsCounter stats = new ConcurrentStatsCounter();
+    private final Cache<Long, Entry> cache;
+    private final Map<LocalDate, Set<Long>> idsByDate = new ConcurrentHashMap<>();
+    private final AtomicLong nextId = new AtomicLong();
+
+    public SemanticPredictionCache(
+            PromptConfig promptConfig,
+            TierConfig tierConfig,
+            MeterRegistry meterRegistry,
+            TeamDirectory teamDirectory) {
+        this.enabled = promptConfig.isSemanticCacheEnabled();
+        this.threshold = promptConfig.getSemanticCacheThreshold();
+        this.teamDirectory = teamDirectory;
+        this.tierConfig = tierConfig;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(promptConfig.getSemanticCacheMaxSize())
+                .expireAfterWrite(promptConfig.getSemanticCacheTtl())
+                // Keep the date index in step with the cache on the thread that removed the entry
+                .executor(Runnable::run)
+                .<Long, Entry>removalListener((id, entry, cause) -> {
+                    if (id != null && entry != null) {
+                        unindex(entry.matchDate(), id);
+                    }
+                })
+                .recordStats(() -> stats)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * Looks up the cached prediction whose query is most similar to the given one.
+     *
+     * @param request        the prediction request; only predictions for its date, teams and tier are considered
+     * @param queryEmbedding the embedding of the prediction query
+     * @return the prediction of the closest query at or above the threshold
+     */
+    public Optional<PredictionResponse> get(PredictionRequest request, List<Double> queryEmbedding) {
+        if (!enabled || queryEmbedding.isEmpty()) {
+            return Optional.empty();
+        }
+        Entry closest = closest(request.matchDate(), unit(queryEmbedding), fixture(request));
+        if (closest == null) {
+            stats.recordMisses(1);
+            return Optional.empty();
+        }
+        stats.recordHits(1);
+        return Optional.of(closest.prediction());
+    }
+
+    /**
+     * Stores a prediction under its query embedding, unless a similar enough query for the same
+     * date is already cached.
+     *
+     * @param request        the prediction request
+     * @param queryEmbedding the embedding of the prediction query
+     * @param prediction     the prediction to cache
+     */
+    public void put(PredictionRequest request, List<Double> queryEmbedding, PredictionResponse prediction) {
+        if (!enabled || queryEmbedding.isEmpty()) {
+            return;
+        }
+        float[] embedding = unit(queryEmbedding);
+        Fixture fixture = fixture(request);
+        if (closest(request.matchDate(), embedding, fixture) != null) {
+            return;
+        }
+        Set<Long> teamIds = new HashSet<>(teamDirectory.resolve(request.homeTeam()));
+        teamIds.addAll(teamDirectory.resolve(request.awayTeam()));
+
+        long id = nextId.incrementAndGet();
+        idsByDate.compute(request.matchDate(), (date, ids) -> {
+            Set<Long> indexed = ids == null ? ConcurrentHashMap.newKeySet() : ids;
+            indexed.add(id);
+            return indexed;
+        });
+        cache.put(id, new Entry(request.matchDate(), embedding, fixture.tier(),
+                PredictionCache.normalize(request.homeTeam()), PredictionCache.normalize(request.awayTeam()),
+                fixture.homeTeamId(), fixture.awayTeamId(), Set.copyOf(teamIds), prediction));
+    }
+
+    /**
+     * Drops the predictions of both teams when a result lands in fd_match.
+     */
+    @EventListener
+    public void onMatchResult(MatchResultEvent event) {
+        int removed = 0;
+        for (Iterator<Entry> it = cache.asMap().values().iterator(); it.hasNext(); ) {
+            Set<Long> teamIds = it.next().teamIds();
+            if (teamIds.contains(event.homeTeamId()) || teamIds.contains(event.awayTeamId())) {
+                it.remove();
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            log.debug("Invalidated {} semantically cached predictions after result of match {}", removed, event.matchId());
+        }
+    }
+
+    /**
+     * Drops the entries requested under names the team directory has remapped or removed, whose
+     * team IDs may no longer be the ones the names resolve to.
+     */
+    @EventListener
+    public void onTeamNamesChanged(TeamDirectory.NamesChanged event) {
+        int removed = 0;
+        for (Iterator<Entry> it = cache.asMap().values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (event.names().contains(entry.homeTeam()) || event.names().contains(entry.awayTeam())) {
+                it.remove();
+                removed++;
+            }
+        }
+        if (removed > 0) {
+            log.debug("Invalidated {} semantically cached predictions after team names changed", removed);
+        }
+    }
+
+    private @Nullable Entry closest(LocalDate matchDate, float[] query, Fixture fixture) {
+        Entry closest = null;
+        double best = threshold;
+        for (Long id : idsByDate.getOrDefault(matchDate, Set.of())) {
+            // Quiet reads keep the scan out of the hit/miss statistics
+            Entry entry = cache.policy().getIfPresentQuietly(id);
+            if (entry == null || entry.embedding().length != query.length || !fixture.admits(entry)) {
+                continue;
+            }
+            double similarity = dot(query, entry.embedding());
+            if (similarity >= best) {
+                best = similarity;
+                closest = entry;
+            }
+        }
+        return closest;
+    }
+
+    private Fixture fixture(PredictionRequest request) {
+        return new Fixture(tierConfig.requestedTier(request.tier()),
+                single(teamDirectory.resolve(request.homeTeam())),
+                single(teamDirectory.resolve(request.awayTeam())));
+    }
+
+    private static @Nullable Long single(Set<Long> teamIds) {
+        return teamIds.size() == 1 ? teamIds.iterator().next() : null;
+    }
+
+    private void unindex(LocalDate matchDate, long id) {
+        idsByDate.computeIfPresent(matchDate, (date, ids) -> {
+            ids.remove(id);
+            return ids.isEmpty() ? null : ids;
+        });
+    }
+
+    /**
+     * Scales the embedding to unit length, so that cosine similarity is a dot product.
+     */
+    static float[] unit(List<Double> embedding) {
+        double norm = 0;
+        for (Double value : embedding) {
+            norm += value * value;
+        }
+        norm = Math.sqrt(norm);
+        float[] unit = new float[embedding.size()];
+        for (int i = 0; i < unit.length; i++) {
+            unit[i] = norm == 0 ? 0 : (float) (embedding.get(i) / norm);
+        }
+        return unit;
+    }
+
+    static double dot(float[] a, float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+}
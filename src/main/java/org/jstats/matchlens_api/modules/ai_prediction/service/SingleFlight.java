@@ -0,0 +1,75 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls with the same key into one: the first caller runs the computation,
+ * callers arriving while it is in flight wait for it and receive its result or its exception.
+ * A call that arrives after the computation completed starts a new one.
+ * <p>
+ * Publishes {@code matchlens.singleflight.calls{flight, role=leader|coalesced}} and the number of
+ * keys in flight as {@code matchlens.singleflight.in-flight{flight}}.
+ */
+final class SingleFlight<K, V> {
+
+    private final Map<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter coalesced;
+
+    SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.leaders = Counter.builder("matchlens.singleflight.calls")
+                .tag("flight", name).tag("role", "leader").register(meterRegistry);
+        this.coalesced = Counter.builder("matchlens.singleflight.calls")
+                .tag("flight", name).tag("role", "coalesced").register(meterRegistry);
+        Gauge.builder("matchlens.singleflight.in-flight", inFlight, Map::size)
+                .tag("flight", name).register(meterRegistry);
+    }
+
+    /**
+     * Runs the computation for the key, or joins the one already in flight.
+     *
+     * @throws RuntimeException the computation's failure, rethrown to every caller that shared it
+     */
+    V execute(K key, Supplier<V> computation) {
+        var own = new CompletableFuture<V>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, own);
+        if (existing != null) {
+            coalesced.increment();
+            return await(existing);
+        }
+
+        leaders.increment();
+        try {
+            V value = computation.get();
+            own.complete(value);
+            return value;
+        } catch (RuntimeException | Error e) {
+            own.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, own);
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> flight) {
+        try {
+            return flight.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException failure) {
+                throw failure;
+            }
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import org.jstats.matchlens_api.modules.ai_prediction.model.MatchContext;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.Optional;
+
+/**
+ * Independent Poisson goal model over the in-memory team statistics.
+ * <p>
+ * Each side's expected goals are the league scoring rate for its venue, scaled by its attack
+ * strength at that venue and the opponent's defence strength at the other one. Strengths are
+ * per-match rates relative to the league and are shrunk towards the league average by
+ * {@value #PRIOR_MATCHES} pseudo-matches, so teams with few or no results are treated as
+ * average. Everything runs on primitives without allocation beyond the result.
+ */
+@Component
+public class StatisticalPredictor {
+
+    /** Scorelines are summed up to this many goals per side; the remaining mass is renormalized */
+    static final int MAX_GOALS = 10;
+
+    /** Weight of the league average in a team's strength, in matches */
+    static final double PRIOR_MATCHES = 5.0;
+
+    private final TeamStatsProjection teamStats;
+
+    public StatisticalPredictor(TeamStatsProjection teamStats) {
+        this.teamStats = teamStats;
+    }
+
+    /**
+     * Outcome probabilities of a fixture.
+     *
+     * @param homeWin           probability of a home win
+     * @param draw              probability of a draw
+     * @param awayWin           probability of an away win
+     * @param expectedHomeGoals expected goals of the home side
+     * @param expectedAwayGoals expected goals of the away side
+     */
+    public record Outcome(
+            double homeWin,
+            double draw,
+            double awayWin,
+            double expectedHomeGoals,
+            double expectedAwayGoals
+    ) {
+        /**
+         * @return "HOME", "DRAW" or "AWAY", whichever is most likely
+         */
+        public String predictedWinner() {
+            if (homeWin >= draw && homeWin >= awayWin) {
+                return "HOME";
+            }
+            return awayWin > draw ? "AWAY" : "DRAW";
+        }
+
+        /**
+         * @return the probability of the most likely outcome
+         */
+        public double confidence() {
+            return Math.max(homeWin, Math.max(draw, awayWin));
+        }
+
+        /**
+         * @return a one-line description, as used in prompts and reasoning
+         */
+        public String describe() {
+            return String.format("home win %.0f%%, draw %.0f%%, away win %.0f%% (expected goals %.2f - %.2f)",
+                    homeWin * 100, draw * 100, awayWin * 100, expectedHomeGoals, expectedAwayGoals);
+        }
+    }
+
+    /**
+     * Predicts a fixture from the teams' home and away records.
+     *
+     * @param homeTeam  name of the home team
+     * @param awayTeam  name of the away team
+     * @param matchDate the fixture's day; only results before it are used
+     * @return the outcome probabilities, or empty if no results had been recorded by then
+     */
+    public Optional<Outcome> predict(String homeTeam, String awayTeam, LocalDate matchDate) {
+        TeamStatsProjection.LeagueAverages league = teamStats.leagueAverages(matchDate);
+        double leagueHome = league.homeGoalsPerMatch();
+        double leagueAway = league.awayGoalsPerMatch();
+        if (leagueHome <= 0 || leagueAway <= 0) {
+            return Optional.empty();
+        }
+
+        MatchContext.VenueRecord home = teamStats.forTeam(homeTeam, matchDate).home();
+        MatchContext.VenueRecord away = teamStats.forTeam(awayTeam, matchDate).away();
+
+        double homeAttack = rate(home.goalsScored(), home.matches(), leagueHome) / leagueHome;
+        double homeDefence = rate(home.goalsConceded(), home.matches(), leagueAway) / leagueAway;
+        double awayAttack = rate(away.goalsScored(), away.matches(), leagueAway) / leagueAway;
+        double awayDefence = rate(away.goalsConceded(), away.matches(), leagueHome) / leagueHome;
+
+        return Optional.of(outcome(leagueHome * homeAttack * awayDefence, leagueAway * awayAttack * homeDefence));
+    }
+
+    /**
+     * Computes outcome probabilities for two independent Poisson scores.
+     *
+     * @param lambdaHome expected goals of the home side
+     * @param lambdaAway expected goals of the away side
+     * @return the outcome probabilities
+     */
+    static Outcome outcome(double lambdaHome, double lambdaAway) {
+        double homeWin = 0;
+        double draw = 0;
+        double awayWin = 0;
+
+        double pHome = Math.exp(-lambdaHome);
+        for (int h = 0; h <= MAX_GOALS; h++) {
+            double pAway = Math.exp(-lambdaAway);
+            for (int a = 0; a <= MAX_GOALS; a++) {
+                double p = pHome * pAway;
+                if (h > a) {
+                    homeWin += p;
+                } else if (h == a) {
+                    draw += p;
+                } else {
+                    awayWin += p;
+                }
+                pAway *= lambdaAway / (a + 1);
+            }
+            pHome *= lambdaHome / (h + 1);
+        }
+
+        double total = homeWin + draw + awayWin;
+        return new Outcome(homeWin / total, draw / total, awayWin / total, lambdaHome, lambdaAway);
+    }
+
+    private static double rate(int goals, int matches, double leagueRate) {
+        return (goals + PRIOR_MATCHES * leagueRate) / (matches + PRIOR_MATCHES);
+    }
+}
@@ -0,0 +1,148 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * In-memory dictionary from the names teams are requested by to fd_team IDs.
+ * <p>
+ * Every team is indexed under its name, its name without an "FC"/"AFC" affix, its short name,
+ * its TLA and its rows in team_alias, all normalized like {@link PredictionCache.Key}. The
+ * dictionary is rebuilt on startup and whenever a periodic check sees fd_team or team_alias change;
+ * a rebuild that moves or drops names publishes {@link NamesChanged} so caches keyed by requested
+ * names can drop what the old names resolved to.
+ */
+@Component
+public class TeamDirectory {
+
+    private static final Logger log = LoggerFactory.getLogger(TeamDirectory.class);
+
+    /**
+     * Published when a rebuild removed names or made them resolve to another team.
+     *
+     * @param names the affected names, normalized
+     */
+    public record NamesChanged(Set<String> names) {}
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher publisher;
+
+    private volatile Map<String, Long> teamIdByName = Map.of();
+    private volatile String fingerprint = "";
+
+    public TeamDirectory(NamedParameterJdbcTemplate jdbcTemplate, ApplicationEventPublisher publisher) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.publisher = publisher;
+    }
+
+    /**
+     * Resolves a requested team name to team IDs. An exact match on any indexed name wins;
+     * otherwise every team with an indexed name containing the requested one is returned.
+     *
+     * @param teamName the requested name
+     * @return the matching team IDs, empty if the name is unknown
+     */
+    public Set<Long> resolve(String teamName) {
+        String normalized = PredictionCache.normalize(teamName);
+        if (normalized.isEmpty()) {
+            return Set.of();
+        }
+
+        Map<String, Long> names = teamIdByName;
+        Long exact = names.get(normalized);
+        if (exact != null) {
+            return Set.of(exact);
+        }
+
+        Set<Long> ids = new LinkedHashSet<>();
+        names.forEach((name, teamId) -> {
+            if (name.contains(normalized)) {
+                ids.add(teamId);
+            }
+        });
+        return ids;
+    }
+
+    /**
+     * Returns every indexed name of the given teams, aliases included.
+     *
+     * @param teamIds fd_team IDs
+     * @return the normalized names
+     */
+    public Set<String> namesOf(Collection<Long> teamIds) {
+        Set<String> names = new HashSet<>();
+        teamIdByName.forEach((name, teamId) -> {
+            if (teamIds.contains(teamId)) {
+                names.add(name);
+            }
+        });
+        return names;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${matchlens.ai.teams.refresh-interval:PT5M}",
+            initialDelayString = "${matchlens.ai.teams.refresh-interval:PT5M}")
+    public synchronized void refresh() {
+        String current = jdbcTemplate.queryForObject("""
+                SELECT concat_ws('/', (SELECT count(*) FROM fd_team), (SELECT max(last_updated) FROM fd_team),
+                                 (SELECT count(*) FROM team_alias), (SELECT md5(string_agg(alias || ':' || team_id, ',' ORDER BY alias)) FROM team_alias))
+                """, new MapSqlParameterSource(), String.class);
+        if (fingerprint.equals(current)) {
+            return;
+        }
+
+        Map<String, Long> names = new HashMap<>();
+        List<Map<String, Object>> teams = jdbcTemplate.queryForList(
+                "SELECT id, name, short_name, tla FROM fd_team", new MapSqlParameterSource());
+        for (Map<String, Object> team : teams) {
+            long teamId = ((Number) team.get("id")).longValue();
+            String name = (String) team.get("name");
+            index(names, name, teamId);
+            index(names, name.replaceAll("(?i)^a?fc\\s+|\\s+a?fc$", ""), teamId);
+            index(names, (String) team.get("short_name"), teamId);
+            index(names, (String) team.get("tla"), teamId);
+        }
+        // Aliases are curated, so they override any clash with generated names
+        for (Map<String, Object> alias : jdbcTemplate.queryForList(
+                "SELECT alias, team_id FROM team_alias", new MapSqlParameterSource())) {
+            names.put(PredictionCache.normalize((String) alias.get("alias")), ((Number) alias.get("team_id")).longValue());
+        }
+
+        Map<String, Long> previous = teamIdByName;
+        teamIdByName = Map.copyOf(names);
+        fingerprint = current == null ? "" : current;
+        log.info("Loaded team directory: {} names for {} teams", names.size(), teams.size());
+
+        Set<String> changed = new HashSet<>();
+        previous.forEach((name, teamId) -> {
+            if (!teamId.equals(names.get(name))) {
+                changed.add(name);
+            }
+        });
+        if (!changed.isEmpty()) {
+            publisher.publishEvent(new NamesChanged(Set.copyOf(changed)));
+        }
+    }
+
+    private static void index(Map<String, Long> names, @Nullable String name, long teamId) {
+        if (name != null && !name.isBlank()) {
+            names.putIfAbsent(PredictionCache.normalize(name), teamId);
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import org.jstats.matchlens_api.modules.ai_prediction.config.PromptConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.model.MatchContext;
+import org.jstats.matchlens_api.modules.ai_prediction.repository.TeamStatsRepository;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.feed.MatchResultEvent;
+import org.jspecify.annotations.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory view of the team_stats read model, so context building reads a team's statistics
+ * without touching fd_match.
+ * <p>
+ * On startup every finished match not yet applied is folded into team_stats and the table is
+ * loaded; afterwards each {@link MatchResultEvent} applies its match, or its corrected score, and
+ * reloads the two teams.
+ * <p>
+ * Statistics are asked for as they stood before a fixture's day, so a fixture is never predicted
+ * from its own or later results. Fixtures after a team's latest counted match are served from
+ * memory. So are fixtures on the day of that match, such as a late kick-off on a matchday whose
+ * early games have finished: for each team the statistics as they stood before the day of its
+ * latest match are kept next to its row, and are computed when the row is loaded, off the request
+ * path. Only fixtures on earlier days are computed from fd_match up to that day.
+ */
+@Component
+public class TeamStatsProjection {
+
+    private static final Logger log = LoggerFactory.getLogger(TeamStatsProjection.class);
+
+    private final TeamStatsRepository repository;
+    private final TeamDirectory teamDirectory;
+    private final PromptConfig promptConfig;
+
+    private final Map<Long, TeamEntry> entriesByTeamId = new ConcurrentHashMap<>();
+    private volatile LeagueAverages leagueAverages = new LeagueAverages(0, 0, 0);
+    private volatile @Nullable LeagueAverages latestDayAverages;
+    private volatile OffsetDateTime latestMatchDate = OffsetDateTime.MIN;
+
+    /**
+     * A team's row and its statistics before the day of its latest match.
+     *
+     * @param row           the team's current statistics
+     * @param beforeLastDay statistics before the day of {@code row.lastMatchDate()}, null if not loaded
+     */
+    private record TeamEntry(TeamStatsRepository.TeamStatsRow row, MatchContext.@Nullable TeamStats beforeLastDay) {}
+
+    /**
+     * Totals over all teams, the baseline team strengths are measured against.
+     *
+     * @param matches   number of matches (each has one home and one away side)
+     * @param homeGoals goals scored by home sides
+     * @param awayGoals goals scored by away sides
+     */
+    public record LeagueAverages(int matches, int homeGoals, int awayGoals) {
+        public double homeGoalsPerMatch() {
+            return matches == 0 ? 0 : (double) homeGoals / matches;
+        }
+
+        public double awayGoalsPerMatch() {
+            return matches == 0 ? 0 : (double) awayGoals / matches;
+        }
+    }
+
+    public TeamStatsProjection(TeamStatsRepository repository, TeamDirectory teamDirectory, PromptConfig promptConfig) {
+        this.repository = repository;
+        this.teamDirectory = teamDirectory;
+        this.promptConfig = promptConfig;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        List<Long> backfilled = repository.applyFinishedMatches(null, promptConfig.getFormLength());
+        List<TeamStatsRepository.TeamStatsRow> rows = repository.findAll();
+        OffsetDateTime latest = rows.stream()
+                .map(TeamStatsRepository.TeamStatsRow::lastMatchDate)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+        // Only the latest matchday can still have fixtures to come; earlier days are historical
+        rows.forEach(row -> index(row, latest != null && row.lastMatchDate() != null
+                && dayOf(row.lastMatchDate()).equals(dayOf(latest))));
+        updateLeagueAverages();
+        log.info("Loaded team stats for {} teams ({} updated by backfill)", rows.size(), backfilled.size());
+    }
+
+    @EventListener
+    public void onMatchResult(MatchResultEvent event) {
+        List<Long> changed = repository.applyFinishedMatches(event.matchId(), promptConfig.getFormLength());
+        if (!changed.isEmpty()) {
+            repository.findByTeamIds(changed).forEach(row -> index(row, true));
+            updateLeagueAverages();
+        }
+    }
+
+    /**
+     * Returns the statistics of a team before a fixture's day.
+     *
+     * @param teamName  the team's name, short name, TLA or alias
+     * @param matchDate the fixture's day; results from that day on are not counted
+     * @return the team's statistics, or empty statistics for an unknown or ambiguous name
+     */
+    public MatchContext.TeamStats forTeam(String teamName, LocalDate matchDate) {
+        Set<Long> teamIds = teamDirectory.resolve(teamName);
+        return teamIds.size() == 1 ? forTeam(teamIds.iterator().next(), matchDate) : MatchContext.TeamStats.empty();
+    }
+
+    /**
+     * Returns the statistics of a team before a fixture's day.
+     *
+     * @param teamId    the team ID
+     * @param matchDate the fixture's day; results from that day on are not counted
+     * @return the team's statistics, or empty statistics if it had no finished matches by then
+     */
+    public MatchContext.TeamStats forTeam(long teamId, LocalDate matchDate) {
+        var entry = entriesByTeamId.get(teamId);
+        if (entry == null) {
+            return MatchContext.TeamStats.empty();
+        }
+        var row = entry.row();
+        OffsetDateTime before = startOf(matchDate);
+        if (row.lastMatchDate() == null || row.lastMatchDate().isBefore(before)) {
+            return row.stats();
+        }
+        if (entry.beforeLastDay() != null && dayOf(row.lastMatchDate()).equals(matchDate)) {
+            return entry.beforeLastDay();
+        }
+        return repository.findAsOf(teamId, before, promptConfig.getFormLength());
+    }
+
+    /**
+     * Returns the home and away scoring rates over all teams before a fixture's day.
+     *
+     * @param matchDate the fixture's day; results from that day on are not counted
+     * @return the league averages
+     */
+    public LeagueAverages leagueAverages(LocalDate matchDate) {
+        OffsetDateTime before = startOf(matchDate);
+        OffsetDateTime latest = latestMatchDate;
+        if (latest.isBefore(before)) {
+            return leagueAverages;
+        }
+        LeagueAverages latestDay = latestDayAverages;
+        if (latestDay != null && dayOf(latest).equals(matchDate)) {
+            return latestDay;
+        }
+        var totals = repository.leagueTotalsBefore(before);
+        return new LeagueAverages(totals.matches(), totals.homeGoals(), totals.awayGoals());
+    }
+
+    private static OffsetDateTime startOf(LocalDate matchDate) {
+        return matchDate.atStartOfDay().atOffset(ZoneOffset.UTC);
+    }
+
+    private static LocalDate dayOf(OffsetDateTime kickOff) {
+        return kickOff.withOffsetSameInstant(ZoneOffset.UTC).toLocalDate();
+    }
+
+    /**
+     * Sums the league totals now and as they stood before the latest matchday. The latter are
+     * left unset if a team that played that day has no statistics from before it.
+     */
+    private synchronized void updateLeagueAverages() {
+        List<TeamEntry> entries = List.copyOf(entriesByTeamId.values());
+        OffsetDateTime latest = OffsetDateTime.MIN;
+        for (TeamEntry entry : entries) {
+            var lastMatchDate = entry.row().lastMatchDate();
+            if (lastMatchDate != null && lastMatchDate.isAfter(latest)) {
+                latest = lastMatchDate;
+            }
+        }
+        LocalDate latestDay = latest.equals(OffsetDateTime.MIN) ? null : dayOf(latest);
+
+        int[] now = new int[3];
+        int[] beforeLatestDay = new int[3];
+        boolean complete = true;
+        for (TeamEntry entry : entries) {
+            add(now, entry.row().stats());
+            var lastMatchDate = entry.row().lastMatchDate();
+            if (lastMatchDate == null || !dayOf(lastMatchDate).equals(latestDay)) {
+                add(beforeLatestDay, entry.row().stats());
+            } else if (entry.beforeLastDay() != null) {
+                add(beforeLatestDay, entry.beforeLastDay());
+            } else {
+                complete = false;
+            }
+        }
+        leagueAverages = new LeagueAverages(now[0], now[1], now[2]);
+        latestDayAverages = complete
+                ? new LeagueAverages(beforeLatestDay[0], beforeLatestDay[1], beforeLatestDay[2])
+                : null;
+        latestMatchDate = latest;
+    }
+
+    private static void add(int[] totals, MatchContext.TeamStats stats) {
+        totals[0] += stats.home().matches();
+        totals[1] += stats.home().goalsScored();
+        totals[2] += stats.away().goalsScored();
+    }
+
+    /**
+     * Indexes a team's row, with its statistics before the day of its latest match if asked for.
+     */
+    private void index(TeamStatsRepository.TeamStatsRow row, boolean withLastDay) {
+        MatchContext.TeamStats beforeLastDay = null;
+        if (withLastDay && row.lastMatchDate() != null) {
+            beforeLastDay = repository.findAsOf(
+                    row.teamId(), startOf(dayOf(row.lastMatchDate())), promptConfig.getFormLength());
+        }
+        entriesByTeamId.put(row.teamId(), new TeamEntry(row, beforeLastDay));
+    }
+}
@@ -0,0 +1,157 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.jspecify.annotations.Nullable;
+import org.jstats.matchlens_api.modules.ai_prediction.config.OllamaConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.config.TierConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionTier;
+import org.springframework.ai.ollama.api.OllamaOptions;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides which tier serves a prediction and provides the chat options of each tier.
+ * <p>
+ * Interactive predictions are downgraded to {@link PredictionTier#FAST} while the chat bulkhead
+ * has {@code downgrade-queue-depth} or more callers waiting, or while the moving average of
+ * generation latency is at or above {@code downgrade-latency}. The average only takes interactive
+ * STANDARD and DEEP generations, the ones a downgrade would speed up; offline precomputation and
+ * FAST answers do not move it. While it is high, one request per {@code downgrade-probe-interval}
+ * keeps its tier to measure it again. Downgrades are counted by
+ * {@code matchlens.prediction.tier.downgraded{from}}; generation latency is recorded per tier as
+ * {@code matchlens.prediction.generation{tier}}.
+ */
+@Component
+public class TierSelector {
+
+    /** Weight of the latest sample in the moving latency average */
+    private static final double LATENCY_SMOOTHING = 0.2;
+
+    private final TierConfig config;
+    private final Bulkhead chatBulkhead;
+    private final MeterRegistry meterRegistry;
+    private final Map<PredictionTier, OllamaOptions> options = new EnumMap<>(PredictionTier.class);
+    private final Map<PredictionTier, Timer> latencies = new EnumMap<>(PredictionTier.class);
+    private double averageLatencyNanos;
+    /** When the average was last sampled or probed */
+    private long lastSampleNanos;
+
+    /**
+     * The tier a prediction is generated with.
+     *
+     * @param tier        the tier to call the model with
+     * @param downgraded  whether load forced a lower tier than requested; such answers are not cached
+     * @param interactive whether a caller waits for the prediction
+     */
+    public record Selection(PredictionTier tier, boolean downgraded, boolean interactive) {
+    }
+
+    public TierSelector(TierConfig config, OllamaConfig ollamaConfig, OllamaBulkheads bulkheads, MeterRegistry meterRegistry) {
+        this.config = config;
+        this.chatBulkhead = bulkheads.chat();
+        this.meterRegistry = meterRegistry;
+        for (PredictionTier tier : PredictionTier.values()) {
+            options.put(tier, chatOptions(ollamaConfig.chatOptions(), config.tier(tier)));
+            latencies.put(tier, meterRegistry.timer("matchlens.prediction.generation", "tier", tier.name()));
+        }
+    }
+
+    /**
+     * @param requested the tier in the request, if any
+     * @return the tier the request asks for: the requested one, or the configured default tier
+     */
+    public PredictionTier requestedTier(@Nullable PredictionTier requested) {
+        return config.requestedTier(requested);
+    }
+
+    /**
+     * Picks the tier of an interactive prediction, downgrading under load.
+     *
+     * @param requested the tier in the request, if any
+     * @return the tier to generate the prediction with
+     */
+    public Selection select(@Nullable PredictionTier requested) {
+        PredictionTier tier = config.requestedTier(requested);
+        if (tier == PredictionTier.FAST) {
+            return new Selection(tier, false, true);
+        }
+        if (chatBulkhead.queueDepth() >= config.getDowngradeQueueDepth() || latencyHigh()) {
+            meterRegistry.counter("matchlens.prediction.tier.downgraded", "from", tier.name()).increment();
+            return new Selection(PredictionTier.FAST, true, true);
+        }
+        return new Selection(tier, false, true);
+    }
+
+    /**
+     * Picks the tier of an offline prediction, which is never downgraded.
+     *
+     * @param requested the tier in the request, if any
+     * @return the requested tier, or the configured offline tier
+     */
+    public Selection selectOffline(@Nullable PredictionTier requested) {
+        return new Selection(requested != null ? requested : config.getOfflineTier(), false, false);
+    }
+
+    /**
+     * @param tier a prediction tier
+     * @return the chat options to call the model with
+     */
+    public OllamaOptions options(PredictionTier tier) {
+        return options.get(tier);
+    }
+
+    /**
+     * Records how long a generation took. Interactive STANDARD and DEEP generations feed the
+     * latency-based downgrade; a generation cut off by the latency budget is recorded at the budget.
+     */
+    public void recordLatency(Selection selection, long nanos) {
+        latencies.get(selection.tier()).record(nanos, TimeUnit.NANOSECONDS);
+        if (!selection.interactive() || selection.tier() == PredictionTier.FAST) {
+            return;
+        }
+        synchronized (this) {
+            averageLatencyNanos = averageLatencyNanos == 0
+                    ? nanos
+                    : averageLatencyNanos + LATENCY_SMOOTHING * (nanos - averageLatencyNanos);
+            lastSampleNanos = System.nanoTime();
+        }
+    }
+
+    /**
+     * Whether the average latency calls for a downgrade. Downgraded requests do not sample the
+     * average, so once per probe interval a request is let through to sample it again.
+     */
+    private synchronized boolean latencyHigh() {
+        if (averageLatencyNanos < config.getDowngradeLatency().toNanos()) {
+            return false;
+        }
+        long now = System.nanoTime();
+        if (now - lastSampleNanos >= config.getDowngradeProbeInterval().toNanos()) {
+            lastSampleNanos = now;
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Applies a tier's overrides to the base chat options; the base keeps the format, keep-alive
+     * and any value the tier leaves unset.
+     */
+    private static OllamaOptions chatOptions(OllamaOptions base, TierConfig.Tier tier) {
+        OllamaOptions options = base.copy();
+        if (tier.getModel() != null) {
+            options.setModel(tier.getModel());
+        }
+        if (tier.getNumCtx() != null) {
+            options.setNumCtx(tier.getNumCtx());
+        }
+        if (tier.getNumPredict() != null) {
+            options.setNumPredict(tier.getNumPredict());
+        }
+        return options;
+    }
+}
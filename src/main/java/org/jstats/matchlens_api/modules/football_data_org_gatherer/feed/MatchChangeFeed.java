@@ -0,0 +1,122 @@
+package org.jstats.matchlens_api.modules.football_data_org_gatherer.feed;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Polls fd_match for rows that reached FINISHED since the last poll and publishes a
+ * {@link MatchResultEvent} for each of them.
+ * <p>
+ * Rows are paged by {@code (updated_at, id)}. Every poll starts {@code overlap} behind the
+ * watermark because a transaction that committed late may carry an older {@code updated_at};
+ * rows already published with the same {@code updated_at} are skipped.
+ */
+@Component
+@EnableConfigurationProperties(MatchFeedProperties.class)
+public class MatchChangeFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(MatchChangeFeed.class);
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final ApplicationEventPublisher publisher;
+    private final MatchFeedProperties properties;
+
+    /** match id -> updated_at of the version already published, kept for the overlap window */
+    private final Map<Long, OffsetDateTime> published = new HashMap<>();
+    private OffsetDateTime watermark;
+
+    public MatchChangeFeed(
+            @Qualifier("batchJdbcTemplate") NamedParameterJdbcTemplate jdbc,
+            ApplicationEventPublisher publisher,
+            MatchFeedProperties properties) {
+        this.jdbc = jdbc;
+        this.publisher = publisher;
+        this.properties = properties;
+    }
+
+    private record Row(MatchResultEvent event, OffsetDateTime updatedAt) {}
+
+    @Scheduled(fixedDelayString = "${footballdata.feed.poll-interval:PT15S}")
+    public synchronized void poll() {
+        if (watermark == null) {
+            // Consumers load their state on startup; only changes from around that point are streamed
+            watermark = jdbc.queryForObject("SELECT now()", new MapSqlParameterSource(), OffsetDateTime.class);
+        }
+
+        var since = watermark.minus(properties.overlap());
+        OffsetDateTime afterTs = since;
+        long afterId = 0;
+        int count = 0;
+        List<Row> page;
+        do {
+            page = fetchPage(afterTs, afterId);
+            for (Row row : page) {
+                if (row.updatedAt().isAfter(watermark)) {
+                    watermark = row.updatedAt();
+                }
+                if (!row.updatedAt().equals(published.put(row.event().matchId(), row.updatedAt()))) {
+                    publish(row.event());
+                    count++;
+                }
+                afterTs = row.updatedAt();
+                afterId = row.event().matchId();
+            }
+        } while (page.size() == properties.batchSize());
+
+        published.values().removeIf(updatedAt -> updatedAt.isBefore(since));
+        if (count > 0 && log.isDebugEnabled()) {
+            log.debug("Published {} finished match events, watermark {}", count, watermark);
+        }
+    }
+
+    private List<Row> fetchPage(OffsetDateTime afterTs, long afterId) {
+        var sql = """
+                SELECT m.id, m.competition_id, m.home_team_id, m.away_team_id, m.utc_date, m.updated_at,
+                       m.ft_home_goals AS home_goals,
+                       m.ft_away_goals AS away_goals
+                FROM fd_match m
+                WHERE (m.updated_at, m.id) > (:afterTs, :afterId)
+                  AND m.status = 'FINISHED'
+                  AND m.home_team_id IS NOT NULL
+                  AND m.away_team_id IS NOT NULL
+                  AND m.utc_date IS NOT NULL
+                ORDER BY m.updated_at, m.id
+                LIMIT :limit
+                """;
+        var params = new MapSqlParameterSource()
+                .addValue("afterTs", afterTs)
+                .addValue("afterId", afterId)
+                .addValue("limit", properties.batchSize());
+        return jdbc.query(sql, params, (rs, rowNum) -> new Row(
+                new MatchResultEvent(
+                        rs.getLong("id"),
+                        rs.getLong("competition_id"),
+                        rs.getLong("home_team_id"),
+                        rs.getLong("away_team_id"),
+                        rs.getObject("utc_date", OffsetDateTime.class),
+                        rs.getObject("home_goals", Integer.class),
+                        rs.getObject("away_goals", Integer.class)),
+                rs.getObject("updated_at", OffsetDateTime.class)));
+    }
+
+    private void publish(MatchResultEvent event) {
+        try {
+            publisher.publishEvent(event);
+        } catch (Exception e) {
+            // One failing listener must not stall the feed for everybody else
+            log.error("Listener failed for finished match {}: {}", event.matchId(), e.getMessage(), e);
+        }
+    }
+}
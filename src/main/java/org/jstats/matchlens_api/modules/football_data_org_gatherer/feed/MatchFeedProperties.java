@@ -0,0 +1,19 @@
+package org.jstats.matchlens_api.modules.football_data_org_gatherer.feed;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the fd_match change feed.
+ *
+ * @param overlap   how far behind the watermark each poll re-reads, to catch rows committed late
+ *                  with an earlier {@code updated_at}
+ * @param batchSize rows fetched per page
+ */
+@ConfigurationProperties(prefix = "footballdata.feed")
+public record MatchFeedProperties(
+        @DefaultValue("2m") Duration overlap,
+        @DefaultValue("500") int batchSize
+) {}
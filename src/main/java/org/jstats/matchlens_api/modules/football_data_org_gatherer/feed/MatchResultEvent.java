@@ -0,0 +1,27 @@
+package org.jstats.matchlens_api.modules.football_data_org_gatherer.feed;
+
+import org.jspecify.annotations.Nullable;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Published when an fd_match row is (or is again) observed in FINISHED state.
+ * The same match may be published more than once; listeners must be idempotent.
+ *
+ * @param matchId       fd_match id
+ * @param competitionId competition the match belongs to
+ * @param homeTeamId    home team id
+ * @param awayTeamId    away team id
+ * @param utcDate       kick-off time
+ * @param homeGoals     full-time home goals, if present in the score
+ * @param awayGoals     full-time away goals, if present in the score
+ */
+public record MatchResultEvent(
+        long matchId,
+        long competitionId,
+        long homeTeamId,
+        long awayTeamId,
+        OffsetDateTime utcDate,
+        @Nullable Integer homeGoals,
+        @Nullable Integer awayGoals
+) {}
@@ -2,6 +2,7 @@ package org.jstats.matchlens_api.modules.football_data_org_gatherer.ingest;
 
 import org.jspecify.annotations.NullMarked;
 import org.postgresql.util.PGobject;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.stereotype.Repository;
@@ -15,7 +16,7 @@ public class FdRawIngestRepository {
 
     private final NamedParameterJdbcTemplate jdbc;
 
-    public FdRawIngestRepository(NamedParameterJdbcTemplate jdbc) {
+    public FdRawIngestRepository(@Qualifier("batchJdbcTemplate") NamedParameterJdbcTemplate jdbc) {
         this.jdbc = jdbc;
     }
 
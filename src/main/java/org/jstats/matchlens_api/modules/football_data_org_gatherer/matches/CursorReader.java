@@ -0,0 +1,83 @@
+package org.jstats.matchlens_api.modules.football_data_org_gatherer.matches;
+
+import org.jspecify.annotations.NullMarked;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/**
+ * Runs queries whose rows are handed on one at a time instead of being collected into a list.
+ * <p>
+ * The PostgreSQL driver reads a result through a server-side cursor only inside a transaction and
+ * with a fetch size set, otherwise it loads the whole result into memory before the first row is
+ * returned. Queries therefore run in a read-only transaction on a forward-only result set fetched
+ * {@code fetch-size} rows at a time. Memory use stays bounded by the fetch size whatever the number
+ * of rows.
+ * <p>
+ * Since the connection is held while the rows are handed on, queries run on the streaming pool, which
+ * connects to the read replica when one is configured, and are bounded by {@code stream-timeout}: the
+ * transaction timeout bounds each statement, and a read that is still running past it is aborted at
+ * the next row, so a slow client holds a streaming connection for at most that long.
+ */
+@Component
+@NullMarked
+@EnableConfigurationProperties(MatchReadProperties.class)
+public class CursorReader {
+
+    private final NamedParameterJdbcTemplate jdbc;
+    private final TransactionTemplate readOnly;
+    private final Duration timeout;
+
+    public CursorReader(
+            @Qualifier("streamingDataSource") DataSource dataSource,
+            @Qualifier("streamingTransactionManager") PlatformTransactionManager transactionManager,
+            MatchReadProperties properties) {
+        var template = new JdbcTemplate(dataSource);
+        template.setFetchSize(properties.fetchSize());
+        this.jdbc = new NamedParameterJdbcTemplate(template);
+        this.timeout = properties.streamTimeout();
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.readOnly.setTimeout(Math.toIntExact(Math.max(1, timeout.toSeconds())));
+    }
+
+    /**
+     * Runs a query and passes each row to {@code action} as soon as it is read. The connection is
+     * held until the last row has been handled, so the action should not block for long.
+     *
+     * @param sql       the query
+     * @param params    its parameters
+     * @param rowMapper maps the current row
+     * @param action    receives the rows in result order; runtime exceptions abort the query
+     * @param <T>       row type
+     * @throws QueryTimeoutException if the rows are still being handled after {@code stream-timeout}
+     */
+    public <T> void forEach(String sql, SqlParameterSource params, RowMapper<T> rowMapper, Consumer<? super T> action) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        readOnly.executeWithoutResult(status -> jdbc.query(sql, params, new RowCallbackHandler() {
+            private int rowNum;
+
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                if (System.nanoTime() - deadline > 0) {
+                    throw new QueryTimeoutException("Streaming read exceeded " + timeout + " after " + rowNum + " rows");
+                }
+                action.accept(rowMapper.mapRow(rs, rowNum++));
+            }
+        }));
+    }
+}
@@ -0,0 +1,60 @@
+package org.jstats.matchlens_api.modules.football_data_org_gatherer.matches;
+
+import io.swagger.v3.oas.annotations.Parameter;
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.Locale;
+
+/**
+ * Query parameters of the paginated match and prediction endpoints.
+ */
+@NullMarked
+public record MatchListParams(
+        @Parameter(description = "Competition code, e.g. PL")
+        @Nullable String competition,
+        @Parameter(description = "ID of a team playing at either venue")
+        @Nullable Long team,
+        @Parameter(description = "First kick-off day (UTC), inclusive")
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Nullable LocalDate from,
+        @Parameter(description = "Last kick-off day (UTC), inclusive")
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) @Nullable LocalDate to,
+        @Parameter(description = "utcDate of the last row of the previous page")
+        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) @Nullable OffsetDateTime afterDate,
+        @Parameter(description = "Match ID of the last row of the previous page")
+        @Nullable Long afterId,
+        @Parameter(description = "Maximum number of rows")
+        @Nullable Integer limit
+) {
+
+    /**
+     * @param properties page size settings
+     * @return the validated query
+     * @throws ResponseStatusException with status 400 if the parameters are inconsistent
+     */
+    public MatchQuery toQuery(MatchReadProperties properties) {
+        if ((afterDate == null) != (afterId == null)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "afterDate and afterId must be given together");
+        }
+        if (from != null && to != null && to.isBefore(from)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "to must not be before from");
+        }
+        int pageSize = limit == null ? properties.defaultPageSize() : limit;
+        if (pageSize < 1 || pageSize > properties.maxPageSize()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "limit must be between 1 and " + properties.maxPageSize());
+        }
+        return new MatchQuery(
+                competition == null ? null : competition.trim().toUpperCase(Locale.ROOT),
+                team,
+                from,
+                to,
+                afterDate != null && afterId != null ? new MatchQuery.Keyset(afterDate, afterId) : null,
+                pageSize);
+    }
+}
@@ -0,0 +1,71 @@
+package org.jstats.matchlens_api.modules.football_data_org_gatherer.matches;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.StringJoiner;
+
+/**
+ * One page of matches in kick-off order, {@code (utc_date, id)} ascending.
+ * <p>
+ * Pages are addressed by keyset: a page starts after the {@code (utc_date, id)} of the last row of
+ * the previous page, so the database seeks to it through an index instead of skipping rows as
+ * with OFFSET, and rows inserted meanwhile neither repeat nor shift later pages.
+ *
+ * @param competitionCode competition code such as PL, or null for all competitions
+ * @param teamId          team playing at either venue, or null for all teams
+ * @param from            first kick-off day (UTC), inclusive
+ * @param to              last kick-off day (UTC), inclusive
+ * @param after           position of the last row of the previous page, null for the first page
+ * @param limit           maximum number of rows
+ */
+@NullMarked
+public record MatchQuery(
+        @Nullable String competitionCode,
+        @Nullable Long teamId,
+        @Nullable LocalDate from,
+        @Nullable LocalDate to,
+        @Nullable Keyset after,
+        int limit
+) {
+
+    /**
+     * Position of a match in kick-off order.
+     */
+    public record Keyset(OffsetDateTime utcDate, long id) {}
+
+    /**
+     * Builds the conditions on {@code fd_match m} for everything but the team, joined with AND,
+     * and registers their parameters. Matches without a kick-off time have no place in the order
+     * and are never listed.
+     *
+     * @param params parameters of the query the conditions are used in
+     * @return the conditions
+     */
+    public String conditions(MapSqlParameterSource params) {
+        var where = new StringJoiner(" AND ");
+        where.add("m.utc_date IS NOT NULL");
+        if (competitionCode != null) {
+            where.add("m.competition_id = (SELECT c.id FROM fd_competition c WHERE c.code = :competitionCode)");
+            params.addValue("competitionCode", competitionCode);
+        }
+        if (from != null) {
+            where.add("m.utc_date >= :from");
+            params.addValue("from", from.atStartOfDay().atOffset(ZoneOffset.UTC));
+        }
+        if (to != null) {
+            where.add("m.utc_date < :to");
+            params.addValue("to", to.plusDays(1).atStartOfDay().atOffset(ZoneOffset.UTC));
+        }
+        if (after != null) {
+            where.add("(m.utc_date, m.id) > (:afterDate, :afterId)");
+            params.addValue("afterDate", after.utcDate());
+            params.addValue("afterId", after.id());
+        }
+        return where.toString();
+    }
+}
@@ -0,0 +1,54 @@
+package org.jstats.matchlens_api.modules.football_data_org_gatherer.matches;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springdoc.core.annotations.ParameterObject;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+@Tag(name = "Matches", description = "Read ingested matches page by page.")
+@RestController
+@RequestMapping("/api/matches")
+public class MatchReadController {
+
+    private final MatchReadRepository repository;
+    private final MatchReadProperties properties;
+    private final ObjectMapper objectMapper;
+
+    public MatchReadController(MatchReadRepository repository, MatchReadProperties properties, ObjectMapper objectMapper) {
+        this.repository = repository;
+        this.properties = properties;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Example:
+     * GET /api/matches?competition=PL&amp;team=64&amp;from=2024-08-01&amp;limit=500
+     * GET /api/matches?competition=PL&amp;team=64&amp;from=2024-08-01&amp;limit=500&amp;afterDate=2024-12-26T15:00:00Z&amp;afterId=497605
+     */
+    @Operation(
+            summary = "List matches",
+            description = "Streams matches in kick-off order as newline-delimited JSON, optionally filtered by "
+                    + "competition, team and kick-off days. To read the next page pass the utcDate and id of the "
+                    + "last line as afterDate and afterId; a page with fewer lines than the limit is the last one.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK",
+                            content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE)),
+                    @ApiResponse(responseCode = "400", description = "Bad Request",
+                            content = @Content(mediaType = "application/problem+json"))
+            }
+    )
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> matches(@ParameterObject MatchListParams params) {
+        MatchQuery query = params.toQuery(properties);
+        return NdjsonResponses.of(objectMapper.writerFor(MatchSummary.class),
+                action -> repository.forEach(query, action));
+    }
+}
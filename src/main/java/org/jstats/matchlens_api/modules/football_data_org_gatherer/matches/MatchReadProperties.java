@@ -0,0 +1,23 @@
+package org.jstats.matchlens_api.modules.football_data_org_gatherer.matches;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+import java.time.Duration;
+
+/**
+ * Settings for the paginated match and prediction read endpoints.
+ *
+ * @param fetchSize       rows the JDBC cursor fetches per round trip while a page is streamed
+ * @param defaultPageSize rows per page when the request does not give a limit
+ * @param maxPageSize     largest limit a request may ask for
+ * @param streamTimeout   longest a page may take to be read and written to the client before its
+ *                        cursor is closed and the response aborted
+ */
+@ConfigurationProperties(prefix = "footballdata.read")
+public record MatchReadProperties(
+        @DefaultValue("500") int fetchSize,
+        @DefaultValue("100") int defaultPageSize,
+        @DefaultValue("10000") int maxPageSize,
+        @DefaultValue("60s") Duration streamTimeout
+) {}
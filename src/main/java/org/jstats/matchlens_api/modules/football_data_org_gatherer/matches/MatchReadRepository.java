@@ -0,0 +1,112 @@
+package org.jstats.matchlens_api.modules.football_data_org_gatherer.matches;
+
+import org.jspecify.annotations.NullMarked;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.stereotype.Repository;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.OffsetDateTime;
+import java.util.function.Consumer;
+
+/**
+ * Reads pages of fd_match for the match read API.
+ */
+@Repository
+@NullMarked
+public class MatchReadRepository {
+
+    private final CursorReader cursorReader;
+
+    public MatchReadRepository(CursorReader cursorReader) {
+        this.cursorReader = cursorReader;
+    }
+
+    /**
+     * Streams one page of matches in kick-off order.
+     * <p>
+     * The page is picked by ID first, seeking to the keyset through {@code fd_match_date_id} or, for
+     * a competition, {@code fd_match_competition_date}. A team filter reads the home and away sides
+     * through their (team, date) indexes and merges them. Only the rows of the page are joined
+     * with teams and competition, so a deep page costs the same as the first.
+     *
+     * @param query  the page to read
+     * @param action receives each match as it is read
+     */
+    public void forEach(MatchQuery query, Consumer<? super MatchSummary> action) {
+        var params = new MapSqlParameterSource().addValue("limit", query.limit());
+        String conditions = query.conditions(params);
+
+        String page;
+        if (query.teamId() == null) {
+            page = """
+                    SELECT m.id FROM fd_match m
+                    WHERE %s
+                    ORDER BY m.utc_date, m.id
+                    LIMIT :limit
+                    """.formatted(conditions);
+        } else {
+            params.addValue("teamId", query.teamId());
+            page = """
+                    SELECT id FROM (
+                        (SELECT m.id, m.utc_date FROM fd_match m
+                         WHERE m.home_team_id = :teamId AND %1$s
+                         ORDER BY m.utc_date, m.id
+                         LIMIT :limit)
+                        UNION ALL
+                        (SELECT m.id, m.utc_date FROM fd_match m
+                         WHERE m.away_team_id = :teamId AND %1$s
+                         ORDER BY m.utc_date, m.id
+                         LIMIT :limit)
+                    ) sides
+                    ORDER BY utc_date, id
+                    LIMIT :limit
+                    """.formatted(conditions);
+        }
+
+        String sql = """
+                WITH page AS (
+                %s)
+                SELECT m.id,
+                       coalesce(c.code, c.name) AS competition,
+                       m.utc_date,
+                       m.status,
+                       m.matchday,
+                       m.home_team_id,
+                       ht.name AS home_team,
+                       m.away_team_id,
+                       at.name AS away_team,
+                       m.ft_home_goals,
+                       m.ft_away_goals,
+                       m.ht_home_goals,
+                       m.ht_away_goals,
+                       m.winner
+                FROM page
+                JOIN fd_match m ON m.id = page.id
+                JOIN fd_competition c ON c.id = m.competition_id
+                LEFT JOIN fd_team ht ON ht.id = m.home_team_id
+                LEFT JOIN fd_team at ON at.id = m.away_team_id
+                ORDER BY m.utc_date, m.id
+                """.formatted(page);
+
+        cursorReader.forEach(sql, params, this::mapMatch, action);
+    }
+
+    private MatchSummary mapMatch(ResultSet rs, int rowNum) throws SQLException {
+        return new MatchSummary(
+                rs.getLong("id"),
+                rs.getString("competition"),
+                rs.getObject("utc_date", OffsetDateTime.class),
+                rs.getString("status"),
+                rs.getObject("matchday", Integer.class),
+                rs.getObject("home_team_id", Long.class),
+                rs.getString("home_team"),
+                rs.getObject("away_team_id", Long.class),
+                rs.getString("away_team"),
+                rs.getObject("ft_home_goals", Integer.class),
+                rs.getObject("ft_away_goals", Integer.class),
+                rs.getObject("ht_home_goals", Integer.class),
+                rs.getObject("ht_away_goals", Integer.class),
+                rs.getString("winner"));
+    }
+}
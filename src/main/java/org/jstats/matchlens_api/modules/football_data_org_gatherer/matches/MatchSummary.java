@@ -0,0 +1,42 @@
+package org.jstats.matchlens_api.modules.football_data_org_gatherer.matches;
+
+import org.jspecify.annotations.NullMarked;
+import org.jspecify.annotations.Nullable;
+
+import java.time.OffsetDateTime;
+
+/**
+ * One ingested match as listed by the match read API.
+ *
+ * @param id                 fd_match ID
+ * @param competition        competition code, or its name if it has no code
+ * @param utcDate            kick-off time
+ * @param status             football-data.org status such as SCHEDULED or FINISHED
+ * @param matchday           matchday within the season
+ * @param homeTeamId         home team ID
+ * @param homeTeam           home team name
+ * @param awayTeamId         away team ID
+ * @param awayTeam           away team name
+ * @param homeGoals          full-time goals of the home team, null until played
+ * @param awayGoals          full-time goals of the away team, null until played
+ * @param halfTimeHomeGoals  half-time goals of the home team
+ * @param halfTimeAwayGoals  half-time goals of the away team
+ * @param winner             HOME_TEAM, AWAY_TEAM or DRAW once played
+ */
+@NullMarked
+public record MatchSummary(
+        long id,
+        String competition,
+        OffsetDateTime utcDate,
+        @Nullable String status,
+        @Nullable Integer matchday,
+        @Nullable Long homeTeamId,
+        @Nullable String homeTeam,
+        @Nullable Long awayTeamId,
+        @Nullable String awayTeam,
+        @Nullable Integer homeGoals,
+        @Nullable Integer awayGoals,
+        @Nullable Integer halfTimeHomeGoals,
+        @Nullable Integer halfTimeAwayGoals,
+        @Nullable String winner
+) {}
@@ -0,0 +1,49 @@
+package org.jstats.matchlens_api.modules.football_data_org_gatherer.matches;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.jspecify.annotations.NullMarked;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Newline-delimited JSON responses written row by row while the rows are read.
+ */
+@NullMarked
+public final class NdjsonResponses {
+
+    private NdjsonResponses() {
+    }
+
+    /**
+     * Creates a response that writes each row produced by {@code rows} as one JSON line. Nothing
+     * is buffered beyond the servlet output buffer. If the client goes away the write fails and the
+     * exception aborts {@code rows}, releasing its cursor.
+     *
+     * @param writer writer for the row type
+     * @param rows   called once with the sink for the rows
+     * @param <T>    row type
+     * @return the streaming response
+     */
+    public static <T> ResponseEntity<StreamingResponseBody> of(ObjectWriter writer, Consumer<Consumer<T>> rows) {
+        StreamingResponseBody body = out -> {
+            try {
+                rows.accept(row -> {
+                    try {
+                        out.write(writer.writeValueAsBytes(row));
+                        out.write('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+}
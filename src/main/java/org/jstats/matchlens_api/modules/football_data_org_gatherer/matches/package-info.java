@@ -0,0 +1 @@
+package org.jstats.matchlens_api.modules.football_data_org_gatherer.matches;
\ No newline at end of file
@@ -0,0 +1,17 @@
+-- Results between each pair of teams, regardless of venue. A pair is stored once with the lower
+-- team ID as team_a, so looking up a fixture is a primary key read whichever side is at home.
+CREATE TABLE head_to_head (
+    team_a_id         BIGINT   NOT NULL REFERENCES fd_team(id),
+    team_b_id         BIGINT   NOT NULL REFERENCES fd_team(id),
+    meetings          INT      NOT NULL DEFAULT 0,
+    team_a_wins       INT      NOT NULL DEFAULT 0,
+    draws             INT      NOT NULL DEFAULT 0,
+    team_b_wins       INT      NOT NULL DEFAULT 0,
+    team_a_goals      INT      NOT NULL DEFAULT 0,
+    team_b_goals      INT      NOT NULL DEFAULT 0,
+    recent_match_ids  BIGINT[] NOT NULL DEFAULT '{}',   -- latest meeting first
+    last_match_date   TIMESTAMPTZ,
+    updated_at        TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (team_a_id, team_b_id),
+    CHECK (team_a_id < team_b_id)
+);
@@ -0,0 +1,23 @@
+-- Typed score columns derived from score_json, so aggregates and filters read plain integers
+-- instead of parsing JSON per row. Being generated, they follow every write of score_json.
+-- football-data.org reports the winner as HOME_TEAM, AWAY_TEAM or DRAW.
+ALTER TABLE fd_match
+    ADD COLUMN ft_home_goals INT  GENERATED ALWAYS AS ((score_json -> 'fullTime' ->> 'home')::int) STORED,
+    ADD COLUMN ft_away_goals INT  GENERATED ALWAYS AS ((score_json -> 'fullTime' ->> 'away')::int) STORED,
+    ADD COLUMN ht_home_goals INT  GENERATED ALWAYS AS ((score_json -> 'halfTime' ->> 'home')::int) STORED,
+    ADD COLUMN ht_away_goals INT  GENERATED ALWAYS AS ((score_json -> 'halfTime' ->> 'away')::int) STORED,
+    ADD COLUMN winner        TEXT GENERATED ALWAYS AS (score_json ->> 'winner') STORED;
+
+-- Finished results per team and side, covering the goals so form and team aggregates are
+-- answered from the index
+CREATE INDEX fd_match_home_results ON fd_match (home_team_id, utc_date DESC)
+    INCLUDE (away_team_id, ft_home_goals, ft_away_goals)
+    WHERE status = 'FINISHED' AND ft_home_goals IS NOT NULL AND ft_away_goals IS NOT NULL;
+CREATE INDEX fd_match_away_results ON fd_match (away_team_id, utc_date DESC)
+    INCLUDE (home_team_id, ft_home_goals, ft_away_goals)
+    WHERE status = 'FINISHED' AND ft_home_goals IS NOT NULL AND ft_away_goals IS NOT NULL;
+
+-- Finished results in kick-off order, read by rating replays and backtests
+CREATE INDEX fd_match_results_by_date ON fd_match (utc_date, id)
+    INCLUDE (competition_id, home_team_id, away_team_id, ft_home_goals, ft_away_goals)
+    WHERE status = 'FINISHED' AND ft_home_goals IS NOT NULL AND ft_away_goals IS NOT NULL;
@@ -0,0 +1,3 @@
+-- The match read API pages through fd_match by (utc_date, id). Without filters each page seeks to
+-- the previous page's last row through this index, so a deep page costs the same as the first.
+CREATE INDEX fd_match_date_id ON fd_match (utc_date, id);
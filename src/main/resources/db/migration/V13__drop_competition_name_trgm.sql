@@ -0,0 +1,3 @@
+-- Competitions are looked up by code only; no query reads fd_competition.name by trigram
+-- similarity, so the index only added write and vacuum work.
+DROP INDEX IF EXISTS fd_competition_name_trgm;
@@ -0,0 +1,10 @@
+-- The score a projection folded in for each match, so a corrected result can be taken back out and
+-- the new one added instead of being skipped as already applied.
+ALTER TABLE projection_applied
+    ADD COLUMN home_goals INT,
+    ADD COLUMN away_goals INT;
+
+UPDATE projection_applied p
+SET home_goals = m.ft_home_goals, away_goals = m.ft_away_goals
+FROM fd_match m
+WHERE m.id = p.match_id;
@@ -0,0 +1,22 @@
+-- Denormalize the filterable match attributes onto match_embedding so filtered similarity
+-- searches can be evaluated while walking the HNSW index (pgvector iterative scans),
+-- instead of joining every candidate back to fd_match.
+ALTER TABLE match_embedding
+    ADD COLUMN competition_id BIGINT,
+    ADD COLUMN home_team_id   BIGINT,
+    ADD COLUMN away_team_id   BIGINT,
+    ADD COLUMN utc_date       TIMESTAMPTZ;
+
+UPDATE match_embedding e
+SET competition_id = m.competition_id,
+    home_team_id   = m.home_team_id,
+    away_team_id   = m.away_team_id,
+    utc_date       = m.utc_date
+FROM fd_match m
+WHERE m.id = e.match_id;
+
+-- Highly selective filters (a single team, a short date range) are cheaper as an exact scan
+-- over the matching rows; give the planner B-tree paths for those.
+CREATE INDEX match_embedding_competition_date ON match_embedding (competition_id, utc_date);
+CREATE INDEX match_embedding_home_team        ON match_embedding (home_team_id);
+CREATE INDEX match_embedding_away_team        ON match_embedding (away_team_id);
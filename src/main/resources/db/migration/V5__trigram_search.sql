@@ -0,0 +1,7 @@
+-- Trigram indexes for lexical team/competition lookups. They back the lexical half of the
+-- hybrid retriever (word similarity) and also make '%name%' ILIKE predicates indexable.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX fd_team_name_trgm        ON fd_team        USING GIN (name gin_trgm_ops);
+CREATE INDEX fd_team_short_name_trgm  ON fd_team        USING GIN (short_name gin_trgm_ops);
+CREATE INDEX fd_competition_name_trgm ON fd_competition USING GIN (name gin_trgm_ops);
@@ -0,0 +1,18 @@
+-- Change tracking for fd_match: consumers poll rows whose updated_at moved past their watermark.
+ALTER TABLE fd_match ADD COLUMN updated_at TIMESTAMPTZ NOT NULL DEFAULT now();
+
+CREATE FUNCTION fd_match_touch_updated_at() RETURNS trigger AS $$
+BEGIN
+    NEW.updated_at := now();
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Skip no-op updates so re-ingesting identical payloads does not wake up every consumer
+CREATE TRIGGER fd_match_touch_updated_at
+    BEFORE UPDATE ON fd_match
+    FOR EACH ROW
+    WHEN (OLD IS DISTINCT FROM NEW)
+    EXECUTE FUNCTION fd_match_touch_updated_at();
+
+CREATE INDEX fd_match_updated_at ON fd_match (updated_at);
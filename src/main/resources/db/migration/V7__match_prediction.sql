@@ -0,0 +1,9 @@
+-- Stored predictions, one per fixture. Precomputed off-peak for upcoming matches and served without the LLM.
+CREATE TABLE match_prediction (
+    match_id    BIGINT PRIMARY KEY REFERENCES fd_match(id),
+    prediction  JSONB       NOT NULL,
+    created_at  TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+-- The precompute job scans fixtures that have not been played yet
+CREATE INDEX fd_match_upcoming ON fd_match (utc_date) WHERE status IN ('SCHEDULED', 'TIMED');
@@ -0,0 +1,28 @@
+-- Matches already folded into a read model. Projections insert (projection, match_id) in the same
+-- transaction as their update, so replayed events and startup backfills are applied at most once.
+CREATE TABLE projection_applied (
+    projection  TEXT        NOT NULL,
+    match_id    BIGINT      NOT NULL REFERENCES fd_match(id),
+    applied_at  TIMESTAMPTZ NOT NULL DEFAULT now(),
+    PRIMARY KEY (projection, match_id)
+);
+
+-- Per-team results split by venue; overall figures are the sum of both venues
+CREATE TABLE team_stats (
+    team_id             BIGINT PRIMARY KEY REFERENCES fd_team(id),
+    home_matches        INT NOT NULL DEFAULT 0,
+    home_wins           INT NOT NULL DEFAULT 0,
+    home_draws          INT NOT NULL DEFAULT 0,
+    home_losses         INT NOT NULL DEFAULT 0,
+    home_goals_for      INT NOT NULL DEFAULT 0,
+    home_goals_against  INT NOT NULL DEFAULT 0,
+    away_matches        INT NOT NULL DEFAULT 0,
+    away_wins           INT NOT NULL DEFAULT 0,
+    away_draws          INT NOT NULL DEFAULT 0,
+    away_losses         INT NOT NULL DEFAULT 0,
+    away_goals_for      INT NOT NULL DEFAULT 0,
+    away_goals_against  INT NOT NULL DEFAULT 0,
+    recent_form         TEXT NOT NULL DEFAULT '',   -- latest result first, e.g. 'WWDLW'
+    last_match_date     TIMESTAMPTZ,
+    updated_at          TIMESTAMPTZ NOT NULL DEFAULT now()
+);
@@ -0,0 +1,9 @@
+-- Additional names a team is requested by (e.g. 'spurs', 'man utd'), stored normalized:
+-- trimmed, lower-case, single spaces.
+CREATE TABLE team_alias (
+    alias    TEXT PRIMARY KEY,
+    team_id  BIGINT NOT NULL REFERENCES fd_team(id)
+);
+
+-- Context queries look up a team's latest matches on either side
+CREATE INDEX fd_match_away_team_date ON fd_match (away_team_id, utc_date);
@@ -0,0 +1,456 @@
+package org.jstats.matchlens_api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jstats.matchlens_api.modules.ai_prediction.config.BulkheadConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.repository.MatchEmbeddingRepository;
+import org.jstats.matchlens_api.modules.ai_prediction.service.ContextCompressor;
+import org.jstats.matchlens_api.modules.ai_prediction.service.EloRatingEngine;
+import org.jstats.matchlens_api.modules.ai_prediction.service.EmbeddingService;
+import org.jstats.matchlens_api.modules.ai_prediction.service.HeadToHeadProjection;
+import org.jstats.matchlens_api.modules.ai_prediction.service.MatchContextBuilder;
+import org.jstats.matchlens_api.modules.ai_prediction.service.OllamaBulkheads;
+import org.jstats.matchlens_api.modules.ai_prediction.service.TeamDirectory;
+import org.jstats.matchlens_api.modules.ai_prediction.service.TeamStatsProjection;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.ingest.FdRawIngestRepository;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.ai.embedding.EmbeddingModel;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Plan regression suite for the hand-written SQL of ingest, embedding search and context building.
+ * <p>
+ * The database is seeded once with a realistic volume: 25 seasons of four 20-team leagues, the
+ * latest seasons embedded, and a raw ingest log. Each test calls the production code, captures the
+ * statement it issued and runs it again under {@code EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON)} to
+ * assert that the expected indexes are used and that cost and execution time stay below ceilings.
+ * The ceilings are generous on purpose: they catch plans that fall back to scanning a table or
+ * blow up, not noise between machines.
+ */
+@org.springframework.boot.test.autoconfigure.jdbc.JdbcTest
+@org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase(replace = org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanRegressionTests {
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class TestContainersLocal {
+        @Bean
+        @ServiceConnection
+        PostgreSQLContainer<?> postgresContainer() {
+            return new PostgreSQLContainer<>(DockerImageName.parse("pgvector/pgvector:pg16"));
+        }
+    }
+
+    /**
+     * Records every statement issued through the template so their plans can be inspected.
+     */
+    static class CapturingJdbcTemplate extends NamedParameterJdbcTemplate {
+        record Statement(String sql, SqlParameterSource params) {}
+
+        final List<Statement> statements = new ArrayList<>();
+
+        CapturingJdbcTemplate(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        protected PreparedStatementCreator getPreparedStatementCreator(
+                String sql, SqlParameterSource paramSource, Consumer<PreparedStatementCreatorFactory> customizer) {
+            statements.add(new Statement(sql, paramSource));
+            return super.getPreparedStatementCreator(sql, paramSource, customizer);
+        }
+
+        /**
+         * @return the latest captured statement whose SQL contains {@code fragment}
+         */
+        Statement last(String fragment) {
+            return statements.reversed().stream()
+                    .filter(statement -> statement.sql().contains(fragment))
+                    .findFirst()
+                    .orElseThrow(() -> new AssertionError("no statement containing " + fragment));
+        }
+    }
+
+    /**
+     * One {@code EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON)} result.
+     */
+    record Plan(JsonNode explain) {
+
+        private JsonNode root() {
+            return explain.get(0).get("Plan");
+        }
+
+        private static Stream<JsonNode> nodes(JsonNode node) {
+            return Stream.concat(Stream.of(node), StreamSupport.stream(node.path("Plans").spliterator(), false)
+                    .flatMap(Plan::nodes));
+        }
+
+        double totalCost() {
+            return root().get("Total Cost").asDouble();
+        }
+
+        double executionMillis() {
+            return explain.get(0).get("Execution Time").asDouble();
+        }
+
+        /**
+         * @return names of the indexes scanned, and of the arbiter indexes of ON CONFLICT clauses
+         */
+        Set<String> indexes() {
+            return nodes(root())
+                    .flatMap(node -> Stream.concat(
+                            Stream.of(node.path("Index Name")),
+                            StreamSupport.stream(node.path("Conflict Arbiter Indexes").spliterator(), false)))
+                    .filter(JsonNode::isTextual)
+                    .map(JsonNode::asText)
+                    .collect(Collectors.toSet());
+        }
+
+        boolean seqScans(String relation) {
+            return nodes(root()).anyMatch(node -> "Seq Scan".equals(node.path("Node Type").asText())
+                    && relation.equals(node.path("Relation Name").asText()));
+        }
+
+        @Override
+        public String toString() {
+            return explain.toPrettyString();
+        }
+    }
+
+    private static final OffsetDateTime EPOCH = OffsetDateTime.of(2000, 8, 1, 15, 0, 0, 0, ZoneOffset.UTC);
+    private static final int COMPETITIONS = 4;
+    private static final int TEAMS_PER_COMPETITION = 20;
+    private static final int SEASONS = 25;
+    private static final int MATCHES = COMPETITIONS * TEAMS_PER_COMPETITION * (TEAMS_PER_COMPETITION - 1) * SEASONS;
+    private static final int SCHEDULED = 2000;
+    private static final int EMBEDDED = 5000;
+    private static final int RAW_INGESTS = 20000;
+    /** Day of the first scheduled match, five hours apart as seeded */
+    private static final LocalDate FIXTURE_DATE = EPOCH.plusHours(5L * (MATCHES - SCHEDULED)).toLocalDate();
+
+    /** Ceilings for single-row lookups; a scan of any seeded table exceeds them */
+    private static final double LOOKUP_COST = 100;
+    private static final double LOOKUP_MILLIS = 50;
+    /** Ceilings for the fallback and head-to-head context queries */
+    private static final double CONTEXT_COST = 2500;
+    private static final double CONTEXT_MILLIS = 100;
+    /** Ceiling for vector, hybrid and batch selection queries */
+    private static final double SEARCH_MILLIS = 500;
+
+    private static final MatchEmbeddingRepository.SearchTuning TUNING = new MatchEmbeddingRepository.SearchTuning(100, 20000);
+    private static final MatchEmbeddingRepository.FusionTuning FUSION = new MatchEmbeddingRepository.FusionTuning(60, 40, 0.5);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Autowired
+    NamedParameterJdbcTemplate jdbc;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    CapturingJdbcTemplate capturing;
+    TeamDirectory teamDirectory;
+    HeadToHeadProjection headToHead;
+
+    @BeforeAll
+    void seed() {
+        var none = new MapSqlParameterSource();
+        jdbc.update("""
+                INSERT INTO fd_competition (id, code, name)
+                VALUES (1, 'PL', 'Premier League'), (2, 'PD', 'La Liga'), (3, 'SA', 'Serie A'), (4, 'BL1', 'Bundesliga')
+                """, none);
+        jdbc.update("""
+                INSERT INTO fd_team (id, name, short_name, tla)
+                SELECT g, 'Team ' || g, 'T' || g, upper(substr(md5(g::text), 1, 3))
+                FROM generate_series(1, :teams) g
+                """, new MapSqlParameterSource("teams", COMPETITIONS * TEAMS_PER_COMPETITION));
+        jdbc.update("UPDATE fd_team SET name = 'Liverpool FC', short_name = 'Liverpool', tla = 'LIV' WHERE id = 5", none);
+        jdbc.update("UPDATE fd_team SET name = 'Manchester City FC', short_name = 'Man City', tla = 'MCI' WHERE id = 12", none);
+        // Every league plays a rotating round robin, one match every five hours across the leagues
+        jdbc.update("""
+                INSERT INTO fd_match (id, competition_id, utc_date, status, home_team_id, away_team_id, score_json)
+                SELECT g + 1, c + 1, :epoch + g * interval '5 hours',
+                       CASE WHEN g < :finished THEN 'FINISHED' ELSE 'SCHEDULED' END,
+                       :teams * c + 1 + k % :teams,
+                       :teams * c + 1 + (k + 1 + (k / :teams) % (:teams - 1)) % :teams,
+                       CASE WHEN g < :finished THEN jsonb_build_object(
+                           'winner', CASE WHEN h > a THEN 'HOME_TEAM' WHEN h < a THEN 'AWAY_TEAM' ELSE 'DRAW' END,
+                           'fullTime', jsonb_build_object('home', h, 'away', a),
+                           'halfTime', jsonb_build_object('home', h / 2, 'away', a / 2)) END
+                FROM generate_series(0, :matches - 1) g,
+                     LATERAL (SELECT g % :competitions AS c, g / :competitions AS k, g * 7 % 4 AS h, g * 5 % 3 AS a) s
+                """, new MapSqlParameterSource(Map.of(
+                "epoch", EPOCH,
+                "finished", MATCHES - SCHEDULED,
+                "teams", TEAMS_PER_COMPETITION,
+                "competitions", COMPETITIONS,
+                "matches", MATCHES)));
+        // One random vector per row; the correlated predicate forces per-row evaluation
+        jdbc.update("""
+                INSERT INTO match_embedding (match_id, embedding, competition_id, home_team_id, away_team_id, utc_date)
+                SELECT m.id,
+                       (SELECT array_agg(random())::vector(768) FROM generate_series(1, 768) WHERE m.id > 0),
+                       m.competition_id, m.home_team_id, m.away_team_id, m.utc_date
+                FROM fd_match m
+                WHERE m.status = 'FINISHED'
+                ORDER BY m.utc_date DESC
+                LIMIT :embedded
+                """, new MapSqlParameterSource("embedded", EMBEDDED));
+        jdbc.update("""
+                INSERT INTO fd_raw_ingest (source, endpoint, external_key, fetched_at, payload)
+                SELECT 'football-data.org', '/v4/matches/{id}', g::text, now() - g * interval '1 minute',
+                       jsonb_build_object('id', g)
+                FROM generate_series(1, :ingests) g
+                """, new MapSqlParameterSource("ingests", RAW_INGESTS));
+        jdbc.update("ANALYZE", none);
+    }
+
+    @BeforeEach
+    void setUp() {
+        capturing = new CapturingJdbcTemplate(dataSource);
+        teamDirectory = mock(TeamDirectory.class);
+        headToHead = mock(HeadToHeadProjection.class);
+        when(teamDirectory.resolve("Liverpool")).thenReturn(Set.of(5L));
+        when(teamDirectory.resolve("Man City")).thenReturn(Set.of(12L));
+        when(teamDirectory.resolve("Team")).thenReturn(Set.of(5L, 6L, 7L));
+        when(teamDirectory.resolve("City")).thenReturn(Set.of(12L, 13L));
+        when(headToHead.recentLength()).thenReturn(5);
+    }
+
+    private MatchEmbeddingRepository embeddingRepository() {
+        return new MatchEmbeddingRepository(capturing, transactionManager, capturing, transactionManager, objectMapper);
+    }
+
+    private MatchContextBuilder contextBuilder() {
+        return new MatchContextBuilder(capturing, capturing, mock(TeamStatsProjection.class), headToHead, teamDirectory,
+                mock(EloRatingEngine.class), mock(ContextCompressor.class));
+    }
+
+    private EmbeddingService embeddingService() {
+        var embeddingModel = mock(EmbeddingModel.class);
+        float[] vector = new float[768];
+        Arrays.fill(vector, 0.1f);
+        when(embeddingModel.embed(anyString())).thenReturn(vector);
+        return new EmbeddingService(embeddingModel, embeddingRepository(), capturing,
+                new OllamaBulkheads(new BulkheadConfig(), new SimpleMeterRegistry()));
+    }
+
+    private List<Double> embeddingOf(long matchId) {
+        String text = jdbc.queryForObject("SELECT embedding::text FROM match_embedding WHERE match_id = :id",
+                new MapSqlParameterSource("id", matchId), String.class);
+        assertNotNull(text);
+        return Arrays.stream(text.substring(1, text.length() - 1).split(","))
+                .map(Double::valueOf)
+                .toList();
+    }
+
+    private long latestFinishedMatch() {
+        Long id = jdbc.queryForObject("SELECT max(id) FROM fd_match WHERE status = 'FINISHED'",
+                new MapSqlParameterSource(), Long.class);
+        assertNotNull(id);
+        return id;
+    }
+
+    /**
+     * Runs a captured statement again under EXPLAIN ANALYZE. Statements run inside the test
+     * transaction, so writes are rolled back and transaction-scoped search settings still apply.
+     */
+    private Plan explain(CapturingJdbcTemplate.Statement statement) throws Exception {
+        String json = jdbc.queryForObject("EXPLAIN (ANALYZE, BUFFERS, FORMAT JSON) " + statement.sql(),
+                statement.params(), String.class);
+        assertNotNull(json);
+        return new Plan(objectMapper.readTree(json));
+    }
+
+    private static void assertUses(Plan plan, String... indexes) {
+        for (String index : indexes) {
+            assertTrue(plan.indexes().contains(index), () -> "expected " + index + " in plan:\n" + plan);
+        }
+    }
+
+    private static void assertNoSeqScan(Plan plan, String... relations) {
+        for (String relation : relations) {
+            assertFalse(plan.seqScans(relation), () -> "sequential scan of " + relation + " in plan:\n" + plan);
+        }
+    }
+
+    private static void assertCostBelow(Plan plan, double ceiling) {
+        assertTrue(plan.totalCost() < ceiling,
+                () -> "plan cost " + plan.totalCost() + " exceeds " + ceiling + ":\n" + plan);
+    }
+
+    private static void assertFasterThan(Plan plan, double ceilingMillis) {
+        assertTrue(plan.executionMillis() < ceilingMillis,
+                () -> "execution took " + plan.executionMillis() + " ms, ceiling " + ceilingMillis + " ms:\n" + plan);
+    }
+
+    @Test
+    void rawIngest_freshnessCheckUsesKeyIndex() throws Exception {
+        var repository = new FdRawIngestRepository(capturing);
+        repository.wasFetchedSince("football-data.org", "/v4/matches/{id}", "1234", OffsetDateTime.now().minusDays(1));
+
+        Plan plan = explain(capturing.last("FROM fd_raw_ingest"));
+
+        assertTrue(plan.indexes().contains("fd_raw_ingest_recent_idx") || plan.indexes().contains("fd_raw_ingest_dedup"),
+                () -> "expected a key index in plan:\n" + plan);
+        assertNoSeqScan(plan, "fd_raw_ingest");
+        assertCostBelow(plan, LOOKUP_COST);
+        assertFasterThan(plan, LOOKUP_MILLIS);
+    }
+
+    @Test
+    void rawIngest_insertArbitratesOnDedupIndex() throws Exception {
+        var repository = new FdRawIngestRepository(capturing);
+        repository.insertRaw("football-data.org", "/v4/matches/{id}", "1234", OffsetDateTime.now(), "{\"id\": 1234}");
+
+        Plan plan = explain(capturing.last("INSERT INTO fd_raw_ingest"));
+
+        assertUses(plan, "fd_raw_ingest_dedup");
+        assertCostBelow(plan, LOOKUP_COST);
+        assertFasterThan(plan, LOOKUP_MILLIS);
+    }
+
+    @Test
+    void embedding_generationLooksUpByKeys() throws Exception {
+        long unembedded = 100;
+        assertTrue(embeddingService().generateAndStoreEmbedding(unembedded));
+
+        Plan exists = explain(capturing.last("SELECT EXISTS"));
+        Plan matchText = explain(capturing.last("ht.name AS home_team"));
+        Plan save = explain(capturing.last("INSERT INTO match_embedding"));
+
+        assertUses(exists, "match_embedding_match_id_key");
+        assertUses(matchText, "fd_match_pkey");
+        assertNoSeqScan(matchText, "fd_match");
+        assertUses(save, "fd_match_pkey", "match_embedding_match_id_key");
+        for (Plan plan : List.of(exists, matchText, save)) {
+            assertCostBelow(plan, LOOKUP_COST);
+            assertFasterThan(plan, LOOKUP_MILLIS);
+        }
+    }
+
+    @Test
+    void embedding_batchSelectionStaysWithinCeiling() throws Exception {
+        embeddingService().generateBatchEmbeddings(2);
+
+        Plan plan = explain(capturing.last("LEFT JOIN match_embedding"));
+
+        assertFasterThan(plan, SEARCH_MILLIS);
+    }
+
+    @Test
+    void vectorSearch_usesHnswIndex() throws Exception {
+        embeddingRepository().findSimilarMatches(embeddingOf(latestFinishedMatch()), 15);
+
+        Plan plan = explain(capturing.last("ORDER BY embedding <=>"));
+
+        assertUses(plan, "match_embedding_vector_idx");
+        assertNoSeqScan(plan, "match_embedding");
+        assertFasterThan(plan, SEARCH_MILLIS);
+    }
+
+    @Test
+    void filteredVectorSearch_staysOnHnswIndex() throws Exception {
+        var filter = new MatchEmbeddingRepository.SimilarityFilter("PL", Set.of(), EPOCH.plusYears(20), null);
+        embeddingRepository().findSimilarMatches(embeddingOf(latestFinishedMatch()), filter, TUNING, 15);
+
+        Plan plan = explain(capturing.last("WITH candidates AS MATERIALIZED"));
+
+        assertUses(plan, "match_embedding_vector_idx");
+        assertNoSeqScan(plan, "match_embedding");
+        assertFasterThan(plan, SEARCH_MILLIS);
+    }
+
+    @Test
+    void hybridSearch_usesHnswIndexForVectorRanking() throws Exception {
+        embeddingRepository().findHybridMatches(embeddingOf(latestFinishedMatch()), "Liverpool", "Man City",
+                MatchEmbeddingRepository.SimilarityFilter.none(), TUNING, FUSION, 10);
+
+        Plan plan = explain(capturing.last("WITH home_teams AS"));
+
+        assertUses(plan, "match_embedding_vector_idx");
+        assertNoSeqScan(plan, "match_embedding");
+        assertFasterThan(plan, SEARCH_MILLIS);
+    }
+
+    @Test
+    void recentMatches_readsPerSideTeamDateIndexes() throws Exception {
+        assertFalse(contextBuilder().recentMatches("Liverpool", "Man City", FIXTURE_DATE).isEmpty());
+
+        Plan plan = explain(capturing.last("WITH recent AS"));
+
+        assertUses(plan, "fd_match_team_date", "fd_match_away_team_date");
+        assertNoSeqScan(plan, "fd_match");
+        assertCostBelow(plan, CONTEXT_COST);
+        assertFasterThan(plan, CONTEXT_MILLIS);
+    }
+
+    @Test
+    void headToHeadSearch_readsPerSideTeamDateIndexes() throws Exception {
+        assertFalse(contextBuilder().headToHead("Team", "City", FIXTURE_DATE).isEmpty());
+
+        Plan plan = explain(capturing.last("WITH meetings AS"));
+
+        assertUses(plan, "fd_match_team_date");
+        assertNoSeqScan(plan, "fd_match");
+        assertCostBelow(plan, CONTEXT_COST);
+        assertFasterThan(plan, CONTEXT_MILLIS);
+    }
+
+    @Test
+    void headToHeadFromReadModel_loadsMeetingsByKey() throws Exception {
+        List<Long> meetings = jdbc.queryForList("""
+                SELECT id FROM fd_match
+                WHERE status = 'FINISHED' AND home_team_id IN (5, 12) AND away_team_id IN (5, 12)
+                ORDER BY utc_date DESC
+                LIMIT 5
+                """, new MapSqlParameterSource(), Long.class);
+        when(headToHead.recentMeetings(5L, 12L, FIXTURE_DATE)).thenReturn(meetings);
+
+        assertEquals(meetings.size(), contextBuilder().headToHead("Liverpool", "Man City", FIXTURE_DATE).size());
+
+        Plan plan = explain(capturing.last("WHERE m.id IN"));
+
+        assertUses(plan, "fd_match_pkey");
+        assertNoSeqScan(plan, "fd_match");
+        assertCostBelow(plan, LOOKUP_COST);
+        assertFasterThan(plan, LOOKUP_MILLIS);
+    }
+}
@@ -0,0 +1,102 @@
+package org.jstats.matchlens_api.core.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.jdbc.JdbcTemplateAutoConfiguration;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Wires the connection pools against two Postgres containers, the second standing in for a replica.
+ */
+@Testcontainers
+class DataSourceConfigIntegrationTests {
+
+    @Container
+    static PostgreSQLContainer<?> primary = new PostgreSQLContainer<>(DockerImageName.parse("pgvector/pgvector:pg16"));
+
+    @Container
+    static PostgreSQLContainer<?> replica = new PostgreSQLContainer<>(DockerImageName.parse("pgvector/pgvector:pg16"));
+
+    private static final String WHICH_DATABASE = "SELECT to_regclass('public.replica_marker') IS NOT NULL";
+
+    @BeforeAll
+    static void markReplica() {
+        var dataSource = new DriverManagerDataSource(replica.getJdbcUrl(), replica.getUsername(), replica.getPassword());
+        new JdbcTemplate(dataSource).execute("CREATE TABLE replica_marker (id INT)");
+    }
+
+    private static ApplicationContextRunner runner() {
+        return new ApplicationContextRunner()
+                .withConfiguration(AutoConfigurations.of(DataSourceAutoConfiguration.class, JdbcTemplateAutoConfiguration.class))
+                .withUserConfiguration(DataSourceConfig.class)
+                .withPropertyValues(
+                        "spring.datasource.url=" + primary.getJdbcUrl(),
+                        "spring.datasource.username=" + primary.getUsername(),
+                        "spring.datasource.password=" + primary.getPassword(),
+                        "spring.datasource.hikari.maximum-pool-size=3",
+                        "matchlens.datasource.batch.hikari.maximum-pool-size=2");
+    }
+
+    private static boolean onReplica(NamedParameterJdbcTemplate jdbc) {
+        return Boolean.TRUE.equals(jdbc.queryForObject(WHICH_DATABASE, new MapSqlParameterSource(), Boolean.class));
+    }
+
+    @Test
+    void batchPool_isSeparateFromInteractivePool() {
+        runner().run(context -> {
+            var interactive = (HikariDataSource) context.getBean(DataSource.class);
+            var batch = context.getBean("batchDataSource", HikariDataSource.class);
+
+            assertNotSame(interactive, batch);
+            assertEquals("MatchlensInteractive", interactive.getPoolName());
+            assertEquals(3, interactive.getMaximumPoolSize());
+            assertEquals("MatchlensBatch", batch.getPoolName());
+            assertEquals(2, batch.getMaximumPoolSize());
+            assertFalse(context.containsBean("replicaDataSource"));
+
+            var batchJdbc = context.getBean("batchJdbcTemplate", NamedParameterJdbcTemplate.class);
+            assertEquals(1, batchJdbc.queryForObject("SELECT 1", new MapSqlParameterSource(), Integer.class));
+            assertTrue(batch.getHikariPoolMXBean().getTotalConnections() > 0,
+                    "batch queries open connections of the batch pool");
+        });
+    }
+
+    @Test
+    void readOnlyTransactions_useReplicaWhenConfigured() {
+        runner()
+                .withPropertyValues(
+                        "matchlens.datasource.replica.url=" + replica.getJdbcUrl(),
+                        "matchlens.datasource.replica.username=" + replica.getUsername(),
+                        "matchlens.datasource.replica.password=" + replica.getPassword())
+                .run(context -> {
+                    var jdbc = context.getBean(NamedParameterJdbcTemplate.class);
+                    var readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+                    readOnly.setReadOnly(true);
+                    var readWrite = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+
+                    assertEquals(Boolean.TRUE, readOnly.execute(status -> onReplica(jdbc)));
+                    assertEquals(Boolean.FALSE, readWrite.execute(status -> onReplica(jdbc)));
+                    assertFalse(onReplica(jdbc), "queries outside a read-only transaction stay on the primary");
+                    assertFalse(onReplica(context.getBean("batchJdbcTemplate", NamedParameterJdbcTemplate.class)));
+                    assertEquals("MatchlensReplica",
+                            context.getBean("replicaDataSource", HikariDataSource.class).getPoolName());
+                });
+    }
+}
@@ -0,0 +1,43 @@
+package org.jstats.matchlens_api.core.config;
+
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.support.JdbcTransactionManager;
+
+import javax.sql.DataSource;
+
+/**
+ * The beans of {@link DataSourceConfig} that repositories inject, all on the single DataSource of a
+ * {@code @JdbcTest} slice. Batch statements thereby join the test transaction and are rolled back
+ * with it, instead of committing on a pool of their own.
+ * <p>
+ * Declaring the batch beans makes the auto-configured template and transaction manager back off,
+ * so the primary ones are declared here as well.
+ */
+@TestConfiguration(proxyBeanMethods = false)
+public class SliceDataSourcePools {
+
+    @Bean
+    @Primary
+    NamedParameterJdbcTemplate namedParameterJdbcTemplate(DataSource dataSource) {
+        return new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    @Bean
+    @Primary
+    JdbcTransactionManager transactionManager(DataSource dataSource) {
+        return new JdbcTransactionManager(dataSource);
+    }
+
+    @Bean
+    NamedParameterJdbcTemplate batchJdbcTemplate(DataSource dataSource) {
+        return new NamedParameterJdbcTemplate(dataSource);
+    }
+
+    @Bean
+    JdbcTransactionManager batchTransactionManager(DataSource dataSource) {
+        return new JdbcTransactionManager(dataSource);
+    }
+}
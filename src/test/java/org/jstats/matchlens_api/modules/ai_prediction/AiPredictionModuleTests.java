@@ -1,10 +1,13 @@
 package org.jstats.matchlens_api.modules.ai_prediction;
 
+import org.jstats.matchlens_api.core.config.SliceDataSourcePools;
 import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionRequest;
 import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionResponse;
 import org.jstats.matchlens_api.modules.ai_prediction.repository.MatchEmbeddingRepository;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
 import org.springframework.context.annotation.Bean;
@@ -24,7 +27,8 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 @org.springframework.boot.test.autoconfigure.jdbc.JdbcTest
 @org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase(replace = org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE)
-@Import({MatchEmbeddingRepository.class, AiPredictionModuleTests.TestContainersLocal.class})
+@ImportAutoConfiguration(JacksonAutoConfiguration.class)
+@Import({MatchEmbeddingRepository.class, SliceDataSourcePools.class, AiPredictionModuleTests.TestContainersLocal.class})
 class AiPredictionModuleTests {
 
     @TestConfiguration(proxyBeanMethods = false)
@@ -0,0 +1,148 @@
+package org.jstats.matchlens_api.modules.ai_prediction.repository;
+
+import org.jstats.matchlens_api.modules.ai_prediction.model.MatchContext;
+import org.jstats.matchlens_api.modules.ai_prediction.repository.HeadToHeadRepository.HeadToHeadRow;
+import org.jstats.matchlens_api.modules.ai_prediction.repository.HeadToHeadRepository.TeamPair;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@org.springframework.boot.test.autoconfigure.jdbc.JdbcTest
+@org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase(replace = org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE)
+class HeadToHeadRepositoryIntegrationTests {
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class TestContainersLocal {
+        @Bean
+        @ServiceConnection
+        PostgreSQLContainer<?> postgresContainer() {
+            return new PostgreSQLContainer<>(DockerImageName.parse("pgvector/pgvector:pg16"));
+        }
+    }
+
+    private static final OffsetDateTime EPOCH = OffsetDateTime.of(2024, 1, 1, 15, 0, 0, 0, ZoneOffset.UTC);
+
+    @Autowired
+    NamedParameterJdbcTemplate jdbc;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    HeadToHeadRepository repository;
+
+    @BeforeEach
+    void seed() {
+        repository = new HeadToHeadRepository(jdbc, transactionManager);
+
+        var none = new MapSqlParameterSource();
+        jdbc.update("INSERT INTO fd_competition (id, code, name) VALUES (1, 'PL', 'Premier League')", none);
+        jdbc.update("""
+                INSERT INTO fd_team (id, name, short_name, tla)
+                VALUES (1, 'Liverpool FC', 'Liverpool', 'LIV'), (2, 'Manchester City FC', 'Man City', 'MCI'),
+                       (3, 'Arsenal FC', 'Arsenal', 'ARS')
+                """, none);
+        insertMatch(1, 1, 2, 0, "FINISHED", 2, 1);
+        insertMatch(2, 2, 1, 1, "FINISHED", 3, 0);
+        insertMatch(3, 1, 2, 2, "FINISHED", 1, 1);
+        insertMatch(4, 3, 1, 3, "FINISHED", 0, 2);
+        insertMatch(5, 2, 1, 4, "SCHEDULED", null, null);
+    }
+
+    private void insertMatch(long id, long home, long away, int day, String status, Integer homeGoals, Integer awayGoals) {
+        String score = homeGoals == null ? null
+                : "{\"fullTime\": {\"home\": %d, \"away\": %d}}".formatted(homeGoals, awayGoals);
+        jdbc.update("""
+                INSERT INTO fd_match (id, competition_id, utc_date, status, home_team_id, away_team_id, score_json)
+                VALUES (:id, 1, :date, :status, :home, :away, :score::jsonb)
+                """, new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("date", EPOCH.plusDays(day))
+                .addValue("status", status)
+                .addValue("home", home)
+                .addValue("away", away)
+                .addValue("score", score));
+    }
+
+    private Map<TeamPair, HeadToHeadRow> rowsByPair() {
+        return repository.findAll().stream().collect(Collectors.toMap(HeadToHeadRow::pair, Function.identity()));
+    }
+
+    @Test
+    void applyFinishedMatches_backfillsPairsAtEitherVenue() {
+        List<TeamPair> changed = repository.applyFinishedMatches(null, 5);
+
+        assertEquals(List.of(new TeamPair(1, 2), new TeamPair(1, 3)),
+                changed.stream().sorted((a, b) -> Long.compare(a.teamBId(), b.teamBId())).toList());
+        var liverpoolCity = rowsByPair().get(TeamPair.of(2, 1));
+        assertEquals(new MatchContext.HeadToHead(3, 1, 1, 1, 3, 5), liverpoolCity.results());
+        assertEquals(List.of(3L, 2L, 1L), liverpoolCity.recentMatchIds());
+        assertEquals(new MatchContext.HeadToHead(1, 1, 0, 0, 2, 0), rowsByPair().get(new TeamPair(1, 3)).results());
+    }
+
+    @Test
+    void applyFinishedMatches_countsEachMatchOnce() {
+        repository.applyFinishedMatches(null, 5);
+        var before = rowsByPair();
+
+        assertTrue(repository.applyFinishedMatches(null, 5).isEmpty());
+        assertTrue(repository.applyFinishedMatches(1L, 5).isEmpty());
+        assertEquals(before, rowsByPair());
+    }
+
+    @Test
+    void applyFinishedMatches_appliesSingleNewResult() {
+        repository.applyFinishedMatches(null, 5);
+        jdbc.update("""
+                UPDATE fd_match SET status = 'FINISHED', score_json = '{"fullTime": {"home": 0, "away": 4}}'
+                WHERE id = 5
+                """, new MapSqlParameterSource());
+
+        List<TeamPair> changed = repository.applyFinishedMatches(5L, 2);
+
+        assertEquals(List.of(new TeamPair(1, 2)), changed);
+        var row = repository.findByPairs(changed).getFirst();
+        assertEquals(new MatchContext.HeadToHead(4, 2, 1, 1, 7, 5), row.results());
+        assertEquals(List.of(5L, 3L), row.recentMatchIds(), "meetings are cut to the requested length, latest first");
+    }
+
+    @Test
+    void applyFinishedMatches_replacesCorrectedScore() {
+        repository.applyFinishedMatches(null, 5);
+        jdbc.update("""
+                UPDATE fd_match SET score_json = '{"fullTime": {"home": 0, "away": 3}}' WHERE id = 1
+                """, new MapSqlParameterSource());
+
+        List<TeamPair> changed = repository.applyFinishedMatches(1L, 5);
+
+        assertEquals(List.of(new TeamPair(1, 2)), changed);
+        assertEquals(new MatchContext.HeadToHead(3, 0, 1, 2, 1, 7), rowsByPair().get(new TeamPair(1, 2)).results());
+        assertTrue(repository.applyFinishedMatches(1L, 5).isEmpty(), "an unchanged score is not applied again");
+    }
+
+    @Test
+    void findAsOf_countsOnlyEarlierMeetings() {
+        var row = repository.findAsOf(new TeamPair(1, 2), EPOCH.plusDays(2), 5);
+
+        assertEquals(new MatchContext.HeadToHead(2, 1, 0, 1, 2, 4), row.results());
+        assertEquals(List.of(2L, 1L), row.recentMatchIds());
+        assertEquals(EPOCH.plusDays(1).toInstant(), row.lastMatchDate().toInstant());
+        assertEquals(List.of(), repository.findAsOf(new TeamPair(1, 2), EPOCH, 5).recentMatchIds());
+    }
+}
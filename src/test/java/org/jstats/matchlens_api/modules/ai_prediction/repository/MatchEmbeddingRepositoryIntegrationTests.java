@@ -0,0 +1,198 @@
+package org.jstats.matchlens_api.modules.ai_prediction.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementCreatorFactory;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@org.springframework.boot.test.autoconfigure.jdbc.JdbcTest
+@org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase(replace = org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE)
+class MatchEmbeddingRepositoryIntegrationTests {
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class TestContainersLocal {
+        @Bean
+        @ServiceConnection
+        PostgreSQLContainer<?> postgresContainer() {
+            return new PostgreSQLContainer<>(DockerImageName.parse("pgvector/pgvector:pg16"));
+        }
+    }
+
+    /**
+     * Records the last statement issued through the template so its plan can be inspected.
+     */
+    static class CapturingJdbcTemplate extends NamedParameterJdbcTemplate {
+        String lastSql;
+        SqlParameterSource lastParams;
+
+        CapturingJdbcTemplate(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        protected PreparedStatementCreator getPreparedStatementCreator(
+                String sql, SqlParameterSource paramSource, Consumer<PreparedStatementCreatorFactory> customizer) {
+            lastSql = sql;
+            lastParams = paramSource;
+            return super.getPreparedStatementCreator(sql, paramSource, customizer);
+        }
+    }
+
+    private static final int CORPUS_SIZE = 4000;
+    private static final OffsetDateTime EPOCH = OffsetDateTime.of(2015, 1, 1, 0, 0, 0, 0, ZoneOffset.UTC);
+    private static final MatchEmbeddingRepository.SearchTuning TUNING = new MatchEmbeddingRepository.SearchTuning(100, 20000);
+
+    @Autowired
+    NamedParameterJdbcTemplate jdbc;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    CapturingJdbcTemplate capturing;
+    MatchEmbeddingRepository repository;
+
+    @BeforeEach
+    void seed() {
+        capturing = new CapturingJdbcTemplate(dataSource);
+        repository = new MatchEmbeddingRepository(capturing, transactionManager, capturing, transactionManager, new ObjectMapper());
+
+        var none = new MapSqlParameterSource();
+        jdbc.update("""
+                INSERT INTO fd_competition (id, code, name)
+                VALUES (1, 'PL', 'Premier League'), (2, 'PD', 'La Liga'), (3, 'SA', 'Serie A'), (4, 'BL1', 'Bundesliga')
+                """, none);
+        jdbc.update("INSERT INTO fd_team (id, name) SELECT g, 'Team ' || g FROM generate_series(1, 80) g", none);
+        jdbc.update("""
+                INSERT INTO fd_match (id, competition_id, utc_date, status, home_team_id, away_team_id)
+                SELECT g, 1 + g % 4, :epoch + g * interval '6 hours', 'FINISHED', 1 + g % 80, 1 + (g + 7) % 80
+                FROM generate_series(1, :n) g
+                """, new MapSqlParameterSource(Map.of("epoch", EPOCH, "n", CORPUS_SIZE)));
+        // One random vector per row; the correlated predicate forces per-row evaluation
+        jdbc.update("""
+                INSERT INTO match_embedding (match_id, embedding, competition_id, home_team_id, away_team_id, utc_date)
+                SELECT m.id,
+                       (SELECT array_agg(random())::vector(768) FROM generate_series(1, 768) WHERE m.id > 0),
+                       m.competition_id, m.home_team_id, m.away_team_id, m.utc_date
+                FROM fd_match m
+                """, none);
+        jdbc.update("ANALYZE match_embedding", none);
+    }
+
+    private List<Double> embeddingOf(long matchId) {
+        String text = jdbc.queryForObject("SELECT embedding::text FROM match_embedding WHERE match_id = :id",
+                new MapSqlParameterSource("id", matchId), String.class);
+        assertNotNull(text);
+        return java.util.Arrays.stream(text.substring(1, text.length() - 1).split(","))
+                .map(Double::valueOf)
+                .toList();
+    }
+
+    @Test
+    void findSimilarMatches_appliesCompetitionAndDateFilters() {
+        long anchor = 2001; // competition 1 + 2001 % 4 = 2
+        var from = EPOCH.plusDays(200);
+        var to = EPOCH.plusDays(800);
+        var filter = new MatchEmbeddingRepository.SimilarityFilter("PD", Set.of(), from, to);
+
+        List<Long> ids = repository.findSimilarMatches(embeddingOf(anchor), filter, TUNING, 10);
+
+        assertEquals(10, ids.size(), "iterative scan should fill the limit despite the filter");
+        assertEquals(anchor, ids.getFirst(), "the anchor itself is its own nearest neighbour");
+        for (Long id : ids) {
+            assertEquals(2, 1 + id % 4, "match " + id + " is outside the competition filter");
+            var kickOff = EPOCH.plusHours(6 * id);
+            assertFalse(kickOff.isBefore(from) || !kickOff.isBefore(to), "match " + id + " is outside the date filter");
+        }
+    }
+
+    @Test
+    void findSimilarMatches_appliesTeamFilter() {
+        var filter = new MatchEmbeddingRepository.SimilarityFilter(null, Set.of(5L), null, null);
+
+        List<Long> ids = repository.findSimilarMatches(embeddingOf(1), filter, TUNING, 5);
+
+        assertEquals(5, ids.size());
+        for (Long id : ids) {
+            long home = 1 + id % 80;
+            long away = 1 + (id + 7) % 80;
+            assertTrue(home == 5 || away == 5, "match " + id + " does not involve team 5");
+        }
+    }
+
+    @Test
+    void findHybridMatches_ranksHeadToHeadFoundByBothRetrieversFirst() {
+        // Seeded fixtures pair team 5 at home with team 12 away whenever id % 80 == 4
+        jdbc.update("UPDATE fd_team SET name = 'Liverpool', tla = 'LIV' WHERE id = 5", new MapSqlParameterSource());
+        jdbc.update("UPDATE fd_team SET name = 'Manchester City', tla = 'MCI' WHERE id = 12", new MapSqlParameterSource());
+        long latestHeadToHead = 3924;
+        var fusion = new MatchEmbeddingRepository.FusionTuning(60, 40, 0.5);
+
+        List<Long> ids = repository.findHybridMatches(embeddingOf(latestHeadToHead), "Liverpool", "Man City",
+                MatchEmbeddingRepository.SimilarityFilter.none(), TUNING, fusion, 10);
+
+        assertEquals(10, ids.size());
+        assertEquals(latestHeadToHead, ids.getFirst(), "top of both rankings should win the fusion");
+    }
+
+    @Test
+    void findHybridMatchesBatch_returnsSameRankingAsSingleQueriesInInputOrder() {
+        jdbc.update("UPDATE fd_team SET name = 'Liverpool', tla = 'LIV' WHERE id = 5", new MapSqlParameterSource());
+        jdbc.update("UPDATE fd_team SET name = 'Manchester City', tla = 'MCI' WHERE id = 12", new MapSqlParameterSource());
+        var fusion = new MatchEmbeddingRepository.FusionTuning(60, 40, 0.5);
+        var pdFilter = new MatchEmbeddingRepository.SimilarityFilter("PD", Set.of(), EPOCH.plusDays(200), EPOCH.plusDays(800));
+        var queries = List.of(
+                new MatchEmbeddingRepository.HybridQuery(embeddingOf(3924), "Liverpool", "Man City",
+                        MatchEmbeddingRepository.SimilarityFilter.none()),
+                new MatchEmbeddingRepository.HybridQuery(embeddingOf(2001), "Team 1", "Team 2", pdFilter),
+                new MatchEmbeddingRepository.HybridQuery(embeddingOf(1), "Nobody", "Nowhere",
+                        new MatchEmbeddingRepository.SimilarityFilter(null, Set.of(5L), null, null)));
+
+        List<List<Long>> batch = repository.findHybridMatchesBatch(queries, TUNING, fusion, 10);
+
+        assertEquals(3, batch.size());
+        assertEquals(3924L, batch.get(0).getFirst());
+        for (int i = 0; i < queries.size(); i++) {
+            var query = queries.get(i);
+            assertEquals(repository.findHybridMatches(query.queryEmbedding(), query.homeTeam(), query.awayTeam(),
+                    query.filter(), TUNING, fusion, 10), batch.get(i), "query " + i);
+        }
+        for (Long id : batch.get(2)) {
+            assertTrue(1 + id % 80 == 5 || 1 + (id + 7) % 80 == 5, "match " + id + " does not involve team 5");
+        }
+    }
+
+    @Test
+    void findSimilarMatches_competitionFilterStaysOnHnswIndex() {
+        var filter = new MatchEmbeddingRepository.SimilarityFilter("PL", Set.of(), null, null);
+        repository.findSimilarMatches(embeddingOf(4), filter, TUNING, 15);
+
+        // The search settings are transaction-scoped and still active inside the test transaction
+        List<String> plan = jdbc.queryForList("EXPLAIN " + capturing.lastSql, capturing.lastParams, String.class);
+        String text = String.join("\n", plan);
+        assertTrue(text.contains("match_embedding_vector_idx"), () -> "expected HNSW index scan, got:\n" + text);
+    }
+}
@@ -0,0 +1,171 @@
+package org.jstats.matchlens_api.modules.ai_prediction.repository;
+
+import org.jstats.matchlens_api.modules.ai_prediction.model.MatchContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@org.springframework.boot.test.autoconfigure.jdbc.JdbcTest
+@org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase(replace = org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE)
+class TeamStatsRepositoryIntegrationTests {
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class TestContainersLocal {
+        @Bean
+        @ServiceConnection
+        PostgreSQLContainer<?> postgresContainer() {
+            return new PostgreSQLContainer<>(DockerImageName.parse("pgvector/pgvector:pg16"));
+        }
+    }
+
+    private static final OffsetDateTime EPOCH = OffsetDateTime.of(2024, 1, 1, 15, 0, 0, 0, ZoneOffset.UTC);
+
+    @Autowired
+    NamedParameterJdbcTemplate jdbc;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    TeamStatsRepository repository;
+
+    @BeforeEach
+    void seed() {
+        repository = new TeamStatsRepository(jdbc, transactionManager);
+
+        var none = new MapSqlParameterSource();
+        jdbc.update("INSERT INTO fd_competition (id, code, name) VALUES (1, 'PL', 'Premier League')", none);
+        jdbc.update("""
+                INSERT INTO fd_team (id, name, short_name, tla)
+                VALUES (1, 'Liverpool FC', 'Liverpool', 'LIV'), (2, 'Manchester City FC', 'Man City', 'MCI'),
+                       (3, 'Arsenal FC', 'Arsenal', 'ARS')
+                """, none);
+        insertMatch(1, 1, 2, 0, "FINISHED", 2, 1);
+        insertMatch(2, 2, 3, 1, "FINISHED", 0, 0);
+        insertMatch(3, 3, 1, 2, "FINISHED", 3, 1);
+        insertMatch(4, 1, 3, 3, "SCHEDULED", null, null);
+    }
+
+    private void insertMatch(long id, long home, long away, int day, String status, Integer homeGoals, Integer awayGoals) {
+        String score = homeGoals == null ? null
+                : "{\"fullTime\": {\"home\": %d, \"away\": %d}}".formatted(homeGoals, awayGoals);
+        jdbc.update("""
+                INSERT INTO fd_match (id, competition_id, utc_date, status, home_team_id, away_team_id, score_json)
+                VALUES (:id, 1, :date, :status, :home, :away, :score::jsonb)
+                """, new MapSqlParameterSource()
+                .addValue("id", id)
+                .addValue("date", EPOCH.plusDays(day))
+                .addValue("status", status)
+                .addValue("home", home)
+                .addValue("away", away)
+                .addValue("score", score));
+    }
+
+    private Map<Long, MatchContext.TeamStats> statsByTeam() {
+        return repository.findAll().stream()
+                .collect(Collectors.toMap(TeamStatsRepository.TeamStatsRow::teamId, TeamStatsRepository.TeamStatsRow::stats));
+    }
+
+    @Test
+    void applyFinishedMatches_backfillsAggregatesAndForm() {
+        List<Long> changed = repository.applyFinishedMatches(null, 5);
+
+        assertEquals(3, changed.size());
+        var liverpool = statsByTeam().get(1L);
+        assertEquals(new MatchContext.VenueRecord(1, 1, 0, 0, 2, 1), liverpool.home());
+        assertEquals(new MatchContext.VenueRecord(1, 0, 0, 1, 1, 3), liverpool.away());
+        assertEquals(2, liverpool.totalMatches());
+        assertEquals("LW", liverpool.recentForm());
+        assertEquals("DL", statsByTeam().get(2L).recentForm());
+    }
+
+    @Test
+    void applyFinishedMatches_countsEachMatchOnce() {
+        repository.applyFinishedMatches(null, 5);
+        var before = statsByTeam();
+
+        assertTrue(repository.applyFinishedMatches(null, 5).isEmpty());
+        assertTrue(repository.applyFinishedMatches(1L, 5).isEmpty());
+        assertEquals(before, statsByTeam());
+    }
+
+    @Test
+    void applyFinishedMatches_appliesSingleNewResult() {
+        repository.applyFinishedMatches(null, 5);
+        jdbc.update("""
+                UPDATE fd_match SET status = 'FINISHED', score_json = '{"fullTime": {"home": 1, "away": 1}}'
+                WHERE id = 4
+                """, new MapSqlParameterSource());
+
+        List<Long> changed = repository.applyFinishedMatches(4L, 2);
+
+        assertEquals(List.of(1L, 3L), changed.stream().sorted().toList());
+        var liverpool = statsByTeam().get(1L);
+        assertEquals(3, liverpool.totalMatches());
+        assertEquals(1, liverpool.draws());
+        assertEquals("DL", liverpool.recentForm(), "form is cut to the requested length, latest first");
+    }
+
+    @Test
+    void applyFinishedMatches_replacesCorrectedScore() {
+        repository.applyFinishedMatches(null, 5);
+        jdbc.update("""
+                UPDATE fd_match SET score_json = '{"fullTime": {"home": 1, "away": 1}}' WHERE id = 1
+                """, new MapSqlParameterSource());
+
+        List<Long> changed = repository.applyFinishedMatches(1L, 5);
+
+        assertEquals(List.of(1L, 2L), changed.stream().sorted().toList());
+        var liverpool = statsByTeam().get(1L);
+        assertEquals(new MatchContext.VenueRecord(1, 0, 1, 0, 1, 1), liverpool.home());
+        assertEquals(2, liverpool.totalMatches());
+        assertEquals("LD", liverpool.recentForm());
+        assertEquals(new MatchContext.VenueRecord(1, 0, 1, 0, 1, 1), statsByTeam().get(2L).away());
+        assertTrue(repository.applyFinishedMatches(1L, 5).isEmpty(), "an unchanged score is not applied again");
+    }
+
+    @Test
+    void findAsOf_countsOnlyEarlierResults() {
+        var liverpool = repository.findAsOf(1L, EPOCH.plusDays(1), 5);
+
+        assertEquals(new MatchContext.VenueRecord(1, 1, 0, 0, 2, 1), liverpool.home());
+        assertEquals(MatchContext.VenueRecord.empty(), liverpool.away());
+        assertEquals("W", liverpool.recentForm());
+        assertEquals(0, repository.findAsOf(1L, EPOCH, 5).totalMatches());
+        assertEquals(new TeamStatsRepository.LeagueTotals(2, 2, 1), repository.leagueTotalsBefore(EPOCH.plusDays(2)));
+    }
+
+    @Test
+    void goalColumns_followScoreJson() {
+        jdbc.update("""
+                UPDATE fd_match
+                SET status = 'FINISHED',
+                    score_json = '{"winner": "AWAY_TEAM", "fullTime": {"home": 1, "away": 2}, "halfTime": {"home": 1, "away": 0}}'
+                WHERE id = 4
+                """, new MapSqlParameterSource());
+
+        Map<String, Object> row = jdbc.queryForMap("""
+                SELECT ft_home_goals, ft_away_goals, ht_home_goals, ht_away_goals, winner FROM fd_match WHERE id = 4
+                """, new MapSqlParameterSource());
+
+        assertEquals(Map.of("ft_home_goals", 1, "ft_away_goals", 2, "ht_home_goals", 1, "ht_away_goals", 0,
+                "winner", "AWAY_TEAM"), Map.copyOf(row));
+        assertNull(jdbc.queryForObject("SELECT ht_home_goals FROM fd_match WHERE id = 1",
+                new MapSqlParameterSource(), Integer.class), "missing parts of the score stay null");
+    }
+}
@@ -0,0 +1,115 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jstats.matchlens_api.modules.ai_prediction.config.BulkheadConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkheadTests {
+
+    SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    private Bulkhead bulkhead(int maxConcurrent, int maxQueue, Duration maxWait) {
+        return new Bulkhead("test", new BulkheadConfig.Limits(maxConcurrent, maxQueue, maxWait), registry);
+    }
+
+    private double rejected(Bulkhead.Reason reason) {
+        return registry.get("matchlens.bulkhead.rejected").tag("bulkhead", "test").tag("reason", reason.name())
+                .counter().count();
+    }
+
+    @Test
+    void execute_releasesPermitAfterCall() {
+        var bulkhead = bulkhead(1, 0, Duration.ZERO);
+
+        assertEquals("a", bulkhead.execute(() -> "a"));
+        assertThrows(IllegalStateException.class, () -> bulkhead.execute(() -> {
+            throw new IllegalStateException("boom");
+        }));
+
+        assertEquals("b", bulkhead.execute(() -> "b"));
+        assertEquals(0, bulkhead.active());
+    }
+
+    @Test
+    void acquire_withFullQueue_rejectsImmediately() {
+        var bulkhead = bulkhead(1, 0, Duration.ofSeconds(30));
+        try (var held = bulkhead.acquire()) {
+            long started = System.nanoTime();
+            var e = assertThrows(Bulkhead.RejectedException.class, bulkhead::acquire);
+
+            assertEquals(Bulkhead.Reason.QUEUE_FULL, e.reason());
+            assertTrue(System.nanoTime() - started < Duration.ofSeconds(1).toNanos(), "no waiting when the queue is full");
+            assertEquals(Duration.ofSeconds(30), e.retryAfter());
+        }
+        assertEquals(1.0, rejected(Bulkhead.Reason.QUEUE_FULL));
+    }
+
+    @Test
+    void acquire_timesOutWhenNoPermitFreesUp() {
+        var bulkhead = bulkhead(1, 1, Duration.ofMillis(50));
+        try (var held = bulkhead.acquire()) {
+            var e = assertThrows(Bulkhead.RejectedException.class, bulkhead::acquire);
+
+            assertEquals(Bulkhead.Reason.WAIT_TIMEOUT, e.reason());
+            assertEquals(Duration.ofSeconds(1), e.retryAfter(), "retry hint is at least a second");
+        }
+        assertEquals(1.0, rejected(Bulkhead.Reason.WAIT_TIMEOUT));
+        assertEquals(0, bulkhead.queueDepth());
+    }
+
+    @Test
+    void queuedCaller_getsPermitWhenReleased() throws Exception {
+        var bulkhead = bulkhead(1, 1, Duration.ofSeconds(10));
+        var held = bulkhead.acquire();
+        var queued = new CountDownLatch(1);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> waiter = executor.submit(() -> {
+                queued.countDown();
+                return bulkhead.execute(() -> "admitted");
+            });
+            queued.await();
+            while (bulkhead.queueDepth() == 0) {
+                Thread.onSpinWait();
+            }
+            assertEquals(1.0, registry.get("matchlens.bulkhead.queue.depth").tag("bulkhead", "test").gauge().value());
+
+            held.close();
+            held.close();
+            assertEquals("admitted", waiter.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(0, bulkhead.active(), "closing a permit twice releases it once");
+    }
+
+    @Test
+    void acquire_doesNotBargePastQueuedCallers() throws Exception {
+        var bulkhead = bulkhead(1, 1, Duration.ofMillis(500));
+        var held = bulkhead.acquire();
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Bulkhead.Permit> waiter = executor.submit(bulkhead::acquire);
+            while (bulkhead.queueDepth() == 0) {
+                Thread.onSpinWait();
+            }
+            // Released while the waiter is queued: the permit is the waiter's, not the next caller's
+            held.close();
+            assertThrows(Bulkhead.RejectedException.class, bulkhead::acquire);
+
+            waiter.get(5, TimeUnit.SECONDS).close();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import org.jstats.matchlens_api.modules.ai_prediction.config.PromptConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContextCompressorTests {
+
+    /** Prefill time the stubbed model charges per prompt token */
+    private static final long PREFILL_NANOS_PER_TOKEN = 50_000;
+
+    private static final String[][] TEAMS = {
+            {"Liverpool FC", "LIV"}, {"Manchester City FC", "MCI"}, {"Arsenal FC", "ARS"}, {"Chelsea FC", "CHE"},
+            {"Tottenham Hotspur FC", "TOT"}, {"Newcastle United FC", "NEW"}};
+
+    PromptConfig config;
+    ContextCompressor compressor;
+
+    @BeforeEach
+    void setUp() {
+        config = new PromptConfig();
+        compressor = new ContextCompressor(config);
+    }
+
+    private static ContextCompressor.MatchRow row(long id, int home, int away, int homeGoals, int awayGoals) {
+        return new ContextCompressor.MatchRow(id, LocalDate.of(2023, 1, 1).plusDays(id * 7).toString(),
+                home, TEAMS[home][0], TEAMS[home][1], away, TEAMS[away][0], TEAMS[away][1],
+                homeGoals, awayGoals, "Premier League", "PL");
+    }
+
+    @Test
+    void compact_rendersCodesAndScore() {
+        var row = new ContextCompressor.MatchRow(1, "2024-01-15", 64, "Liverpool FC", "LIV", 65, "Manchester City FC", "MCI",
+                2, 1, "Premier League", "PL");
+        var unknown = new ContextCompressor.MatchRow(2, "2024-01-16", 1, "Brentford FC", null, 2, "Fulham FC", " ",
+                null, null, "Premier League", null);
+
+        assertEquals("2024-01-15 LIV 2-1 MCI PL", row.compact());
+        assertEquals("2024-01-16 Brentford FC N/A Fulham FC Premier League", unknown.compact());
+        assertEquals("2-1", row.toHistoricalMatch().result());
+    }
+
+    @Test
+    void compress_listsHeadToHeadFirstAndDropsDuplicates() {
+        var meeting = row(1, 0, 1, 1, 1);
+        var compressed = compressor.compress("", List.of(meeting), List.of(row(2, 2, 3, 0, 0), meeting), Set.of(0L, 1L));
+
+        assertEquals(List.of(meeting, row(2, 2, 3, 0, 0)), compressed.kept());
+        assertTrue(compressed.summary().startsWith("Head-to-head:"));
+        assertEquals(1, compressed.summary().split(meeting.compact(), -1).length - 1, "duplicate is rendered once");
+    }
+
+    @Test
+    void compress_ranksMatchesInvolvingFixtureTeamsFirst() {
+        var unrelated = row(1, 2, 3, 3, 0);
+        var oneTeam = row(2, 0, 4, 1, 0);
+        var bothTeams = row(3, 1, 0, 2, 2);
+
+        var compressed = compressor.compress("", List.of(), List.of(unrelated, oneTeam, bothTeams), Set.of(0L, 1L));
+
+        assertEquals(List.of(bothTeams, oneTeam, unrelated), compressed.kept());
+    }
+
+    @Test
+    void compress_staysWithinTokenBudget() {
+        config.setContextTokenBudget(40);
+        String header = "- Liverpool FC: 20 played\n";
+        List<ContextCompressor.MatchRow> rows = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            rows.add(row(i, i % 6, (i + 1) % 6, i % 3, i % 2));
+        }
+
+        var compressed = compressor.compress(header, List.of(), rows, Set.of());
+
+        assertTrue(ContextCompressor.estimateTokens(compressed.summary()) <= 40, compressed::summary);
+        assertTrue(compressed.kept().size() < rows.size());
+        assertFalse(compressed.kept().isEmpty());
+    }
+
+    @Test
+    void compress_withNothingToShow_saysSo() {
+        assertEquals("No historical data available", compressor.compress("", List.of(), List.of(), Set.of()).summary());
+    }
+
+    /**
+     * Model whose latency is its prefill time, charged per estimated prompt token.
+     */
+    private static final class PrefillChatModel implements ChatModel {
+
+        @Override
+        public ChatResponse call(Prompt prompt) {
+            LockSupport.parkNanos(ContextCompressor.estimateTokens(prompt.getContents()) * PREFILL_NANOS_PER_TOKEN);
+            return new ChatResponse(List.of(new Generation(new AssistantMessage("{\"predictedWinner\": \"HOME\"}"))));
+        }
+    }
+
+    private static long fastestCallNanos(ChatModel model, String prompt) {
+        long fastest = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long started = System.nanoTime();
+            model.call(new Prompt(prompt));
+            fastest = Math.min(fastest, System.nanoTime() - started);
+        }
+        return fastest;
+    }
+
+    /**
+     * Prompt size and model latency of the 15-match context before and after compression. The
+     * stubbed model charges a fixed prefill time per prompt token, standing in for a local model
+     * whose time to first token grows with the prompt.
+     */
+    @Test
+    void benchmark_promptTokensAndLatencyBeforeAndAfter() {
+        List<ContextCompressor.MatchRow> rows = new ArrayList<>();
+        StringBuilder verbose = new StringBuilder();
+        for (int i = 0; i < 15; i++) {
+            var row = row(i, i % 6, (i + 1) % 6, i % 4, i % 3);
+            rows.add(row);
+            // The previous rendering: one sentence per match with the raw score JSON
+            String scoreJson = String.format(
+                    "{\"winner\": \"%s\", \"duration\": \"REGULAR\", \"fullTime\": {\"home\": %d, \"away\": %d}, "
+                            + "\"halfTime\": {\"home\": %d, \"away\": %d}}",
+                    "HOME_TEAM", row.homeGoals(), row.awayGoals(), 0, 0);
+            verbose.append(String.format("- %s vs %s: %s (%s, %s)%n",
+                    row.homeTeam(), row.awayTeam(), scoreJson, row.competition(), row.date()));
+        }
+        String prompt = PromptConfig.SYSTEM_PROMPT + PromptConfig.USER_PROMPT_TEMPLATE;
+
+        String verbosePrompt = String.format(prompt, "Liverpool", "Manchester City", "PL", "2024-01-15", verbose, "n/a");
+        var compressed = compressor.compress("", List.of(), rows, Set.of(0L, 1L));
+        String compactPrompt = String.format(prompt, "Liverpool", "Manchester City", "PL", "2024-01-15",
+                compressed.summary(), "n/a");
+        int before = ContextCompressor.estimateTokens(verbosePrompt);
+        int after = ContextCompressor.estimateTokens(compactPrompt);
+
+        var model = new PrefillChatModel();
+        long latencyBefore = fastestCallNanos(model, verbosePrompt);
+        long latencyAfter = fastestCallNanos(model, compactPrompt);
+
+        assertEquals(15, compressed.kept().size(), "default budget fits a full context");
+        assertTrue(after * 2 < before,
+                () -> "compact context should at least halve the prompt, was " + before + " -> " + after + " tokens");
+        assertTrue(latencyAfter * 3 < latencyBefore * 2,
+                () -> "compact context should cut the model latency by a third, was " + latencyBefore / 1_000_000
+                        + " -> " + latencyAfter / 1_000_000 + " ms");
+    }
+}
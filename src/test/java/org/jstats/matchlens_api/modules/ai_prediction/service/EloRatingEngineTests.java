@@ -0,0 +1,191 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import org.jstats.matchlens_api.modules.ai_prediction.config.EloConfig;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.feed.MatchResultEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class EloRatingEngineTests {
+
+    private static final OffsetDateTime KICK_OFF = OffsetDateTime.of(2024, 1, 15, 20, 0, 0, 0, ZoneOffset.UTC);
+
+    NamedParameterJdbcTemplate jdbcTemplate;
+    TeamDirectory teamDirectory;
+    EloConfig config;
+    EloRatingEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(NamedParameterJdbcTemplate.class);
+        teamDirectory = mock(TeamDirectory.class);
+        config = new EloConfig();
+        engine = new EloRatingEngine(jdbcTemplate, mock(PlatformTransactionManager.class), teamDirectory, config);
+    }
+
+    private EloRatingEngine freshEngine() {
+        return new EloRatingEngine(jdbcTemplate, mock(PlatformTransactionManager.class), teamDirectory, config);
+    }
+
+    private static MatchResultEvent result(long matchId, long home, long away, OffsetDateTime at, int homeGoals, int awayGoals) {
+        return new MatchResultEvent(matchId, 2021, home, away, at, homeGoals, awayGoals);
+    }
+
+    @Test
+    void result_movesRatingsByTheSameAmountInOppositeDirections() {
+        engine.onMatchResult(result(1, 64, 65, KICK_OFF, 1, 0));
+
+        double home = engine.rating(64).orElseThrow();
+        double away = engine.rating(65).orElseThrow();
+        double expected = EloRatingEngine.expectancy(1500 + 65, 1500);
+        assertEquals(1500 + 20 * (1 - expected), home, 1e-9);
+        assertEquals(3000, home + away, 1e-9);
+    }
+
+    @Test
+    void drawBetweenEqualTeams_favoursTheAwaySide() {
+        engine.onMatchResult(result(1, 64, 65, KICK_OFF, 2, 2));
+
+        assertTrue(engine.rating(64).orElseThrow() < 1500, "home advantage made the home side favourite");
+        assertTrue(engine.rating(65).orElseThrow() > 1500);
+    }
+
+    @Test
+    void duplicateAndScorelessEvents_areIgnored() {
+        engine.onMatchResult(result(1, 64, 65, KICK_OFF, 3, 0));
+        double once = engine.rating(64).orElseThrow();
+
+        engine.onMatchResult(result(1, 64, 65, KICK_OFF, 3, 0));
+        engine.onMatchResult(new MatchResultEvent(2, 2021, 64, 65, KICK_OFF.plusDays(7), null, null));
+
+        assertEquals(once, engine.rating(64).orElseThrow());
+    }
+
+    @Test
+    void correctedScore_replacesTheAppliedOne() {
+        engine.onMatchResult(result(1, 64, 65, KICK_OFF, 1, 0));
+        engine.onMatchResult(result(2, 64, 66, KICK_OFF.plusDays(7), 2, 2));
+        engine.onMatchResult(result(1, 64, 65, KICK_OFF, 0, 1));
+
+        EloRatingEngine expected = freshEngine();
+        expected.onMatchResult(result(1, 64, 65, KICK_OFF, 0, 1));
+        expected.onMatchResult(result(2, 64, 66, KICK_OFF.plusDays(7), 2, 2));
+        for (long team : new long[] {64, 65, 66}) {
+            assertEquals(expected.rating(team).orElseThrow(), engine.rating(team).orElseThrow(), 1e-9);
+        }
+    }
+
+    @Test
+    void lateResult_isAppliedAtItsKickOff() {
+        engine.onMatchResult(result(2, 64, 66, KICK_OFF.plusDays(7), 3, 1));
+        engine.onMatchResult(result(1, 64, 65, KICK_OFF, 0, 2));
+
+        EloRatingEngine expected = freshEngine();
+        expected.onMatchResult(result(1, 64, 65, KICK_OFF, 0, 2));
+        expected.onMatchResult(result(2, 64, 66, KICK_OFF.plusDays(7), 3, 1));
+        assertEquals(expected.rating(64).orElseThrow(), engine.rating(64).orElseThrow(), 1e-9);
+        assertEquals(expected.ratingAt(64, KICK_OFF.plusDays(7).toInstant()).orElseThrow(),
+                engine.ratingAt(64, KICK_OFF.plusDays(7).toInstant()).orElseThrow(), 1e-9);
+        assertTrue(engine.ratingAt(64, KICK_OFF.plusDays(7).toInstant()).orElseThrow() < 1500,
+                "the late defeat counts before the later match");
+    }
+
+    @Test
+    void simultaneousKickOffs_arrivingOutOfIdOrder_areAppliedAsTheyArrive() {
+        engine.onMatchResult(result(3, 64, 65, KICK_OFF, 2, 0));
+        engine.onMatchResult(result(1, 66, 67, KICK_OFF, 1, 1));
+        engine.onMatchResult(result(2, 68, 69, KICK_OFF, 0, 3));
+        engine.onMatchResult(result(4, 65, 66, KICK_OFF.plusDays(7), 1, 0));
+        engine.onMatchResult(result(2, 68, 69, KICK_OFF, 0, 3));
+
+        EloRatingEngine expected = freshEngine();
+        expected.onMatchResult(result(1, 66, 67, KICK_OFF, 1, 1));
+        expected.onMatchResult(result(2, 68, 69, KICK_OFF, 0, 3));
+        expected.onMatchResult(result(3, 64, 65, KICK_OFF, 2, 0));
+        expected.onMatchResult(result(4, 65, 66, KICK_OFF.plusDays(7), 1, 0));
+        for (long team = 64; team <= 69; team++) {
+            assertEquals(expected.rating(team).orElseThrow(), engine.rating(team).orElseThrow(), 1e-9);
+        }
+    }
+
+    @Test
+    void lateResult_keepsTheRatingsBeforeItsKickOff() {
+        engine.onMatchResult(result(1, 64, 65, KICK_OFF, 3, 0));
+        engine.onMatchResult(result(3, 64, 66, KICK_OFF.plusDays(14), 1, 1));
+        engine.onMatchResult(result(2, 65, 66, KICK_OFF.plusDays(7), 2, 1));
+
+        EloRatingEngine expected = freshEngine();
+        expected.onMatchResult(result(1, 64, 65, KICK_OFF, 3, 0));
+        expected.onMatchResult(result(2, 65, 66, KICK_OFF.plusDays(7), 2, 1));
+        expected.onMatchResult(result(3, 64, 66, KICK_OFF.plusDays(14), 1, 1));
+        for (long team = 64; team <= 66; team++) {
+            assertEquals(expected.rating(team).orElseThrow(), engine.rating(team).orElseThrow(), 1e-9);
+            assertEquals(expected.ratingAt(team, KICK_OFF.plusDays(7).toInstant()).orElseThrow(),
+                    engine.ratingAt(team, KICK_OFF.plusDays(7).toInstant()).orElseThrow(), 1e-9);
+        }
+    }
+
+    @Test
+    void competitionAddedAfterStartup_usesItsOwnUpdateFactor() {
+        config.setUpdateFactorByCompetition(Map.of("CL", 30.0));
+        when(jdbcTemplate.queryForList(anyString(), any(SqlParameterSource.class), eq(String.class)))
+                .thenReturn(List.of("CL"));
+
+        engine.onMatchResult(result(1, 64, 65, KICK_OFF, 1, 0));
+
+        double expected = EloRatingEngine.expectancy(1500 + 65, 1500);
+        assertEquals(1500 + 30 * (1 - expected), engine.rating(64).orElseThrow(), 1e-9);
+    }
+
+    @Test
+    void largerMargins_weighMore() {
+        assertEquals(1.0, EloRatingEngine.marginMultiplier(-1));
+        assertEquals(1.5, EloRatingEngine.marginMultiplier(2));
+        assertEquals(1.75, EloRatingEngine.marginMultiplier(3));
+        assertEquals(2.0, EloRatingEngine.marginMultiplier(-5));
+    }
+
+    @Test
+    void ratingAt_returnsTheRatingBeforeKickOff() {
+        engine.onMatchResult(result(1, 64, 65, KICK_OFF, 1, 0));
+        double afterFirst = engine.rating(64).orElseThrow();
+        engine.onMatchResult(result(2, 66, 64, KICK_OFF.plusDays(7), 0, 2));
+
+        assertEquals(1500, engine.ratingAt(64, KICK_OFF.toInstant()).orElseThrow());
+        assertEquals(afterFirst, engine.ratingAt(64, KICK_OFF.plusDays(7).toInstant()).orElseThrow());
+        assertEquals(engine.rating(64).orElseThrow(), engine.ratingAt(64, KICK_OFF.plusDays(8).toInstant()).orElseThrow());
+        assertTrue(engine.ratingAt(99, KICK_OFF.toInstant()).isEmpty());
+    }
+
+    @Test
+    void teamsAddedOutOfIdOrder_keepTheirOwnRatings() {
+        engine.onMatchResult(result(1, 500, 400, KICK_OFF, 4, 0));
+        engine.onMatchResult(result(2, 20, 10, KICK_OFF.plusDays(1), 0, 0));
+
+        assertTrue(engine.rating(500).orElseThrow() > 1500);
+        assertTrue(engine.rating(400).orElseThrow() < 1500);
+        assertTrue(engine.rating(10).orElseThrow() > 1500);
+        assertEquals(engine.rating(500).orElseThrow(), engine.ratingAt(500, KICK_OFF.plusDays(2).toInstant()).orElseThrow());
+    }
+
+    @Test
+    void ratingByName_resolvesThroughTheTeamDirectory() {
+        engine.onMatchResult(result(1, 64, 65, KICK_OFF, 1, 0));
+        when(teamDirectory.resolve("Liverpool")).thenReturn(Set.of(64L));
+        when(teamDirectory.resolve("United")).thenReturn(Set.of(66L, 67L));
+
+        assertEquals(engine.rating(64).orElseThrow(), engine.rating("Liverpool").orElseThrow());
+        assertTrue(engine.rating("United").isEmpty(), "ambiguous names have no rating");
+    }
+}
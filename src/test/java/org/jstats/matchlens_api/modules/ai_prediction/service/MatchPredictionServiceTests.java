@@ -0,0 +1,543 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jstats.matchlens_api.modules.ai_prediction.config.BulkheadConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.config.OllamaConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.config.PromptConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.config.RetrievalConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.config.TierConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.model.BatchPredictionResult;
+import org.jstats.matchlens_api.modules.ai_prediction.model.MatchContext;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionMode;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionRequest;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionResponse;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionStreamEvent;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionTier;
+import org.jstats.matchlens_api.modules.ai_prediction.repository.MatchEmbeddingRepository;
+import org.jstats.matchlens_api.modules.ai_prediction.repository.MatchPredictionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.stubbing.Answer;
+import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class MatchPredictionServiceTests {
+
+    ChatClient chatClient;
+    MatchContextBuilder contextBuilder;
+    EmbeddingService embeddingService;
+    MatchEmbeddingRepository embeddingRepository;
+    MatchPredictionRepository predictionRepository;
+    PredictionCache predictionCache;
+    SemanticPredictionCache semanticCache;
+    StatisticalPredictor statisticalPredictor;
+    TierSelector tierSelector;
+    PromptConfig promptConfig;
+    SimpleMeterRegistry meterRegistry;
+
+    MatchPredictionService service;
+
+    private static final PredictionRequest REQUEST =
+            new PredictionRequest("Liverpool", "Manchester City", "PL", LocalDate.of(2024, 1, 15));
+    private static final List<ContextCompressor.MatchRow> ROWS = List.of(
+            row(1, "Liverpool", "Manchester City", 1, 1, "2023-11-25"));
+    private static final List<PredictionResponse.HistoricalMatch> HISTORY = List.of(
+            new PredictionResponse.HistoricalMatch("Liverpool", "Manchester City", "1-1", "Premier League", "2023-11-25"));
+
+    private static ContextCompressor.MatchRow row(
+            long id, String home, String away, Integer homeGoals, Integer awayGoals, String date) {
+        return new ContextCompressor.MatchRow(id, date, id * 2, home, null, id * 2 + 1, away, null,
+                homeGoals, awayGoals, "Premier League", "PL");
+    }
+
+    private static List<PredictionResponse.HistoricalMatch> historical(List<ContextCompressor.MatchRow> rows) {
+        return rows.stream().map(ContextCompressor.MatchRow::toHistoricalMatch).toList();
+    }
+
+    @BeforeEach
+    void setUp() {
+        chatClient = mock(ChatClient.class, RETURNS_DEEP_STUBS);
+        contextBuilder = mock(MatchContextBuilder.class);
+        embeddingService = mock(EmbeddingService.class);
+        embeddingRepository = mock(MatchEmbeddingRepository.class);
+        predictionRepository = mock(MatchPredictionRepository.class);
+        when(contextBuilder.batch()).thenReturn(contextBuilder);
+        when(embeddingRepository.batch()).thenReturn(embeddingRepository);
+        when(predictionRepository.batch()).thenReturn(predictionRepository);
+        statisticalPredictor = mock(StatisticalPredictor.class);
+        promptConfig = new PromptConfig();
+        meterRegistry = new SimpleMeterRegistry();
+        predictionCache = new PredictionCache(new PromptConfig(), new TierConfig(), new SimpleMeterRegistry(), mock(TeamDirectory.class));
+        tierSelector = new TierSelector(new TierConfig(), new OllamaConfig(),
+                new OllamaBulkheads(new BulkheadConfig(), meterRegistry), meterRegistry);
+        semanticCache = new SemanticPredictionCache(new PromptConfig(), new TierConfig(), new SimpleMeterRegistry(), mock(TeamDirectory.class));
+
+        when(embeddingService.generateQueryEmbedding(anyString())).thenReturn(List.of(0.1, 0.2));
+        when(embeddingRepository.findHybridMatches(anyList(), anyString(), anyString(), any(), any(), any(), anyInt()))
+                .thenReturn(List.of(1L));
+        when(embeddingService.generateQueryEmbeddings(anyList()))
+                .thenAnswer(inv -> Collections.nCopies(inv.<List<?>>getArgument(0).size(), List.of(0.1, 0.2)));
+        when(embeddingRepository.findHybridMatchesBatch(anyList(), any(), any(), anyInt()))
+                .thenAnswer(inv -> Collections.nCopies(inv.<List<?>>getArgument(0).size(), List.of(1L)));
+        when(contextBuilder.similarMatches(anyList())).thenReturn(ROWS);
+        when(contextBuilder.assemble(anyList(), anyList(), anyString(), anyString(), any())).thenAnswer(inv -> new MatchContext(
+                "2023-11-25 Liverpool 1-1 Manchester City PL", historical(inv.getArgument(0)),
+                MatchContext.TeamStats.empty(), MatchContext.TeamStats.empty()));
+
+        service = new MatchPredictionService(chatClient, contextBuilder, embeddingService, embeddingRepository,
+                predictionRepository, predictionCache, semanticCache, statisticalPredictor, tierSelector, promptConfig, new RetrievalConfig(), new ObjectMapper(),
+                meterRegistry);
+    }
+
+    @Test
+    void predictStream_emitsContextThenTokensThenParsedResult() {
+        when(chatClient.prompt().user(anyString()).options(any()).stream().content()).thenReturn(Flux.just(
+                "{\"predictedWinner\": \"HOME\", ",
+                "\"confidence\": 0.7, \"reasoning\": \"form\", ",
+                "\"keyFactors\": [\"home advantage\"]}"));
+
+        List<PredictionStreamEvent> events = service.predictStream(REQUEST).collectList().block();
+
+        assertNotNull(events);
+        assertEquals(5, events.size());
+        assertEquals(new PredictionStreamEvent.Context(HISTORY), events.getFirst());
+        assertInstanceOf(PredictionStreamEvent.Token.class, events.get(1));
+        var result = assertInstanceOf(PredictionStreamEvent.Result.class, events.getLast());
+        assertEquals("HOME", result.prediction().predictedWinner());
+        assertEquals(0.7, result.prediction().confidence());
+        assertEquals(HISTORY, result.prediction().relevantMatches());
+    }
+
+    @Test
+    void predictStream_onLlmError_endsWithFallbackResult() {
+        when(chatClient.prompt().user(anyString()).options(any()).stream().content())
+                .thenReturn(Flux.error(new IllegalStateException("ollama down")));
+
+        List<PredictionStreamEvent> events = service.predictStream(REQUEST).collectList().block();
+
+        assertNotNull(events);
+        assertInstanceOf(PredictionStreamEvent.Context.class, events.getFirst());
+        var result = assertInstanceOf(PredictionStreamEvent.Result.class, events.getLast());
+        assertEquals(HISTORY, result.prediction().relevantMatches());
+    }
+
+    @Test
+    void predictStream_whenShed_endsWithOverloadedEvent() {
+        when(chatClient.prompt().user(anyString()).options(any()).stream().content()).thenReturn(Flux.error(
+                new Bulkhead.RejectedException("ollama-chat", Bulkhead.Reason.WAIT_TIMEOUT, Duration.ofSeconds(5))));
+
+        List<PredictionStreamEvent> events = service.predictStream(REQUEST).collectList().block();
+
+        assertNotNull(events);
+        assertInstanceOf(PredictionStreamEvent.Context.class, events.getFirst());
+        assertEquals(new PredictionStreamEvent.Overloaded("WAIT_TIMEOUT", 5), events.getLast());
+    }
+
+    @Test
+    void predictStream_whenShedBeforeTheFirstEvent_failsTheRequest() {
+        var shed = new Bulkhead.RejectedException("ollama-embedding", Bulkhead.Reason.QUEUE_FULL, Duration.ofSeconds(5));
+        when(embeddingService.generateQueryEmbedding(anyString())).thenThrow(shed);
+
+        assertSame(shed, assertThrows(Bulkhead.RejectedException.class,
+                () -> service.predictStream(REQUEST).collectList().block()));
+    }
+
+    @Test
+    void predictStream_servesCachedPredictionWithoutCallingModel() {
+        var cached = new PredictionResponse("AWAY", 0.55, "cached", List.of(), HISTORY);
+        predictionCache.put(REQUEST, cached);
+
+        List<PredictionStreamEvent> events = service.predictStream(REQUEST).collectList().block();
+
+        assertEquals(List.of(new PredictionStreamEvent.Context(HISTORY), new PredictionStreamEvent.Result(cached)), events);
+        verifyNoInteractions(embeddingService);
+    }
+
+    @Test
+    void predictBatch_servesCachedFirstAndSharesRetrievalAcrossFixtures() {
+        var ars = new PredictionRequest("Arsenal", "Chelsea", "PL", LocalDate.of(2024, 1, 15));
+        var eve = new PredictionRequest("Everton", "Fulham", "PL", LocalDate.of(2024, 1, 15));
+        var cached = new PredictionResponse("AWAY", 0.55, "cached", List.of(), HISTORY);
+        predictionCache.put(ars, cached);
+        var context = new MatchContext("- Liverpool vs Manchester City: 1-1", HISTORY,
+                MatchContext.TeamStats.empty(), MatchContext.TeamStats.empty());
+        when(contextBuilder.buildAll(anyList(), anyList())).thenReturn(List.of(context, context));
+        when(chatClient.prompt().user(anyString()).options(any()).call().content())
+                .thenReturn("{\"predictedWinner\": \"HOME\", \"confidence\": 0.6}");
+
+        List<BatchPredictionResult> results = service.predictBatch(List.of(REQUEST, ars, eve)).collectList().block();
+
+        assertNotNull(results);
+        assertEquals(new BatchPredictionResult(1, ars, cached), results.getFirst());
+        assertEquals(Set.of(0, 1, 2), results.stream().map(BatchPredictionResult::index).collect(Collectors.toSet()));
+        verify(embeddingService, times(1)).generateQueryEmbeddings(List.of(
+                "Liverpool vs Manchester City PL football match", "Everton vs Fulham PL football match"));
+        verify(embeddingService, never()).generateQueryEmbedding(anyString());
+        verify(embeddingRepository, times(1)).findHybridMatchesBatch(anyList(), any(), any(), anyInt());
+        assertTrue(predictionCache.get(eve).isPresent(), "generated predictions are cached");
+    }
+
+    @Test
+    void predict_servesStoredPredictionAndWarmsCache() {
+        var stored = new PredictionResponse("HOME", 0.62, "precomputed", List.of(), HISTORY);
+        when(predictionRepository.findByFixture(REQUEST)).thenReturn(Optional.of(stored));
+
+        assertEquals(stored, service.predict(REQUEST));
+        assertEquals(stored, predictionCache.get(REQUEST).orElseThrow());
+        verifyNoInteractions(embeddingService, contextBuilder);
+    }
+
+    @Test
+    void predictMatch_storesOnDemandPredictionButNotFallbacks() {
+        when(predictionRepository.findFixture(anyLong())).thenAnswer(inv ->
+                Optional.of(new MatchPredictionRepository.Fixture(inv.getArgument(0), REQUEST, true)));
+        when(chatClient.prompt().user(anyString()).options(any()).call().content())
+                .thenReturn("{\"predictedWinner\": \"AWAY\", \"confidence\": 0.4}")
+                .thenThrow(new IllegalStateException("ollama down"));
+
+        assertEquals("AWAY", service.predictMatch(7L).orElseThrow().predictedWinner());
+        verify(predictionRepository).save(eq(7L), any());
+
+        assertFalse(service.precompute(8L, REQUEST));
+        verify(predictionRepository, never()).save(eq(8L), any());
+    }
+
+    @Test
+    void predictMatch_rejectsMatchesThatAreNoLongerUpcoming() {
+        when(predictionRepository.findFixture(7L)).thenReturn(Optional.of(new MatchPredictionRepository.Fixture(7L, REQUEST, false)));
+
+        var e = assertThrows(ResponseStatusException.class, () -> service.predictMatch(7L));
+
+        assertEquals(HttpStatus.CONFLICT, e.getStatusCode());
+        verifyNoInteractions(embeddingService, contextBuilder);
+    }
+
+    @Test
+    void predict_fallsBackToStatisticalModelWhenLlmFails() {
+        var outcome = StatisticalPredictor.outcome(1.8, 0.9);
+        when(statisticalPredictor.predict("Liverpool", "Manchester City", REQUEST.matchDate())).thenReturn(Optional.of(outcome));
+        when(chatClient.prompt().user(anyString()).options(any()).call().content()).thenThrow(new IllegalStateException("ollama down"));
+
+        PredictionResponse response = service.predict(REQUEST);
+
+        assertEquals(PredictionResponse.Source.STATISTICAL, response.source());
+        assertEquals("HOME", response.predictedWinner());
+        assertEquals(outcome.homeWin(), response.confidence());
+        assertEquals(HISTORY, response.relevantMatches());
+        assertTrue(predictionCache.get(REQUEST).isEmpty(), "fallbacks are not cached");
+    }
+
+    @Test
+    void predict_statisticalModeSkipsRetrievalAndModel() {
+        when(statisticalPredictor.predict(anyString(), anyString(), any())).thenReturn(Optional.empty());
+
+        PredictionResponse response = service.predict(REQUEST, PredictionMode.STATISTICAL);
+
+        assertEquals(PredictionResponse.Source.FALLBACK, response.source());
+        verifyNoInteractions(embeddingService, contextBuilder);
+        verify(chatClient, never()).prompt();
+    }
+
+    @Test
+    void predict_degradesToStatisticalAnswerWhenLlmExceedsBudget() {
+        promptConfig.setLatencyBudget(Duration.ofMillis(200));
+        var outcome = StatisticalPredictor.outcome(1.8, 0.9);
+        when(statisticalPredictor.predict("Liverpool", "Manchester City", REQUEST.matchDate())).thenReturn(Optional.of(outcome));
+        when(chatClient.prompt().user(anyString()).options(any()).call().content()).thenAnswer(inv -> {
+            Thread.sleep(10_000);
+            return "{\"predictedWinner\": \"AWAY\"}";
+        });
+
+        long started = System.nanoTime();
+        PredictionResponse response = service.predict(REQUEST);
+
+        assertTrue(System.nanoTime() - started < Duration.ofSeconds(5).toNanos(), "request is not held by the LLM");
+        assertEquals(PredictionResponse.Source.STATISTICAL, response.source());
+        assertEquals(HISTORY, response.relevantMatches());
+        assertEquals(1.0, meterRegistry.get("matchlens.prediction.budget.exceeded").tag("phase", "generation").counter().count());
+        assertTrue(predictionCache.get(REQUEST).isEmpty());
+        var generation = meterRegistry.get("matchlens.prediction.generation").tag("tier", "STANDARD").timer();
+        assertEquals(1, generation.count(), "a call cut off by the budget is recorded");
+        assertEquals(200, generation.totalTime(TimeUnit.MILLISECONDS), 1e-6);
+    }
+
+    @Test
+    void predict_withoutStatisticsFallsBackToMajorityOfRetrievedMatches() {
+        when(statisticalPredictor.predict(anyString(), anyString(), any())).thenReturn(Optional.empty());
+        var matches = List.of(
+                row(1, "A", "B", 2, 0, "2023-01-01"),
+                row(2, "C", "D", 1, 0, "2023-01-02"),
+                row(3, "E", "F", 1, 1, "2023-01-03"),
+                row(4, "G", "H", null, null, "2023-01-04"));
+        when(contextBuilder.similarMatches(anyList())).thenReturn(matches);
+        when(chatClient.prompt().user(anyString()).options(any()).call().content()).thenThrow(new IllegalStateException("ollama down"));
+
+        PredictionResponse response = service.predict(REQUEST);
+
+        assertEquals(PredictionResponse.Source.RETRIEVAL, response.source());
+        assertEquals("HOME", response.predictedWinner());
+        assertEquals(0.5, response.confidence(), 1e-9);
+    }
+
+    @Test
+    void predict_propagatesBulkheadRejectionInsteadOfDegrading() {
+        var shed = new Bulkhead.RejectedException("ollama-chat", Bulkhead.Reason.QUEUE_FULL, Duration.ofSeconds(5));
+        when(chatClient.prompt().user(anyString()).options(any()).call().content()).thenThrow(shed);
+
+        assertSame(shed, assertThrows(Bulkhead.RejectedException.class, () -> service.predict(REQUEST)));
+        assertFalse(service.precompute(7L, REQUEST));
+        verify(predictionRepository, never()).save(anyLong(), any());
+    }
+
+    @Test
+    void predict_propagatesRetrievalFailureInsteadOfDegrading() {
+        var down = new DataAccessResourceFailureException("database down");
+        when(contextBuilder.headToHead(anyString(), anyString(), any())).thenThrow(down);
+
+        assertSame(down, assertThrows(DataAccessResourceFailureException.class, () -> service.predict(REQUEST)));
+        verify(chatClient, never()).prompt();
+        assertTrue(predictionCache.get(REQUEST).isEmpty());
+    }
+
+    @Test
+    void predict_runsRetrievalLookupsConcurrently() {
+        var recent = List.of(row(2, "Liverpool", "Everton", 2, 0, "2024-01-01"));
+        var meetings = List.of(row(3, "Manchester City", "Liverpool", 1, 1, "2023-11-25"));
+        when(contextBuilder.similarMatches(anyList())).thenAnswer(inv -> {
+            Thread.sleep(300);
+            return List.of();
+        });
+        when(contextBuilder.recentMatches("Liverpool", "Manchester City", REQUEST.matchDate())).thenAnswer(inv -> {
+            Thread.sleep(300);
+            return recent;
+        });
+        when(contextBuilder.headToHead("Liverpool", "Manchester City", REQUEST.matchDate())).thenAnswer(inv -> {
+            Thread.sleep(600);
+            return meetings;
+        });
+        when(chatClient.prompt().user(anyString()).options(any()).call().content())
+                .thenReturn("{\"predictedWinner\": \"HOME\", \"confidence\": 0.6}");
+
+        long started = System.nanoTime();
+        PredictionResponse response = service.predict(REQUEST);
+
+        assertTrue(System.nanoTime() - started < Duration.ofMillis(1000).toNanos(), "lookups overlap");
+        assertEquals(historical(recent), response.relevantMatches(), "latest matches replace an empty search result");
+        verify(contextBuilder).assemble(recent, meetings, "Liverpool", "Manchester City", REQUEST.matchDate());
+    }
+
+    @Test
+    void predict_looksUpLatestMatchesOnlyWhenSearchFindsNothing() {
+        when(chatClient.prompt().user(anyString()).options(any()).call().content())
+                .thenReturn("{\"predictedWinner\": \"HOME\", \"confidence\": 0.6}");
+
+        service.predict(REQUEST);
+
+        verify(contextBuilder, never()).recentMatches(anyString(), anyString(), any());
+        verify(contextBuilder).assemble(eq(ROWS), anyList(), eq("Liverpool"), eq("Manchester City"), eq(REQUEST.matchDate()));
+    }
+
+    @Test
+    void predict_budgetCancelsAllRetrievalLookups() throws Exception {
+        promptConfig.setLatencyBudget(Duration.ofMillis(200));
+        var interrupted = new CountDownLatch(2);
+        Answer<Object> slow = inv -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return List.of();
+        };
+        when(contextBuilder.similarMatches(anyList())).thenAnswer(slow);
+        when(contextBuilder.headToHead(anyString(), anyString(), any())).thenAnswer(slow);
+        when(statisticalPredictor.predict(anyString(), anyString(), any())).thenReturn(Optional.empty());
+
+        PredictionResponse response = service.predict(REQUEST);
+
+        assertEquals(PredictionResponse.Source.FALLBACK, response.source());
+        assertTrue(interrupted.await(5, TimeUnit.SECONDS), "slow lookups are interrupted");
+        assertEquals(1.0, meterRegistry.get("matchlens.prediction.budget.exceeded").tag("phase", "retrieval").counter().count());
+        verify(chatClient, never()).prompt();
+    }
+
+    @Test
+    void predict_sendsOnlyFixtureDataInUserMessage() {
+        when(chatClient.prompt().user(anyString()).options(any()).call().content())
+                .thenReturn("{\"predictedWinner\": \"HOME\", \"confidence\": 0.6}");
+        var prompt = ArgumentCaptor.forClass(String.class);
+
+        service.predict(REQUEST);
+
+        verify(chatClient.prompt(), atLeastOnce()).user(prompt.capture());
+        String user = prompt.getAllValues().getLast();
+        assertTrue(user.startsWith("Match: Liverpool vs Manchester City"), user);
+        assertFalse(user.contains("predictedWinner"), "instructions belong to the static system prompt");
+        assertFalse(PromptConfig.SYSTEM_PROMPT.contains("%"), "system prompt has no per-request placeholders");
+    }
+
+    @Test
+    void predict_retriesAnswerThatViolatesSchema() {
+        when(chatClient.prompt().user(anyString()).options(any()).call().content())
+                .thenReturn("{\"predictedWinner\": \"HOME\", \"confidence\": ")
+                .thenReturn("{\"predictedWinner\": \"DRAW\", \"confidence\": 0.45, \"keyFactors\": [\"form\"]}");
+
+        PredictionResponse response = service.predict(REQUEST);
+
+        assertEquals(PredictionResponse.Source.LLM, response.source());
+        assertEquals("DRAW", response.predictedWinner());
+        assertEquals(List.of("form"), response.keyFactors());
+        assertEquals(1.0, meterRegistry.get("matchlens.prediction.llm.responses").tag("result", "invalid").counter().count());
+        assertEquals(1.0, meterRegistry.get("matchlens.prediction.llm.responses").tag("result", "parsed").counter().count());
+        assertEquals(1.0, meterRegistry.get("matchlens.prediction.llm.retries").counter().count());
+    }
+
+    @Test
+    void predict_fallsBackWhenRetriesYieldNoValidAnswer() {
+        var outcome = StatisticalPredictor.outcome(0.9, 1.8);
+        when(statisticalPredictor.predict("Liverpool", "Manchester City", REQUEST.matchDate())).thenReturn(Optional.of(outcome));
+        when(chatClient.prompt().user(anyString()).options(any()).call().content())
+                .thenReturn("HOME looks likely")
+                .thenReturn("{\"predictedWinner\": \"HOME\", \"confidence\": 1.7}");
+
+        PredictionResponse response = service.predict(REQUEST);
+
+        assertEquals(PredictionResponse.Source.STATISTICAL, response.source(), "free text is never scanned for an outcome");
+        assertEquals("AWAY", response.predictedWinner());
+        assertEquals(2.0, meterRegistry.get("matchlens.prediction.llm.responses").tag("result", "invalid").counter().count());
+        assertTrue(predictionCache.get(REQUEST).isEmpty());
+    }
+
+    @Test
+    void predict_reusesPredictionOfDifferentlyPhrasedFixture() {
+        when(embeddingService.generateQueryEmbedding("Liverpool vs Manchester City PL football match"))
+                .thenReturn(List.of(0.6, 0.8, 0.0));
+        when(embeddingService.generateQueryEmbedding("Liverpool vs Man City Premier League football match"))
+                .thenReturn(List.of(0.59, 0.8, 0.02));
+        when(chatClient.prompt().user(anyString()).options(any()).call().content())
+                .thenReturn("{\"predictedWinner\": \"HOME\", \"confidence\": 0.6}");
+        var variant = new PredictionRequest("Liverpool", "Man City", "Premier League", LocalDate.of(2024, 1, 15));
+
+        PredictionResponse first = service.predict(REQUEST);
+        PredictionResponse second = service.predict(variant);
+
+        assertEquals(first, second);
+        assertEquals(1.0, meterRegistry.get("matchlens.prediction.llm.responses").tag("result", "parsed").counter().count(),
+                "the model is called once");
+        verify(contextBuilder, times(1)).assemble(anyList(), anyList(), anyString(), anyString(), any());
+        assertEquals(first, predictionCache.get(variant).orElseThrow(), "the exact-key cache is warmed for the variant");
+    }
+
+    @Test
+    void predict_coalescesConcurrentIdenticalRequests() throws Exception {
+        var coalesced = meterRegistry.counter("matchlens.singleflight.calls", "flight", "predictions", "role", "coalesced");
+        when(chatClient.prompt().user(anyString()).options(any()).call().content()).thenAnswer(inv -> {
+            // Hold the leader until the other callers have joined its flight
+            long until = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (coalesced.count() < 3 && System.nanoTime() < until) {
+                Thread.sleep(10);
+            }
+            return "{\"predictedWinner\": \"HOME\", \"confidence\": 0.6}";
+        });
+        var variant = new PredictionRequest(" liverpool", "Manchester  City", "pl", LocalDate.of(2024, 1, 15));
+
+        List<PredictionResponse> responses;
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var futures = List.of(REQUEST, variant, REQUEST, variant).stream()
+                    .map(request -> executor.submit(() -> service.predict(request)))
+                    .toList();
+            responses = new ArrayList<>();
+            for (var future : futures) {
+                responses.add(future.get(10, TimeUnit.SECONDS));
+            }
+        }
+
+        assertEquals(1, responses.stream().distinct().count(), "all callers share one prediction");
+        assertEquals(3.0, coalesced.count());
+        assertEquals(1.0, meterRegistry.get("matchlens.singleflight.calls").tag("role", "leader").counter().count());
+        assertEquals(1.0, meterRegistry.get("matchlens.prediction.llm.responses").tag("result", "parsed").counter().count());
+        verify(embeddingService, times(1)).generateQueryEmbedding(anyString());
+    }
+
+    @Test
+    void predict_generatesWithRequestedTierAndPrecomputesWithOfflineTier() {
+        when(chatClient.prompt().user(anyString()).options(any()).call().content())
+                .thenReturn("{\"predictedWinner\": \"HOME\", \"confidence\": 0.6}");
+
+        service.predict(REQUEST.withTier(PredictionTier.FAST));
+        service.precompute(7L, new PredictionRequest("Arsenal", "Chelsea", "PL", LocalDate.of(2024, 1, 16)));
+
+        assertEquals(1, meterRegistry.get("matchlens.prediction.generation").tag("tier", "FAST").timer().count());
+        assertEquals(1, meterRegistry.get("matchlens.prediction.generation").tag("tier", "DEEP").timer().count());
+        assertEquals(0, meterRegistry.get("matchlens.prediction.generation").tag("tier", "STANDARD").timer().count());
+    }
+
+    @Test
+    void precompute_runsLookupsAndWriteOnTheBatchPool() {
+        when(chatClient.prompt().user(anyString()).options(any()).call().content())
+                .thenReturn("{\"predictedWinner\": \"HOME\", \"confidence\": 0.6}");
+
+        service.predict(REQUEST);
+        verify(contextBuilder, never()).batch();
+        verify(embeddingRepository, never()).batch();
+
+        assertTrue(service.precompute(7L, new PredictionRequest("Arsenal", "Chelsea", "PL", LocalDate.of(2024, 1, 16))));
+        verify(contextBuilder).batch();
+        verify(embeddingRepository).batch();
+        verify(predictionRepository).batch();
+        verify(predictionRepository).save(eq(7L), any());
+    }
+
+    @Test
+    void predict_doesNotCacheDowngradedAnswers() {
+        tierSelector.recordLatency(tierSelector.select(null), Duration.ofMinutes(1).toNanos());
+        when(chatClient.prompt().user(anyString()).options(any()).call().content())
+                .thenReturn("{\"predictedWinner\": \"HOME\", \"confidence\": 0.6}");
+
+        PredictionResponse response = service.predict(REQUEST.withTier(PredictionTier.DEEP));
+
+        assertEquals(PredictionResponse.Source.LLM, response.source());
+        assertEquals(1, meterRegistry.get("matchlens.prediction.generation").tag("tier", "FAST").timer().count());
+        assertTrue(predictionCache.get(REQUEST.withTier(PredictionTier.DEEP)).isEmpty(),
+                "a deep request must not be answered by a cached fast one");
+        assertTrue(semanticCache.get(REQUEST.withTier(PredictionTier.DEEP), List.of(0.1, 0.2)).isEmpty());
+    }
+
+    @Test
+    void predict_deepAfterFast_isNotServedFromTheCache() {
+        when(chatClient.prompt().user(anyString()).options(any()).call().content())
+                .thenReturn("{\"predictedWinner\": \"AWAY\", \"confidence\": 0.4}")
+                .thenReturn("{\"predictedWinner\": \"HOME\", \"confidence\": 0.7}");
+
+        PredictionResponse fast = service.predict(REQUEST.withTier(PredictionTier.FAST));
+        PredictionResponse deep = service.predict(REQUEST.withTier(PredictionTier.DEEP));
+
+        assertEquals("AWAY", fast.predictedWinner());
+        assertEquals("HOME", deep.predictedWinner());
+        assertEquals(1, meterRegistry.get("matchlens.prediction.generation").tag("tier", "DEEP").timer().count());
+        assertEquals(fast, service.predict(REQUEST.withTier(PredictionTier.FAST)), "each tier keeps its own entry");
+        assertEquals(deep, service.predict(REQUEST.withTier(PredictionTier.DEEP)));
+    }
+}
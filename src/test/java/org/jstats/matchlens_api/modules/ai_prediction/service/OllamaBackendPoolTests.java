@@ -0,0 +1,231 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jstats.matchlens_api.modules.ai_prediction.config.OllamaPoolConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.ollama.OllamaEmbeddingModel;
+import org.springframework.ai.ollama.api.OllamaApi;
+import org.springframework.ai.ollama.api.OllamaOptions;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class OllamaBackendPoolTests {
+
+    /**
+     * Minimal stand-in for an Ollama server: answers health checks and embedding requests.
+     */
+    static class StubOllama implements AutoCloseable {
+        final HttpServer server;
+        final AtomicInteger embedCalls = new AtomicInteger();
+        volatile int versionStatus = 200;
+        volatile int embedStatus = 200;
+
+        StubOllama() throws IOException {
+            server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/api/version", exchange -> respond(exchange, versionStatus, "{\"version\":\"0.9.0\"}"));
+            server.createContext("/api/embed", exchange -> {
+                embedCalls.incrementAndGet();
+                exchange.getRequestBody().readAllBytes();
+                respond(exchange, embedStatus, "{\"model\":\"nomic-embed-text\",\"embeddings\":[[0.6,0.8]]}");
+            });
+            server.start();
+        }
+
+        URI baseUrl() {
+            return URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+        }
+
+        private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(status, bytes.length);
+            try (var out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+        }
+    }
+
+    SimpleMeterRegistry registry;
+    OllamaPoolConfig config;
+    List<StubOllama> stubs;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        registry = new SimpleMeterRegistry();
+        config = new OllamaPoolConfig();
+        config.setFailureThreshold(2);
+        config.setEjectionTime(Duration.ofMinutes(1));
+        stubs = List.of(new StubOllama(), new StubOllama());
+    }
+
+    @AfterEach
+    void tearDown() {
+        stubs.forEach(StubOllama::close);
+    }
+
+    private OllamaBackendPool pool() {
+        List<OllamaBackend> backends = new ArrayList<>();
+        for (StubOllama stub : stubs) {
+            var api = OllamaApi.builder().baseUrl(stub.baseUrl().toString()).build();
+            var embeddingModel = OllamaEmbeddingModel.builder()
+                    .ollamaApi(api)
+                    .defaultOptions(OllamaOptions.builder().model("nomic-embed-text").build())
+                    .build();
+            backends.add(new OllamaBackend(stub.baseUrl(), mock(ChatModel.class), embeddingModel, config, registry));
+        }
+        return new OllamaBackendPool(backends, config, registry);
+    }
+
+    private double calls(OllamaBackend backend, String outcome) {
+        return registry.get("matchlens.ollama.backend.calls").tag("backend", backend.name()).tag("outcome", outcome)
+                .timer().count();
+    }
+
+    @Test
+    void embeddings_areSpreadOverIdleBackends() {
+        var model = new RoutingEmbeddingModel(pool());
+
+        for (int i = 0; i < 6; i++) {
+            assertArrayEquals(new float[]{0.6f, 0.8f}, model.embed("Liverpool vs Manchester City"));
+        }
+
+        assertEquals(3, stubs.get(0).embedCalls.get());
+        assertEquals(3, stubs.get(1).embedCalls.get());
+    }
+
+    @Test
+    void choose_prefersBackendWithFewestOutstandingCalls() throws Exception {
+        var pool = pool();
+        var busy = pool.backends().get(0);
+        var entered = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+
+        try (var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<?> held = executor.submit(() -> pool.execute(backend -> {
+                assertSame(busy, backend);
+                entered.countDown();
+                try {
+                    return release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }));
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            for (int i = 0; i < 3; i++) {
+                assertSame(pool.backends().get(1), pool.choose(), "the idle backend takes new calls");
+            }
+            release.countDown();
+            held.get(5, TimeUnit.SECONDS);
+        }
+        assertEquals(0, busy.outstanding());
+    }
+
+    @Test
+    void interruptedCall_isReleasedWithoutCountingAsFailure() {
+        var pool = pool();
+        var backend = pool.backends().get(0);
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(IllegalStateException.class, () -> pool.execute(chosen -> {
+                throw new IllegalStateException("aborted", new InterruptedException());
+            }));
+        }
+
+        assertEquals(0, backend.outstanding());
+        assertEquals(0, pool.backends().get(1).outstanding());
+        assertTrue(backend.available(), "cancelled calls do not eject the backend");
+        assertEquals(0.0, calls(backend, "failure"));
+    }
+
+    @Test
+    void backendName_usesTheDefaultPortOfTheScheme() {
+        assertEquals(80, OllamaBackend.port(URI.create("http://ollama.internal")));
+        assertEquals(443, OllamaBackend.port(URI.create("https://ollama.internal/")));
+        assertEquals(11434, OllamaBackend.port(URI.create("http://ollama.internal:11434")));
+    }
+
+    @Test
+    void failingBackend_isEjectedAfterConsecutiveFailures() {
+        stubs.get(0).embedStatus = 500;
+        var pool = pool();
+        var model = new RoutingEmbeddingModel(pool);
+        var failing = pool.backends().get(0);
+
+        int failures = 0;
+        for (int i = 0; i < 10; i++) {
+            try {
+                model.embed("Liverpool vs Manchester City");
+            } catch (RuntimeException e) {
+                failures++;
+            }
+        }
+
+        assertEquals(2, failures, "calls stop reaching the backend once it is ejected");
+        assertFalse(failing.available());
+        assertEquals(2.0, calls(failing, "failure"));
+        assertEquals(8.0, calls(pool.backends().get(1), "success"));
+        assertEquals(1.0, registry.get("matchlens.ollama.backend.ejections").tag("backend", failing.name()).counter().count());
+    }
+
+    @Test
+    void slowCalls_countTowardsEjection() {
+        config.setSlowCallThreshold(Duration.ZERO);
+        var pool = pool();
+        var model = new RoutingEmbeddingModel(pool);
+
+        for (int i = 0; i < 4; i++) {
+            model.embed("Liverpool vs Manchester City");
+        }
+
+        assertFalse(pool.backends().get(0).available());
+        assertFalse(pool.backends().get(1).available());
+        assertNotNull(pool.choose(), "an exhausted pool still routes to the least loaded backend");
+        assertEquals(1.0, registry.get("matchlens.ollama.pool.exhausted").counter().count());
+    }
+
+    @Test
+    void checkHealth_takesFailingBackendOutOfRotationUntilItRecovers() {
+        var pool = pool();
+        var model = new RoutingEmbeddingModel(pool);
+        stubs.get(1).versionStatus = 503;
+
+        pool.checkHealth();
+        for (int i = 0; i < 4; i++) {
+            model.embed("Liverpool vs Manchester City");
+        }
+        assertEquals(4, stubs.get(0).embedCalls.get());
+        assertEquals(0.0, registry.get("matchlens.ollama.backend.available")
+                .tag("backend", pool.backends().get(1).name()).gauge().value());
+
+        stubs.get(1).versionStatus = 200;
+        pool.checkHealth();
+        model.embed("Liverpool vs Manchester City");
+        model.embed("Liverpool vs Manchester City");
+        assertEquals(1, stubs.get(1).embedCalls.get());
+    }
+}
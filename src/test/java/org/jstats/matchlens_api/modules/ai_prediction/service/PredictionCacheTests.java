@@ -0,0 +1,126 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jstats.matchlens_api.modules.ai_prediction.config.PromptConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.config.TierConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionRequest;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionResponse;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionTier;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.feed.MatchResultEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class PredictionCacheTests {
+
+    TeamDirectory teamDirectory;
+    SimpleMeterRegistry registry;
+    PredictionCache cache;
+
+    private static final PredictionRequest LIV_MCI =
+            new PredictionRequest("Liverpool", "Manchester City", "PL", LocalDate.of(2024, 1, 15));
+    private static final PredictionRequest ARS_CHE =
+            new PredictionRequest("Arsenal", "Chelsea", "PL", LocalDate.of(2024, 1, 16));
+    private static final PredictionResponse HOME_WIN =
+            new PredictionResponse("HOME", 0.6, "r", List.of(), List.of());
+
+    @BeforeEach
+    void setUp() {
+        teamDirectory = mock(TeamDirectory.class);
+        registry = new SimpleMeterRegistry();
+        var config = new PromptConfig();
+        config.setCacheMaxSize(100);
+        cache = new PredictionCache(config, new TierConfig(), registry, teamDirectory);
+    }
+
+    @Test
+    void get_normalizesTeamAndCompetitionNames() {
+        cache.put(LIV_MCI, HOME_WIN);
+
+        var variant = new PredictionRequest("  liverpool ", "Manchester   CITY", "pl", LocalDate.of(2024, 1, 15));
+        assertEquals(HOME_WIN, cache.get(variant).orElseThrow());
+        assertTrue(cache.get(new PredictionRequest("Liverpool", "Manchester City", "PL", LocalDate.of(2024, 1, 22))).isEmpty());
+    }
+
+    @Test
+    void get_keepsTiersApart() {
+        cache.put(LIV_MCI.withTier(PredictionTier.FAST), HOME_WIN);
+
+        assertTrue(cache.get(LIV_MCI.withTier(PredictionTier.DEEP)).isEmpty());
+        assertTrue(cache.get(LIV_MCI).isEmpty(), "no tier asks for the default tier");
+        assertEquals(HOME_WIN, cache.get(LIV_MCI.withTier(PredictionTier.FAST)).orElseThrow());
+
+        cache.put(LIV_MCI, HOME_WIN);
+        assertEquals(HOME_WIN, cache.get(LIV_MCI.withTier(PredictionTier.STANDARD)).orElseThrow());
+    }
+
+    @Test
+    void matchResult_invalidatesOnlyEntriesOfInvolvedTeams() {
+        cache.put(new PredictionRequest("Man City", "Everton", "PL", LocalDate.of(2024, 2, 1)), HOME_WIN);
+        cache.put(ARS_CHE, HOME_WIN);
+        when(teamDirectory.namesOf(List.of(65L, 62L))).thenReturn(
+                Set.of("manchester city fc", "manchester city", "man city", "mci", "everton fc", "everton", "eve"));
+
+        cache.onMatchResult(new MatchResultEvent(1, 2021, 65, 62, OffsetDateTime.now(), 2, 0));
+
+        assertTrue(cache.get(new PredictionRequest("Man City", "Everton", "PL", LocalDate.of(2024, 2, 1))).isEmpty());
+        assertTrue(cache.get(ARS_CHE).isPresent());
+    }
+
+    @Test
+    void matchResult_invalidatesEntriesRequestedByAlias() {
+        var byAlias = new PredictionRequest("Spurs", "Arsenal", "PL", LocalDate.of(2024, 2, 1));
+        cache.put(byAlias, HOME_WIN);
+        when(teamDirectory.namesOf(List.of(73L, 57L))).thenReturn(Set.of("tottenham hotspur fc", "tottenham", "spurs"));
+
+        cache.onMatchResult(new MatchResultEvent(1, 2021, 73, 57, OffsetDateTime.now(), 1, 1));
+
+        assertTrue(cache.get(byAlias).isEmpty());
+    }
+
+    @Test
+    void teamNamesChanged_invalidatesEntriesRequestedByRemappedNames() {
+        var byAlias = new PredictionRequest("Spurs", "Arsenal", "PL", LocalDate.of(2024, 2, 1));
+        cache.put(byAlias, HOME_WIN);
+        cache.put(LIV_MCI, HOME_WIN);
+
+        cache.onTeamNamesChanged(new TeamDirectory.NamesChanged(Set.of("spurs")));
+
+        assertTrue(cache.get(byAlias).isEmpty());
+        assertTrue(cache.get(LIV_MCI).isPresent());
+    }
+
+    @Test
+    void invalidateTeams_returnsRemovedCount() {
+        cache.put(LIV_MCI, HOME_WIN);
+        cache.put(ARS_CHE, HOME_WIN);
+
+        assertEquals(1, cache.invalidateTeams(Set.of("LIVERPOOL")));
+        assertTrue(cache.get(LIV_MCI).isEmpty());
+        assertTrue(cache.get(ARS_CHE).isPresent());
+    }
+
+    @Test
+    void matchResult_withEmptyCache_skipsTeamLookup() {
+        cache.onMatchResult(new MatchResultEvent(1, 2021, 65, 62, OffsetDateTime.now(), 2, 0));
+
+        verifyNoInteractions(teamDirectory);
+    }
+
+    @Test
+    void statistics_areExportedAsMetrics() {
+        cache.put(LIV_MCI, HOME_WIN);
+        cache.get(LIV_MCI);
+        cache.get(ARS_CHE);
+
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "predictions").tag("result", "hit").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "predictions").tag("result", "miss").functionCounter().count());
+    }
+}
@@ -0,0 +1,101 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import org.jstats.matchlens_api.modules.ai_prediction.config.PrecomputeConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionRequest;
+import org.jstats.matchlens_api.modules.ai_prediction.repository.MatchPredictionRepository;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.feed.MatchResultEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class PredictionPrecomputeJobTests {
+
+    MatchPredictionService predictionService;
+    MatchPredictionRepository predictionRepository;
+    PrecomputeConfig config;
+
+    private static final Instant NOW = Instant.parse("2024-01-10T03:00:00Z");
+    private static final List<MatchPredictionRepository.Fixture> FIXTURES = List.of(
+            new MatchPredictionRepository.Fixture(1, new PredictionRequest("Liverpool FC", "Manchester City FC", "PL", LocalDate.of(2024, 1, 13)), true),
+            new MatchPredictionRepository.Fixture(2, new PredictionRequest("Arsenal FC", "Chelsea FC", "PL", LocalDate.of(2024, 1, 14)), true));
+
+    @BeforeEach
+    void setUp() {
+        predictionService = mock(MatchPredictionService.class);
+        predictionRepository = mock(MatchPredictionRepository.class);
+        config = new PrecomputeConfig();
+        config.setThrottle(Duration.ZERO);
+        when(predictionRepository.findUpcomingWithoutPrediction(any(), anyInt())).thenReturn(FIXTURES);
+    }
+
+    @Test
+    void run_precomputesFixturesWithinHorizon() {
+        var job = new PredictionPrecomputeJob(predictionService, predictionRepository, config, Clock.fixed(NOW, ZoneOffset.UTC));
+
+        job.run();
+
+        verify(predictionRepository).findUpcomingWithoutPrediction(
+                OffsetDateTime.ofInstant(NOW, ZoneOffset.UTC).plusDays(7), config.getMaxPerRun());
+        verify(predictionService).precompute(1, FIXTURES.get(0).request());
+        verify(predictionService).precompute(2, FIXTURES.get(1).request());
+    }
+
+    @Test
+    void run_stopsWhenWindowHasElapsed() {
+        // Each clock read advances 25 minutes, so the one-hour window closes before the second fixture
+        var clock = new Clock() {
+            Instant current = NOW;
+
+            @Override
+            public ZoneId getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                Instant result = current;
+                current = current.plus(Duration.ofMinutes(25));
+                return result;
+            }
+        };
+        config.setWindow(Duration.ofHours(1));
+        var job = new PredictionPrecomputeJob(predictionService, predictionRepository, config, clock);
+
+        job.run();
+
+        verify(predictionService).precompute(1, FIXTURES.get(0).request());
+        verify(predictionService, never()).precompute(eq(2L), any());
+    }
+
+    @Test
+    void run_isSkippedWhenDisabled() {
+        config.setEnabled(false);
+        new PredictionPrecomputeJob(predictionService, predictionRepository, config, Clock.systemUTC()).run();
+
+        verifyNoInteractions(predictionRepository, predictionService);
+    }
+
+    @Test
+    void matchResult_dropsStoredPredictionsOfBothTeams() {
+        new PredictionPrecomputeJob(predictionService, predictionRepository, config, Clock.systemUTC())
+                .onMatchResult(new MatchResultEvent(9, 2021, 64, 65, OffsetDateTime.now(), 1, 1));
+
+        verify(predictionRepository).deleteUpcomingForTeams(List.of(64L, 65L));
+    }
+}
@@ -0,0 +1,159 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jstats.matchlens_api.modules.ai_prediction.config.PromptConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.config.TierConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionRequest;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionResponse;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionTier;
+import org.jstats.matchlens_api.modules.football_data_org_gatherer.feed.MatchResultEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SemanticPredictionCacheTests {
+
+    TeamDirectory teamDirectory;
+    SimpleMeterRegistry registry;
+    SemanticPredictionCache cache;
+
+    private static final LocalDate MATCH_DATE = LocalDate.of(2024, 1, 15);
+    private static final PredictionRequest LIV_MCI =
+            new PredictionRequest("Liverpool", "Manchester City", "PL", MATCH_DATE);
+    private static final PredictionResponse HOME_WIN =
+            new PredictionResponse("HOME", 0.6, "r", List.of(), List.of());
+    private static final List<Double> QUERY = List.of(0.6, 0.8, 0.0);
+    private static final List<Double> PARAPHRASE = List.of(0.59, 0.8, 0.02);
+    private static final List<Double> UNRELATED = List.of(0.0, 0.6, 0.8);
+
+    private static PredictionRequest on(PredictionRequest request, LocalDate matchDate) {
+        return new PredictionRequest(request.homeTeam(), request.awayTeam(), request.competition(), matchDate);
+    }
+
+    @BeforeEach
+    void setUp() {
+        teamDirectory = mock(TeamDirectory.class);
+        when(teamDirectory.resolve("Liverpool")).thenReturn(Set.of(64L));
+        when(teamDirectory.resolve("Manchester City")).thenReturn(Set.of(65L));
+        registry = new SimpleMeterRegistry();
+        cache = new SemanticPredictionCache(new PromptConfig(), new TierConfig(), registry, teamDirectory);
+    }
+
+    @Test
+    void get_matchesSimilarQueryForSameDateOnly() {
+        cache.put(LIV_MCI, QUERY, HOME_WIN);
+
+        assertEquals(HOME_WIN, cache.get(LIV_MCI, PARAPHRASE).orElseThrow());
+        assertEquals(HOME_WIN, cache.get(LIV_MCI, List.of(1.2, 1.6, 0.0)).orElseThrow(), "similarity ignores magnitude");
+        assertTrue(cache.get(LIV_MCI, UNRELATED).isEmpty());
+        assertTrue(cache.get(on(LIV_MCI, MATCH_DATE.plusDays(1)), QUERY).isEmpty());
+    }
+
+    @Test
+    void get_respectsConfiguredThreshold() {
+        var config = new PromptConfig();
+        config.setSemanticCacheThreshold(0.99999);
+        cache = new SemanticPredictionCache(config, new TierConfig(), registry, teamDirectory);
+        cache.put(LIV_MCI, QUERY, HOME_WIN);
+
+        assertTrue(cache.get(LIV_MCI, PARAPHRASE).isEmpty());
+        assertTrue(cache.get(LIV_MCI, QUERY).isPresent());
+    }
+
+    @Test
+    void get_neverServesAnotherFixtureOfTheSameDay() {
+        when(teamDirectory.resolve("Arsenal")).thenReturn(Set.of(57L));
+        when(teamDirectory.resolve("Chelsea")).thenReturn(Set.of(61L));
+        var arsenalChelsea = new PredictionRequest("Arsenal", "Chelsea", "PL", MATCH_DATE);
+        var cityLiverpool = new PredictionRequest("Manchester City", "Liverpool", "PL", MATCH_DATE);
+        var awayWin = new PredictionResponse("AWAY", 0.5, "r", List.of(), List.of());
+        cache.put(LIV_MCI, QUERY, HOME_WIN);
+
+        assertTrue(SemanticPredictionCache.dot(SemanticPredictionCache.unit(QUERY),
+                SemanticPredictionCache.unit(PARAPHRASE)) >= new PromptConfig().getSemanticCacheThreshold());
+        assertTrue(cache.get(arsenalChelsea, PARAPHRASE).isEmpty(), "other teams");
+        assertTrue(cache.get(cityLiverpool, PARAPHRASE).isEmpty(), "same teams, other venue");
+        assertEquals(HOME_WIN, cache.get(new PredictionRequest("Liverpool", "Man City", "PL", MATCH_DATE), PARAPHRASE)
+                .orElseThrow(), "an unresolved name does not rule the entry out");
+
+        cache.put(arsenalChelsea, PARAPHRASE, awayWin);
+        assertEquals(awayWin, cache.get(arsenalChelsea, QUERY).orElseThrow());
+        assertEquals(HOME_WIN, cache.get(LIV_MCI, PARAPHRASE).orElseThrow());
+    }
+
+    @Test
+    void get_onlyServesTheTierCachedFor() {
+        var deepAnswer = new PredictionResponse("DRAW", 0.4, "r", List.of(), List.of());
+        cache.put(LIV_MCI.withTier(PredictionTier.FAST), QUERY, HOME_WIN);
+
+        assertTrue(cache.get(LIV_MCI.withTier(PredictionTier.DEEP), PARAPHRASE).isEmpty());
+        assertTrue(cache.get(LIV_MCI, PARAPHRASE).isEmpty(), "no tier asks for the default tier");
+
+        cache.put(LIV_MCI.withTier(PredictionTier.DEEP), QUERY, deepAnswer);
+        assertEquals(deepAnswer, cache.get(LIV_MCI.withTier(PredictionTier.DEEP), PARAPHRASE).orElseThrow());
+        assertEquals(HOME_WIN, cache.get(LIV_MCI.withTier(PredictionTier.FAST), PARAPHRASE).orElseThrow());
+    }
+
+    @Test
+    void put_skipsQueryAlreadyCoveredByAnEntry() {
+        var awayWin = new PredictionResponse("AWAY", 0.5, "r", List.of(), List.of());
+        cache.put(LIV_MCI, QUERY, HOME_WIN);
+        cache.put(new PredictionRequest("Liverpool", "Man City", "PL", MATCH_DATE), PARAPHRASE, awayWin);
+
+        assertEquals(HOME_WIN, cache.get(LIV_MCI, PARAPHRASE).orElseThrow());
+    }
+
+    @Test
+    void matchResult_invalidatesEntriesOfInvolvedTeams() {
+        cache.put(LIV_MCI, QUERY, HOME_WIN);
+        cache.put(new PredictionRequest("Arsenal", "Chelsea", "PL", MATCH_DATE), UNRELATED, HOME_WIN);
+
+        cache.onMatchResult(new MatchResultEvent(1, 2021, 65, 62, OffsetDateTime.now(), 2, 0));
+
+        assertTrue(cache.get(LIV_MCI, QUERY).isEmpty());
+        assertTrue(cache.get(new PredictionRequest("Arsenal", "Chelsea", "PL", MATCH_DATE), UNRELATED).isPresent());
+    }
+
+    @Test
+    void teamNamesChanged_invalidatesEntriesRequestedUnderThoseNames() {
+        var manCity = new PredictionRequest("Liverpool", "Man  City", "PL", MATCH_DATE);
+        when(teamDirectory.resolve("Man  City")).thenReturn(Set.of(65L));
+        cache.put(manCity, QUERY, HOME_WIN);
+        cache.put(new PredictionRequest("Arsenal", "Chelsea", "PL", MATCH_DATE), UNRELATED, HOME_WIN);
+
+        cache.onTeamNamesChanged(new TeamDirectory.NamesChanged(Set.of("man city")));
+
+        assertTrue(cache.get(manCity, QUERY).isEmpty());
+        assertTrue(cache.get(LIV_MCI, QUERY).isEmpty());
+        assertTrue(cache.get(new PredictionRequest("Arsenal", "Chelsea", "PL", MATCH_DATE), UNRELATED).isPresent());
+    }
+
+    @Test
+    void disabled_neitherStoresNorServes() {
+        var config = new PromptConfig();
+        config.setSemanticCacheEnabled(false);
+        cache = new SemanticPredictionCache(config, new TierConfig(), registry, teamDirectory);
+        cache.put(LIV_MCI, QUERY, HOME_WIN);
+
+        assertTrue(cache.get(LIV_MCI, QUERY).isEmpty());
+    }
+
+    @Test
+    void statistics_areExportedAsMetrics() {
+        cache.put(LIV_MCI, QUERY, HOME_WIN);
+        cache.get(LIV_MCI, PARAPHRASE);
+        cache.get(LIV_MCI, UNRELATED);
+        cache.get(LIV_MCI, UNRELATED);
+
+        assertEquals(1.0, registry.get("cache.gets").tag("cache", "semantic-predictions").tag("result", "hit").functionCounter().count());
+        assertEquals(2.0, registry.get("cache.gets").tag("cache", "semantic-predictions").tag("result", "miss").functionCounter().count());
+        assertEquals(1.0, registry.get("cache.size").tag("cache", "semantic-predictions").gauge().value());
+    }
+}
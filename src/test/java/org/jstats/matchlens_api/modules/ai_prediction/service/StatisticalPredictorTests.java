@@ -0,0 +1,78 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import org.jstats.matchlens_api.modules.ai_prediction.model.MatchContext;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class StatisticalPredictorTests {
+
+    private static final LocalDate MATCH_DATE = LocalDate.of(2024, 5, 19);
+
+    TeamStatsProjection teamStats;
+    StatisticalPredictor predictor;
+
+    @BeforeEach
+    void setUp() {
+        teamStats = mock(TeamStatsProjection.class);
+        // 380 matches, 1.5 home and 1.2 away goals per match
+        when(teamStats.leagueAverages(any())).thenReturn(new TeamStatsProjection.LeagueAverages(380, 570, 456));
+        when(teamStats.forTeam(anyString(), any(LocalDate.class))).thenReturn(MatchContext.TeamStats.empty());
+        predictor = new StatisticalPredictor(teamStats);
+    }
+
+    private static MatchContext.TeamStats stats(MatchContext.VenueRecord home, MatchContext.VenueRecord away) {
+        return MatchContext.TeamStats.of(home, away, "");
+    }
+
+    @Test
+    void outcome_probabilitiesSumToOne() {
+        var outcome = StatisticalPredictor.outcome(1.4, 1.1);
+
+        assertEquals(1.0, outcome.homeWin() + outcome.draw() + outcome.awayWin(), 1e-9);
+        assertTrue(outcome.homeWin() > outcome.awayWin());
+    }
+
+    @Test
+    void outcome_equalRatesAreSymmetric() {
+        var outcome = StatisticalPredictor.outcome(1.3, 1.3);
+
+        assertEquals(outcome.homeWin(), outcome.awayWin(), 1e-12);
+        assertEquals("HOME", outcome.predictedWinner(), "ties resolve to the first outcome");
+    }
+
+    @Test
+    void predict_unknownTeamsGetLeagueAverageRates() {
+        var outcome = predictor.predict("Nobody", "Nowhere", MATCH_DATE).orElseThrow();
+
+        assertEquals(1.5, outcome.expectedHomeGoals(), 1e-9);
+        assertEquals(1.2, outcome.expectedAwayGoals(), 1e-9);
+        assertEquals("HOME", outcome.predictedWinner());
+    }
+
+    @Test
+    void predict_strongerAwaySideIsFavoured() {
+        when(teamStats.forTeam("Weak", MATCH_DATE)).thenReturn(stats(
+                new MatchContext.VenueRecord(19, 3, 4, 12, 15, 38), MatchContext.VenueRecord.empty()));
+        when(teamStats.forTeam("Strong", MATCH_DATE)).thenReturn(stats(
+                MatchContext.VenueRecord.empty(), new MatchContext.VenueRecord(19, 14, 3, 2, 42, 12)));
+
+        var outcome = predictor.predict("Weak", "Strong", MATCH_DATE).orElseThrow();
+
+        assertEquals("AWAY", outcome.predictedWinner());
+        assertTrue(outcome.expectedAwayGoals() > outcome.expectedHomeGoals());
+    }
+
+    @Test
+    void predict_withoutResultsIsEmpty() {
+        when(teamStats.leagueAverages(any())).thenReturn(new TeamStatsProjection.LeagueAverages(0, 0, 0));
+
+        assertTrue(predictor.predict("Liverpool", "Arsenal", MATCH_DATE).isEmpty());
+    }
+}
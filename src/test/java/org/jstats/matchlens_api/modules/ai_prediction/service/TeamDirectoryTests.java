@@ -0,0 +1,83 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class TeamDirectoryTests {
+
+    NamedParameterJdbcTemplate jdbc;
+    ApplicationEventPublisher publisher;
+    TeamDirectory directory;
+
+    @BeforeEach
+    void setUp() {
+        jdbc = mock(NamedParameterJdbcTemplate.class);
+        when(jdbc.queryForObject(anyString(), any(SqlParameterSource.class), eq(String.class))).thenReturn("v1");
+        when(jdbc.queryForList(contains("FROM fd_team"), any(SqlParameterSource.class))).thenReturn(List.of(
+                Map.of("id", 64L, "name", "Liverpool FC", "short_name", "Liverpool", "tla", "LIV"),
+                Map.of("id", 65L, "name", "Manchester City FC", "short_name", "Man City", "tla", "MCI"),
+                Map.of("id", 66L, "name", "Manchester United FC", "short_name", "Man United", "tla", "MUN")));
+        when(jdbc.queryForList(contains("FROM team_alias"), any(SqlParameterSource.class))).thenReturn(List.of(
+                Map.of("alias", "Man Utd", "team_id", 66L)));
+        publisher = mock(ApplicationEventPublisher.class);
+        directory = new TeamDirectory(jdbc, publisher);
+        directory.refresh();
+    }
+
+    @Test
+    void resolve_matchesNamesShortNamesTlasAndAliases() {
+        assertEquals(Set.of(64L), directory.resolve("Liverpool FC"));
+        assertEquals(Set.of(64L), directory.resolve("  liverpool "));
+        assertEquals(Set.of(65L), directory.resolve("MCI"));
+        assertEquals(Set.of(65L), directory.resolve("Manchester City"));
+        assertEquals(Set.of(66L), directory.resolve("man  utd"));
+    }
+
+    @Test
+    void resolve_fallsBackToContainedNames() {
+        assertEquals(Set.of(65L, 66L), directory.resolve("Manchester"));
+        assertTrue(directory.resolve("Real Madrid").isEmpty());
+        assertTrue(directory.resolve(" ").isEmpty());
+    }
+
+    @Test
+    void refresh_skipsReloadWhenTablesAreUnchanged() {
+        directory.refresh();
+
+        verify(jdbc, times(1)).queryForList(contains("FROM fd_team"), any(SqlParameterSource.class));
+    }
+
+    @Test
+    void namesOf_includesAliases() {
+        assertEquals(Set.of("manchester united fc", "manchester united", "man united", "mun", "man utd"),
+                directory.namesOf(Set.of(66L)));
+    }
+
+    @Test
+    void refresh_publishesRemappedAndRemovedNames() {
+        when(jdbc.queryForObject(anyString(), any(SqlParameterSource.class), eq(String.class))).thenReturn("v2");
+        when(jdbc.queryForList(contains("FROM team_alias"), any(SqlParameterSource.class))).thenReturn(List.of(
+                Map.of("alias", "Man City", "team_id", 66L)));
+
+        directory.refresh();
+
+        assertEquals(Set.of(66L), directory.resolve("man city"));
+        verify(publisher).publishEvent(new TeamDirectory.NamesChanged(Set.of("man city", "man utd")));
+    }
+
+    @Test
+    void refresh_doesNotPublishOnFirstLoad() {
+        verifyNoInteractions(publisher);
+    }
+}
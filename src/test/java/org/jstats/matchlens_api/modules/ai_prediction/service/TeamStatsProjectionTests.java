@@ -0,0 +1,77 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import org.jstats.matchlens_api.modules.ai_prediction.config.PromptConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.model.MatchContext;
+import org.jstats.matchlens_api.modules.ai_prediction.repository.TeamStatsRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class TeamStatsProjectionTests {
+
+    private static final LocalDate MATCHDAY = LocalDate.of(2024, 5, 19);
+    private static final OffsetDateTime EARLY_KICK_OFF = MATCHDAY.atTime(12, 30).atOffset(ZoneOffset.UTC);
+
+    TeamStatsRepository repository;
+    TeamStatsProjection projection;
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(TeamStatsRepository.class);
+        projection = new TeamStatsProjection(repository, mock(TeamDirectory.class), new PromptConfig());
+    }
+
+    private static MatchContext.TeamStats stats(int homeMatches, int homeGoals, int awayGoals) {
+        return MatchContext.TeamStats.of(
+                new MatchContext.VenueRecord(homeMatches, 0, homeMatches, 0, homeGoals, 0),
+                new MatchContext.VenueRecord(1, 0, 1, 0, awayGoals, 0),
+                "");
+    }
+
+    @Test
+    void laterFixtureOnAMatchdayInProgress_isServedFromMemory() {
+        // Team 1 played the early kick-off; team 2 last played a week before
+        when(repository.findAll()).thenReturn(List.of(
+                new TeamStatsRepository.TeamStatsRow(1, stats(10, 20, 5), EARLY_KICK_OFF),
+                new TeamStatsRepository.TeamStatsRow(2, stats(8, 12, 4), EARLY_KICK_OFF.minusDays(7))));
+        var beforeEarlyKickOff = stats(9, 18, 5);
+        when(repository.findAsOf(eq(1L), eq(MATCHDAY.atStartOfDay().atOffset(ZoneOffset.UTC)), anyInt()))
+                .thenReturn(beforeEarlyKickOff);
+        projection.initialize();
+        clearInvocations(repository);
+
+        assertSame(beforeEarlyKickOff, projection.forTeam(1L, MATCHDAY));
+        assertEquals(8, projection.forTeam(2L, MATCHDAY).home().matches());
+        assertEquals(new TeamStatsProjection.LeagueAverages(17, 30, 9), projection.leagueAverages(MATCHDAY));
+        assertEquals(new TeamStatsProjection.LeagueAverages(18, 32, 9), projection.leagueAverages(MATCHDAY.plusDays(1)));
+        verify(repository, never()).findAsOf(anyLong(), any(), anyInt());
+        verify(repository, never()).leagueTotalsBefore(any());
+    }
+
+    @Test
+    void earlierDay_isComputedFromTheMatches() {
+        when(repository.findAll()).thenReturn(List.of(
+                new TeamStatsRepository.TeamStatsRow(1, stats(10, 20, 5), EARLY_KICK_OFF)));
+        when(repository.findAsOf(anyLong(), any(), anyInt())).thenReturn(stats(9, 18, 5));
+        when(repository.leagueTotalsBefore(any())).thenReturn(new TeamStatsRepository.LeagueTotals(7, 11, 3));
+        projection.initialize();
+        clearInvocations(repository);
+
+        projection.forTeam(1L, MATCHDAY.minusDays(3));
+        var league = projection.leagueAverages(MATCHDAY.minusDays(3));
+
+        assertEquals(new TeamStatsProjection.LeagueAverages(7, 11, 3), league);
+        verify(repository).findAsOf(eq(1L), eq(MATCHDAY.minusDays(3).atStartOfDay().atOffset(ZoneOffset.UTC)), anyInt());
+    }
+}
@@ -0,0 +1,129 @@
+package org.jstats.matchlens_api.modules.ai_prediction.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.jstats.matchlens_api.modules.ai_prediction.config.BulkheadConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.config.OllamaConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.config.TierConfig;
+import org.jstats.matchlens_api.modules.ai_prediction.model.LlmPrediction;
+import org.jstats.matchlens_api.modules.ai_prediction.model.PredictionTier;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TierSelectorTests {
+
+    SimpleMeterRegistry registry;
+    TierConfig config;
+    OllamaBulkheads bulkheads;
+    TierSelector selector;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        config = new TierConfig();
+        var bulkheadConfig = new BulkheadConfig();
+        bulkheadConfig.setChat(new BulkheadConfig.Limits(1, 4, Duration.ofSeconds(5)));
+        bulkheads = new OllamaBulkheads(bulkheadConfig, registry);
+        selector = new TierSelector(config, new OllamaConfig(), bulkheads, registry);
+    }
+
+    private double downgraded(PredictionTier from) {
+        return registry.get("matchlens.prediction.tier.downgraded").tag("from", from.name()).counter().count();
+    }
+
+    @Test
+    void select_usesRequestedOrDefaultTierWhenIdle() {
+        assertEquals(PredictionTier.STANDARD, selector.select(null).tier());
+        assertEquals(PredictionTier.DEEP, selector.select(PredictionTier.DEEP).tier());
+        assertEquals(PredictionTier.FAST, selector.select(PredictionTier.FAST).tier());
+        assertEquals(PredictionTier.DEEP, selector.selectOffline(null).tier());
+    }
+
+    @Test
+    void options_overrideModelLimitsButKeepBaseOptions() {
+        var fast = selector.options(PredictionTier.FAST);
+        var standard = selector.options(PredictionTier.STANDARD);
+
+        assertEquals("llama3.2:1b", fast.getModel());
+        assertEquals(2048, fast.getNumCtx());
+        assertEquals(256, fast.getNumPredict());
+        assertEquals(LlmPrediction.JSON_SCHEMA, fast.getFormat());
+        assertNull(standard.getModel(), "the standard tier inherits the configured chat model");
+        assertEquals(4096, standard.getNumCtx());
+        assertEquals("1800s", standard.getKeepAlive());
+    }
+
+    @Test
+    void select_downgradesToFastWhileAverageLatencyIsHigh() {
+        config.setDowngradeLatency(Duration.ofSeconds(2));
+        var standard = selector.select(PredictionTier.STANDARD);
+        selector.recordLatency(standard, Duration.ofSeconds(5).toNanos());
+
+        var downgraded = selector.select(PredictionTier.DEEP);
+        assertEquals(new TierSelector.Selection(PredictionTier.FAST, true, true), downgraded);
+        assertEquals(PredictionTier.FAST, selector.select(null).tier());
+        assertEquals(PredictionTier.DEEP, selector.selectOffline(PredictionTier.DEEP).tier(), "offline work is not downgraded");
+        assertFalse(selector.selectOffline(PredictionTier.DEEP).downgraded());
+        assertEquals(1.0, downgraded(PredictionTier.DEEP));
+        assertEquals(1.0, downgraded(PredictionTier.STANDARD));
+
+        for (int i = 0; i < 20; i++) {
+            selector.recordLatency(standard, Duration.ofMillis(300).toNanos());
+        }
+        assertEquals(PredictionTier.STANDARD, selector.select(null).tier(), "faster answers bring the average back down");
+    }
+
+    @Test
+    void averageLatency_ignoresOfflineAndFastGenerations() {
+        config.setDowngradeLatency(Duration.ofSeconds(2));
+
+        for (int i = 0; i < 5; i++) {
+            selector.recordLatency(selector.selectOffline(PredictionTier.DEEP), Duration.ofSeconds(30).toNanos());
+        }
+        assertEquals(PredictionTier.STANDARD, selector.select(null).tier(), "slow precomputation does not downgrade");
+
+        selector.recordLatency(selector.select(null), Duration.ofSeconds(5).toNanos());
+        for (int i = 0; i < 20; i++) {
+            selector.recordLatency(selector.select(PredictionTier.FAST), Duration.ofMillis(100).toNanos());
+        }
+        assertEquals(PredictionTier.FAST, selector.select(null).tier(), "fast answers do not hide a slow default tier");
+        assertEquals(5, registry.get("matchlens.prediction.generation").tag("tier", "DEEP").timer().count());
+    }
+
+    @Test
+    void select_probesTheRequestedTierOncePerInterval() {
+        config.setDowngradeLatency(Duration.ofSeconds(2));
+        config.setDowngradeProbeInterval(Duration.ZERO);
+        selector.recordLatency(selector.select(null), Duration.ofSeconds(5).toNanos());
+
+        var probe = selector.select(null);
+        assertEquals(new TierSelector.Selection(PredictionTier.STANDARD, false, true), probe);
+        selector.recordLatency(probe, Duration.ofMillis(100).toNanos());
+        config.setDowngradeProbeInterval(Duration.ofMinutes(1));
+        assertEquals(PredictionTier.FAST, selector.select(null).tier(), "the average is still above the threshold");
+    }
+
+    @Test
+    void select_downgradesToFastWhileChatQueueIsDeep() throws Exception {
+        config.setDowngradeQueueDepth(1);
+        var chat = bulkheads.chat();
+
+        try (var held = chat.acquire(); var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            var waiter = executor.submit(() -> chat.execute(() -> "done"));
+            long until = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (chat.queueDepth() < 1 && System.nanoTime() < until) {
+                Thread.sleep(5);
+            }
+
+            assertEquals(PredictionTier.FAST, selector.select(PredictionTier.STANDARD).tier());
+
+            held.close();
+            assertEquals("done", waiter.get());
+        }
+        assertEquals(PredictionTier.STANDARD, selector.select(PredictionTier.STANDARD).tier());
+    }
+}
@@ -1,5 +1,6 @@
 package org.jstats.matchlens_api.modules.football_data_org_gatherer.ingest;
 
+import org.jstats.matchlens_api.core.config.SliceDataSourcePools;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,7 +19,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 @org.springframework.boot.test.autoconfigure.jdbc.JdbcTest
 @org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase(replace = org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE)
-@org.springframework.context.annotation.Import(FdRawIngestRepository.class)
+@org.springframework.context.annotation.Import({FdRawIngestRepository.class, SliceDataSourcePools.class})
 class FdRawIngestRepositoryIntegrationTests {
 
     @TestConfiguration(proxyBeanMethods = false)
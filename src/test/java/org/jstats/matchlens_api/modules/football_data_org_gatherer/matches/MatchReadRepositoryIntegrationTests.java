@@ -0,0 +1,153 @@
+package org.jstats.matchlens_api.modules.football_data_org_gatherer.matches;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Bean;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@org.springframework.boot.test.autoconfigure.jdbc.JdbcTest
+@org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase(replace = org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase.Replace.NONE)
+class MatchReadRepositoryIntegrationTests {
+
+    @TestConfiguration(proxyBeanMethods = false)
+    static class TestContainersLocal {
+        @Bean
+        @ServiceConnection
+        PostgreSQLContainer<?> postgresContainer() {
+            return new PostgreSQLContainer<>(DockerImageName.parse("pgvector/pgvector:pg16"));
+        }
+    }
+
+    private static final OffsetDateTime EPOCH = OffsetDateTime.of(2024, 8, 1, 15, 0, 0, 0, ZoneOffset.UTC);
+
+    @Autowired
+    NamedParameterJdbcTemplate jdbc;
+
+    @Autowired
+    DataSource dataSource;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    MatchReadRepository repository;
+
+    @BeforeEach
+    void seed() {
+        // A fetch size of 2 makes every page span several cursor fetches
+        repository = new MatchReadRepository(
+                new CursorReader(dataSource, transactionManager, new MatchReadProperties(2, 100, 10000, Duration.ofMinutes(1))));
+
+        var none = new MapSqlParameterSource();
+        jdbc.update("INSERT INTO fd_competition (id, code, name) VALUES (1, 'PL', 'Premier League'), (2, 'BL1', 'Bundesliga')", none);
+        jdbc.update("INSERT INTO fd_team (id, name) SELECT g, 'Team ' || g FROM generate_series(1, 6) g", none);
+        // Two matches per day, so pages have to break ties on id; every fifth match is in the Bundesliga
+        jdbc.update("""
+                INSERT INTO fd_match (id, competition_id, utc_date, status, home_team_id, away_team_id, score_json)
+                SELECT g, CASE WHEN g % 5 = 0 THEN 2 ELSE 1 END, :epoch + (g / 2) * interval '1 day', 'FINISHED',
+                       1 + g % 6, 1 + (g + 1) % 6, '{"fullTime": {"home": 1, "away": 0}}'
+                FROM generate_series(1, 20) g
+                """, new MapSqlParameterSource(Map.of("epoch", EPOCH)));
+        jdbc.update("INSERT INTO fd_match (id, competition_id, status) VALUES (21, 1, 'POSTPONED')", none);
+    }
+
+    private List<MatchSummary> page(MatchQuery query) {
+        List<MatchSummary> rows = new ArrayList<>();
+        repository.forEach(query, rows::add);
+        return rows;
+    }
+
+    private List<Long> allPages(String competition, Long team, LocalDate from, LocalDate to, int limit) {
+        List<Long> ids = new ArrayList<>();
+        MatchQuery.Keyset after = null;
+        while (true) {
+            List<MatchSummary> rows = page(new MatchQuery(competition, team, from, to, after, limit));
+            rows.forEach(row -> ids.add(row.id()));
+            if (rows.size() < limit) {
+                return ids;
+            }
+            var last = rows.getLast();
+            after = new MatchQuery.Keyset(last.utcDate(), last.id());
+        }
+    }
+
+    private List<Long> expected(String where) {
+        return jdbc.queryForList("SELECT id FROM fd_match m WHERE m.utc_date IS NOT NULL AND " + where
+                + " ORDER BY m.utc_date, m.id", new MapSqlParameterSource(), Long.class);
+    }
+
+    @Test
+    void keysetPages_listEveryMatchOnceInKickOffOrder() {
+        List<Long> ids = allPages(null, null, null, null, 3);
+
+        assertEquals(expected("true"), ids);
+        assertEquals(20, ids.size(), "matches without kick-off time are not listed");
+    }
+
+    @Test
+    void teamFilter_coversBothVenues() {
+        List<Long> ids = allPages(null, 3L, null, null, 2);
+
+        assertEquals(expected("(m.home_team_id = 3 OR m.away_team_id = 3)"), ids);
+    }
+
+    @Test
+    void slowConsumer_isAbortedAfterTheStreamTimeout() {
+        var slow = new MatchReadRepository(
+                new CursorReader(dataSource, transactionManager, new MatchReadProperties(2, 100, 10000, Duration.ofMillis(200))));
+        List<Long> ids = new ArrayList<>();
+
+        assertThrows(QueryTimeoutException.class, () -> slow.forEach(new MatchQuery(null, null, null, null, null, 20), row -> {
+            ids.add(row.id());
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+        assertTrue(ids.size() < 20, "the cursor is closed before the page is complete");
+        assertEquals(20, page(new MatchQuery(null, null, null, null, null, 20)).size(), "the connection is usable again");
+    }
+
+    @Test
+    void competitionAndDays_areApplied() {
+        var from = EPOCH.toLocalDate().plusDays(2);
+        var to = EPOCH.toLocalDate().plusDays(7);
+
+        List<Long> ids = allPages("PL", null, from, to, 4);
+
+        assertEquals(expected("m.competition_id = 1 AND m.utc_date >= '2024-08-03T00:00:00Z' AND m.utc_date < '2024-08-09T00:00:00Z'"), ids);
+    }
+
+    @Test
+    void rows_carryTeamsAndTypedScore() {
+        var row = page(new MatchQuery("BL1", null, null, null, null, 1)).getFirst();
+
+        assertEquals(5, row.id());
+        assertEquals("BL1", row.competition());
+        assertEquals(EPOCH.plusDays(2), row.utcDate());
+        assertEquals("Team 6", row.homeTeam());
+        assertEquals(1L, row.awayTeamId());
+        assertEquals(1, row.homeGoals());
+        assertEquals(0, row.awayGoals());
+        assertNull(row.halfTimeHomeGoals());
+    }
+}